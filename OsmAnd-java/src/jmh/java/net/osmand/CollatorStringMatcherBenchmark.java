@@ -0,0 +1,82 @@
+package net.osmand;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollatorStringMatcherBenchmark {
+
+	private static final String[][] NAMES = {
+			{ "Main Street", "Baker Street Station", "Saint John's Wood Road", "Regent's Park", "High Street Kensington" },
+			{ "Hauptstraße", "Café de l'Église", "Rue du Faubourg Saint-Honoré", "Zürich Hauptbahnhof", "Łódź Fabryczna" },
+			{ "Тверская улица", "Невский проспект", "Большая Садовая улица", "Площадь Революции", "Улица Ленина" },
+			{ "東京駅", "新宿三丁目", "渋谷センター街", "銀座四丁目", "上野恩賜公園" } };
+	private static final String[][] PARTS = {
+			{ "street", "st", "park", "road", "kens" },
+			{ "strasse", "eglise", "honore", "zurich", "lodz" },
+			{ "улица", "нев", "садовая", "площ", "ленина" },
+			{ "東京", "新宿", "渋谷", "銀座", "公園" } };
+
+	@Param({ "LATIN", "ACCENTED", "CYRILLIC", "CJK" })
+	public String script;
+
+	@Param({ "CHECK_ONLY_STARTS_WITH", "CHECK_STARTS_FROM_SPACE", "CHECK_STARTS_FROM_SPACE_NOT_BEGINNING",
+			"CHECK_EQUALS_FROM_SPACE", "CHECK_CONTAINS", "CHECK_EQUALS" })
+	public String mode;
+
+	private String[] names;
+	private String[] parts;
+	private StringMatcherMode matcherMode;
+	private Collator collator;
+	private CollatorStringMatcher[] matchers;
+
+	@Setup
+	public void setUp() {
+		int ind = script.equals("LATIN") ? 0 : script.equals("ACCENTED") ? 1 : script.equals("CYRILLIC") ? 2 : 3;
+		names = NAMES[ind];
+		parts = PARTS[ind];
+		matcherMode = StringMatcherMode.valueOf(mode);
+		collator = OsmAndCollator.primaryCollator();
+		matchers = new CollatorStringMatcher[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			matchers[i] = new CollatorStringMatcher(parts[i], matcherMode);
+		}
+	}
+
+	@Benchmark
+	public void cmatches(Blackhole bh) {
+		for (String part : parts) {
+			for (String name : names) {
+				bh.consume(CollatorStringMatcher.cmatches(collator, name, part, matcherMode));
+			}
+		}
+	}
+
+	@Benchmark
+	public void matcherMatches(Blackhole bh) {
+		for (CollatorStringMatcher matcher : matchers) {
+			for (String name : names) {
+				bh.consume(matcher.matches(name));
+			}
+		}
+	}
+}
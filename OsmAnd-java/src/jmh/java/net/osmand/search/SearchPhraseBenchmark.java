@@ -0,0 +1,54 @@
+package net.osmand.search;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.data.LatLon;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchSettings;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchPhraseBenchmark {
+
+	@Param({ "m", "main st", "22 baker street london", "52.3 4.9", "кафе на невском" })
+	public String text;
+
+	private SearchSettings settings;
+	private SearchPhrase emptyPhrase;
+	private SearchPhrase prefixPhrase;
+
+	@Setup
+	public void setUp() {
+		SearchUICoreTest.defaultSetup();
+		settings = new SearchSettings((SearchSettings) null).setOriginalLocation(new LatLon(52.37, 4.89));
+		emptyPhrase = SearchPhrase.emptyPhrase(settings);
+		prefixPhrase = emptyPhrase.generateNewPhrase(text.substring(0, text.length() - 1), settings);
+	}
+
+	@Benchmark
+	public SearchPhrase generateNewPhrase() {
+		return emptyPhrase.generateNewPhrase(text, settings);
+	}
+
+	// next keystroke
+	@Benchmark
+	public SearchPhrase generateNextPhrase() {
+		return prefixPhrase.generateNewPhrase(text, settings);
+	}
+}
@@ -0,0 +1,89 @@
+package net.osmand.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResultCollectionBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int size;
+
+	// part of results which duplicate other results
+	@Param({ "0.0", "0.3" })
+	public double duplicates;
+
+	private SearchPhrase phrase;
+	private List<SearchResult> results;
+	private List<SearchResult> firstHalf;
+	private List<SearchResult> secondHalf;
+
+	@Setup
+	public void setUp() {
+		SearchUICoreTest.defaultSetup();
+		SearchSettings settings = new SearchSettings((SearchSettings) null).setOriginalLocation(new LatLon(52.37, 4.89));
+		phrase = SearchPhrase.emptyPhrase(settings);
+		Random rnd = new Random(size);
+		results = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			SearchResult r = new SearchResult(phrase);
+			if (i > 0 && rnd.nextDouble() < duplicates) {
+				SearchResult d = results.get(rnd.nextInt(i));
+				r.localeName = d.localeName;
+				r.location = d.location;
+				r.objectType = d.objectType;
+			} else {
+				r.localeName = "Street " + rnd.nextInt(size);
+				r.location = new LatLon(52.37 + rnd.nextGaussian() * 0.05, 4.89 + rnd.nextGaussian() * 0.05);
+				r.objectType = rnd.nextBoolean() ? ObjectType.STREET : ObjectType.CITY;
+			}
+			r.priority = rnd.nextInt(5);
+			r.priorityDistance = 1;
+			results.add(r);
+		}
+		firstHalf = results.subList(0, size / 2);
+		secondHalf = results.subList(size / 2, size);
+	}
+
+	@Benchmark
+	public SearchResultCollection addSearchResultsResort() {
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(results, true, true);
+		return collection;
+	}
+
+	// results of second api are merged into sorted results of first one
+	@Benchmark
+	public SearchResultCollection addSearchResultsMerge() {
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(firstHalf, true, true);
+		collection.addSearchResults(secondHalf, true, true);
+		return collection;
+	}
+}
@@ -0,0 +1,125 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.core.SearchCoreAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchAmenityByNameAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+/**
+ * Shallow search of one api over obf of search test resources (src/test/resources/search/*.json with *.obf.gz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchUICoreBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+
+	@Param({ "address", "amenity", "amenity_types" })
+	public String api;
+
+	private File obfFile;
+	private BinaryMapIndexReader reader;
+	private SearchUICore core;
+	private String text;
+	private Class<? extends SearchCoreAPI> apiClass;
+	private final ResultMatcher<SearchResult> matcher = new ResultMatcher<SearchResult>() {
+
+		@Override
+		public boolean publish(SearchResult object) {
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+
+	@Setup
+	public void setUp() throws IOException {
+		SearchUICoreTest.defaultSetup();
+		File testFile = findTestFile();
+		JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+		SearchSettings s = SearchSettings.parseJSON(sourceJson.getJSONObject("settings"));
+		obfFile = File.createTempFile("search", ".obf");
+		GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(
+				new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz"))));
+		FileOutputStream fous = new FileOutputStream(obfFile);
+		Algorithms.streamCopy(gzin, fous);
+		fous.close();
+		gzin.close();
+		reader = new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
+		s.setOfflineIndexes(Collections.singletonList(reader));
+
+		core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+		core.updateSettings(s);
+		text = sourceJson.optString("phrase", sourceJson.optJSONArray("phrases") != null
+				? sourceJson.getJSONArray("phrases").getString(0) : "");
+		if (api.equals("address")) {
+			apiClass = SearchAddressByNameAPI.class;
+		} else if (api.equals("amenity")) {
+			apiClass = SearchAmenityByNameAPI.class;
+		} else {
+			apiClass = SearchAmenityTypesAPI.class;
+		}
+	}
+
+	private static File findTestFile() throws IOException {
+		File[] files = new File(SEARCH_RESOURCES_PATH).listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.getName().endsWith(".json")
+						&& new File(f.getParentFile(), f.getName().replace(".json", ".obf.gz")).exists()) {
+					return f;
+				}
+			}
+		}
+		throw new IOException("No search test resources with obf in " + SEARCH_RESOURCES_PATH);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+		obfFile.delete();
+	}
+
+	@Benchmark
+	public SearchResultCollection shallowSearch() throws IOException {
+		return core.shallowSearch(apiClass, text, matcher);
+	}
+}
@@ -1,6 +1,8 @@
 package net.osmand;
 
+import java.text.Normalizer;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 
@@ -15,6 +17,7 @@ public class CollatorStringMatcher implements StringMatcher {
 	private final Collator collator;
 	private final StringMatcherMode mode;
 	private final String part;
+	private final String foldedPart;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -43,6 +46,7 @@ public class CollatorStringMatcher implements StringMatcher {
 			}
 		}
 		this.part = part;
+		this.foldedPart = foldString(part);
 		this.mode = mode;
 		
 	}
@@ -50,10 +54,179 @@ public class CollatorStringMatcher implements StringMatcher {
 	public Collator getCollator() {
 		return collator;
 	}
+
+	public StringMatcherMode getMode() {
+		return mode;
+	}
+
+	public String getFoldedPart() {
+		return foldedPart;
+	}
 	
 	@Override
 	public boolean matches(String name) {
-		return cmatches(collator, name, part, mode);
+		return matchesFolded(foldString(name));
+	}
+
+	/**
+	 * Matches name already converted with {@link #foldString(String)}
+	 */
+	public boolean matchesFolded(String foldedName) {
+		switch (mode) {
+		case CHECK_CONTAINS:
+			return foldedName.contains(foldedPart);
+		case CHECK_EQUALS_FROM_SPACE:
+			return fstartsWith(foldedName, foldedPart, true, true, true);
+		case CHECK_STARTS_FROM_SPACE:
+			return fstartsWith(foldedName, foldedPart, true, true, false);
+		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+			return fstartsWith(foldedName, foldedPart, false, true, false);
+		case CHECK_ONLY_STARTS_WITH:
+			return fstartsWith(foldedName, foldedPart, true, false, false);
+		case CHECK_EQUALS:
+			return foldedName.equals(foldedPart);
+		}
+		return false;
+	}
+
+	/**
+	 * Converts string to the form where primary collator differences are the only differences left:
+	 * lower case, without accents and with expanded letters, so it could be matched with plain char comparison.
+	 * Every char is folded only if collator of default locale treats it as equal to folded form 
+	 * (i.e. 'å' stays in swedish and 'й' in russian), so result depends on the default locale.
+	 */
+	public static String foldString(String s) {
+		boolean simple = true;
+		for (int i = 0; i < s.length() && simple; i++) {
+			char c = s.charAt(i);
+			simple = c < 0x80 && (c < 'A' || c > 'Z');
+		}
+		if (simple) {
+			return s;
+		}
+		FoldTable table = foldTable;
+		if (table == null || !table.locale.equals(Locale.getDefault())) {
+			table = new FoldTable(Locale.getDefault());
+			foldTable = table;
+		}
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			sb.append(table.fold(s.charAt(i)));
+		}
+		return sb.toString();
+	}
+
+	private static volatile FoldTable foldTable;
+
+	/**
+	 * Folded forms of chars for the locale, calculated lazily by blocks of 256 chars
+	 */
+	private static class FoldTable {
+		private final Locale locale;
+		private final Collator collator;
+		private final AtomicReferenceArray<String[]> blocks = new AtomicReferenceArray<String[]>(256);
+
+		FoldTable(Locale locale) {
+			this.locale = locale;
+			this.collator = OsmAndCollator.primaryCollator();
+		}
+
+		String fold(char c) {
+			String[] block = blocks.get(c >> 8);
+			if (block == null) {
+				block = new String[256];
+				int first = c & 0xff00;
+				for (int i = 0; i < block.length; i++) {
+					block[i] = foldChar((char) (first + i));
+				}
+				blocks.set(c >> 8, block);
+			}
+			return block[c & 0xff];
+		}
+
+		private String foldChar(char c) {
+			String original = String.valueOf(c);
+			if (Character.isSurrogate(c)) {
+				return original;
+			}
+			String lower = original.toLowerCase(locale);
+			String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+			StringBuilder sb = new StringBuilder(decomposed.length());
+			for (int i = 0; i < decomposed.length(); i++) {
+				char d = decomposed.charAt(i);
+				if (Character.getType(d) == Character.NON_SPACING_MARK) {
+					continue;
+				}
+				switch (d) {
+				// letters without canonical decomposition
+				case 'ß':
+					sb.append("ss");
+					break;
+				case 'æ':
+					sb.append("ae");
+					break;
+				case 'œ':
+					sb.append("oe");
+					break;
+				case 'ø':
+					sb.append('o');
+					break;
+				case 'đ':
+					sb.append('d');
+					break;
+				case 'ł':
+					sb.append('l');
+					break;
+				case 'ħ':
+					sb.append('h');
+					break;
+				case 'ı':
+					sb.append('i');
+					break;
+				default:
+					if (d >= '\u30a1' && d <= '\u30f6') {
+						// katakana to hiragana
+						sb.append((char) (d - 0x60));
+					} else {
+						sb.append(d);
+					}
+				}
+			}
+			String folded = sb.toString();
+			if (folded.equals(lower) || collator.equals(original, folded)) {
+				return folded;
+			}
+			return lower;
+		}
+	}
+
+	private static boolean fstartsWith(String searchIn, String theStart, boolean checkBeginning, boolean checkSpaces,
+			boolean equals) {
+		int searchInLength = searchIn.length();
+		int startLength = theStart.length();
+		if (startLength == 0) {
+			return true;
+		}
+		if (startLength > searchInLength) {
+			return false;
+		}
+		if (checkBeginning && searchIn.startsWith(theStart)) {
+			if (!equals || startLength == searchInLength || isSpace(searchIn.charAt(startLength))) {
+				return true;
+			}
+		}
+		if (checkSpaces) {
+			int i = searchIn.indexOf(theStart, 1);
+			while (i != -1) {
+				if (isSpace(searchIn.charAt(i - 1)) && !isSpace(searchIn.charAt(i))) {
+					if (!equals || i + startLength == searchInLength || isSpace(searchIn.charAt(i + startLength))) {
+						return true;
+					}
+				}
+				i = searchIn.indexOf(theStart, i + 1);
+			}
+		}
+		return false;
 	}
 	
 	
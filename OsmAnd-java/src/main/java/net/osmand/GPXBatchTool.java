@@ -0,0 +1,653 @@
+package net.osmand;
+
+import net.osmand.GPXStreamReader.GPXStreamAdapter;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.QuadRect;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Batch processing of many gpx files: scan, deduplication, merge and split.
+ * Files are read with {@link GPXStreamReader} and written with {@link GPXStreamWriter}, so only small batches of
+ * track points are kept in memory. Files are scanned and split in parallel by fork join pool.
+ */
+public class GPXBatchTool {
+
+	private static final Log LOG = PlatformUtil.getLog(GPXBatchTool.class);
+	private static final String CREATOR = "OsmAnd";
+
+	private final ForkJoinPool pool;
+
+	public static class FileSummary {
+		public final File file;
+		public long startTime = Long.MAX_VALUE;
+		public long endTime = Long.MIN_VALUE;
+		public final QuadRect bounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		public int tracks;
+		public int points;
+		public int routes;
+		public int waypoints;
+		// hash of coordinates and times of track points
+		public long contentHash = 1;
+		public Exception error;
+
+		FileSummary(File file) {
+			this.file = file;
+		}
+
+		public boolean isTimeSpecified() {
+			return startTime != Long.MAX_VALUE && startTime != 0;
+		}
+
+		public boolean hasPoints() {
+			return points > 0;
+		}
+	}
+
+	public GPXBatchTool(int threads) {
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Scans files in parallel: time span, bounds and counts of elements, files with errors have error set.
+	 */
+	public List<FileSummary> scan(List<File> files) {
+		return pool.invoke(new ScanTask(files, 0, files.size()));
+	}
+
+	/**
+	 * Removes files with same track points or overlapping in time and space from list of scanned files.
+	 * Of two duplicates the one with more points is kept.
+	 * @param minOverlap part of shorter time span and of smaller bounds covered by other file (0..1)
+	 * @return kept files ordered by start time
+	 */
+	public static List<FileSummary> deduplicate(List<FileSummary> summaries, double minOverlap) {
+		List<FileSummary> sorted = new ArrayList<>();
+		for (FileSummary s : summaries) {
+			if (s.error == null) {
+				sorted.add(s);
+			}
+		}
+		sortByTime(sorted);
+		Map<Long, FileSummary> byHash = new HashMap<>();
+		List<FileSummary> kept = new ArrayList<>();
+		// kept files which time span could still overlap with next files
+		List<FileSummary> active = new ArrayList<>();
+		for (FileSummary s : sorted) {
+			if (s.hasPoints()) {
+				FileSummary same = byHash.get(s.contentHash);
+				if (same != null && same.points == s.points) {
+					continue;
+				}
+			}
+			FileSummary duplicate = null;
+			if (s.isTimeSpecified() && s.hasPoints()) {
+				Iterator<FileSummary> it = active.iterator();
+				while (it.hasNext()) {
+					FileSummary a = it.next();
+					if (a.endTime < s.startTime) {
+						it.remove();
+					} else if (duplicate == null && isOverlapping(a, s, minOverlap)) {
+						duplicate = a;
+					}
+				}
+			}
+			if (duplicate != null) {
+				if (duplicate.points >= s.points) {
+					continue;
+				}
+				kept.remove(duplicate);
+				active.remove(duplicate);
+			}
+			kept.add(s);
+			if (s.hasPoints()) {
+				byHash.put(s.contentHash, s);
+				if (s.isTimeSpecified()) {
+					active.add(s);
+				}
+			}
+		}
+		sortByTime(kept);
+		return kept;
+	}
+
+	private static boolean isOverlapping(FileSummary a, FileSummary b, double minOverlap) {
+		long time = Math.min(a.endTime, b.endTime) - Math.max(a.startTime, b.startTime);
+		long shorter = Math.min(a.endTime - a.startTime, b.endTime - b.startTime);
+		if (time < 0 || time < minOverlap * shorter) {
+			return false;
+		}
+		double width = Math.min(a.bounds.right, b.bounds.right) - Math.max(a.bounds.left, b.bounds.left);
+		double height = Math.min(a.bounds.top, b.bounds.top) - Math.max(a.bounds.bottom, b.bounds.bottom);
+		if (width < 0 || height < 0) {
+			return false;
+		}
+		double smaller = Math.min(area(a.bounds), area(b.bounds));
+		return width * height >= minOverlap * smaller;
+	}
+
+	private static double area(QuadRect b) {
+		return (b.right - b.left) * (b.top - b.bottom);
+	}
+
+	private static void sortByTime(List<FileSummary> list) {
+		Collections.sort(list, new Comparator<FileSummary>() {
+			@Override
+			public int compare(FileSummary o1, FileSummary o2) {
+				return Algorithms.compare(o1.startTime, o2.startTime);
+			}
+		});
+	}
+
+	/**
+	 * Merges scanned files into one file in given order: tracks of all files, then routes and waypoints.
+	 * Files are read again for each kind of elements, so nothing except current batch of points is kept in memory.
+	 */
+	public void merge(List<FileSummary> summaries, File output) throws IOException {
+		Writer out = openWriter(output);
+		try {
+			final GPXStreamWriter writer = new GPXStreamWriter(out);
+			writer.startGpx(CREATOR);
+			for (FileSummary s : summaries) {
+				if (s.error == null && s.tracks > 0) {
+					read(s.file, new GPXStreamAdapter() {
+
+						private boolean route;
+
+						@Override
+						public void trackStart(Track track) throws IOException {
+							writer.startTrack(track);
+						}
+
+						@Override
+						public void segmentStart(Track track) throws IOException {
+							writer.startSegment();
+						}
+
+						@Override
+						public void points(List<WptPt> points) throws IOException {
+							if (!route) {
+								writer.writeTrackPoints(points);
+							}
+						}
+
+						@Override
+						public void segmentEnd(TrkSegment segment) throws IOException {
+							writer.endSegment(segment);
+						}
+
+						@Override
+						public void trackEnd(Track track) throws IOException {
+							writer.endTrack(track);
+						}
+
+						@Override
+						public void routeStart(Route r) throws IOException {
+							route = true;
+						}
+
+						@Override
+						public void routeEnd(Route r) throws IOException {
+							route = false;
+						}
+					});
+				}
+			}
+			for (FileSummary s : summaries) {
+				if (s.error == null && s.routes > 0) {
+					read(s.file, new GPXStreamAdapter() {
+
+						private boolean route;
+
+						@Override
+						public void routeStart(Route r) throws IOException {
+							route = true;
+							writer.startRoute(r);
+						}
+
+						@Override
+						public void points(List<WptPt> points) throws IOException {
+							if (route) {
+								for (WptPt p : points) {
+									writer.writeRoutePoint(p);
+								}
+							}
+						}
+
+						@Override
+						public void routeEnd(Route r) throws IOException {
+							route = false;
+							writer.endRoute(r);
+						}
+					});
+				}
+			}
+			for (FileSummary s : summaries) {
+				if (s.error == null && s.waypoints > 0) {
+					read(s.file, new GPXStreamAdapter() {
+						@Override
+						public void waypoint(WptPt wpt) throws IOException {
+							writer.writeWaypoint(wpt);
+						}
+					});
+				}
+			}
+			writer.endGpx(null);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Scans, deduplicates and merges files ordered by start time.
+	 * @return merged files
+	 */
+	public List<FileSummary> consolidate(List<File> files, File output, double minOverlap) throws IOException {
+		List<FileSummary> kept = deduplicate(scan(files), minOverlap);
+		merge(kept, output);
+		return kept;
+	}
+
+	/**
+	 * Splits files in parallel, parts of file are written as &lt;name&gt;_&lt;part&gt;.gpx to output directory.
+	 * @throws IllegalArgumentException if files have same name without extension (parts would overwrite each other)
+	 * @see #split(File, File, double, int)
+	 */
+	public Map<File, List<GPXTrackAnalysis>> split(List<File> files, File outputDir, double meters, int seconds) {
+		Set<String> names = new HashSet<>();
+		for (File file : files) {
+			// file systems could be case insensitive
+			if (!names.add(getPartsName(file).toLowerCase(Locale.US))) {
+				throw new IllegalArgumentException("Parts of files with same name would overwrite each other: "
+						+ file.getAbsolutePath());
+			}
+		}
+		List<List<GPXTrackAnalysis>> res = pool.invoke(new SplitTask(files, 0, files.size(), outputDir, meters, seconds));
+		Map<File, List<GPXTrackAnalysis>> map = new LinkedHashMap<>();
+		for (int i = 0; i < files.size(); i++) {
+			map.put(files.get(i), res.get(i));
+		}
+		return map;
+	}
+
+	/**
+	 * Splits tracks of file into parts not longer than given distance or time span (0 to ignore).
+	 * Point on the border of parts is written to both parts. Routes and waypoints are written to the last part.
+	 * @return analysis of each part or null if file couldn't be read
+	 */
+	public static List<GPXTrackAnalysis> split(File file, File outputDir, double meters, int seconds) throws IOException {
+		SplitListener listener = new SplitListener(file, outputDir, meters, seconds);
+		try {
+			read(file, listener);
+		} finally {
+			if (listener.out != null) {
+				listener.out.close();
+			}
+		}
+		return listener.analyses;
+	}
+
+	private static String getPartsName(File file) {
+		String name = file.getName();
+		int ext = name.lastIndexOf('.');
+		return ext > 0 ? name.substring(0, ext) : name;
+	}
+
+	private static void read(File file, GPXStreamReader.GPXStreamListener listener) throws IOException {
+		try {
+			new GPXStreamReader(listener).read(file);
+		} catch (XmlPullParserException e) {
+			throw new IOException("Error reading gpx " + file.getName(), e);
+		}
+	}
+
+	private static Writer openWriter(File file) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		return new OutputStreamWriter(new FileOutputStream(file), "UTF-8"); //$NON-NLS-1$
+	}
+
+	private static FileSummary scan(File file) {
+		final FileSummary summary = new FileSummary(file);
+		try {
+			read(file, new GPXStreamAdapter() {
+
+				private boolean route;
+
+				@Override
+				public void trackStart(Track track) {
+					summary.tracks++;
+				}
+
+				@Override
+				public void routeStart(Route r) {
+					route = true;
+					summary.routes++;
+				}
+
+				@Override
+				public void routeEnd(Route r) {
+					route = false;
+				}
+
+				@Override
+				public void waypoint(WptPt wpt) {
+					summary.waypoints++;
+				}
+
+				@Override
+				public void points(List<WptPt> points) {
+					if (route) {
+						return;
+					}
+					GPXUtilities.updateBounds(summary.bounds, points, 0);
+					long hash = summary.contentHash;
+					for (WptPt p : points) {
+						if (p.time != 0) {
+							summary.startTime = Math.min(summary.startTime, p.time);
+							summary.endTime = Math.max(summary.endTime, p.time);
+						}
+						hash = 31 * hash + Double.doubleToLongBits(p.lat);
+						hash = 31 * hash + Double.doubleToLongBits(p.lon);
+						hash = 31 * hash + p.time;
+					}
+					summary.contentHash = hash;
+					summary.points += points.size();
+				}
+			});
+		} catch (IOException e) {
+			LOG.error("Error scanning gpx " + file.getName(), e);
+			summary.error = e;
+		}
+		return summary;
+	}
+
+	private static class ScanTask extends RecursiveTask<List<FileSummary>> {
+		private static final long serialVersionUID = 1L;
+		private final List<File> files;
+		private final int from;
+		private final int to;
+
+		ScanTask(List<File> files, int from, int to) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<FileSummary> compute() {
+			if (to - from <= 1) {
+				List<FileSummary> res = new ArrayList<>();
+				if (to > from) {
+					res.add(scan(files.get(from)));
+				}
+				return res;
+			}
+			int mid = (from + to) >>> 1;
+			ScanTask right = new ScanTask(files, mid, to);
+			right.fork();
+			List<FileSummary> res = new ScanTask(files, from, mid).compute();
+			res.addAll(right.join());
+			return res;
+		}
+	}
+
+	private static class SplitTask extends RecursiveTask<List<List<GPXTrackAnalysis>>> {
+		private static final long serialVersionUID = 1L;
+		private final List<File> files;
+		private final int from;
+		private final int to;
+		private final File outputDir;
+		private final double meters;
+		private final int seconds;
+
+		SplitTask(List<File> files, int from, int to, File outputDir, double meters, int seconds) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+			this.outputDir = outputDir;
+			this.meters = meters;
+			this.seconds = seconds;
+		}
+
+		@Override
+		protected List<List<GPXTrackAnalysis>> compute() {
+			if (to - from <= 1) {
+				List<List<GPXTrackAnalysis>> res = new ArrayList<>();
+				if (to > from) {
+					File file = files.get(from);
+					List<GPXTrackAnalysis> parts = null;
+					try {
+						parts = split(file, outputDir, meters, seconds);
+					} catch (IOException e) {
+						LOG.error("Error splitting gpx " + file.getName(), e);
+					}
+					res.add(parts);
+				}
+				return res;
+			}
+			int mid = (from + to) >>> 1;
+			SplitTask right = new SplitTask(files, mid, to, outputDir, meters, seconds);
+			right.fork();
+			List<List<GPXTrackAnalysis>> res = new SplitTask(files, from, mid, outputDir, meters, seconds).compute();
+			res.addAll(right.join());
+			return res;
+		}
+	}
+
+	private static class SplitListener extends GPXStreamAdapter {
+		private final File file;
+		private final File outputDir;
+		private final double meters;
+		private final long millis;
+		private final List<GPXTrackAnalysis> analyses = new ArrayList<>();
+		// routes and waypoints are written to last part
+		private final List<Route> routes = new ArrayList<>();
+		private final List<WptPt> waypoints = new ArrayList<>();
+		private final float[] calculations = new float[1];
+
+		private String creator;
+		private Metadata metadata;
+		private Track track;
+		private Route route;
+
+		private Writer out;
+		private GPXStreamWriter writer;
+		private GPXIncrementalAnalysis analysis;
+		private boolean trackOpened;
+		private boolean segmentOpened;
+		// next point starts new part
+		private boolean partFull;
+		private double partDistance;
+		private long partStartTime;
+		private WptPt prev;
+
+		SplitListener(File file, File outputDir, double meters, int seconds) {
+			this.file = file;
+			this.outputDir = outputDir;
+			this.meters = meters;
+			this.millis = seconds * 1000L;
+		}
+
+		@Override
+		public void gpxStart(String creator) {
+			this.creator = creator;
+		}
+
+		@Override
+		public void metadata(Metadata metadata) {
+			this.metadata = metadata;
+		}
+
+		@Override
+		public void trackStart(Track track) {
+			this.track = track;
+		}
+
+		@Override
+		public void segmentStart(Track track) {
+			prev = null;
+		}
+
+		@Override
+		public void points(List<WptPt> points) throws IOException {
+			if (route != null) {
+				route.points.addAll(points);
+				return;
+			}
+			for (WptPt p : points) {
+				// part is closed on next point, so last point of track doesn't make part of one point
+				if (partFull) {
+					closePart(null);
+					openPart();
+					if (prev != null) {
+						partStartTime = prev.time;
+						writePoint(prev);
+					}
+				}
+				if (writer == null) {
+					openPart();
+				}
+				if (prev != null) {
+					net.osmand.Location.distanceBetween(prev.lat, prev.lon, p.lat, p.lon, calculations);
+					partDistance += calculations[0];
+				}
+				if (partStartTime == 0) {
+					partStartTime = p.time;
+				}
+				writePoint(p);
+				partFull = (meters > 0 && partDistance >= meters)
+						|| (millis > 0 && p.time != 0 && partStartTime != 0 && p.time - partStartTime >= millis);
+				prev = p;
+			}
+		}
+
+		private void writePoint(WptPt p) throws IOException {
+			if (!trackOpened) {
+				writer.startTrack(track);
+				trackOpened = true;
+			}
+			if (!segmentOpened) {
+				writer.startSegment();
+				analysis.startSegment(false, false);
+				segmentOpened = true;
+			}
+			writer.writeTrackPoint(p);
+			analysis.addPoint(p);
+		}
+
+		@Override
+		public void segmentEnd(TrkSegment segment) throws IOException {
+			if (segmentOpened) {
+				writer.endSegment(segment);
+				segmentOpened = false;
+			}
+			prev = null;
+		}
+
+		@Override
+		public void trackEnd(Track track) throws IOException {
+			if (trackOpened) {
+				writer.endTrack(track);
+				trackOpened = false;
+			}
+			this.track = null;
+		}
+
+		@Override
+		public void routeStart(Route route) {
+			this.route = route;
+		}
+
+		@Override
+		public void routeEnd(Route route) {
+			routes.add(route);
+			this.route = null;
+		}
+
+		@Override
+		public void waypoint(WptPt wpt) {
+			waypoints.add(wpt);
+		}
+
+		@Override
+		public void gpxEnd(GPXExtensions extensions) throws IOException {
+			if (writer == null) {
+				openPart();
+			}
+			for (Route r : routes) {
+				writer.startRoute(r);
+				for (WptPt p : r.points) {
+					writer.writeRoutePoint(p);
+				}
+				writer.endRoute(r);
+			}
+			for (WptPt p : waypoints) {
+				writer.writeWaypoint(p);
+			}
+			closePart(extensions);
+		}
+
+		private void openPart() throws IOException {
+			out = openWriter(new File(outputDir, getPartsName(file) + "_" + (analyses.size() + 1) + ".gpx"));
+			writer = new GPXStreamWriter(out);
+			writer.startGpx(creator != null ? creator : CREATOR);
+			if (metadata != null) {
+				writer.writeMetadata(metadata);
+			}
+			analysis = new GPXIncrementalAnalysis();
+			partFull = false;
+			partDistance = 0;
+			partStartTime = 0;
+		}
+
+		private void closePart(GPXExtensions extensions) throws IOException {
+			if (segmentOpened) {
+				writer.endSegment(null);
+				segmentOpened = false;
+			}
+			if (trackOpened) {
+				writer.endTrack(null);
+				trackOpened = false;
+			}
+			writer.endGpx(extensions);
+			analyses.add(analysis.getAnalysis(file.lastModified()));
+			writer = null;
+			analysis = null;
+			out.close();
+		}
+	}
+}
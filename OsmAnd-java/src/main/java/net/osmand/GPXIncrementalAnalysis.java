@@ -0,0 +1,687 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass track analysis: keeps running sums and state of elevation channel filter,
+ * so appending points costs only for new points. {@link GPXTrackAnalysis#prepareInformation} uses it too.
+ * Analyses of independent segments could be computed in parallel and then merged in order of segments
+ * with the same result as single pass: values depending on previous segments (derived speeds, direction of
+ * elevation channel, time of first points) are kept for both possible states of previous segments.
+ * Only distances and times without gaps of general segments are not carried between merged analyses.
+ * Not thread safe.
+ */
+public class GPXIncrementalAnalysis {
+
+	// Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
+	private static final double CHANNEL_THRES_MIN = 10;
+	// LPF smoothing of ele data, usually smooth over odd number of values like 5
+	private static final int SMOOTH_WINDOW = 5;
+	private static final double CHANNEL_NONE = 99999;
+
+	private final GPXTrackAnalysis a;
+	private final float[] calculations = new float[1];
+
+	private long startTimeOfSingleSegment = 0;
+	private long endTimeOfSingleSegment = 0;
+	private float distanceOfSingleSegment = 0;
+
+	private float totalElevation = 0;
+	private int elevationPoints = 0;
+	private int timeDiff = 0;
+
+	// speeds as computed and as if previous segments had speed, so no speeds are derived
+	private final SpeedStats speeds = new SpeedStats(false);
+	private final SpeedStats recordedSpeeds = new SpeedStats(true);
+
+	// Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
+	private double channelThres = CHANNEL_THRES_MIN;
+	// channel as computed and as if previous segments ended climbing
+	private final Channel channel = new Channel(false);
+	private final Channel climbingChannel = new Channel(true);
+
+	// first points depend on previous segments: time difference of last point, speed presence, distance
+	private boolean timeDiffSet;
+	private int pointsBeforeTimeDiff;
+	private int pointsBeforeSpeed;
+	private boolean elevationBeforeDistance;
+	private boolean speedBeforeDistance;
+
+	// current segment
+	private boolean segmentStarted;
+	private boolean generalSegment;
+	private boolean splitSegment;
+	private int segmentPoints;
+	private float segmentDistance;
+	private boolean lastEleSmoothed;
+	private final double[] eleWindow = new double[SMOOTH_WINDOW - 1];
+	private Elevation lastElevation;
+	private Speed lastSpeed;
+
+	private double prevLat;
+	private double prevLon;
+	private long prevTime;
+	private double prevEle;
+	private double prevSpeed;
+	private WptPt startLocation;
+	private WptPt endLocation;
+
+	public GPXIncrementalAnalysis() {
+		this(new GPXTrackAnalysis());
+	}
+
+	GPXIncrementalAnalysis(GPXTrackAnalysis analysis) {
+		this.a = analysis;
+		a.points = 0;
+		a.elevationData = new ArrayList<>();
+		a.speedData = new ArrayList<>();
+	}
+
+	public static GPXTrackAnalysis analyze(long filestamp, TrkSegment segment) {
+		GPXIncrementalAnalysis analysis = new GPXIncrementalAnalysis();
+		analysis.startSegment(segment.generalSegment, false);
+		analysis.addPoints(segment.points, 0);
+		return analysis.getAnalysis(filestamp);
+	}
+
+	public int getPointsCount() {
+		return a.points;
+	}
+
+	/**
+	 * @param splitSegment part of track split by distance or time (no time span without gaps)
+	 */
+	public void startSegment(boolean generalSegment, boolean splitSegment) {
+		finishSegment();
+		segmentStarted = true;
+		this.generalSegment = generalSegment;
+		this.splitSegment = splitSegment;
+		segmentPoints = 0;
+		segmentDistance = 0;
+		lastEleSmoothed = false;
+		channel.start();
+		climbingChannel.start();
+		//channelThres = channelThresMin; //only for dynamic channel adjustment
+	}
+
+	public void finishSegment() {
+		if (!segmentStarted) {
+			return;
+		}
+		// End detection without breakout
+		if (lastEleSmoothed) {
+			channel.finish(channelThres);
+			climbingChannel.finish(channelThres);
+		}
+		// last point of split segment is not marked as last point of single segment,
+		// points are copied as they could be in lists of analyses returned before
+		if (lastElevation != null) {
+			Elevation e = copy(lastElevation);
+			e.lastPoint = false;
+			a.elevationData.set(a.elevationData.size() - 1, e);
+			Speed s = copy(lastSpeed);
+			s.lastPoint = false;
+			a.speedData.set(a.speedData.size() - 1, s);
+			lastElevation = null;
+			lastSpeed = null;
+		}
+		segmentStarted = false;
+	}
+
+	/**
+	 * Adds points of list starting from index, sets cumulative distance of points.
+	 * @return index to start next time
+	 */
+	public int addPoints(List<WptPt> points, int start) {
+		for (int i = start; i < points.size(); i++) {
+			addPoint(points.get(i));
+		}
+		return points.size();
+	}
+
+	public void addPoint(WptPt point) {
+		boolean first = segmentPoints == 0;
+		float distance = addPoint(point.lat, point.lon, point.time, point.ele, point.speed, point.firstPoint, point.lastPoint);
+		if (!first) {
+			point.distance = distance;
+		}
+		if (startLocation == null) {
+			startLocation = point;
+		}
+		endLocation = point;
+	}
+
+	/**
+	 * @return cumulative distance of point in segment
+	 */
+	public float addPoint(double lat, double lon, long time, double ele, double speedValue,
+						  boolean firstPoint, boolean lastPoint) {
+		if (!segmentStarted) {
+			startSegment(false, false);
+		}
+		final int j = segmentPoints++;
+		a.points++;
+		lastElevation = null;
+		lastSpeed = null;
+		if (time != 0) {
+			if (!splitSegment) {
+				if (generalSegment) {
+					if (firstPoint) {
+						startTimeOfSingleSegment = time;
+					} else if (lastPoint) {
+						endTimeOfSingleSegment = time;
+					}
+					if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+						a.timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+						startTimeOfSingleSegment = 0;
+						endTimeOfSingleSegment = 0;
+					}
+				}
+			}
+			a.startTime = Math.min(a.startTime, time);
+			a.endTime = Math.max(a.endTime, time);
+		}
+
+		if (a.left == 0 && a.right == 0) {
+			a.left = lon;
+			a.right = lon;
+			a.top = lat;
+			a.bottom = lat;
+		} else {
+			a.left = Math.min(a.left, lon);
+			a.right = Math.max(a.right, lon);
+			a.top = Math.max(a.top, lat);
+			a.bottom = Math.min(a.bottom, lat);
+		}
+
+		Elevation elevation1 = new Elevation();
+		if (!Double.isNaN(ele)) {
+			totalElevation += ele;
+			elevationPoints++;
+			a.minElevation = Math.min(ele, a.minElevation);
+			a.maxElevation = Math.max(ele, a.maxElevation);
+
+			elevation1.elevation = (float) ele;
+		} else {
+			elevation1.elevation = Float.NaN;
+		}
+
+		final float recordedSpeed = (float) speedValue;
+		float speed = recordedSpeed;
+		if (speed > 0) {
+			speeds.hasSpeedInTrack = true;
+		}
+		if (!speeds.hasSpeedInTrack) {
+			pointsBeforeSpeed++;
+		}
+
+		// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
+		// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
+		// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
+		// Parameters:
+		// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
+		// - smoothWindow (number of points): is the LPF window
+		double eleSmoothed = Double.NaN;
+		int j2 = 0;
+		for (int j1 = -SMOOTH_WINDOW + 1; j1 <= 0; j1++) {
+			if (j + j1 >= 0) {
+				double e = j1 == 0 ? ele : eleWindow[(j + j1) % eleWindow.length];
+				if (!Double.isNaN(e)) {
+					j2++;
+					if (!Double.isNaN(eleSmoothed)) {
+						eleSmoothed = eleSmoothed + e;
+					} else {
+						eleSmoothed = e;
+					}
+				}
+			}
+		}
+		eleWindow[j % eleWindow.length] = ele;
+		if (!Double.isNaN(eleSmoothed)) {
+			eleSmoothed = eleSmoothed / j2;
+		}
+
+		lastEleSmoothed = !Double.isNaN(eleSmoothed);
+		if (lastEleSmoothed) {
+			channel.add(eleSmoothed, channelThres);
+			climbingChannel.add(eleSmoothed, channelThres);
+		}
+
+		if (j > 0) {
+			// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
+			// a little more exact, also seems slightly faster:
+			net.osmand.Location.distanceBetween(prevLat, prevLon, lat, lon, calculations);
+			a.totalDistance += calculations[0];
+			segmentDistance += calculations[0];
+			timeDiff = (int) ((time - prevTime) / 1000);
+			timeDiffSet = true;
+
+			//Last resort: Derive speed values from displacement if track does not originally contain speed
+			if (!speeds.hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+				speed = calculations[0] / timeDiff;
+			}
+			speeds.addMotion(speed, calculations[0], time, prevTime, generalSegment && !firstPoint);
+			recordedSpeeds.addMotion(recordedSpeed, calculations[0], time, prevTime, generalSegment && !firstPoint);
+		} else if (!timeDiffSet) {
+			pointsBeforeTimeDiff++;
+		}
+
+		elevation1.time = timeDiff;
+		elevation1.distance = (j > 0) ? calculations[0] : 0;
+		a.elevationData.add(elevation1);
+		if (!Float.isNaN(elevation1.elevation)) {
+			if (a.totalDistance > 0) {
+				a.hasElevationData = true;
+			} else {
+				elevationBeforeDistance = true;
+			}
+		}
+
+		speeds.addSpeed(speed, a.totalDistance);
+		recordedSpeeds.addSpeed(recordedSpeed, a.totalDistance);
+		// derived speed needs distance, so it is recorded speed here
+		if (speed > 0 && a.totalDistance == 0) {
+			speedBeforeDistance = true;
+		}
+
+		Speed speed1 = new Speed();
+		speed1.speed = speed;
+		speed1.time = timeDiff;
+		speed1.distance = elevation1.distance;
+		a.speedData.add(speed1);
+		if (generalSegment) {
+			distanceOfSingleSegment += calculations[0];
+			if (firstPoint) {
+				distanceOfSingleSegment = 0;
+				speeds.startSingleSegment();
+				recordedSpeeds.startSingleSegment();
+				if (j > 0) {
+					elevation1.firstPoint = true;
+					speed1.firstPoint = true;
+				}
+			}
+			if (lastPoint) {
+				a.totalDistanceWithoutGaps += distanceOfSingleSegment;
+				speeds.finishSingleSegment();
+				recordedSpeeds.finishSingleSegment();
+				elevation1.lastPoint = true;
+				speed1.lastPoint = true;
+				lastElevation = elevation1;
+				lastSpeed = speed1;
+			}
+		}
+		prevLat = lat;
+		prevLon = lon;
+		prevTime = time;
+		prevEle = ele;
+		prevSpeed = speedValue;
+		endLocation = null;
+		return segmentDistance;
+	}
+
+	/**
+	 * Merges analysis of segments following segments of this analysis.
+	 */
+	public void merge(GPXIncrementalAnalysis next) {
+		finishSegment();
+		next.finishSegment();
+		GPXTrackAnalysis n = next.a;
+		int start = a.elevationData.size();
+		a.elevationData.addAll(n.elevationData);
+		a.speedData.addAll(n.speedData);
+		if (timeDiffSet) {
+			for (int i = start; i < start + next.pointsBeforeTimeDiff; i++) {
+				Elevation e = copy(a.elevationData.get(i));
+				e.time = timeDiff;
+				a.elevationData.set(i, e);
+				Speed s = copy(a.speedData.get(i));
+				s.time = timeDiff;
+				a.speedData.set(i, s);
+			}
+		} else {
+			pointsBeforeTimeDiff += next.pointsBeforeTimeDiff;
+		}
+		if (next.timeDiffSet) {
+			timeDiffSet = true;
+			timeDiff = next.timeDiff;
+		}
+		if (speeds.hasSpeedInTrack) {
+			// speeds are not derived after speed in previous segments
+			for (int i = start; i < start + next.pointsBeforeSpeed; i++) {
+				if (a.speedData.get(i).speed > 0) {
+					Speed s = copy(a.speedData.get(i));
+					s.speed = 0;
+					a.speedData.set(i, s);
+				}
+			}
+			speeds.merge(next.recordedSpeeds);
+		} else {
+			pointsBeforeSpeed += next.pointsBeforeSpeed;
+			speeds.merge(next.speeds);
+		}
+		recordedSpeeds.merge(next.recordedSpeeds);
+		if (a.totalDistance > 0) {
+			a.hasElevationData |= next.elevationBeforeDistance;
+			speeds.hasSpeedData |= next.speedBeforeDistance;
+			recordedSpeeds.hasSpeedData |= next.speedBeforeDistance;
+		} else {
+			elevationBeforeDistance |= next.elevationBeforeDistance;
+			speedBeforeDistance |= next.speedBeforeDistance;
+		}
+		channel.append(channel.climb ? next.climbingChannel : next.channel);
+		climbingChannel.append(climbingChannel.climb ? next.climbingChannel : next.channel);
+
+		a.totalDistance += n.totalDistance;
+		a.totalDistanceWithoutGaps += n.totalDistanceWithoutGaps;
+		a.startTime = Math.min(a.startTime, n.startTime);
+		a.endTime = Math.max(a.endTime, n.endTime);
+		a.timeSpanWithoutGaps += n.timeSpanWithoutGaps;
+		a.minElevation = Math.min(a.minElevation, n.minElevation);
+		a.maxElevation = Math.max(a.maxElevation, n.maxElevation);
+		a.points += n.points;
+		a.metricEnd += n.metricEnd;
+		a.secondaryMetricEnd += n.secondaryMetricEnd;
+		if (a.left == 0 && a.right == 0) {
+			a.left = n.left;
+			a.right = n.right;
+			a.top = n.top;
+			a.bottom = n.bottom;
+		} else if (n.left != 0 || n.right != 0) {
+			a.left = Math.min(a.left, n.left);
+			a.right = Math.max(a.right, n.right);
+			a.top = Math.max(a.top, n.top);
+			a.bottom = Math.min(a.bottom, n.bottom);
+		}
+		a.hasElevationData |= n.hasElevationData;
+
+		totalElevation += next.totalElevation;
+		elevationPoints += next.elevationPoints;
+		if (n.points > 0) {
+			prevLat = next.prevLat;
+			prevLon = next.prevLon;
+			prevTime = next.prevTime;
+			prevEle = next.prevEle;
+			prevSpeed = next.prevSpeed;
+			endLocation = next.endLocation;
+			if (startLocation == null) {
+				startLocation = next.startLocation;
+			}
+		}
+	}
+
+	/**
+	 * Analysis of points added so far, state of this analysis is not changed.
+	 */
+	public GPXTrackAnalysis getAnalysis(long filestamp) {
+		GPXTrackAnalysis r = copy(a);
+		fill(r, segmentStarted && lastEleSmoothed);
+		if (a.points > 0) {
+			r.locationStart = startLocation != null ? startLocation
+					: a.locationStart;
+			r.locationEnd = endLocation != null ? endLocation
+					: new WptPt(prevLat, prevLon, prevTime, prevEle, prevSpeed, Double.NaN);
+		}
+		finish(r, filestamp);
+		return r;
+	}
+
+	void finish(long filestamp) {
+		finishSegment();
+		fill(a, false);
+		finish(a, filestamp);
+	}
+
+	private void fill(GPXTrackAnalysis r, boolean finishChannel) {
+		r.diffElevationUp = channel.getUp(finishChannel, channelThres);
+		r.diffElevationDown = channel.getDown(finishChannel, channelThres);
+		r.timeMoving = speeds.timeMoving;
+		r.totalDistanceMoving = speeds.distanceMoving;
+		r.timeMovingWithoutGaps = speeds.timeMovingWithoutGaps;
+		r.totalDistanceMovingWithoutGaps = speeds.distanceMovingWithoutGaps;
+		r.minSpeed = speeds.minSpeed;
+		r.maxSpeed = speeds.maxSpeed;
+		r.hasSpeedInTrack = speeds.hasSpeedInTrack;
+		r.hasSpeedData = speeds.hasSpeedData;
+	}
+
+	private void finish(GPXTrackAnalysis r, long filestamp) {
+		if (r.totalDistance < 0) {
+			r.hasElevationData = false;
+			r.hasSpeedData = false;
+		}
+		if (!r.isTimeSpecified()) {
+			r.startTime = filestamp;
+			r.endTime = filestamp;
+		}
+
+		// OUTPUT:
+		// 1. Total distance, Start time, End time
+		// 2. Time span
+		if (r.timeSpan == 0) {
+			r.timeSpan = r.endTime - r.startTime;
+		}
+
+		// 3. Time moving, if any
+		// 4. Elevation, eleUp, eleDown, if recorded
+		if (elevationPoints > 0) {
+			r.avgElevation = totalElevation / elevationPoints;
+		}
+
+		// 5. Max speed and Average speed, if any. Average speed is NOT overall (effective) speed, but only calculated for "moving" periods.
+		//    Averaging speed values is less precise than totalDistanceMoving/timeMoving
+		if (speeds.speedCount > 0) {
+			if (r.timeMoving > 0) {
+				r.avgSpeed = (float) r.totalDistanceMoving / (float) r.timeMoving * 1000f;
+			} else {
+				r.avgSpeed = (float) speeds.totalSpeedSum / (float) speeds.speedCount;
+			}
+		} else {
+			r.avgSpeed = -1;
+		}
+	}
+
+	private static Elevation copy(Elevation e) {
+		Elevation r = new Elevation();
+		r.distance = e.distance;
+		r.time = e.time;
+		r.elevation = e.elevation;
+		r.firstPoint = e.firstPoint;
+		r.lastPoint = e.lastPoint;
+		return r;
+	}
+
+	private static Speed copy(Speed s) {
+		Speed r = new Speed();
+		r.distance = s.distance;
+		r.time = s.time;
+		r.speed = s.speed;
+		r.firstPoint = s.firstPoint;
+		r.lastPoint = s.lastPoint;
+		return r;
+	}
+
+	private static GPXTrackAnalysis copy(GPXTrackAnalysis a) {
+		GPXTrackAnalysis r = new GPXTrackAnalysis();
+		r.totalDistance = a.totalDistance;
+		r.totalDistanceWithoutGaps = a.totalDistanceWithoutGaps;
+		r.totalTracks = a.totalTracks;
+		r.startTime = a.startTime;
+		r.endTime = a.endTime;
+		r.timeSpan = a.timeSpan;
+		r.timeSpanWithoutGaps = a.timeSpanWithoutGaps;
+		r.avgElevation = a.avgElevation;
+		r.minElevation = a.minElevation;
+		r.maxElevation = a.maxElevation;
+		r.avgSpeed = a.avgSpeed;
+		r.points = a.points;
+		r.wptPoints = a.wptPoints;
+		r.wptCategoryNames = a.wptCategoryNames;
+		r.metricEnd = a.metricEnd;
+		r.secondaryMetricEnd = a.secondaryMetricEnd;
+		r.locationStart = a.locationStart;
+		r.locationEnd = a.locationEnd;
+		r.left = a.left;
+		r.right = a.right;
+		r.top = a.top;
+		r.bottom = a.bottom;
+		r.elevationData = new ArrayList<>(a.elevationData);
+		r.speedData = new ArrayList<>(a.speedData);
+		r.hasElevationData = a.hasElevationData;
+		return r;
+	}
+
+	/**
+	 * Speed dependent values of analysis.
+	 */
+	private static class SpeedStats {
+		private boolean hasSpeedInTrack;
+		private boolean hasSpeedData;
+		private float minSpeed = Float.MAX_VALUE;
+		private float maxSpeed = 0;
+		private double totalSpeedSum = 0;
+		private int speedCount = 0;
+		private long timeMoving = 0;
+		private float distanceMoving = 0;
+		private long timeMovingWithoutGaps = 0;
+		private float distanceMovingWithoutGaps = 0;
+		private long timeMovingOfSingleSegment = 0;
+		private float distanceMovingOfSingleSegment = 0;
+
+		SpeedStats(boolean hasSpeedInTrack) {
+			this.hasSpeedInTrack = hasSpeedInTrack;
+		}
+
+		void addMotion(float speed, float distance, long time, long prevTime, boolean singleSegment) {
+			// Motion detection:
+			//   speed > 0  uses GPS chipset's motion detection
+			//   distance > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
+			if ((speed > 0) && (distance > 0.1 / 1000f * (time - prevTime)) && time != 0 && prevTime != 0) {
+				timeMoving = timeMoving + (time - prevTime);
+				distanceMoving += distance;
+				if (singleSegment) {
+					timeMovingOfSingleSegment += time - prevTime;
+					distanceMovingOfSingleSegment += distance;
+				}
+			}
+		}
+
+		void addSpeed(float speed, float totalDistance) {
+			minSpeed = Math.min(speed, minSpeed);
+			if (speed > 0) {
+				totalSpeedSum += speed;
+				maxSpeed = Math.max(speed, maxSpeed);
+				speedCount++;
+				if (totalDistance > 0) {
+					hasSpeedData = true;
+				}
+			}
+		}
+
+		void startSingleSegment() {
+			timeMovingOfSingleSegment = 0;
+			distanceMovingOfSingleSegment = 0;
+		}
+
+		void finishSingleSegment() {
+			timeMovingWithoutGaps += timeMovingOfSingleSegment;
+			distanceMovingWithoutGaps += distanceMovingOfSingleSegment;
+		}
+
+		void merge(SpeedStats n) {
+			hasSpeedInTrack |= n.hasSpeedInTrack;
+			hasSpeedData |= n.hasSpeedData;
+			minSpeed = Math.min(minSpeed, n.minSpeed);
+			maxSpeed = Math.max(maxSpeed, n.maxSpeed);
+			totalSpeedSum += n.totalSpeedSum;
+			speedCount += n.speedCount;
+			timeMoving += n.timeMoving;
+			distanceMoving += n.distanceMoving;
+			timeMovingWithoutGaps += n.timeMovingWithoutGaps;
+			distanceMovingWithoutGaps += n.distanceMovingWithoutGaps;
+		}
+	}
+
+	/**
+	 * Trend channel of elevation, only net elevation changes between turnarounds are accumulated.
+	 */
+	private static class Channel {
+		private double base;
+		private double top;
+		private double bottom;
+		private boolean climb;
+		private double up = 0;
+		private double down = 0;
+
+		Channel(boolean climb) {
+			this.climb = climb;
+			start();
+		}
+
+		void start() {
+			base = CHANNEL_NONE;
+			top = base;
+			bottom = base;
+		}
+
+		void add(double eleSmoothed, double thres) {
+			// Init channel
+			if (base == CHANNEL_NONE) {
+				base = eleSmoothed;
+				top = base;
+				bottom = base;
+			}
+			// Channel maintenance
+			if (eleSmoothed > top) {
+				top = eleSmoothed;
+			} else if (eleSmoothed < bottom) {
+				bottom = eleSmoothed;
+			}
+			// Turnaround (breakout) detection
+			if ((eleSmoothed <= (top - thres)) && (climb == true)) {
+				if ((top - base) >= thres) {
+					up += top - base;
+				}
+				base = top;
+				bottom = eleSmoothed;
+				climb = false;
+			} else if ((eleSmoothed >= (bottom + thres)) && (climb == false)) {
+				if ((base - bottom) >= thres) {
+					down += base - bottom;
+				}
+				base = bottom;
+				top = eleSmoothed;
+				climb = true;
+			}
+		}
+
+		// End detection without breakout
+		void finish(double thres) {
+			up = getUp(true, thres);
+			down = getDown(true, thres);
+		}
+
+		double getUp(boolean finish, double thres) {
+			return finish && (top - base) >= thres ? up + top - base : up;
+		}
+
+		double getDown(boolean finish, double thres) {
+			return finish && (base - bottom) >= thres ? down + base - bottom : down;
+		}
+
+		void append(Channel n) {
+			base = n.base;
+			top = n.top;
+			bottom = n.bottom;
+			climb = n.climb;
+			up += n.up;
+			down += n.down;
+		}
+	}
+}
@@ -0,0 +1,494 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Spatial index of track points and waypoints of loaded gpx files.
+ * Points are grouped in chunks of consecutive points of segment, chunks are stored in packed R-tree
+ * (sort-tile-recursive). Points appended to segments are indexed by {@link #update(GPXFile)}: last chunk
+ * of segment is filled up (bounds of tree nodes are extended) and new chunks go to small list of pending chunks,
+ * tree is rebuilt when that list grows.
+ * Bounds follow {@link GPXUtilities#updateBounds}: top is maximum latitude, bottom is minimum latitude.
+ * Not thread safe.
+ */
+public class GPXSpatialIndex {
+
+	private static final int CHUNK_SIZE = 32;
+	private static final int NODE_SIZE = 16;
+	private static final int MIN_PENDING_TO_REBUILD = 64;
+	private static final double METERS_IN_DEGREE = 111320;
+
+	private final Map<GPXFile, IndexedFile> files = new IdentityHashMap<>();
+	private final List<Chunk> pending = new ArrayList<>();
+	private boolean removed;
+
+	// packed tree: level 0 are chunks, 4 bounds (left, top, right, bottom) per node
+	private Chunk[] leaves = new Chunk[0];
+	private final List<double[]> levels = new ArrayList<>();
+
+	public static class NearestPoint {
+		public final GPXFile file;
+		// null for waypoints
+		public final TrkSegment segment;
+		public final WptPt point;
+		public final int index;
+		public final double distance;
+
+		NearestPoint(Chunk chunk, int index, double distance) {
+			this.file = chunk.file;
+			this.segment = chunk.segment;
+			this.point = chunk.points.get(index);
+			this.index = index;
+			this.distance = distance;
+		}
+	}
+
+	// chunks of file are valid while file is indexed with the same instance
+	private static class IndexedFile {
+		final GPXFile file;
+		// last chunk of segment
+		final Map<TrkSegment, Chunk> segments = new IdentityHashMap<>();
+		Chunk waypoints;
+
+		IndexedFile(GPXFile file) {
+			this.file = file;
+		}
+
+		// points were only appended since last update
+		boolean isAppended() {
+			int cnt = 0;
+			for (Track t : file.tracks) {
+				for (TrkSegment s : t.segments) {
+					Chunk c = segments.get(s);
+					if (c != null) {
+						if (c.points != s.points || c.to > s.points.size()) {
+							return false;
+						}
+						cnt++;
+					}
+				}
+			}
+			return cnt == segments.size() && (waypoints == null || waypoints.to <= file.getPoints().size());
+		}
+	}
+
+	private static class Chunk {
+		final IndexedFile indexed;
+		final GPXFile file;
+		final TrkSegment segment;
+		final List<WptPt> points;
+		final int from;
+		int to;
+		final QuadRect bounds;
+		// index in leaves, -1 for pending chunk
+		int leaf = -1;
+
+		Chunk(IndexedFile indexed, TrkSegment segment, List<WptPt> points, int from, int to) {
+			this.indexed = indexed;
+			this.file = indexed.file;
+			this.segment = segment;
+			this.points = points;
+			this.from = from;
+			this.to = to;
+			this.bounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			GPXUtilities.updateBounds(bounds, points.subList(from, to), 0);
+		}
+
+		// points could be removed from segment before update
+		int end() {
+			return Math.min(to, points.size());
+		}
+	}
+
+	public int getFilesCount() {
+		return files.size();
+	}
+
+	public boolean contains(GPXFile file) {
+		return files.containsKey(file);
+	}
+
+	public void add(GPXFile file) {
+		if (!files.containsKey(file)) {
+			files.put(file, new IndexedFile(file));
+			update(file);
+		}
+	}
+
+	public void remove(GPXFile file) {
+		IndexedFile indexed = files.remove(file);
+		if (indexed != null) {
+			Iterator<Chunk> it = pending.iterator();
+			while (it.hasNext()) {
+				if (it.next().indexed == indexed) {
+					it.remove();
+				}
+			}
+			removed = true;
+		}
+	}
+
+	int getChunksCount() {
+		checkTree();
+		return leaves.length + pending.size();
+	}
+
+	public void clear() {
+		files.clear();
+		pending.clear();
+		leaves = new Chunk[0];
+		levels.clear();
+		removed = false;
+	}
+
+	/**
+	 * Indexes points added to tracks and waypoints of file since last update. File is indexed again
+	 * when points or segments were removed, changed points require {@link #remove(GPXFile)} and {@link #add(GPXFile)}.
+	 */
+	public void update(GPXFile file) {
+		IndexedFile indexed = files.get(file);
+		if (indexed == null) {
+			return;
+		}
+		if (!indexed.isAppended()) {
+			remove(file);
+			add(file);
+			return;
+		}
+		for (Track t : file.tracks) {
+			for (TrkSegment s : t.segments) {
+				Chunk last = addChunks(indexed, s, s.points, indexed.segments.get(s));
+				if (last != null) {
+					indexed.segments.put(s, last);
+				}
+			}
+		}
+		indexed.waypoints = addChunks(indexed, null, file.getPoints(), indexed.waypoints);
+	}
+
+	/**
+	 * @return last chunk of points
+	 */
+	private Chunk addChunks(IndexedFile indexed, TrkSegment segment, List<WptPt> points, Chunk last) {
+		int start = 0;
+		if (last != null) {
+			start = Math.min(points.size(), last.from + CHUNK_SIZE);
+			if (start > last.to) {
+				extend(last, start);
+			}
+		}
+		for (int i = start; i < points.size(); i += CHUNK_SIZE) {
+			last = new Chunk(indexed, segment, points, i, Math.min(points.size(), i + CHUNK_SIZE));
+			pending.add(last);
+		}
+		return last;
+	}
+
+	private void extend(Chunk c, int to) {
+		GPXUtilities.updateBounds(c.bounds, c.points.subList(c.to, to), 0);
+		c.to = to;
+		if (c.leaf < 0) {
+			return;
+		}
+		// nodes containing chunk are extended, so tree stays valid without rebuild
+		int node = c.leaf;
+		for (double[] level : levels) {
+			int p = node * 4;
+			level[p] = Math.min(level[p], c.bounds.left);
+			level[p + 1] = Math.max(level[p + 1], c.bounds.top);
+			level[p + 2] = Math.max(level[p + 2], c.bounds.right);
+			level[p + 3] = Math.min(level[p + 3], c.bounds.bottom);
+			node /= NODE_SIZE;
+		}
+	}
+
+	/**
+	 * @return files with points inside of box
+	 */
+	public List<GPXFile> queryBox(QuadRect box) {
+		Set<GPXFile> res = new LinkedHashSet<>();
+		List<Chunk> chunks = new ArrayList<>();
+		queryChunks(box, chunks);
+		for (Chunk c : chunks) {
+			if (res.contains(c.file)) {
+				continue;
+			}
+			for (int i = c.from; i < c.end(); i++) {
+				WptPt p = c.points.get(i);
+				if (p.lon >= box.left && p.lon <= box.right && p.lat <= box.top && p.lat >= box.bottom) {
+					res.add(c.file);
+					break;
+				}
+			}
+		}
+		return new ArrayList<>(res);
+	}
+
+	/**
+	 * @return files with points not further than radius (in meters) from polyline
+	 */
+	public List<GPXFile> queryCorridor(List<LatLon> line, double radius) {
+		Set<GPXFile> res = new LinkedHashSet<>();
+		List<Chunk> chunks = new ArrayList<>();
+		int segments = line.size() == 1 ? 1 : line.size() - 1;
+		for (int k = 0; k < segments; k++) {
+			LatLon a = line.get(k);
+			LatLon b = line.get(Math.min(k + 1, line.size() - 1));
+			double dlat = radius / METERS_IN_DEGREE;
+			double maxLat = Math.min(89.9, Math.max(Math.abs(a.getLatitude()), Math.abs(b.getLatitude())) + dlat);
+			double dlon = dlat / Math.cos(Math.toRadians(maxLat));
+			QuadRect box = new QuadRect(Math.min(a.getLongitude(), b.getLongitude()) - dlon,
+					Math.max(a.getLatitude(), b.getLatitude()) + dlat,
+					Math.max(a.getLongitude(), b.getLongitude()) + dlon,
+					Math.min(a.getLatitude(), b.getLatitude()) - dlat);
+			chunks.clear();
+			queryChunks(box, chunks);
+			for (Chunk c : chunks) {
+				if (res.contains(c.file)) {
+					continue;
+				}
+				for (int i = c.from; i < c.end(); i++) {
+					WptPt p = c.points.get(i);
+					if (MapUtils.getOrthogonalDistance(p.lat, p.lon, a.getLatitude(), a.getLongitude(),
+							b.getLatitude(), b.getLongitude()) <= radius) {
+						res.add(c.file);
+						break;
+					}
+				}
+			}
+		}
+		return new ArrayList<>(res);
+	}
+
+	/**
+	 * Best first search of nearest track point or waypoint, distances are compared in local equirectangular projection.
+	 * @return nearest point not further than maxDistance (in meters) or null
+	 */
+	public NearestPoint findNearestPoint(double lat, double lon, double maxDistance) {
+		checkTree();
+		double cos = Math.cos(Math.toRadians(lat));
+		double maxDist = maxDistance / METERS_IN_DEGREE;
+		Chunk nearest = null;
+		int nearestIndex = -1;
+		for (Chunk c : pending) {
+			if (distance(c.bounds, lat, lon, cos) <= maxDist) {
+				for (int i = c.from; i < c.end(); i++) {
+					double d = distance(c.points.get(i), lat, lon, cos);
+					if (d <= maxDist) {
+						maxDist = d;
+						nearest = c;
+						nearestIndex = i;
+					}
+				}
+			}
+		}
+		if (levels.size() > 0) {
+			PriorityQueue<double[]> queue = new PriorityQueue<>(64, new Comparator<double[]>() {
+				@Override
+				public int compare(double[] o1, double[] o2) {
+					return Double.compare(o1[0], o2[0]);
+				}
+			});
+			int top = levels.size() - 1;
+			double[] topBounds = levels.get(top);
+			for (int i = 0; i < topBounds.length / 4; i++) {
+				queue.add(new double[] { distance(topBounds, i, lat, lon, cos), top, i });
+			}
+			double[] e;
+			while ((e = queue.poll()) != null && e[0] <= maxDist) {
+				int level = (int) e[1];
+				int node = (int) e[2];
+				if (level == 0) {
+					Chunk c = leaves[node];
+					for (int i = c.from; i < c.end(); i++) {
+						double d = distance(c.points.get(i), lat, lon, cos);
+						if (d <= maxDist) {
+							maxDist = d;
+							nearest = c;
+							nearestIndex = i;
+						}
+					}
+				} else {
+					double[] children = levels.get(level - 1);
+					int end = Math.min(children.length / 4, (node + 1) * NODE_SIZE);
+					for (int i = node * NODE_SIZE; i < end; i++) {
+						double d = distance(children, i, lat, lon, cos);
+						if (d <= maxDist) {
+							queue.add(new double[] { d, level - 1, i });
+						}
+					}
+				}
+			}
+		}
+		if (nearest == null) {
+			return null;
+		}
+		WptPt p = nearest.points.get(nearestIndex);
+		return new NearestPoint(nearest, nearestIndex, MapUtils.getDistance(lat, lon, p.lat, p.lon));
+	}
+
+	private void queryChunks(QuadRect box, List<Chunk> result) {
+		checkTree();
+		for (Chunk c : pending) {
+			if (overlaps(c.bounds, box)) {
+				result.add(c);
+			}
+		}
+		if (levels.isEmpty()) {
+			return;
+		}
+		TIntArrayList stack = new TIntArrayList();
+		int top = levels.size() - 1;
+		for (int i = 0; i < levels.get(top).length / 4; i++) {
+			stack.add(top);
+			stack.add(i);
+		}
+		while (!stack.isEmpty()) {
+			int node = stack.removeAt(stack.size() - 1);
+			int level = stack.removeAt(stack.size() - 1);
+			if (!overlaps(levels.get(level), node, box)) {
+				continue;
+			}
+			if (level == 0) {
+				result.add(leaves[node]);
+			} else {
+				int end = Math.min(levels.get(level - 1).length / 4, (node + 1) * NODE_SIZE);
+				for (int i = node * NODE_SIZE; i < end; i++) {
+					stack.add(level - 1);
+					stack.add(i);
+				}
+			}
+		}
+	}
+
+	private void checkTree() {
+		if (removed || pending.size() > Math.max(MIN_PENDING_TO_REBUILD, leaves.length / 4)) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		List<Chunk> chunks = new ArrayList<>(leaves.length + pending.size());
+		for (Chunk c : leaves) {
+			chunks.add(c);
+		}
+		chunks.addAll(pending);
+		pending.clear();
+		if (removed) {
+			Iterator<Chunk> it = chunks.iterator();
+			while (it.hasNext()) {
+				Chunk c = it.next();
+				if (files.get(c.file) != c.indexed) {
+					it.remove();
+				}
+			}
+			removed = false;
+		}
+		// sort-tile-recursive packing: vertical slices by longitude, each slice sorted by latitude
+		Collections.sort(chunks, new Comparator<Chunk>() {
+			@Override
+			public int compare(Chunk o1, Chunk o2) {
+				return Double.compare(o1.bounds.centerX(), o2.bounds.centerX());
+			}
+		});
+		int nodes = (chunks.size() + NODE_SIZE - 1) / NODE_SIZE;
+		int slices = Math.max(1, (int) Math.ceil(Math.sqrt(nodes)));
+		int sliceSize = slices * NODE_SIZE;
+		Comparator<Chunk> latComparator = new Comparator<Chunk>() {
+			@Override
+			public int compare(Chunk o1, Chunk o2) {
+				return Double.compare(o1.bounds.centerY(), o2.bounds.centerY());
+			}
+		};
+		for (int i = 0; i < chunks.size(); i += sliceSize) {
+			Collections.sort(chunks.subList(i, Math.min(chunks.size(), i + sliceSize)), latComparator);
+		}
+		leaves = chunks.toArray(new Chunk[chunks.size()]);
+		for (int i = 0; i < leaves.length; i++) {
+			leaves[i].leaf = i;
+		}
+		levels.clear();
+		if (leaves.length == 0) {
+			return;
+		}
+		double[] level = new double[leaves.length * 4];
+		for (int i = 0; i < leaves.length; i++) {
+			QuadRect b = leaves[i].bounds;
+			level[i * 4] = b.left;
+			level[i * 4 + 1] = b.top;
+			level[i * 4 + 2] = b.right;
+			level[i * 4 + 3] = b.bottom;
+		}
+		levels.add(level);
+		while (level.length / 4 > NODE_SIZE) {
+			int cnt = level.length / 4;
+			double[] parent = new double[((cnt + NODE_SIZE - 1) / NODE_SIZE) * 4];
+			Arrays.fill(parent, Double.NaN);
+			for (int i = 0; i < cnt; i++) {
+				int p = (i / NODE_SIZE) * 4;
+				if (i % NODE_SIZE == 0) {
+					System.arraycopy(level, i * 4, parent, p, 4);
+				} else {
+					parent[p] = Math.min(parent[p], level[i * 4]);
+					parent[p + 1] = Math.max(parent[p + 1], level[i * 4 + 1]);
+					parent[p + 2] = Math.max(parent[p + 2], level[i * 4 + 2]);
+					parent[p + 3] = Math.min(parent[p + 3], level[i * 4 + 3]);
+				}
+			}
+			levels.add(parent);
+			level = parent;
+		}
+	}
+
+	private static boolean overlaps(QuadRect b, QuadRect box) {
+		return b.left <= box.right && b.right >= box.left && b.bottom <= box.top && b.top >= box.bottom;
+	}
+
+	private static boolean overlaps(double[] bounds, int i, QuadRect box) {
+		return bounds[i * 4] <= box.right && bounds[i * 4 + 2] >= box.left
+				&& bounds[i * 4 + 3] <= box.top && bounds[i * 4 + 1] >= box.bottom;
+	}
+
+	private static double distance(WptPt p, double lat, double lon, double cos) {
+		double dx = (p.lon - lon) * cos;
+		double dy = p.lat - lat;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static double distance(QuadRect b, double lat, double lon, double cos) {
+		return distance(b.left, b.top, b.right, b.bottom, lat, lon, cos);
+	}
+
+	private static double distance(double[] bounds, int i, double lat, double lon, double cos) {
+		return distance(bounds[i * 4], bounds[i * 4 + 1], bounds[i * 4 + 2], bounds[i * 4 + 3], lat, lon, cos);
+	}
+
+	private static double distance(double left, double top, double right, double bottom,
+								   double lat, double lon, double cos) {
+		double dx = lon < left ? left - lon : (lon > right ? lon - right : 0);
+		double dy = lat < bottom ? bottom - lat : (lat > top ? lat - top : 0);
+		dx *= cos;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
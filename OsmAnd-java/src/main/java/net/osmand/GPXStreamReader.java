@@ -0,0 +1,469 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.Copyright;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.RouteSegment;
+import net.osmand.GPXUtilities.RouteType;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Reads gpx as sequence of events without building {@link GPXUtilities.GPXFile}, so memory doesn't depend on file size.
+ * Track and route points are passed in batches, list of batch is reused but points are not.
+ * OsmAnd route points (routepointextension) are skipped, use {@link GPXUtilities#loadGPXFile(InputStream)} to read them.
+ */
+public class GPXStreamReader {
+
+	public static final int DEFAULT_BATCH_SIZE = 512;
+
+	public interface GPXStreamListener {
+
+		void gpxStart(String creator) throws IOException;
+
+		void metadata(Metadata metadata) throws IOException;
+
+		// name and desc are read, segments are empty
+		void trackStart(Track track) throws IOException;
+
+		void segmentStart(Track track) throws IOException;
+
+		// points of current segment or route
+		void points(List<WptPt> points) throws IOException;
+
+		// segment with extensions and route but without points,
+		// points of track after </trkseg> are added to last segment, so it ends with next segment or track
+		void segmentEnd(TrkSegment segment) throws IOException;
+
+		void trackEnd(Track track) throws IOException;
+
+		// name and desc are read, points are empty
+		void routeStart(Route route) throws IOException;
+
+		void routeEnd(Route route) throws IOException;
+
+		void waypoint(WptPt wpt) throws IOException;
+
+		// extensions of gpx, route and types from extensions outside of segments are set to first segment
+		// (already passed to segmentEnd) before the call as GPXUtilities.loadGPXFile does
+		void gpxEnd(GPXExtensions extensions) throws IOException;
+
+		boolean isCancelled();
+	}
+
+	public static class GPXStreamAdapter implements GPXStreamListener {
+
+		@Override
+		public void gpxStart(String creator) throws IOException {
+		}
+
+		@Override
+		public void metadata(Metadata metadata) throws IOException {
+		}
+
+		@Override
+		public void trackStart(Track track) throws IOException {
+		}
+
+		@Override
+		public void segmentStart(Track track) throws IOException {
+		}
+
+		@Override
+		public void points(List<WptPt> points) throws IOException {
+		}
+
+		@Override
+		public void segmentEnd(TrkSegment segment) throws IOException {
+		}
+
+		@Override
+		public void trackEnd(Track track) throws IOException {
+		}
+
+		@Override
+		public void routeStart(Route route) throws IOException {
+		}
+
+		@Override
+		public void routeEnd(Route route) throws IOException {
+		}
+
+		@Override
+		public void waypoint(WptPt wpt) throws IOException {
+		}
+
+		@Override
+		public void gpxEnd(GPXExtensions extensions) throws IOException {
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	private final int batchSize;
+	private final GPXStreamListener listener;
+
+	private final List<WptPt> batch;
+	private final GPXExtensions gpxExtensions = new GPXExtensions();
+	private Metadata metadata;
+	private Author author;
+	private Copyright copyright;
+	private Track track;
+	private Route route;
+	private boolean started;
+	// current segment of track, it's kept after </trkseg> cause next points of track are added to it
+	private TrkSegment segment;
+	// inside of trkseg tag
+	private boolean segmentOpen;
+	private TrkSegment firstSegment;
+	// route and types are assigned to segment on </trkseg>
+	private List<RouteSegment> routeSegments = new ArrayList<>();
+	private List<RouteType> routeTypes = new ArrayList<>();
+	private WptPt point;
+
+	private boolean extensionReadMode;
+	private boolean routePointExtension;
+	private boolean routeExtension;
+	private boolean typesExtension;
+
+	public GPXStreamReader(GPXStreamListener listener) {
+		this(listener, DEFAULT_BATCH_SIZE);
+	}
+
+	public GPXStreamReader(GPXStreamListener listener, int batchSize) {
+		this.listener = listener;
+		this.batchSize = Math.max(batchSize, 1);
+		this.batch = new ArrayList<>(this.batchSize);
+	}
+
+	public void read(File f) throws IOException, XmlPullParserException {
+		FileInputStream fis = new FileInputStream(f);
+		try {
+			read(fis);
+		} finally {
+			fis.close();
+		}
+	}
+
+	public void read(InputStream is) throws IOException, XmlPullParserException {
+		XmlPullParser parser = PlatformUtil.newXMLPullParser();
+		parser.setInput(GPXUtilities.getUTF8Reader(is));
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (listener.isCancelled()) {
+				return;
+			}
+			if (tok == XmlPullParser.START_TAG) {
+				startTag(parser, parser.getName());
+			} else if (tok == XmlPullParser.END_TAG) {
+				endTag(parser.getName());
+			}
+		}
+	}
+
+	private void startTag(XmlPullParser parser, String tag) throws IOException, XmlPullParserException {
+		if (routePointExtension) {
+			return;
+		}
+		if (extensionReadMode) {
+			readExtension(parser, tag);
+		} else if (tag.equals("extensions")) {
+			extensionReadMode = true;
+		} else if (point != null) {
+			GPXUtilities.parseWptField(parser, point, tag);
+		} else if (metadata != null) {
+			readMetadata(parser, tag);
+		} else if (segmentOpen) {
+			if (tag.equals("trkpt") || tag.equals("rpt")) {
+				point = GPXUtilities.parseWptAttributes(parser);
+			} else if (tag.equals("csvattributes")) {
+				readCsvPoints(GPXUtilities.readText(parser, "csvattributes"));
+			}
+		} else if (track != null) {
+			if (tag.equals("name")) {
+				track.name = GPXUtilities.readText(parser, "name");
+			} else if (tag.equals("desc")) {
+				track.desc = GPXUtilities.readText(parser, "desc");
+			} else if (tag.equals("trkseg")) {
+				if (segment != null) {
+					endSegment();
+				}
+				startSegment();
+				segmentOpen = true;
+			} else if (tag.equals("trkpt") || tag.equals("rpt")) {
+				// points without trkseg are added to last segment
+				if (segment == null) {
+					startSegment();
+				}
+				point = GPXUtilities.parseWptAttributes(parser);
+			}
+		} else if (route != null) {
+			if (tag.equals("name")) {
+				route.name = GPXUtilities.readText(parser, "name");
+			} else if (tag.equals("desc")) {
+				route.desc = GPXUtilities.readText(parser, "desc");
+			} else if (tag.equals("rtept")) {
+				if (!started) {
+					started = true;
+					listener.routeStart(route);
+				}
+				point = GPXUtilities.parseWptAttributes(parser);
+			}
+		} else if (tag.equals("gpx")) {
+			listener.gpxStart(parser.getAttributeValue("", "creator"));
+		} else if (tag.equals("metadata")) {
+			metadata = new Metadata();
+		} else if (tag.equals("trk")) {
+			track = new Track();
+			started = false;
+		} else if (tag.equals("rte")) {
+			route = new Route();
+			started = false;
+		} else if (tag.equals("wpt")) {
+			point = GPXUtilities.parseWptAttributes(parser);
+		}
+	}
+
+	private void endTag(String tag) throws IOException {
+		if (tag.toLowerCase().equals("routepointextension")) {
+			routePointExtension = false;
+			return;
+		} else if (routePointExtension) {
+			return;
+		}
+		if (tag.equals("extensions")) {
+			extensionReadMode = false;
+			return;
+		}
+		if (extensionReadMode) {
+			if (tag.equals("route")) {
+				routeExtension = false;
+			} else if (tag.equals("types")) {
+				typesExtension = false;
+			}
+			return;
+		}
+		if (point != null) {
+			if (tag.equals("trkpt") || tag.equals("rpt") || tag.equals("rtept")) {
+				addPoint(point);
+				point = null;
+			} else if (tag.equals("wpt")) {
+				listener.waypoint(point);
+				point = null;
+			}
+		} else if (metadata != null) {
+			if (tag.equals("author")) {
+				author = null;
+			} else if (tag.equals("copyright")) {
+				copyright = null;
+			} else if (tag.equals("metadata")) {
+				listener.metadata(metadata);
+				metadata = null;
+			}
+		} else if (tag.equals("trkseg")) {
+			if (segmentOpen) {
+				segmentOpen = false;
+				segment.routeSegments = routeSegments;
+				segment.routeTypes = routeTypes;
+				routeSegments = new ArrayList<>();
+				routeTypes = new ArrayList<>();
+				if (firstSegment == null) {
+					firstSegment = segment;
+				}
+			}
+		} else if (tag.equals("trk")) {
+			if (segment != null) {
+				endSegment();
+			}
+			if (!started) {
+				listener.trackStart(track);
+			}
+			listener.trackEnd(track);
+			track = null;
+		} else if (tag.equals("rte")) {
+			if (!started) {
+				listener.routeStart(route);
+			}
+			flushPoints();
+			listener.routeEnd(route);
+			route = null;
+		} else if (tag.equals("gpx")) {
+			if (!routeSegments.isEmpty() && !routeTypes.isEmpty() && firstSegment != null) {
+				firstSegment.routeSegments = routeSegments;
+				firstSegment.routeTypes = routeTypes;
+			}
+			listener.gpxEnd(gpxExtensions);
+		}
+	}
+
+	private GPXExtensions getExtensionsOwner() {
+		if (point != null) {
+			return point;
+		} else if (metadata != null) {
+			return metadata;
+		} else if (segmentOpen) {
+			return segment;
+		} else if (track != null) {
+			return track;
+		} else if (route != null) {
+			return route;
+		}
+		return gpxExtensions;
+	}
+
+	private void readExtension(XmlPullParser parser, String tag) throws IOException, XmlPullParserException {
+		String tagName = tag.toLowerCase();
+		if (routeExtension) {
+			if (tagName.equals("segment")) {
+				routeSegments.add(GPXUtilities.parseRouteSegmentAttributes(parser));
+			}
+			return;
+		} else if (typesExtension) {
+			if (tagName.equals("type")) {
+				routeTypes.add(GPXUtilities.parseRouteTypeAttributes(parser));
+			}
+			return;
+		}
+		switch (tagName) {
+			case "routepointextension":
+				routePointExtension = true;
+				break;
+
+			case "route":
+				routeExtension = true;
+				break;
+
+			case "types":
+				typesExtension = true;
+				break;
+
+			default:
+				GPXExtensions owner = getExtensionsOwner();
+				Map<String, String> values = GPXUtilities.readTextMap(parser, tag);
+				for (Entry<String, String> entry : values.entrySet()) {
+					String value = entry.getValue();
+					owner.getExtensionsToWrite().put(entry.getKey().toLowerCase(), value);
+					if (tag.equals("speed") && owner instanceof WptPt) {
+						try {
+							((WptPt) owner).speed = Float.parseFloat(value);
+						} catch (NumberFormatException e) {
+							GPXUtilities.log.debug(e.getMessage(), e);
+						}
+					}
+				}
+				break;
+		}
+	}
+
+	private void readMetadata(XmlPullParser parser, String tag) throws IOException, XmlPullParserException {
+		if (author != null) {
+			if (tag.equals("name")) {
+				author.name = GPXUtilities.readText(parser, "name");
+			} else if (tag.equals("email")) {
+				String id = parser.getAttributeValue("", "id");
+				String domain = parser.getAttributeValue("", "domain");
+				if (!Algorithms.isEmpty(id) && !Algorithms.isEmpty(domain)) {
+					author.email = id + "@" + domain;
+				}
+			} else if (tag.equals("link")) {
+				author.link = parser.getAttributeValue("", "href");
+			}
+		} else if (copyright != null) {
+			if (tag.equals("year")) {
+				copyright.year = GPXUtilities.readText(parser, "year");
+			} else if (tag.equals("license")) {
+				copyright.license = GPXUtilities.readText(parser, "license");
+			}
+		} else if (tag.equals("name")) {
+			metadata.name = GPXUtilities.readText(parser, "name");
+		} else if (tag.equals("desc")) {
+			metadata.desc = GPXUtilities.readText(parser, "desc");
+		} else if (tag.equals("author")) {
+			author = new Author();
+			metadata.author = author;
+		} else if (tag.equals("copyright")) {
+			copyright = new Copyright();
+			copyright.author = parser.getAttributeValue("", "author");
+			metadata.copyright = copyright;
+		} else if (tag.equals("link")) {
+			metadata.link = parser.getAttributeValue("", "href");
+		} else if (tag.equals("time")) {
+			metadata.time = GPXUtilities.parseTime(GPXUtilities.readText(parser, "time"));
+		} else if (tag.equals("keywords")) {
+			metadata.keywords = GPXUtilities.readText(parser, "keywords");
+		} else if (tag.equals("bounds")) {
+			metadata.bounds = GPXUtilities.parseBoundsAttributes(parser);
+		}
+	}
+
+	private void readCsvPoints(String text) throws IOException {
+		if (text == null) {
+			return;
+		}
+		for (String line : text.split("\n")) {
+			String[] pointAttrs = line.split(",");
+			if (pointAttrs.length > 1) {
+				try {
+					WptPt wptPt = new WptPt();
+					wptPt.lon = Double.parseDouble(pointAttrs[0]);
+					wptPt.lat = Double.parseDouble(pointAttrs[1]);
+					if (pointAttrs.length > 2) {
+						wptPt.ele = Double.parseDouble(pointAttrs[2]);
+					}
+					addPoint(wptPt);
+				} catch (NumberFormatException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private void startSegment() throws IOException {
+		if (!started) {
+			started = true;
+			listener.trackStart(track);
+		}
+		segment = new TrkSegment();
+		listener.segmentStart(track);
+	}
+
+	private void endSegment() throws IOException {
+		flushPoints();
+		listener.segmentEnd(segment);
+		segment = null;
+		segmentOpen = false;
+	}
+
+	private void addPoint(WptPt p) throws IOException {
+		batch.add(p);
+		if (batch.size() >= batchSize) {
+			flushPoints();
+		}
+	}
+
+	private void flushPoints() throws IOException {
+		if (!batch.isEmpty()) {
+			listener.points(batch);
+			batch.clear();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package net.osmand;
+
+import net.osmand.GPXStreamReader.GPXStreamListener;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes gpx element by element in the same format as {@link GPXUtilities#writeGpx(Writer, GPXUtilities.GPXFile)},
+ * calls should follow gpx structure: startGpx, metadata, tracks, routes, waypoints, endGpx.
+ */
+public class GPXStreamWriter {
+
+	private final Writer output;
+	private final XmlSerializer serializer;
+
+	public GPXStreamWriter(Writer output) {
+		this.output = output;
+		serializer = PlatformUtil.newSerializer();
+	}
+
+	public void startGpx(String creator) throws IOException {
+		GPXUtilities.startGpx(serializer, output, creator);
+	}
+
+	public void writeMetadata(Metadata metadata) throws IOException {
+		GPXUtilities.writeMetadata(serializer, metadata, metadata != null ? metadata.name : null);
+	}
+
+	public void startTrack(Track track) throws IOException {
+		serializer.startTag(null, "trk"); //$NON-NLS-1$
+		writeNotNullText("name", track.name);
+		writeNotNullText("desc", track.desc);
+	}
+
+	public void startSegment() throws IOException {
+		serializer.startTag(null, "trkseg"); //$NON-NLS-1$
+	}
+
+	public void writeTrackPoint(WptPt p) throws IOException {
+		writePoint("trkpt", p); //$NON-NLS-1$
+	}
+
+	public void writeTrackPoints(List<WptPt> points) throws IOException {
+		for (WptPt p : points) {
+			writePoint("trkpt", p); //$NON-NLS-1$
+		}
+	}
+
+	// points of segment are not written, only its extensions and route
+	public void endSegment(TrkSegment segment) throws IOException {
+		if (segment != null) {
+			GPXUtilities.assignRouteExtensionWriter(segment);
+			GPXUtilities.writeExtensions(serializer, segment);
+		}
+		serializer.endTag(null, "trkseg"); //$NON-NLS-1$
+	}
+
+	public void endTrack(Track track) throws IOException {
+		if (track != null) {
+			GPXUtilities.writeExtensions(serializer, track);
+		}
+		serializer.endTag(null, "trk"); //$NON-NLS-1$
+	}
+
+	public void startRoute(Route route) throws IOException {
+		serializer.startTag(null, "rte"); //$NON-NLS-1$
+		writeNotNullText("name", route.name);
+		writeNotNullText("desc", route.desc);
+	}
+
+	public void writeRoutePoint(WptPt p) throws IOException {
+		writePoint("rtept", p); //$NON-NLS-1$
+	}
+
+	public void endRoute(Route route) throws IOException {
+		if (route != null) {
+			GPXUtilities.writeExtensions(serializer, route);
+		}
+		serializer.endTag(null, "rte"); //$NON-NLS-1$
+	}
+
+	public void writeWaypoint(WptPt p) throws IOException {
+		writePoint("wpt", p); //$NON-NLS-1$
+	}
+
+	public void endGpx(GPXExtensions extensions) throws IOException {
+		if (extensions != null) {
+			GPXUtilities.writeExtensions(serializer, extensions);
+		}
+		serializer.endTag(null, "gpx"); //$NON-NLS-1$
+		serializer.endDocument();
+		serializer.flush();
+	}
+
+	public void flush() throws IOException {
+		serializer.flush();
+	}
+
+	private void writePoint(String tag, WptPt p) throws IOException {
+		serializer.startTag(null, tag);
+		GPXUtilities.writeWpt(serializer, p);
+		serializer.endTag(null, tag);
+	}
+
+	private void writeNotNullText(String tag, String value) throws IOException {
+		GPXUtilities.writeNotNullText(serializer, tag, value);
+	}
+
+	/**
+	 * Listener which copies read gpx into this writer, could be wrapped to filter or convert points.
+	 */
+	public GPXStreamListener asListener() {
+		return new GPXStreamListener() {
+
+			private boolean route;
+
+			@Override
+			public void gpxStart(String creator) throws IOException {
+				startGpx(creator);
+			}
+
+			@Override
+			public void metadata(Metadata metadata) throws IOException {
+				writeMetadata(metadata);
+			}
+
+			@Override
+			public void trackStart(Track track) throws IOException {
+				route = false;
+				startTrack(track);
+			}
+
+			@Override
+			public void segmentStart(Track track) throws IOException {
+				startSegment();
+			}
+
+			@Override
+			public void points(List<WptPt> points) throws IOException {
+				for (WptPt p : points) {
+					writePoint(route ? "rtept" : "trkpt", p); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+
+			@Override
+			public void segmentEnd(TrkSegment segment) throws IOException {
+				endSegment(segment);
+			}
+
+			@Override
+			public void trackEnd(Track track) throws IOException {
+				endTrack(track);
+			}
+
+			@Override
+			public void routeStart(Route r) throws IOException {
+				route = true;
+				startRoute(r);
+			}
+
+			@Override
+			public void routeEnd(Route r) throws IOException {
+				endRoute(r);
+				route = false;
+			}
+
+			@Override
+			public void waypoint(WptPt wpt) throws IOException {
+				writeWaypoint(wpt);
+			}
+
+			@Override
+			public void gpxEnd(GPXExtensions extensions) throws IOException {
+				endGpx(extensions);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+	}
+}
@@ -0,0 +1,265 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+import net.osmand.util.TrackSimplification;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * Track points stored by columns in primitive arrays instead of one {@link WptPt} per point.
+ * Names, descriptions and extensions are rare for track points and kept in sparse tables by point index.
+ * {@link WptPt} views are detached copies: changes of a view are not written back.
+ */
+public class GPXTrackColumns {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int size;
+	private double[] lat;
+	private double[] lon;
+	private long[] time;
+	private float[] ele;
+	private float[] speed;
+	private float[] hdop;
+	private float[] heading;
+
+	private TIntObjectHashMap<String> names;
+	private TIntObjectHashMap<String> descs;
+	private TIntObjectHashMap<Map<String, String>> extensions;
+
+	public GPXTrackColumns() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public GPXTrackColumns(int capacity) {
+		capacity = Math.max(capacity, 1);
+		lat = new double[capacity];
+		lon = new double[capacity];
+		time = new long[capacity];
+		ele = new float[capacity];
+		speed = new float[capacity];
+		hdop = new float[capacity];
+		heading = new float[capacity];
+	}
+
+	public static GPXTrackColumns fromPoints(List<WptPt> points) {
+		GPXTrackColumns columns = new GPXTrackColumns(points.size());
+		for (WptPt p : points) {
+			columns.add(p);
+		}
+		return columns;
+	}
+
+	public static GPXTrackColumns fromSegment(TrkSegment segment) {
+		return fromPoints(segment.points);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int add(double latitude, double longitude, long time, double ele, double speed, double hdop) {
+		return add(latitude, longitude, time, ele, speed, hdop, Float.NaN);
+	}
+
+	public int add(double latitude, double longitude, long time, double ele, double speed, double hdop, float heading) {
+		ensureCapacity(size + 1);
+		int ind = size++;
+		this.lat[ind] = latitude;
+		this.lon[ind] = longitude;
+		this.time[ind] = time;
+		this.ele[ind] = (float) ele;
+		this.speed[ind] = (float) speed;
+		this.hdop[ind] = (float) hdop;
+		this.heading[ind] = heading;
+		return ind;
+	}
+
+	public int add(WptPt p) {
+		int ind = add(p.lat, p.lon, p.time, p.ele, p.speed, p.hdop, p.heading);
+		setName(ind, p.name);
+		setDescription(ind, p.desc);
+		if (!p.getExtensionsToRead().isEmpty()) {
+			setExtensions(ind, new LinkedHashMap<>(p.getExtensionsToRead()));
+		}
+		return ind;
+	}
+
+	public double getLatitude(int ind) {
+		return lat[ind];
+	}
+
+	public double getLongitude(int ind) {
+		return lon[ind];
+	}
+
+	public long getTime(int ind) {
+		return time[ind];
+	}
+
+	public double getElevation(int ind) {
+		return ele[ind];
+	}
+
+	public double getSpeed(int ind) {
+		return speed[ind];
+	}
+
+	public double getHdop(int ind) {
+		return hdop[ind];
+	}
+
+	public float getHeading(int ind) {
+		return heading[ind];
+	}
+
+	public String getName(int ind) {
+		return names == null ? null : names.get(ind);
+	}
+
+	public void setName(int ind, String name) {
+		names = setSparse(names, ind, name);
+	}
+
+	public String getDescription(int ind) {
+		return descs == null ? null : descs.get(ind);
+	}
+
+	public void setDescription(int ind, String desc) {
+		descs = setSparse(descs, ind, desc);
+	}
+
+	public Map<String, String> getExtensions(int ind) {
+		return extensions == null ? null : extensions.get(ind);
+	}
+
+	public void setExtensions(int ind, Map<String, String> ext) {
+		extensions = setSparse(extensions, ind, Algorithms.isEmpty(ext) ? null : ext);
+	}
+
+	private <T> TIntObjectHashMap<T> setSparse(TIntObjectHashMap<T> table, int ind, T value) {
+		checkIndex(ind);
+		if (value == null) {
+			if (table != null) {
+				table.remove(ind);
+			}
+			return table;
+		}
+		if (table == null) {
+			table = new TIntObjectHashMap<>();
+		}
+		table.put(ind, value);
+		return table;
+	}
+
+	/**
+	 * Fills point with values of index, so one instance could be reused while iterating.
+	 */
+	public WptPt get(int ind, WptPt point) {
+		checkIndex(ind);
+		point.lat = lat[ind];
+		point.lon = lon[ind];
+		point.time = time[ind];
+		point.ele = ele[ind];
+		point.speed = speed[ind];
+		point.hdop = hdop[ind];
+		point.heading = heading[ind];
+		point.name = getName(ind);
+		point.desc = getDescription(ind);
+		// values not stored in columns are reset
+		point.link = null;
+		point.category = null;
+		point.comment = null;
+		point.deleted = false;
+		point.colourARGB = 0;
+		Map<String, String> ext = getExtensions(ind);
+		point.extensions = ext == null ? null : new LinkedHashMap<>(ext);
+		point.extensionsWriter = null;
+		point.distance = 0;
+		point.firstPoint = false;
+		point.lastPoint = false;
+		return point;
+	}
+
+	public WptPt get(int ind) {
+		return get(ind, new WptPt());
+	}
+
+	/**
+	 * Read only list for existing callers of List&lt;WptPt&gt;, each call of get creates new point.
+	 */
+	public List<WptPt> asList() {
+		return new WptPtList();
+	}
+
+	public TrkSegment toSegment() {
+		TrkSegment segment = new TrkSegment();
+		segment.points = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			segment.points.add(get(i));
+		}
+		return segment;
+	}
+
+	/**
+	 * Simplified subsets of track for drawing at zoom levels, see {@link TrackSimplification.LevelOfDetail}.
+	 */
+	public TrackSimplification.LevelOfDetail createLevelOfDetail(int minZoom, int maxZoom, double pixelTolerance) {
+		return TrackSimplification.LevelOfDetail.fromLatLon(lat, lon, size, minZoom, maxZoom, pixelTolerance);
+	}
+
+	public void trimToSize() {
+		if (lat.length > size) {
+			resize(Math.max(size, 1));
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > lat.length) {
+			resize(Math.max(capacity, lat.length + (lat.length >> 1)));
+		}
+	}
+
+	private void resize(int capacity) {
+		lat = Arrays.copyOf(lat, capacity);
+		lon = Arrays.copyOf(lon, capacity);
+		time = Arrays.copyOf(time, capacity);
+		ele = Arrays.copyOf(ele, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		hdop = Arrays.copyOf(hdop, capacity);
+		heading = Arrays.copyOf(heading, capacity);
+	}
+
+	private void checkIndex(int ind) {
+		if (ind < 0 || ind >= size) {
+			throw new IndexOutOfBoundsException("Index: " + ind + ", size: " + size);
+		}
+	}
+
+	private class WptPtList extends AbstractList<WptPt> implements RandomAccess {
+
+		@Override
+		public WptPt get(int index) {
+			return GPXTrackColumns.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
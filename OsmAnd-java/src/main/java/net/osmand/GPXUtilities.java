@@ -7,6 +7,7 @@ import net.osmand.binary.StringBundleWriter;
 import net.osmand.binary.StringBundleXmlWriter;
 import net.osmand.data.QuadRect;
 import net.osmand.util.Algorithms;
+import net.osmand.util.IsoDateTimeUtil;
 
 import org.apache.commons.logging.Log;
 import org.xmlpull.v1.XmlPullParser;
@@ -32,7 +33,6 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -56,7 +56,7 @@ public class GPXUtilities {
 	private static final String TRKPT_INDEX_EXTENSION = "trkpt_idx";
 
 	public final static String GPX_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'"; //$NON-NLS-1$
-	private final static String GPX_TIME_FORMAT_MILLIS = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"; //$NON-NLS-1$
+	final static String GPX_TIME_FORMAT_MILLIS = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"; //$NON-NLS-1$
 
 	private final static NumberFormat latLonFormat = new DecimalFormat("0.00#####", new DecimalFormatSymbols(
 			new Locale("EN", "US")));
@@ -606,310 +606,45 @@ public class GPXUtilities {
 			return new GPXTrackAnalysis().prepareInformation(filetimestamp, new SplitSegment(segment));
 		}
 
-		public GPXTrackAnalysis prepareInformation(long filestamp, SplitSegment... splitSegments) {
-			float[] calculations = new float[1];
-
-			long startTimeOfSingleSegment = 0;
-			long endTimeOfSingleSegment = 0;
-
-			float distanceOfSingleSegment = 0;
-			float distanceMovingOfSingleSegment = 0;
-			long timeMovingOfSingleSegment = 0;
-
-			float totalElevation = 0;
-			int elevationPoints = 0;
-			int speedCount = 0;
-			int timeDiff = 0;
-			double totalSpeedSum = 0;
-			points = 0;
-
-			double channelThresMin = 10;           // Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
-			double channelThres = channelThresMin; // Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
-			double channelBase;
-			double channelTop;
-			double channelBottom;
-			boolean climb = false;
-
-			elevationData = new ArrayList<>();
-			speedData = new ArrayList<>();
+		public static GPXTrackAnalysis segment(long filetimestamp, GPXTrackColumns columns) {
+			return new GPXTrackAnalysis().prepareInformation(filetimestamp, new SplitSegment(columns));
+		}
 
+		public GPXTrackAnalysis prepareInformation(long filestamp, SplitSegment... splitSegments) {
+			GPXIncrementalAnalysis analysis = new GPXIncrementalAnalysis(this);
 			for (SplitSegment s : splitSegments) {
 				final int numberOfPoints = s.getNumberOfPoints();
-
-				channelBase = 99999;
-				channelTop = channelBase;
-				channelBottom = channelBase;
-				//channelThres = channelThresMin; //only for dynamic channel adjustment
-
-				float segmentDistance = 0f;
 				metricEnd += s.metricEnd;
 				secondaryMetricEnd += s.secondaryMetricEnd;
-				points += numberOfPoints;
+				analysis.startSegment(s.isGeneralSegment(), s.metricEnd != 0);
 				for (int j = 0; j < numberOfPoints; j++) {
-					WptPt point = s.get(j);
 					if (j == 0 && locationStart == null) {
-						locationStart = point;
+						locationStart = s.get(j);
 					}
 					if (j == numberOfPoints - 1) {
-						locationEnd = point;
-					}
-					long time = point.time;
-					if (time != 0) {
-						if (s.metricEnd == 0) {
-							if (s.segment.generalSegment) {
-								if (point.firstPoint) {
-									startTimeOfSingleSegment = time;
-								} else if (point.lastPoint) {
-									endTimeOfSingleSegment = time;
-								}
-								if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
-									timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
-									startTimeOfSingleSegment = 0;
-									endTimeOfSingleSegment = 0;
-								}
-							}
-						}
-						startTime = Math.min(startTime, time);
-						endTime = Math.max(endTime, time);
+						locationEnd = s.get(j);
 					}
-
-					if (left == 0 && right == 0) {
-						left = point.getLongitude();
-						right = point.getLongitude();
-						top = point.getLatitude();
-						bottom = point.getLatitude();
-					} else {
-						left = Math.min(left, point.getLongitude());
-						right = Math.max(right, point.getLongitude());
-						top = Math.max(top, point.getLatitude());
-						bottom = Math.min(bottom, point.getLatitude());
-					}
-
-					double elevation = point.ele;
-					Elevation elevation1 = new Elevation();
-					if (!Double.isNaN(elevation)) {
-						totalElevation += elevation;
-						elevationPoints++;
-						minElevation = Math.min(elevation, minElevation);
-						maxElevation = Math.max(elevation, maxElevation);
-
-						elevation1.elevation = (float) elevation;
-					} else {
-						elevation1.elevation = Float.NaN;
-					}
-
-					float speed = (float) point.speed;
-					if (speed > 0) {
-						hasSpeedInTrack = true;
-					}
-
-					// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
-					// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
-					// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
-					// Parameters:
-					// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
-					// - smoothWindow (number of points): is the LPF window
-					// NOW REMOVED, as no relevant examples found: Dynamic channel adjustment: To suppress unreliable measurement points, could relax the turnaround detection from the constant channelThresMin to channelThres which is e.g. based on the maximum VDOP of any point which contributed to the current trend. (Good assumption is VDOP=2*HDOP, which accounts for invisibility of lower hemisphere satellites.)
-
-					// LPF smooting of ele data, usually smooth over odd number of values like 5
-					final int smoothWindow = 5;
-					double eleSmoothed = Double.NaN;
-					int j2 = 0;
-					for (int j1 = - smoothWindow + 1; j1 <= 0; j1++) {
-						if ((j + j1 >= 0) && !Double.isNaN(s.get(j + j1).ele)) {
-							j2++;
-							if (!Double.isNaN(eleSmoothed)) {
-								eleSmoothed = eleSmoothed + s.get(j + j1).ele;
-							} else {
-								eleSmoothed = s.get(j + j1).ele;
-							}
-						}
-					}
-					if (!Double.isNaN(eleSmoothed)) {
-						eleSmoothed = eleSmoothed / j2;
-					}
-
-					if (!Double.isNaN(eleSmoothed)) {
-						// Init channel
-						if (channelBase == 99999) {
-							channelBase = eleSmoothed;
-							channelTop = channelBase;
-							channelBottom = channelBase;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// Channel maintenance
-						if (eleSmoothed > channelTop) {
-							channelTop = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						} else if (eleSmoothed < channelBottom) {
-							channelBottom = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						}
-						// Turnaround (breakout) detection
-						if ((eleSmoothed <= (channelTop - channelThres)) && (climb == true)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							channelBase = channelTop;
-							channelBottom = eleSmoothed;
-							climb = false;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						} else if ((eleSmoothed >= (channelBottom + channelThres)) && (climb == false)) {
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-							channelBase = channelBottom;
-							channelTop = eleSmoothed;
-							climb = true;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// End detection without breakout
-						if (j == (numberOfPoints - 1)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-						}
-					}
-
+					float segmentDistance = analysis.addPoint(s.getLatitude(j), s.getLongitude(j), s.getTime(j),
+							s.getElevation(j), s.getSpeed(j), s.isFirstPoint(j), s.isLastPoint(j));
 					if (j > 0) {
-						WptPt prev = s.get(j - 1);
-
-						// Old complete summation approach for elevation gain/loss
-						//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
-						//	double diff = point.ele - prev.ele;
-						//	if (diff > 0) {
-						//		diffElevationUp += diff;
-						//	} else {
-						//		diffElevationDown -= diff;
-						//	}
-						//}
-
-						// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
-						// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
-						// a little more exact, also seems slightly faster:
-						net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
-						totalDistance += calculations[0];
-						segmentDistance += calculations[0];
-						point.distance = segmentDistance;
-						timeDiff = (int)((point.time - prev.time) / 1000);
-
-						//Last resort: Derive speed values from displacement if track does not originally contain speed
-						if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
-							speed = calculations[0] / timeDiff;
-						}
-
-						// Motion detection:
-						//   speed > 0  uses GPS chipset's motion detection
-						//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
-						if ((speed > 0) && (calculations[0] > 0.1 / 1000f * (point.time - prev.time)) && point.time != 0 && prev.time != 0) {
-							timeMoving = timeMoving + (point.time - prev.time);
-							totalDistanceMoving += calculations[0];
-							if (s.segment.generalSegment && !point.firstPoint) {
-								timeMovingOfSingleSegment += point.time - prev.time;
-								distanceMovingOfSingleSegment += calculations[0];
-							}
-						}
-
-						//Next few lines for Issue 3222 heuristic testing only
-						//	if (speed > 0 && point.time != 0 && prev.time != 0) {
-						//		timeMoving0 = timeMoving0 + (point.time - prev.time);
-						//		totalDistanceMoving0 += calculations[0];
-						//	}
+						s.setDistance(j, segmentDistance);
 					}
-
-					elevation1.time = timeDiff;
-					elevation1.distance = (j > 0) ? calculations[0] : 0;
-					elevationData.add(elevation1);
-					if (!hasElevationData && !Float.isNaN(elevation1.elevation) && totalDistance > 0) {
-						hasElevationData = true;
-					}
-
-					minSpeed = Math.min(speed, minSpeed);
-					if (speed > 0) {
-						totalSpeedSum += speed;
-						maxSpeed = Math.max(speed, maxSpeed);
-						speedCount++;
-					}
-
-					Speed speed1 = new Speed();
-					speed1.speed = speed;
-					speed1.time = timeDiff;
-					speed1.distance = elevation1.distance;
-					speedData.add(speed1);
-					if (!hasSpeedData && speed1.speed > 0 && totalDistance > 0) {
-						hasSpeedData = true;
-					}
-					if (s.segment.generalSegment) {
-						distanceOfSingleSegment += calculations[0];
-						if (point.firstPoint) {
-							distanceOfSingleSegment = 0;
-							timeMovingOfSingleSegment = 0;
-							distanceMovingOfSingleSegment = 0;
-							if (j > 0) {
-								elevation1.firstPoint = true;
-								speed1.firstPoint = true;
-							}
-						}
-						if (point.lastPoint) {
-							totalDistanceWithoutGaps += distanceOfSingleSegment;
-							timeMovingWithoutGaps += timeMovingOfSingleSegment;
-							totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
-							if (j < numberOfPoints - 1) {
-								elevation1.lastPoint = true;
-								speed1.lastPoint = true;
-							}
-						}
-					}
-				}
-			}
-			if (totalDistance < 0) {
-				hasElevationData = false;
-				hasSpeedData = false;
-			}
-			if (!isTimeSpecified()) {
-				startTime = filestamp;
-				endTime = filestamp;
-			}
-
-			// OUTPUT:
-			// 1. Total distance, Start time, End time
-			// 2. Time span
-			if (timeSpan == 0) {
-				timeSpan = endTime - startTime;
-			}
-
-			// 3. Time moving, if any
-			// 4. Elevation, eleUp, eleDown, if recorded
-			if (elevationPoints > 0) {
-				avgElevation = totalElevation / elevationPoints;
-			}
-
-
-			// 5. Max speed and Average speed, if any. Average speed is NOT overall (effective) speed, but only calculated for "moving" periods.
-			//    Averaging speed values is less precise than totalDistanceMoving/timeMoving
-			if (speedCount > 0) {
-				if (timeMoving > 0) {
-					avgSpeed = (float) totalDistanceMoving / (float) timeMoving * 1000f;
-				} else {
-					avgSpeed = (float) totalSpeedSum / (float) speedCount;
 				}
-			} else {
-				avgSpeed = -1;
 			}
+			analysis.finish(filestamp);
 			return this;
 		}
 
 	}
 
 	private static class SplitSegment {
+		private static final int LAT = 0;
+		private static final int LON = 1;
+		private static final int ELE = 2;
+		private static final int SPEED = 3;
+
 		TrkSegment segment;
+		GPXTrackColumns columns;
 		double startCoeff = 0;
 		int startPointInd;
 		double endCoeff = 0;
@@ -925,6 +660,14 @@ public class GPXUtilities {
 			this.segment = s;
 		}
 
+		public SplitSegment(GPXTrackColumns columns) {
+			startPointInd = 0;
+			startCoeff = 0;
+			endPointInd = columns.size() - 2;
+			endCoeff = 1;
+			this.columns = columns;
+		}
+
 		public SplitSegment(TrkSegment s, int pointInd, double cf) {
 			this.segment = s;
 			this.startPointInd = pointInd;
@@ -936,21 +679,108 @@ public class GPXUtilities {
 			return endPointInd - startPointInd + 2;
 		}
 
+		public boolean isGeneralSegment() {
+			return segment != null && segment.generalSegment;
+		}
+
+		private WptPt point(int ind) {
+			return columns != null ? columns.get(ind) : segment.points.get(ind);
+		}
+
 		public WptPt get(int j) {
 			final int ind = j + startPointInd;
 			if (j == 0) {
 				if (startCoeff == 0) {
-					return segment.points.get(ind);
+					return point(ind);
 				}
-				return approx(segment.points.get(ind), segment.points.get(ind + 1), startCoeff);
+				return approx(point(ind), point(ind + 1), startCoeff);
 			}
 			if (j == getNumberOfPoints() - 1) {
 				if (endCoeff == 1) {
-					return segment.points.get(ind);
+					return point(ind);
 				}
-				return approx(segment.points.get(ind - 1), segment.points.get(ind), endCoeff);
+				return approx(point(ind - 1), point(ind), endCoeff);
+			}
+			return point(ind);
+		}
+
+		// first or last point of split segment is interpolated between 2 points of track
+		private boolean isApprox(int j) {
+			return (j == 0 && startCoeff != 0) || (j == getNumberOfPoints() - 1 && endCoeff != 1);
+		}
+
+		private double raw(int ind, int field) {
+			if (columns != null) {
+				switch (field) {
+					case LAT: return columns.getLatitude(ind);
+					case LON: return columns.getLongitude(ind);
+					case ELE: return columns.getElevation(ind);
+					default: return columns.getSpeed(ind);
+				}
+			}
+			WptPt p = segment.points.get(ind);
+			switch (field) {
+				case LAT: return p.lat;
+				case LON: return p.lon;
+				case ELE: return p.ele;
+				default: return p.speed;
+			}
+		}
+
+		private long rawTime(int ind) {
+			return columns != null ? columns.getTime(ind) : segment.points.get(ind).time;
+		}
+
+		private double value(int j, int field, double none) {
+			final int ind = j + startPointInd;
+			if (j == 0 && startCoeff != 0) {
+				return value(raw(ind, field), raw(ind + 1, field), none, startCoeff);
+			}
+			if (j == getNumberOfPoints() - 1 && endCoeff != 1) {
+				return value(raw(ind - 1, field), raw(ind, field), none, endCoeff);
+			}
+			return raw(ind, field);
+		}
+
+		public double getLatitude(int j) {
+			return value(j, LAT, -360);
+		}
+
+		public double getLongitude(int j) {
+			return value(j, LON, -360);
+		}
+
+		public double getElevation(int j) {
+			return value(j, ELE, 0);
+		}
+
+		public double getSpeed(int j) {
+			return value(j, SPEED, 0);
+		}
+
+		public long getTime(int j) {
+			final int ind = j + startPointInd;
+			if (j == 0 && startCoeff != 0) {
+				return value(rawTime(ind), rawTime(ind + 1), 0, startCoeff);
+			}
+			if (j == getNumberOfPoints() - 1 && endCoeff != 1) {
+				return value(rawTime(ind - 1), rawTime(ind), 0, endCoeff);
+			}
+			return rawTime(ind);
+		}
+
+		public boolean isFirstPoint(int j) {
+			return segment != null && !isApprox(j) && segment.points.get(j + startPointInd).firstPoint;
+		}
+
+		public boolean isLastPoint(int j) {
+			return segment != null && !isApprox(j) && segment.points.get(j + startPointInd).lastPoint;
+		}
+
+		public void setDistance(int j, double distance) {
+			if (segment != null && !isApprox(j)) {
+				segment.points.get(j + startPointInd).distance = distance;
 			}
-			return segment.points.get(ind);
 		}
 
 
@@ -1081,6 +911,25 @@ public class GPXUtilities {
 		return trackBounds;
 	}
 
+	public static QuadRect calculateBounds(GPXTrackColumns columns) {
+		QuadRect trackBounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		updateBounds(trackBounds, columns, 0);
+
+		return trackBounds;
+	}
+
+	public static void updateBounds(QuadRect trackBounds, GPXTrackColumns columns, int startIndex) {
+		for (int i = startIndex; i < columns.size(); i++) {
+			double lat = columns.getLatitude(i);
+			double lon = columns.getLongitude(i);
+			trackBounds.right = Math.max(trackBounds.right, lon);
+			trackBounds.left = Math.min(trackBounds.left, lon);
+			trackBounds.top = Math.max(trackBounds.top, lat);
+			trackBounds.bottom = Math.min(trackBounds.bottom, lat);
+		}
+	}
+
 	public static void updateBounds(QuadRect trackBounds, List<WptPt> pts, int startIndex) {
 		for (int i = startIndex; i < pts.size(); i++) {
 			WptPt pt = pts.get(i);
@@ -1778,48 +1627,11 @@ public class GPXUtilities {
 
 	public static Exception writeGpx(Writer output, GPXFile file) {
 		try {
-			SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
-			format.setTimeZone(TimeZone.getTimeZone("UTC"));
 			XmlSerializer serializer = PlatformUtil.newSerializer();
-			serializer.setOutput(output);
-			serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
-			serializer.startDocument("UTF-8", true); //$NON-NLS-1$
-			serializer.startTag(null, "gpx"); //$NON-NLS-1$
-			serializer.attribute(null, "version", "1.1"); //$NON-NLS-1$ //$NON-NLS-2$
-			if (file.author != null) {
-				serializer.attribute(null, "creator", file.author); //$NON-NLS-1$
-			}
-			serializer.attribute(null, "xmlns", "http://www.topografix.com/GPX/1/1"); //$NON-NLS-1$ //$NON-NLS-2$
-			serializer.attribute(null, "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-			serializer.attribute(null, "xsi:schemaLocation",
-					"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd");
+			startGpx(serializer, output, file.author);
 
 			String trackName = file.metadata != null ? file.metadata.name : getFilename(file.path);
-			serializer.startTag(null, "metadata");
-			writeNotNullText(serializer, "name", trackName);
-			if (file.metadata != null) {
-				writeNotNullText(serializer, "desc", file.metadata.desc);
-				if (file.metadata.author != null) {
-					serializer.startTag(null, "author");
-					writeAuthor(serializer, file.metadata.author);
-					serializer.endTag(null, "author");
-				}
-				if (file.metadata.copyright != null) {
-					serializer.startTag(null, "copyright");
-					writeCopyright(serializer, file.metadata.copyright);
-					serializer.endTag(null, "copyright");
-				}
-				writeNotNullTextWithAttribute(serializer, "link", "href", file.metadata.link);
-				if (file.metadata.time != 0) {
-					writeNotNullText(serializer, "time", format.format(new Date(file.metadata.time)));
-				}
-				writeNotNullText(serializer, "keywords", file.metadata.keywords);
-				if (file.metadata.bounds != null) {
-					writeBounds(serializer, file.metadata.bounds);
-				}
-				writeExtensions(serializer, file.metadata);
-			}
-			serializer.endTag(null, "metadata");
+			writeMetadata(serializer, file.metadata, trackName);
 
 
 			for (Track track : file.tracks) {
@@ -1831,7 +1643,7 @@ public class GPXUtilities {
 						serializer.startTag(null, "trkseg"); //$NON-NLS-1$
 						for (WptPt p : segment.points) {
 							serializer.startTag(null, "trkpt"); //$NON-NLS-1$
-							writeWpt(format, serializer, p);
+							writeWpt(serializer, p);
 							serializer.endTag(null, "trkpt"); //$NON-NLS-1$
 						}
 						assignRouteExtensionWriter(segment);
@@ -1850,7 +1662,7 @@ public class GPXUtilities {
 
 				for (WptPt p : track.points) {
 					serializer.startTag(null, "rtept"); //$NON-NLS-1$
-					writeWpt(format, serializer, p);
+					writeWpt(serializer, p);
 					serializer.endTag(null, "rtept"); //$NON-NLS-1$
 				}
 				writeExtensions(serializer, track);
@@ -1859,7 +1671,7 @@ public class GPXUtilities {
 
 			for (WptPt l : file.points) {
 				serializer.startTag(null, "wpt"); //$NON-NLS-1$
-				writeWpt(format, serializer, l);
+				writeWpt(serializer, l);
 				serializer.endTag(null, "wpt"); //$NON-NLS-1$
 			}
 
@@ -1875,7 +1687,50 @@ public class GPXUtilities {
 		return null;
 	}
 
-	private static void assignRouteExtensionWriter(final TrkSegment segment) {
+	static void startGpx(XmlSerializer serializer, Writer output, String creator) throws IOException {
+		serializer.setOutput(output);
+		serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
+		serializer.startDocument("UTF-8", true); //$NON-NLS-1$
+		serializer.startTag(null, "gpx"); //$NON-NLS-1$
+		serializer.attribute(null, "version", "1.1"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (creator != null) {
+			serializer.attribute(null, "creator", creator); //$NON-NLS-1$
+		}
+		serializer.attribute(null, "xmlns", "http://www.topografix.com/GPX/1/1"); //$NON-NLS-1$ //$NON-NLS-2$
+		serializer.attribute(null, "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
+		serializer.attribute(null, "xsi:schemaLocation",
+				"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd");
+	}
+
+	static void writeMetadata(XmlSerializer serializer, Metadata metadata, String trackName) throws IOException {
+		serializer.startTag(null, "metadata");
+		writeNotNullText(serializer, "name", trackName);
+		if (metadata != null) {
+			writeNotNullText(serializer, "desc", metadata.desc);
+			if (metadata.author != null) {
+				serializer.startTag(null, "author");
+				writeAuthor(serializer, metadata.author);
+				serializer.endTag(null, "author");
+			}
+			if (metadata.copyright != null) {
+				serializer.startTag(null, "copyright");
+				writeCopyright(serializer, metadata.copyright);
+				serializer.endTag(null, "copyright");
+			}
+			writeNotNullTextWithAttribute(serializer, "link", "href", metadata.link);
+			if (metadata.time != 0) {
+				writeNotNullText(serializer, "time", IsoDateTimeUtil.format(metadata.time));
+			}
+			writeNotNullText(serializer, "keywords", metadata.keywords);
+			if (metadata.bounds != null) {
+				writeBounds(serializer, metadata.bounds);
+			}
+			writeExtensions(serializer, metadata);
+		}
+		serializer.endTag(null, "metadata");
+	}
+
+	static void assignRouteExtensionWriter(final TrkSegment segment) {
 		if (segment.hasRoute() && segment.getExtensionsWriter() == null) {
 			segment.setExtensionsWriter(new GPXExtensionsWriter() {
 				@Override
@@ -1898,7 +1753,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static String getFilename(String path) {
+	static String getFilename(String path) {
 		if(path != null) {
 			int i = path.lastIndexOf('/');
 			if(i > 0) {
@@ -1920,7 +1775,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeNotNullText(XmlSerializer serializer, String tag, String value) throws IOException {
+	static void writeNotNullText(XmlSerializer serializer, String tag, String value) throws IOException {
 		if (value != null) {
 			serializer.startTag(null, tag);
 			serializer.text(value);
@@ -1928,7 +1783,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeExtensions(XmlSerializer serializer, GPXExtensions p) throws IOException {
+	static void writeExtensions(XmlSerializer serializer, GPXExtensions p) throws IOException {
 		writeExtensions(serializer, p.getExtensionsToRead(), p);
 	}
 
@@ -1948,7 +1803,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeWpt(SimpleDateFormat format, XmlSerializer serializer, WptPt p) throws IOException {
+	static void writeWpt(XmlSerializer serializer, WptPt p) throws IOException {
 		serializer.attribute(null, "lat", latLonFormat.format(p.lat)); //$NON-NLS-1$ //$NON-NLS-2$
 		serializer.attribute(null, "lon", latLonFormat.format(p.lon)); //$NON-NLS-1$ //$NON-NLS-2$
 
@@ -1956,7 +1811,7 @@ public class GPXUtilities {
 			writeNotNullText(serializer, "ele", decimalFormat.format(p.ele));
 		}
 		if (p.time != 0) {
-			writeNotNullText(serializer, "time", format.format(new Date(p.time)));
+			writeNotNullText(serializer, "time", IsoDateTimeUtil.format(p.time));
 		}
 		writeNotNullText(serializer, "name", p.name);
 		writeNotNullText(serializer, "desc", p.desc);
@@ -2040,7 +1895,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static String readText(XmlPullParser parser, String key) throws XmlPullParserException, IOException {
+	static String readText(XmlPullParser parser, String key) throws XmlPullParserException, IOException {
 		int tok;
 		StringBuilder text = null;
 		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
@@ -2057,7 +1912,7 @@ public class GPXUtilities {
 		return text == null ? null : text.toString();
 	}
 
-	private static Map<String, String> readTextMap(XmlPullParser parser, String key)
+	static Map<String, String> readTextMap(XmlPullParser parser, String key)
 			throws XmlPullParserException, IOException {
 		int tok;
 		StringBuilder text = null;
@@ -2085,12 +1940,22 @@ public class GPXUtilities {
 		return result;
 	}
 
-	private static long parseTime(String text,SimpleDateFormat format,SimpleDateFormat formatMillis) {
+	static long parseTime(String text) {
 		long time = 0;
 		if (text != null) {
+			time = IsoDateTimeUtil.parse(text);
+			if (time != IsoDateTimeUtil.INVALID_TIME) {
+				return time;
+			}
+			// lenient formats, rare so formats are not cached
+			time = 0;
+			SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
 			try {
 				time = format.parse(text).getTime();
 			} catch (ParseException e1) {
+				SimpleDateFormat formatMillis = new SimpleDateFormat(GPX_TIME_FORMAT_MILLIS, Locale.US);
+				formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
 				try {
 					time = formatMillis.parse(text).getTime();
 				} catch (ParseException e2) {
@@ -2132,10 +1997,6 @@ public class GPXUtilities {
 
 	public static GPXFile loadGPXFile(InputStream f) {
 		GPXFile gpxFile = new GPXFile(null);
-		SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
-		format.setTimeZone(TimeZone.getTimeZone("UTC"));
-		SimpleDateFormat formatMillis = new SimpleDateFormat(GPX_TIME_FORMAT_MILLIS, Locale.US);
-		formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
 		try {
 			XmlPullParser parser = PlatformUtil.newXMLPullParser();
 			parser.setInput(getUTF8Reader(f));
@@ -2261,7 +2122,7 @@ public class GPXUtilities {
 							}
 							if (tag.equals("time")) {
 								String text = readText(parser, "time");
-								((Metadata) parse).time = parseTime(text, format, formatMillis);
+								((Metadata) parse).time = parseTime(text);
 							}
 							if (tag.equals("keywords")) {
 								((Metadata) parse).keywords = readText(parser, "keywords");
@@ -2351,49 +2212,7 @@ public class GPXUtilities {
 							}
 							// main object to parse
 						} else if (parse instanceof WptPt) {
-							if (tag.equals("name")) {
-								((WptPt) parse).name = readText(parser, "name");
-							} else if (tag.equals("desc")) {
-								((WptPt) parse).desc = readText(parser, "desc");
-							} else if (tag.equals("cmt")) {
-								((WptPt) parse).comment = readText(parser, "cmt");
-							} else if (tag.equals("speed")) {
-								try {
-									String value = readText(parser, "speed");
-									if (!Algorithms.isEmpty(value)) {
-										((WptPt) parse).speed = Float.parseFloat(value);
-										parse.getExtensionsToWrite().put("speed", value);
-									}
-								} catch (NumberFormatException e) {
-								}
-							} else if (tag.equals("link")) {
-								((WptPt) parse).link = parser.getAttributeValue("", "href");
-							} else if (tag.equals("category")) {
-								((WptPt) parse).category = readText(parser, "category");
-							} else if (tag.equals("type")) {
-								if (((WptPt) parse).category == null) {
-									((WptPt) parse).category = readText(parser, "type");
-								}
-							} else if (tag.equals("ele")) {
-								String text = readText(parser, "ele");
-								if (text != null) {
-									try {
-										((WptPt) parse).ele = Float.parseFloat(text);
-									} catch (NumberFormatException e) {
-									}
-								}
-							} else if (tag.equals("hdop")) {
-								String text = readText(parser, "hdop");
-								if (text != null) {
-									try {
-										((WptPt) parse).hdop = Float.parseFloat(text);
-									} catch (NumberFormatException e) {
-									}
-								}
-							} else if (tag.equals("time")) {
-								String text = readText(parser, "time");
-								((WptPt) parse).time = parseTime(text, format, formatMillis);
-							}
+							parseWptField(parser, (WptPt) parse, tag);
 						}
 					}
 
@@ -2479,7 +2298,54 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
-	private static Reader getUTF8Reader(InputStream f) throws IOException {
+	static void parseWptField(XmlPullParser parser, WptPt wpt, String tag)
+			throws XmlPullParserException, IOException {
+		if (tag.equals("name")) {
+			wpt.name = readText(parser, "name");
+		} else if (tag.equals("desc")) {
+			wpt.desc = readText(parser, "desc");
+		} else if (tag.equals("cmt")) {
+			wpt.comment = readText(parser, "cmt");
+		} else if (tag.equals("speed")) {
+			try {
+				String value = readText(parser, "speed");
+				if (!Algorithms.isEmpty(value)) {
+					wpt.speed = Float.parseFloat(value);
+					wpt.getExtensionsToWrite().put("speed", value);
+				}
+			} catch (NumberFormatException e) {
+			}
+		} else if (tag.equals("link")) {
+			wpt.link = parser.getAttributeValue("", "href");
+		} else if (tag.equals("category")) {
+			wpt.category = readText(parser, "category");
+		} else if (tag.equals("type")) {
+			if (wpt.category == null) {
+				wpt.category = readText(parser, "type");
+			}
+		} else if (tag.equals("ele")) {
+			String text = readText(parser, "ele");
+			if (text != null) {
+				try {
+					wpt.ele = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("hdop")) {
+			String text = readText(parser, "hdop");
+			if (text != null) {
+				try {
+					wpt.hdop = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("time")) {
+			String text = readText(parser, "time");
+			wpt.time = parseTime(text);
+		}
+	}
+
+	static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
 		bis.mark(3);
@@ -2495,7 +2361,7 @@ public class GPXUtilities {
 		return new InputStreamReader(bis, "UTF-8");
 	}
 
-	private static WptPt parseWptAttributes(XmlPullParser parser) {
+	static WptPt parseWptAttributes(XmlPullParser parser) {
 		WptPt wpt = new WptPt();
 		try {
 			wpt.lat = Double.parseDouble(parser.getAttributeValue("", "lat")); //$NON-NLS-1$ //$NON-NLS-2$
@@ -2506,7 +2372,7 @@ public class GPXUtilities {
 		return wpt;
 	}
 
-	private static RouteSegment parseRouteSegmentAttributes(XmlPullParser parser) {
+	static RouteSegment parseRouteSegmentAttributes(XmlPullParser parser) {
 		RouteSegment segment = new RouteSegment();
 		segment.id = parser.getAttributeValue("", "id");
 		segment.length = parser.getAttributeValue("", "length");
@@ -2520,14 +2386,14 @@ public class GPXUtilities {
 		return segment;
 	}
 
-	private static RouteType parseRouteTypeAttributes(XmlPullParser parser) {
+	static RouteType parseRouteTypeAttributes(XmlPullParser parser) {
 		RouteType type = new RouteType();
 		type.tag = parser.getAttributeValue("", "t");
 		type.value = parser.getAttributeValue("", "v");
 		return type;
 	}
 
-	private static Bounds parseBoundsAttributes(XmlPullParser parser) {
+	static Bounds parseBoundsAttributes(XmlPullParser parser) {
 		Bounds bounds = new Bounds();
 		try {
 			String minlat = parser.getAttributeValue("", "minlat");
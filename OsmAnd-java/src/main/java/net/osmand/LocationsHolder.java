@@ -13,10 +13,12 @@ public class LocationsHolder {
 	private static final int LOCATION_TYPE_LATLON = 0;
 	private static final int LOCATION_TYPE_LOCATION = 1;
 	private static final int LOCATION_TYPE_WPTPT = 2;
+	private static final int LOCATION_TYPE_COLUMNS = 3;
 
 	private List<LatLon> latLonList;
 	private List<Location> locationList;
 	private List<WptPt> wptPtList;
+	private GPXTrackColumns columns;
 	private int locationType;
 	private int size;
 
@@ -39,6 +41,12 @@ public class LocationsHolder {
 		}
 	}
 
+	public LocationsHolder(GPXTrackColumns columns) {
+		this.locationType = LOCATION_TYPE_COLUMNS;
+		this.columns = columns;
+		this.size = columns.size();
+	}
+
 	private int resolveLocationType(List<?> locations) {
 		if (!Algorithms.isEmpty(locations)) {
 			Object locationObj = locations.get(0);
@@ -63,6 +71,8 @@ public class LocationsHolder {
 				return locationList.get(index).getLatitude();
 			case LOCATION_TYPE_WPTPT:
 				return wptPtList.get(index).getLatitude();
+			case LOCATION_TYPE_COLUMNS:
+				return columns.getLatitude(index);
 			default:
 				return 0;
 		}
@@ -76,6 +86,8 @@ public class LocationsHolder {
 				return locationList.get(index).getLongitude();
 			case LOCATION_TYPE_WPTPT:
 				return wptPtList.get(index).getLongitude();
+			case LOCATION_TYPE_COLUMNS:
+				return columns.getLongitude(index);
 			default:
 				return 0;
 		}
@@ -141,6 +153,8 @@ public class LocationsHolder {
 	public WptPt getWptPt(int index) {
 		if (this.locationType == LOCATION_TYPE_WPTPT) {
 			return wptPtList.get(index);
+		} else if (this.locationType == LOCATION_TYPE_COLUMNS) {
+			return columns.get(index);
 		} else {
 			WptPt wptPt = new WptPt();
 			wptPt.lat = getLatitude(index);
@@ -638,7 +638,7 @@ public class BinaryMapIndexReader {
 			int cityType) throws IOException {
 		return getCities(region, resultMatcher, null, cityType);
 	}
-	public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, StringMatcher matcher,  
+	public synchronized List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, StringMatcher matcher,  
 			int cityType) throws IOException {
 		List<City> cities = new ArrayList<City>();
 		for (CitiesBlock block : region.cities) {
@@ -652,7 +652,7 @@ public class BinaryMapIndexReader {
 		return cities;
 	}
 
-	public int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
+	public synchronized int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
 		AddressRegion reg;
 		try {
 			reg = checkAddressIndex(c.getFileOffset());
@@ -677,7 +677,7 @@ public class BinaryMapIndexReader {
 		throw new IllegalArgumentException("Illegal offset " + offset); //$NON-NLS-1$
 	}
 
-	public void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) throws IOException {
+	public synchronized void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) throws IOException {
 		AddressRegion reg = checkAddressIndex(s.getFileOffset());
 		codedIS.seek(s.getFileOffset());
 		int size = codedIS.readRawVarint32();
@@ -1297,7 +1297,7 @@ public class BinaryMapIndexReader {
 		return dataObject;
 	}
 
-	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+	public synchronized List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
 		for (AddressRegion reg : addressIndexes) {
 			if (reg.indexNameOffset != -1) {
 				codedIS.seek(reg.indexNameOffset);
@@ -1314,7 +1314,7 @@ public class BinaryMapIndexReader {
 		return searchAddressDataByName(req, null);
 	}
 
-	public void initCategories(PoiRegion poiIndex) throws IOException {
+	public synchronized void initCategories(PoiRegion poiIndex) throws IOException {
 		poiAdapter.initCategories(poiIndex);
 	}
 
@@ -1324,7 +1324,7 @@ public class BinaryMapIndexReader {
 		}
 	}
 
-	public List<Amenity> searchPoiByName(SearchRequest<Amenity> req) throws IOException {
+	public synchronized List<Amenity> searchPoiByName(SearchRequest<Amenity> req) throws IOException {
 		if (req.nameQuery == null || req.nameQuery.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1338,7 +1338,7 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 
-	public Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
+	public synchronized Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1370,7 +1370,7 @@ public class BinaryMapIndexReader {
 		return map;
 	}
 
-	public List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
+	public synchronized List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -1388,7 +1388,7 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 
-	public List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
+	public synchronized List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -1691,6 +1691,8 @@ public class BinaryMapIndexReader {
 		SearchFilter searchFilter = null;
 
 		SearchPoiTypeFilter poiTypeFilter = null;
+		// name index lookups shared by successive requests
+		NameIndexCache nameIndexCache = null;
 
 		// cache information
 		TIntArrayList cacheCoordinates = new TIntArrayList();
@@ -1762,6 +1764,10 @@ public class BinaryMapIndexReader {
 			return searchResults;
 		}
 
+		public void setNameIndexCache(NameIndexCache nameIndexCache) {
+			this.nameIndexCache = nameIndexCache;
+		}
+
 		public void setInterrupted(boolean interrupted) {
 			this.interrupted = interrupted;
 		}
@@ -2382,8 +2388,34 @@ public class BinaryMapIndexReader {
 
 	}
 
+	/**
+	 * Reads values of the best matching keys, results of the previous (shorter) queries are reused via cache if it is set
+	 */
+	void readIndexedStringTable(Collator instance, String query, BinaryIndexPart index, NameIndexCache cache,
+			TIntArrayList list) throws IOException {
+		if (cache == null) {
+			readIndexedStringTable(instance, query, "", list, 0);
+		} else if (cache.findOffsets(instance, index, query, list)) {
+			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		} else {
+			List<String> matchedKeys = new ArrayList<String>();
+			TIntArrayList matchedVals = new TIntArrayList();
+			readIndexedStringTable(instance, query, "", list, 0, matchedKeys, matchedVals);
+			// cached keys should be superset of keys matching longer queries
+			if (!matchedKeys.contains(null)) {
+				cache.put(index, query, matchedKeys, matchedVals);
+			}
+		}
+	}
+
 	int readIndexedStringTable(Collator instance, String query, String prefix, TIntArrayList list, int charMatches) throws IOException {
+		return readIndexedStringTable(instance, query, prefix, list, charMatches, null, null);
+	}
+
+	private int readIndexedStringTable(Collator instance, String query, String prefix, TIntArrayList list, int charMatches,
+			List<String> matchedKeys, TIntArrayList matchedVals) throws IOException {
 		String key = null;
+		String matchedKey = null;
 		while (true) {
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
@@ -2395,6 +2427,7 @@ public class BinaryMapIndexReader {
 				if(prefix.length() > 0){
 					key = prefix + key;
 				}
+				matchedKey = key;
 				// check query is part of key (the best matching)
 				if(CollatorStringMatcher.cmatches(instance, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)){
 					if(query.length() >= charMatches){
@@ -2417,6 +2450,7 @@ public class BinaryMapIndexReader {
 					}
 				} else {
 					key = null;
+					matchedKey = null;
 				}
 				break;
 			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
@@ -2424,13 +2458,21 @@ public class BinaryMapIndexReader {
 				if (key != null) {
 					list.add(val);
 				}
+				if (matchedKey != null && matchedKeys != null) {
+					matchedKeys.add(matchedKey);
+					matchedVals.add(val);
+				}
 				break;
 			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
 				int len = codedIS.readRawVarint32();
 				int oldLim = codedIS.pushLimit(len);
 				if (key != null) {
-					charMatches = readIndexedStringTable(instance, query, key, list, charMatches);
+					charMatches = readIndexedStringTable(instance, query, key, list, charMatches, matchedKeys, matchedVals);
 				} else {
+					if (matchedKey != null && matchedKeys != null) {
+						// keys of skipped subtable could match longer queries, so matched keys are not complete
+						matchedKeys.add(null);
+					}
 					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
 				}
 				codedIS.popLimit(oldLim);
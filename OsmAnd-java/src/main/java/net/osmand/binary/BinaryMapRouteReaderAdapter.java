@@ -2,6 +2,7 @@ package net.osmand.binary;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -20,6 +21,7 @@ import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -57,6 +59,106 @@ public class BinaryMapRouteReaderAdapter {
 		}
 	}
 
+	private static class ConditionalIntervals {
+		private static final int DAY_MINUTES = 24 * 60;
+
+		final long weekStart;
+		final long weekEnd;
+		// start of interval in minutes from week start and rule id active in it (0 - no active condition)
+		final int[] intervalStarts;
+		final int[] intervalValues;
+
+		ConditionalIntervals(List<RouteTypeCondition> conditions, long time) {
+			Calendar c = Calendar.getInstance();
+			c.setTimeInMillis(time);
+			c.set(Calendar.DAY_OF_WEEK, c.getFirstDayOfWeek());
+			c.set(Calendar.HOUR_OF_DAY, 0);
+			c.set(Calendar.MINUTE, 0);
+			c.set(Calendar.SECOND, 0);
+			c.set(Calendar.MILLISECOND, 0);
+			if (c.getTimeInMillis() > time) {
+				c.add(Calendar.WEEK_OF_YEAR, -1);
+			}
+			weekStart = c.getTimeInMillis();
+			Calendar end = (Calendar) c.clone();
+			end.add(Calendar.WEEK_OF_YEAR, 1);
+			weekEnd = end.getTimeInMillis();
+			// rules are evaluated by minutes of day, they could change only at start or after end minute of rule
+			// (rules which are not basic are never opened), days are checked from midnight
+			TIntArrayList boundaries = getDayBoundaries(conditions);
+			TIntArrayList starts = new TIntArrayList();
+			TIntArrayList values = new TIntArrayList();
+			for (int day = 0; day < 7; day++) {
+				for (int i = 0; i < boundaries.size(); i++) {
+					c.set(Calendar.HOUR_OF_DAY, boundaries.get(i) / 60);
+					c.set(Calendar.MINUTE, boundaries.get(i) % 60);
+					int value = 0;
+					for (RouteTypeCondition cond : conditions) {
+						if (cond.hours != null && cond.hours.isOpenedForTime(c)) {
+							value = cond.ruleid;
+							break;
+						}
+					}
+					if (values.isEmpty() || values.get(values.size() - 1) != value) {
+						starts.add((int) ((c.getTimeInMillis() - weekStart) / 60000));
+						values.add(value);
+					}
+				}
+				c.set(Calendar.HOUR_OF_DAY, 0);
+				c.set(Calendar.MINUTE, 0);
+				c.add(Calendar.DAY_OF_MONTH, 1);
+			}
+			intervalStarts = starts.toArray();
+			intervalValues = values.toArray();
+		}
+
+		private static TIntArrayList getDayBoundaries(List<RouteTypeCondition> conditions) {
+			TIntHashSet set = new TIntHashSet();
+			set.add(0);
+			for (RouteTypeCondition cond : conditions) {
+				if (cond.hours == null) {
+					continue;
+				}
+				for (OpeningHoursParser.OpeningHoursRule r : cond.hours.getRules()) {
+					if (r instanceof OpeningHoursParser.BasicOpeningHourRule) {
+						OpeningHoursParser.BasicOpeningHourRule rule = (OpeningHoursParser.BasicOpeningHourRule) r;
+						TIntArrayList startTimes = rule.getStartTimes();
+						TIntArrayList endTimes = rule.getEndTimes();
+						for (int i = 0; i < startTimes.size(); i++) {
+							addDayBoundary(set, startTimes.get(i));
+						}
+						for (int i = 0; i < endTimes.size(); i++) {
+							addDayBoundary(set, endTimes.get(i));
+							addDayBoundary(set, endTimes.get(i) + 1);
+						}
+					}
+				}
+			}
+			TIntArrayList boundaries = new TIntArrayList(set.toArray());
+			boundaries.sort();
+			return boundaries;
+		}
+
+		private static void addDayBoundary(TIntHashSet set, int minute) {
+			if (minute >= 0 && minute < DAY_MINUTES) {
+				set.add(minute);
+			}
+		}
+
+		boolean contains(long time) {
+			return time >= weekStart && time < weekEnd;
+		}
+
+		int getValue(long time) {
+			int minute = (int) ((time - weekStart) / 60000);
+			int ind = Arrays.binarySearch(intervalStarts, minute);
+			if (ind < 0) {
+				ind = -ind - 2;
+			}
+			return ind < 0 ? 0 : intervalValues[ind];
+		}
+	}
+
 	public static class RouteTypeRule implements StringExternalizable<RouteDataBundle> {
 		private final static int ACCESS = 1;
 		private final static int ONEWAY = 2;
@@ -72,6 +174,9 @@ public class BinaryMapRouteReaderAdapter {
 		private float floatValue;
 		private int type;
 		private List<RouteTypeCondition> conditions = null;
+		private volatile ConditionalIntervals conditionalIntervals = null;
+		// route could be calculated over the week boundary
+		private volatile ConditionalIntervals previousConditionalIntervals = null;
 		private int forward;
 
 		public RouteTypeRule() {
@@ -192,6 +297,30 @@ public class BinaryMapRouteReaderAdapter {
 			return 0;
 		}
 		
+		/**
+		 * Gives the same value as {@link #conditionalValue(long)} (conditions are checked by minutes), but 
+		 * conditions are evaluated once at start and end minutes of their rules into interval table of the week
+		 * containing the time, so it is cheap to call it for every routing segment. Tables of two last weeks are kept.
+		 */
+		public int conditionalValueByIntervals(long time) {
+			if (!conditional()) {
+				return 0;
+			}
+			ConditionalIntervals intervals = conditionalIntervals;
+			if (intervals == null || !intervals.contains(time)) {
+				ConditionalIntervals previous = previousConditionalIntervals;
+				if (previous != null && previous.contains(time)) {
+					previousConditionalIntervals = intervals;
+					intervals = previous;
+				} else {
+					previousConditionalIntervals = intervals;
+					intervals = new ConditionalIntervals(conditions, time);
+				}
+				conditionalIntervals = intervals;
+			}
+			return intervals.getValue(time);
+		}
+		
 		public float maxSpeed(){
 			if(type == MAXSPEED){
 				return floatValue;
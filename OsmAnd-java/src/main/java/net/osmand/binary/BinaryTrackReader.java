@@ -0,0 +1,540 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import net.osmand.GPXTrackColumns;
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.Bounds;
+import net.osmand.GPXUtilities.Copyright;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.RouteSegment;
+import net.osmand.GPXUtilities.RouteType;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.osmand.binary.BinaryTrackWriter.BLOCK_SIZE;
+import static net.osmand.binary.BinaryTrackWriter.COORDINATES_PRECISION;
+import static net.osmand.binary.BinaryTrackWriter.HAS_ELE;
+import static net.osmand.binary.BinaryTrackWriter.HAS_HDOP;
+import static net.osmand.binary.BinaryTrackWriter.HAS_HEADING;
+import static net.osmand.binary.BinaryTrackWriter.HAS_SPEED;
+import static net.osmand.binary.BinaryTrackWriter.HAS_TIME;
+import static net.osmand.binary.BinaryTrackWriter.MAGIC;
+import static net.osmand.binary.BinaryTrackWriter.VALUES_PRECISION;
+import static net.osmand.binary.BinaryTrackWriter.VERSION;
+
+/**
+ * Reads archives written by {@link BinaryTrackWriter}. Files are memory mapped (up to 2 GB),
+ * all reads use absolute positions so one reader could be shared between threads.
+ */
+public class BinaryTrackReader implements Closeable {
+
+	private final ByteBuffer buffer;
+	private final Closeable source;
+	private final long[] offsets;
+
+	public BinaryTrackReader(ByteBuffer buffer) throws IOException {
+		this(buffer, null);
+	}
+
+	private BinaryTrackReader(ByteBuffer buffer, Closeable source) throws IOException {
+		this.buffer = buffer;
+		this.source = source;
+		int limit = buffer.limit();
+		if (limit < MAGIC.length * 2 + 1 + 8 || !hasMagic(0) || !hasMagic(limit - MAGIC.length)) {
+			throw new IOException("Not a binary track archive");
+		}
+		if (buffer.get(MAGIC.length) != VERSION) {
+			throw new IOException("Unsupported binary track archive version " + buffer.get(MAGIC.length));
+		}
+		long indexOffset = buffer.getLong(limit - MAGIC.length - 8);
+		Cursor c = new Cursor((int) indexOffset);
+		offsets = new long[c.readInt()];
+		long prev = 0;
+		for (int i = 0; i < offsets.length; i++) {
+			prev += c.readLong();
+			offsets[i] = prev;
+		}
+	}
+
+	public static BinaryTrackReader open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() > Integer.MAX_VALUE) {
+				throw new IOException("Binary track archive is too large to map: " + file.getName());
+			}
+			ByteBuffer buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+			return new BinaryTrackReader(buffer, raf);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private boolean hasMagic(int pos) {
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (buffer.get(pos + i) != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (source != null) {
+			source.close();
+		}
+	}
+
+	public int getGpxFilesCount() {
+		return offsets.length;
+	}
+
+	public GPXFile getGpxFile(int index) throws IOException {
+		Cursor c = new Cursor(offsets[index]);
+		GPXFile gpxFile = new GPXFile(c.readString());
+		gpxFile.metadata = readMetadata(c);
+		c.readExtensions(gpxFile);
+
+		c.readInt();
+		int count = c.readInt();
+		List<WptPt> points = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			points.add(readPoint(c));
+		}
+		gpxFile.addPoints(points);
+
+		c.readInt();
+		count = c.readInt();
+		for (int i = 0; i < count; i++) {
+			Route route = new Route();
+			route.name = c.readString();
+			route.desc = c.readString();
+			c.readExtensions(route);
+			int pointsCount = c.readInt();
+			for (int j = 0; j < pointsCount; j++) {
+				route.points.add(readPoint(c));
+			}
+			gpxFile.routes.add(route);
+		}
+
+		count = c.readInt();
+		for (int i = 0; i < count; i++) {
+			Track track = new Track();
+			track.name = c.readString();
+			track.desc = c.readString();
+			c.readExtensions(track);
+			int segments = c.readInt();
+			for (int j = 0; j < segments; j++) {
+				SegmentHeader h = readSegmentHeader(c, true);
+				TrkSegment segment = h.segment;
+				segment.points = new ArrayList<>(h.pointsCount);
+				readPoints(h, 0, h.pointsCount, null, segment.points);
+				Cursor attributes = new Cursor(h.attributesPos);
+				int ind = 0;
+				for (int k = 0; k < h.attributesCount; k++) {
+					ind += attributes.readInt();
+					readPointAttributes(attributes, segment.points.get(ind));
+				}
+				track.segments.add(segment);
+			}
+			gpxFile.tracks.add(track);
+		}
+		gpxFile.modifiedTime = 0;
+		return gpxFile;
+	}
+
+	/**
+	 * Track segments of all tracks without creating {@link WptPt} per point.
+	 */
+	public List<GPXTrackColumns> getTrackColumns(int index) throws IOException {
+		List<GPXTrackColumns> result = new ArrayList<>();
+		Cursor c = seekTracks(index);
+		int count = c.readInt();
+		for (int i = 0; i < count; i++) {
+			c.skipString();
+			c.skipString();
+			c.skipExtensions();
+			int segments = c.readInt();
+			for (int j = 0; j < segments; j++) {
+				SegmentHeader h = readSegmentHeader(c, false);
+				GPXTrackColumns columns = new GPXTrackColumns(h.pointsCount);
+				readPoints(h, 0, h.pointsCount, columns, null);
+				readColumnsAttributes(h, 0, h.pointsCount, columns);
+				result.add(columns);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads points [from, from + count) of segment, only blocks containing these points are decoded.
+	 * @param segmentIndex index of segment counting segments of all tracks
+	 */
+	public GPXTrackColumns readPoints(int index, int segmentIndex, int from, int count) throws IOException {
+		Cursor c = seekTracks(index);
+		int tracks = c.readInt();
+		int segmentInd = 0;
+		for (int i = 0; i < tracks; i++) {
+			c.skipString();
+			c.skipString();
+			c.skipExtensions();
+			int segments = c.readInt();
+			for (int j = 0; j < segments; j++, segmentInd++) {
+				SegmentHeader h = readSegmentHeader(c, false);
+				if (segmentInd == segmentIndex) {
+					int start = Math.max(0, Math.min(from, h.pointsCount));
+					int end = Math.max(start, Math.min(h.pointsCount, from + count));
+					GPXTrackColumns columns = new GPXTrackColumns(end - start);
+					readPoints(h, start, end, columns, null);
+					readColumnsAttributes(h, start, end, columns);
+					return columns;
+				}
+			}
+		}
+		throw new IndexOutOfBoundsException("Segment: " + segmentIndex + ", segments: " + segmentInd);
+	}
+
+	private Cursor seekTracks(int index) throws IOException {
+		Cursor c = new Cursor(offsets[index]);
+		c.skipString();
+		if (c.readBool()) {
+			skipMetadata(c);
+		}
+		c.skipExtensions();
+		// waypoints and routes
+		c.skip(c.readInt());
+		c.skip(c.readInt());
+		return c;
+	}
+
+	private Metadata readMetadata(Cursor c) throws IOException {
+		if (!c.readBool()) {
+			return null;
+		}
+		Metadata metadata = new Metadata();
+		metadata.name = c.readString();
+		metadata.desc = c.readString();
+		metadata.link = c.readString();
+		metadata.keywords = c.readString();
+		metadata.time = c.readSLong();
+		if (c.readBool()) {
+			Author author = new Author();
+			author.name = c.readString();
+			author.email = c.readString();
+			author.link = c.readString();
+			metadata.author = author;
+		}
+		if (c.readBool()) {
+			Copyright copyright = new Copyright();
+			copyright.author = c.readString();
+			copyright.year = c.readString();
+			copyright.license = c.readString();
+			metadata.copyright = copyright;
+		}
+		if (c.readBool()) {
+			Bounds bounds = new Bounds();
+			bounds.minlat = c.readSLong() / COORDINATES_PRECISION;
+			bounds.minlon = c.readSLong() / COORDINATES_PRECISION;
+			bounds.maxlat = c.readSLong() / COORDINATES_PRECISION;
+			bounds.maxlon = c.readSLong() / COORDINATES_PRECISION;
+			metadata.bounds = bounds;
+		}
+		c.readExtensions(metadata);
+		return metadata;
+	}
+
+	private void skipMetadata(Cursor c) throws IOException {
+		for (int i = 0; i < 4; i++) {
+			c.skipString();
+		}
+		c.readLong();
+		for (int k = 0; k < 2; k++) {
+			// author and copyright
+			if (c.readBool()) {
+				c.skipString();
+				c.skipString();
+				c.skipString();
+			}
+		}
+		if (c.readBool()) {
+			for (int i = 0; i < 4; i++) {
+				c.readLong();
+			}
+		}
+		c.skipExtensions();
+	}
+
+	private WptPt readPoint(Cursor c) throws IOException {
+		WptPt p = new WptPt();
+		p.lat = c.readSLong() / COORDINATES_PRECISION;
+		p.lon = c.readSLong() / COORDINATES_PRECISION;
+		p.time = c.readSLong();
+		p.ele = c.readOptional(0);
+		p.speed = c.readSLong() / VALUES_PRECISION;
+		p.hdop = c.readOptional(0);
+		p.heading = (float) c.readOptional(0);
+		readPointAttributes(c, p);
+		return p;
+	}
+
+	private void readPointAttributes(Cursor c, WptPt p) throws IOException {
+		p.name = c.readString();
+		p.desc = c.readString();
+		p.link = c.readString();
+		p.category = c.readString();
+		p.comment = c.readString();
+		c.readExtensions(p);
+	}
+
+	private static class SegmentHeader {
+		int pointsCount;
+		int flags;
+		TrkSegment segment;
+		int attributesCount;
+		int attributesPos;
+		int[] blockLengths;
+		int blocksPos;
+	}
+
+	private SegmentHeader readSegmentHeader(Cursor c, boolean full) throws IOException {
+		SegmentHeader h = new SegmentHeader();
+		h.pointsCount = c.readInt();
+		h.flags = c.readInt();
+		if (full) {
+			h.segment = new TrkSegment();
+			c.readExtensions(h.segment);
+			int count = c.readInt();
+			for (int i = 0; i < count; i++) {
+				RouteSegment s = new RouteSegment();
+				s.id = c.readString();
+				s.length = c.readString();
+				s.segmentTime = c.readString();
+				s.speed = c.readString();
+				s.turnType = c.readString();
+				s.turnAngle = c.readString();
+				s.types = c.readString();
+				s.pointTypes = c.readString();
+				s.names = c.readString();
+				h.segment.routeSegments.add(s);
+			}
+			count = c.readInt();
+			for (int i = 0; i < count; i++) {
+				RouteType t = new RouteType();
+				t.tag = c.readString();
+				t.value = c.readString();
+				h.segment.routeTypes.add(t);
+			}
+		} else {
+			c.skipExtensions();
+			int count = c.readInt() * 9;
+			for (int i = 0; i < count; i++) {
+				c.skipString();
+			}
+			count = c.readInt() * 2;
+			for (int i = 0; i < count; i++) {
+				c.skipString();
+			}
+		}
+		h.attributesCount = c.readInt();
+		h.attributesPos = c.pos;
+		for (int i = 0; i < h.attributesCount; i++) {
+			c.readInt();
+			for (int k = 0; k < 5; k++) {
+				c.skipString();
+			}
+			c.skipExtensions();
+		}
+		h.blockLengths = new int[c.readInt()];
+		for (int i = 0; i < h.blockLengths.length; i++) {
+			h.blockLengths[i] = c.readInt();
+		}
+		h.blocksPos = c.pos;
+		for (int length : h.blockLengths) {
+			c.skip(length);
+		}
+		return h;
+	}
+
+	private void readColumnsAttributes(SegmentHeader h, int start, int end, GPXTrackColumns columns) throws IOException {
+		Cursor c = new Cursor(h.attributesPos);
+		int ind = 0;
+		for (int i = 0; i < h.attributesCount; i++) {
+			ind += c.readInt();
+			if (ind >= end) {
+				break;
+			}
+			WptPt p = new WptPt();
+			readPointAttributes(c, p);
+			if (ind >= start) {
+				columns.setName(ind - start, p.name);
+				columns.setDescription(ind - start, p.desc);
+				if (!p.getExtensionsToRead().isEmpty()) {
+					columns.setExtensions(ind - start, p.getExtensionsToRead());
+				}
+			}
+		}
+	}
+
+	// decodes points into columns or into list of points
+	private void readPoints(SegmentHeader h, int start, int end, GPXTrackColumns columns, List<WptPt> points)
+			throws IOException {
+		int block = start / BLOCK_SIZE;
+		int pos = h.blocksPos;
+		for (int i = 0; i < block; i++) {
+			pos += h.blockLengths[i];
+		}
+		int ind = block * BLOCK_SIZE;
+		while (ind < end) {
+			Cursor c = new Cursor(pos);
+			int blockEnd = Math.min(h.pointsCount, ind + BLOCK_SIZE);
+			long lat = 0;
+			long lon = 0;
+			long time = 0;
+			long ele = 0;
+			long speed = 0;
+			long hdop = 0;
+			long heading = 0;
+			for (; ind < blockEnd && ind < end; ind++) {
+				lat += c.readSLong();
+				lon += c.readSLong();
+				if ((h.flags & HAS_TIME) != 0) {
+					time += c.readSLong();
+				}
+				double pele = Double.NaN;
+				if ((h.flags & HAS_ELE) != 0) {
+					long v = c.readLong();
+					if (v != 0) {
+						ele += CodedInputStream.decodeZigZag64(v - 1);
+						pele = ele / VALUES_PRECISION;
+					}
+				}
+				if ((h.flags & HAS_SPEED) != 0) {
+					speed += c.readSLong();
+				}
+				double phdop = Double.NaN;
+				if ((h.flags & HAS_HDOP) != 0) {
+					long v = c.readLong();
+					if (v != 0) {
+						hdop += CodedInputStream.decodeZigZag64(v - 1);
+						phdop = hdop / VALUES_PRECISION;
+					}
+				}
+				float pheading = Float.NaN;
+				if ((h.flags & HAS_HEADING) != 0) {
+					long v = c.readLong();
+					if (v != 0) {
+						heading += CodedInputStream.decodeZigZag64(v - 1);
+						pheading = (float) (heading / VALUES_PRECISION);
+					}
+				}
+				if (ind >= start) {
+					double plat = lat / COORDINATES_PRECISION;
+					double plon = lon / COORDINATES_PRECISION;
+					double pspeed = speed / VALUES_PRECISION;
+					if (columns != null) {
+						columns.add(plat, plon, time, pele, pspeed, phdop, pheading);
+					} else {
+						points.add(new WptPt(plat, plon, time, pele, pspeed, phdop, pheading));
+					}
+				}
+			}
+			pos += h.blockLengths[block++];
+			ind = blockEnd;
+		}
+	}
+
+	private class Cursor {
+		int pos;
+
+		Cursor(long pos) {
+			this.pos = (int) pos;
+		}
+
+		long readLong() throws IOException {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = buffer.get(pos++);
+				result |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+			}
+			throw new IOException("Malformed varint at " + pos);
+		}
+
+		int readInt() throws IOException {
+			return (int) readLong();
+		}
+
+		long readSLong() throws IOException {
+			return CodedInputStream.decodeZigZag64(readLong());
+		}
+
+		boolean readBool() throws IOException {
+			return readLong() != 0;
+		}
+
+		double readOptional(long prev) throws IOException {
+			long v = readLong();
+			if (v == 0) {
+				return Double.NaN;
+			}
+			return (prev + CodedInputStream.decodeZigZag64(v - 1)) / VALUES_PRECISION;
+		}
+
+		String readString() throws IOException {
+			int len = readInt();
+			if (len == 0) {
+				return null;
+			}
+			byte[] bytes = new byte[len - 1];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(pos + i);
+			}
+			pos += bytes.length;
+			return new String(bytes, "UTF-8");
+		}
+
+		void skipString() throws IOException {
+			int len = readInt();
+			if (len > 0) {
+				pos += len - 1;
+			}
+		}
+
+		void skip(int bytes) {
+			pos += bytes;
+		}
+
+		void readExtensions(GPXExtensions e) throws IOException {
+			int count = readInt();
+			for (int i = 0; i < count; i++) {
+				String key = readString();
+				String value = readString();
+				e.getExtensionsToWrite().put(key, value);
+			}
+		}
+
+		void skipExtensions() throws IOException {
+			int count = readInt() * 2;
+			for (int i = 0; i < count; i++) {
+				skipString();
+			}
+		}
+	}
+}
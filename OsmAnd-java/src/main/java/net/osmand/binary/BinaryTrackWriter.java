@@ -0,0 +1,387 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.GPXUtilities.Author;
+import net.osmand.GPXUtilities.Bounds;
+import net.osmand.GPXUtilities.Copyright;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.RouteSegment;
+import net.osmand.GPXUtilities.RouteType;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Writes archive of gpx files in compact binary format, read by {@link BinaryTrackReader}.
+ * <pre>
+ * archive: "OTRK" version gpxFile* index indexOffset(8 bytes) "OTRK"
+ * index: count offsetDelta*
+ * gpxFile: author metadata extensions len(waypoints) waypoints len(routes) routes tracks
+ * segment: pointsCount flags extensions routeSegments routeTypes pointAttributes blocksCount blockLength* block*
+ * </pre>
+ * Track points are split into blocks of {@link #BLOCK_SIZE} points, each block is delta encoded from zero,
+ * so any block could be decoded without previous ones. Numbers are protobuf varints, signed ones are zigzag encoded.
+ */
+public class BinaryTrackWriter implements Closeable {
+
+	public static final byte[] MAGIC = {'O', 'T', 'R', 'K'};
+	public static final int VERSION = 1;
+	public static final int BLOCK_SIZE = 256;
+
+	static final double COORDINATES_PRECISION = 1e7;
+	// ele and hdop in cm, speed in cm/s, heading in 1/100 of degree
+	static final double VALUES_PRECISION = 100;
+
+	static final int HAS_TIME = 1;
+	static final int HAS_ELE = 2;
+	static final int HAS_SPEED = 4;
+	static final int HAS_HDOP = 8;
+	static final int HAS_HEADING = 16;
+
+	private final OutputStream out;
+	private final TLongArrayList offsets = new TLongArrayList();
+	private long offset;
+
+	public BinaryTrackWriter(OutputStream out) throws IOException {
+		this.out = out;
+		writeRaw(MAGIC);
+		writeRaw(new byte[]{(byte) VERSION});
+	}
+
+	public static void write(File file, List<GPXFile> gpxFiles) throws IOException {
+		BinaryTrackWriter writer = new BinaryTrackWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			for (GPXFile gpxFile : gpxFiles) {
+				writer.add(gpxFile);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	public int getGpxFilesCount() {
+		return offsets.size();
+	}
+
+	public void add(GPXFile gpxFile) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+		writeGpxFile(cos, gpxFile);
+		cos.flush();
+		offsets.add(offset);
+		writeRaw(bos.toByteArray());
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			long indexOffset = offset;
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			CodedOutputStream cos = CodedOutputStream.newInstance(bos);
+			cos.writeRawVarint32(offsets.size());
+			long prev = 0;
+			for (int i = 0; i < offsets.size(); i++) {
+				cos.writeRawVarint64(offsets.get(i) - prev);
+				prev = offsets.get(i);
+			}
+			cos.flush();
+			writeRaw(bos.toByteArray());
+			byte[] indexOffsetBytes = new byte[8];
+			for (int i = 0; i < 8; i++) {
+				indexOffsetBytes[i] = (byte) (indexOffset >>> (56 - 8 * i));
+			}
+			writeRaw(indexOffsetBytes);
+			writeRaw(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeRaw(byte[] bytes) throws IOException {
+		out.write(bytes);
+		offset += bytes.length;
+	}
+
+	private void writeGpxFile(CodedOutputStream cos, GPXFile gpxFile) throws IOException {
+		writeString(cos, gpxFile.author);
+		writeMetadata(cos, gpxFile.metadata);
+		writeExtensions(cos, gpxFile);
+
+		// waypoints and routes are prefixed with length to be skipped quickly
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CodedOutputStream section = CodedOutputStream.newInstance(bos);
+		List<WptPt> points = gpxFile.getPoints();
+		section.writeRawVarint32(points.size());
+		for (WptPt p : points) {
+			writePoint(section, p);
+		}
+		section.flush();
+		writeBytes(cos, bos.toByteArray());
+
+		bos = new ByteArrayOutputStream();
+		section = CodedOutputStream.newInstance(bos);
+		section.writeRawVarint32(gpxFile.routes.size());
+		for (Route route : gpxFile.routes) {
+			writeString(section, route.name);
+			writeString(section, route.desc);
+			writeExtensions(section, route);
+			section.writeRawVarint32(route.points.size());
+			for (WptPt p : route.points) {
+				writePoint(section, p);
+			}
+		}
+		section.flush();
+		writeBytes(cos, bos.toByteArray());
+
+		List<Track> tracks = new ArrayList<>();
+		for (Track track : gpxFile.tracks) {
+			if (!track.generalTrack) {
+				tracks.add(track);
+			}
+		}
+		cos.writeRawVarint32(tracks.size());
+		for (Track track : tracks) {
+			writeString(cos, track.name);
+			writeString(cos, track.desc);
+			writeExtensions(cos, track);
+			cos.writeRawVarint32(track.segments.size());
+			for (TrkSegment segment : track.segments) {
+				writeSegment(cos, segment);
+			}
+		}
+	}
+
+	private void writeMetadata(CodedOutputStream cos, Metadata metadata) throws IOException {
+		cos.writeBoolNoTag(metadata != null);
+		if (metadata == null) {
+			return;
+		}
+		writeString(cos, metadata.name);
+		writeString(cos, metadata.desc);
+		writeString(cos, metadata.link);
+		writeString(cos, metadata.keywords);
+		cos.writeSInt64NoTag(metadata.time);
+		Author author = metadata.author;
+		cos.writeBoolNoTag(author != null);
+		if (author != null) {
+			writeString(cos, author.name);
+			writeString(cos, author.email);
+			writeString(cos, author.link);
+		}
+		Copyright copyright = metadata.copyright;
+		cos.writeBoolNoTag(copyright != null);
+		if (copyright != null) {
+			writeString(cos, copyright.author);
+			writeString(cos, copyright.year);
+			writeString(cos, copyright.license);
+		}
+		Bounds bounds = metadata.bounds;
+		cos.writeBoolNoTag(bounds != null);
+		if (bounds != null) {
+			cos.writeSInt64NoTag(coordinate(bounds.minlat));
+			cos.writeSInt64NoTag(coordinate(bounds.minlon));
+			cos.writeSInt64NoTag(coordinate(bounds.maxlat));
+			cos.writeSInt64NoTag(coordinate(bounds.maxlon));
+		}
+		writeExtensions(cos, metadata);
+	}
+
+	// waypoints and route points with all attributes
+	private void writePoint(CodedOutputStream cos, WptPt p) throws IOException {
+		cos.writeSInt64NoTag(coordinate(p.lat));
+		cos.writeSInt64NoTag(coordinate(p.lon));
+		cos.writeSInt64NoTag(p.time);
+		writeOptional(cos, p.ele, 0);
+		cos.writeSInt64NoTag(value(p.speed));
+		writeOptional(cos, p.hdop, 0);
+		writeOptional(cos, p.heading, 0);
+		writePointAttributes(cos, p);
+	}
+
+	private void writePointAttributes(CodedOutputStream cos, WptPt p) throws IOException {
+		writeString(cos, p.name);
+		writeString(cos, p.desc);
+		writeString(cos, p.link);
+		writeString(cos, p.category);
+		writeString(cos, p.comment);
+		writeExtensions(cos, p);
+	}
+
+	private static boolean hasPointAttributes(WptPt p) {
+		return p.name != null || p.desc != null || p.link != null || p.category != null || p.comment != null
+				|| !p.getExtensionsToRead().isEmpty();
+	}
+
+	private void writeSegment(CodedOutputStream cos, TrkSegment segment) throws IOException {
+		List<WptPt> points = segment.points;
+		int flags = 0;
+		int attributes = 0;
+		for (WptPt p : points) {
+			if (p.time != 0) {
+				flags |= HAS_TIME;
+			}
+			if (!Double.isNaN(p.ele)) {
+				flags |= HAS_ELE;
+			}
+			if (p.speed != 0) {
+				flags |= HAS_SPEED;
+			}
+			if (!Double.isNaN(p.hdop)) {
+				flags |= HAS_HDOP;
+			}
+			if (!Float.isNaN(p.heading)) {
+				flags |= HAS_HEADING;
+			}
+			if (hasPointAttributes(p)) {
+				attributes++;
+			}
+		}
+		cos.writeRawVarint32(points.size());
+		cos.writeRawVarint32(flags);
+		writeExtensions(cos, segment);
+		cos.writeRawVarint32(segment.routeSegments.size());
+		for (RouteSegment s : segment.routeSegments) {
+			writeString(cos, s.id);
+			writeString(cos, s.length);
+			writeString(cos, s.segmentTime);
+			writeString(cos, s.speed);
+			writeString(cos, s.turnType);
+			writeString(cos, s.turnAngle);
+			writeString(cos, s.types);
+			writeString(cos, s.pointTypes);
+			writeString(cos, s.names);
+		}
+		cos.writeRawVarint32(segment.routeTypes.size());
+		for (RouteType t : segment.routeTypes) {
+			writeString(cos, t.tag);
+			writeString(cos, t.value);
+		}
+
+		cos.writeRawVarint32(attributes);
+		int prevInd = 0;
+		for (int i = 0; i < points.size(); i++) {
+			WptPt p = points.get(i);
+			if (hasPointAttributes(p)) {
+				cos.writeRawVarint32(i - prevInd);
+				prevInd = i;
+				writePointAttributes(cos, p);
+			}
+		}
+
+		int blocks = (points.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		List<byte[]> blockBytes = new ArrayList<>(blocks);
+		for (int b = 0; b < blocks; b++) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			CodedOutputStream block = CodedOutputStream.newInstance(bos);
+			writeBlock(block, points, b * BLOCK_SIZE, Math.min(points.size(), (b + 1) * BLOCK_SIZE), flags);
+			block.flush();
+			blockBytes.add(bos.toByteArray());
+		}
+		cos.writeRawVarint32(blocks);
+		for (byte[] bytes : blockBytes) {
+			cos.writeRawVarint32(bytes.length);
+		}
+		for (byte[] bytes : blockBytes) {
+			cos.writeRawBytes(bytes);
+		}
+	}
+
+	private void writeBlock(CodedOutputStream cos, List<WptPt> points, int start, int end, int flags) throws IOException {
+		long lat = 0;
+		long lon = 0;
+		long time = 0;
+		long ele = 0;
+		long speed = 0;
+		long hdop = 0;
+		long heading = 0;
+		for (int i = start; i < end; i++) {
+			WptPt p = points.get(i);
+			long plat = coordinate(p.lat);
+			long plon = coordinate(p.lon);
+			cos.writeSInt64NoTag(plat - lat);
+			cos.writeSInt64NoTag(plon - lon);
+			lat = plat;
+			lon = plon;
+			if ((flags & HAS_TIME) != 0) {
+				cos.writeSInt64NoTag(p.time - time);
+				time = p.time;
+			}
+			if ((flags & HAS_ELE) != 0) {
+				ele = writeOptional(cos, p.ele, ele);
+			}
+			if ((flags & HAS_SPEED) != 0) {
+				long pspeed = value(p.speed);
+				cos.writeSInt64NoTag(pspeed - speed);
+				speed = pspeed;
+			}
+			if ((flags & HAS_HDOP) != 0) {
+				hdop = writeOptional(cos, p.hdop, hdop);
+			}
+			if ((flags & HAS_HEADING) != 0) {
+				heading = writeOptional(cos, p.heading, heading);
+			}
+		}
+	}
+
+	// NaN is written as 0, other values as zigzag delta + 1
+	private static long writeOptional(CodedOutputStream cos, double v, long prev) throws IOException {
+		if (Double.isNaN(v)) {
+			cos.writeRawVarint64(0);
+			return prev;
+		}
+		long val = value(v);
+		cos.writeRawVarint64(CodedOutputStream.encodeZigZag64(val - prev) + 1);
+		return val;
+	}
+
+	private static void writeString(CodedOutputStream cos, String s) throws IOException {
+		// 0 is null, otherwise length + 1
+		if (s == null) {
+			cos.writeRawVarint32(0);
+		} else {
+			byte[] bytes = s.getBytes("UTF-8");
+			cos.writeRawVarint32(bytes.length + 1);
+			cos.writeRawBytes(bytes);
+		}
+	}
+
+	private static void writeBytes(CodedOutputStream cos, byte[] bytes) throws IOException {
+		cos.writeRawVarint32(bytes.length);
+		cos.writeRawBytes(bytes);
+	}
+
+	private static void writeExtensions(CodedOutputStream cos, GPXExtensions e) throws IOException {
+		Map<String, String> extensions = e.getExtensionsToRead();
+		cos.writeRawVarint32(extensions.size());
+		for (Entry<String, String> entry : extensions.entrySet()) {
+			writeString(cos, entry.getKey());
+			writeString(cos, entry.getValue());
+		}
+	}
+
+	static long coordinate(double v) {
+		return Math.round(v * COORDINATES_PRECISION);
+	}
+
+	static long value(double v) {
+		return Math.round(v * VALUES_PRECISION);
+	}
+}
@@ -0,0 +1,122 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+/**
+ * Cache of name index lookups (indexed string tables of poi and address sections) between successive keystrokes.
+ * Keys matched by a prefix are superset of keys matched by a longer query, so the longer query
+ * is answered by filtering cached keys without reading the table again.
+ */
+public class NameIndexCache {
+
+	private static final int MAX_ENTRIES = 64;
+
+	private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static class CacheKey {
+		private final BinaryIndexPart index;
+		private final String query;
+
+		public CacheKey(BinaryIndexPart index, String query) {
+			this.index = index;
+			this.query = query;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(index) * 31 + query.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return index == other.index && query.equals(other.query);
+		}
+	}
+
+	private static class CacheEntry {
+		// all keys of the table matching query in any direction and their values
+		private final List<String> keys;
+		private final TIntArrayList vals;
+
+		public CacheEntry(List<String> keys, TIntArrayList vals) {
+			this.keys = keys;
+			this.vals = vals;
+		}
+	}
+
+	/**
+	 * Fills list with values of the best matching keys if the query or its prefix was cached for the index
+	 * @return false if table should be read
+	 */
+	public synchronized boolean findOffsets(Collator instance, BinaryIndexPart index, String query, TIntArrayList list) {
+		String normalized = query.toLowerCase();
+		CacheEntry entry = null;
+		for (int len = normalized.length(); len > 0 && entry == null; len--) {
+			entry = entries.get(new CacheKey(index, normalized.substring(0, len)));
+		}
+		if (entry == null) {
+			return false;
+		}
+		List<String> keys = new ArrayList<String>();
+		TIntArrayList vals = new TIntArrayList();
+		int charMatches = 0;
+		for (int i = 0; i < entry.keys.size(); i++) {
+			String key = entry.keys.get(i);
+			int matches = getCharMatches(instance, key, query);
+			if (matches == 0) {
+				continue;
+			}
+			keys.add(key);
+			vals.add(entry.vals.get(i));
+			if (matches > charMatches) {
+				charMatches = matches;
+				list.clear();
+			}
+			if (matches == charMatches) {
+				list.add(entry.vals.get(i));
+			}
+		}
+		entries.put(new CacheKey(index, normalized), new CacheEntry(keys, vals));
+		return true;
+	}
+
+	/**
+	 * Stores keys matching query read from the table of index
+	 */
+	public synchronized void put(BinaryIndexPart index, String query, List<String> keys, TIntArrayList vals) {
+		entries.put(new CacheKey(index, query.toLowerCase()), new CacheEntry(keys, vals));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	// same rules as BinaryMapIndexReader.readIndexedStringTable
+	private static int getCharMatches(Collator instance, String key, String query) {
+		if (CollatorStringMatcher.cmatches(instance, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+			return query.length();
+		} else if (CollatorStringMatcher.cmatches(instance, query, key, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+			return key.length();
+		}
+		return 0;
+	}
+}
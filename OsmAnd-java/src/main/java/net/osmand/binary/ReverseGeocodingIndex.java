@@ -0,0 +1,310 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.Building;
+import net.osmand.data.City;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadPoint;
+import net.osmand.data.Street;
+import net.osmand.util.MapUtils;
+
+/**
+ * In memory index of buildings, streets and cities of address sections for reverse geocoding without routing data.
+ * Objects are kept in grid of tiles, so lookup is nearest neighbour search in few tiles around the point.
+ * Index is immutable after loading and could be queried from many threads.
+ */
+public class ReverseGeocodingIndex {
+
+	private static final Log LOG = PlatformUtil.getLog(ReverseGeocodingIndex.class);
+
+	private static final int CELL_ZOOM = 16;
+	private static final int CITY_CELL_ZOOM = 12;
+	private static final double METERS_IN_DEGREE = 111320;
+	public static final float DEFAULT_STREET_RADIUS = GeocodingUtilities.STOP_SEARCHING_STREET_WITHOUT_MULTIPLIER_RADIUS;
+
+	// buildings (interpolations are segments) and points of streets
+	private int size;
+	private int[] x31 = new int[1024];
+	private int[] y31 = new int[1024];
+	private int[] x31End = new int[1024];
+	private int[] y31End = new int[1024];
+	private Street[] streets = new Street[1024];
+	// null for street points
+	private Building[] buildings = new Building[1024];
+	private final TLongObjectHashMap<TIntArrayList> cells = new TLongObjectHashMap<TIntArrayList>();
+
+	private final List<City> cities = new ArrayList<City>();
+	private final TLongObjectHashMap<TIntArrayList> cityCells = new TLongObjectHashMap<TIntArrayList>();
+
+	private ReverseGeocodingIndex() {
+	}
+
+	/**
+	 * Loads all cities, streets and buildings of address sections (could take a while for big countries)
+	 */
+	public static ReverseGeocodingIndex load(Collection<BinaryMapIndexReader> readers) throws IOException {
+		ReverseGeocodingIndex index = new ReverseGeocodingIndex();
+		long time = System.currentTimeMillis();
+		for (BinaryMapIndexReader reader : readers) {
+			for (BinaryIndexPart part : reader.getIndexes()) {
+				if (part instanceof AddressRegion) {
+					index.loadRegion(reader, (AddressRegion) part);
+				}
+			}
+		}
+		index.trimToSize();
+		LOG.info("Reverse geocoding index: " + index.size + " points, " + index.cities.size() + " cities loaded in "
+				+ (System.currentTimeMillis() - time) + " ms");
+		return index;
+	}
+
+	private void loadRegion(BinaryMapIndexReader reader, AddressRegion region) throws IOException {
+		// postcodes are skipped, their streets and buildings are copies of streets of cities and villages
+		int[] cityTypes = { BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE, BinaryMapAddressReaderAdapter.VILLAGES_TYPE };
+		for (int cityType : cityTypes) {
+			for (City c : reader.getCities(region, null, cityType)) {
+				addCity(c);
+				reader.preloadStreets(c, null);
+				for (Street s : c.getStreets()) {
+					reader.preloadBuildings(s, null);
+					addStreet(s);
+				}
+			}
+		}
+	}
+
+	private void addCity(City c) {
+		double radius = c.getType() == null ? City.CityType.VILLAGE.getRadius() : c.getType().getRadius();
+		LatLon l = c.getLocation();
+		double dLat = radius / METERS_IN_DEGREE;
+		double dLon = dLat / Math.max(0.01, Math.cos(Math.toRadians(l.getLatitude())));
+		int shift = 31 - CITY_CELL_ZOOM;
+		int left = MapUtils.get31TileNumberX(l.getLongitude() - dLon) >> shift;
+		int right = MapUtils.get31TileNumberX(l.getLongitude() + dLon) >> shift;
+		int top = MapUtils.get31TileNumberY(l.getLatitude() + dLat) >> shift;
+		int bottom = MapUtils.get31TileNumberY(l.getLatitude() - dLat) >> shift;
+		int ind = cities.size();
+		cities.add(c);
+		for (int cx = left; cx <= right; cx++) {
+			for (int cy = top; cy <= bottom; cy++) {
+				addToCell(cityCells, cellKey(cx, cy), ind);
+			}
+		}
+	}
+
+	private void addStreet(Street s) {
+		addPoint(s, null, s.getLocation(), null);
+		for (Street intersection : s.getIntersectedStreets()) {
+			addPoint(s, null, intersection.getLocation(), null);
+		}
+		for (Building b : s.getBuildings()) {
+			addPoint(s, b, b.getLocation(), b.getLatLon2());
+		}
+	}
+
+	private void addPoint(Street s, Building b, LatLon start, LatLon end) {
+		if (start == null) {
+			return;
+		}
+		if (size == x31.length) {
+			int capacity = size * 2;
+			x31 = Arrays.copyOf(x31, capacity);
+			y31 = Arrays.copyOf(y31, capacity);
+			x31End = Arrays.copyOf(x31End, capacity);
+			y31End = Arrays.copyOf(y31End, capacity);
+			streets = Arrays.copyOf(streets, capacity);
+			buildings = Arrays.copyOf(buildings, capacity);
+		}
+		x31[size] = MapUtils.get31TileNumberX(start.getLongitude());
+		y31[size] = MapUtils.get31TileNumberY(start.getLatitude());
+		x31End[size] = end == null ? x31[size] : MapUtils.get31TileNumberX(end.getLongitude());
+		y31End[size] = end == null ? y31[size] : MapUtils.get31TileNumberY(end.getLatitude());
+		streets[size] = s;
+		buildings[size] = b;
+		int shift = 31 - CELL_ZOOM;
+		int left = Math.min(x31[size], x31End[size]) >> shift;
+		int right = Math.max(x31[size], x31End[size]) >> shift;
+		int top = Math.min(y31[size], y31End[size]) >> shift;
+		int bottom = Math.max(y31[size], y31End[size]) >> shift;
+		for (int cx = left; cx <= right; cx++) {
+			for (int cy = top; cy <= bottom; cy++) {
+				addToCell(cells, cellKey(cx, cy), size);
+			}
+		}
+		size++;
+	}
+
+	private void trimToSize() {
+		x31 = Arrays.copyOf(x31, size);
+		y31 = Arrays.copyOf(y31, size);
+		x31End = Arrays.copyOf(x31End, size);
+		y31End = Arrays.copyOf(y31End, size);
+		streets = Arrays.copyOf(streets, size);
+		buildings = Arrays.copyOf(buildings, size);
+		for (TIntArrayList l : cells.valueCollection()) {
+			l.trimToSize();
+		}
+	}
+
+	private static void addToCell(TLongObjectHashMap<TIntArrayList> cells, long key, int ind) {
+		TIntArrayList l = cells.get(key);
+		if (l == null) {
+			l = new TIntArrayList(4);
+			cells.put(key, l);
+		}
+		l.add(ind);
+	}
+
+	private static long cellKey(int cx, int cy) {
+		return (((long) cx) << 32) | (cy & 0xffffffffL);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public List<GeocodingResult> reverseGeocodingSearch(double lat, double lon) {
+		return reverseGeocodingSearch(lat, lon, DEFAULT_STREET_RADIUS);
+	}
+
+	/**
+	 * Same kind of results as {@link GeocodingUtilities#justifyReverseGeocodingSearch}: closest buildings
+	 * (within {@link GeocodingUtilities#DISTANCE_BUILDING_PROXIMITY}), closest streets within radius
+	 * and city containing the point if nothing else is found, sorted by distance.
+	 */
+	public List<GeocodingResult> reverseGeocodingSearch(double lat, double lon, double radius) {
+		LatLon searchPoint = new LatLon(lat, lon);
+		int px = MapUtils.get31TileNumberX(lon);
+		int py = MapUtils.get31TileNumberY(lat);
+		double dLat = radius / METERS_IN_DEGREE;
+		double dLon = dLat / Math.max(0.01, Math.cos(Math.toRadians(lat)));
+		int shift = 31 - CELL_ZOOM;
+		int left = MapUtils.get31TileNumberX(lon - dLon) >> shift;
+		int right = MapUtils.get31TileNumberX(lon + dLon) >> shift;
+		int top = MapUtils.get31TileNumberY(lat + dLat) >> shift;
+		int bottom = MapUtils.get31TileNumberY(lat - dLat) >> shift;
+
+		Map<Street, GeocodingResult> closestStreets = new IdentityHashMap<Street, GeocodingResult>();
+		List<GeocodingResult> closestBuildings = new ArrayList<GeocodingResult>();
+		double minBuildingDist = -1;
+		for (int cx = left; cx <= right; cx++) {
+			for (int cy = top; cy <= bottom; cy++) {
+				TIntArrayList l = cells.get(cellKey(cx, cy));
+				if (l == null) {
+					continue;
+				}
+				for (int k = 0; k < l.size(); k++) {
+					int i = l.get(k);
+					int prx = x31[i];
+					int pry = y31[i];
+					if (x31End[i] != x31[i] || y31End[i] != y31[i]) {
+						QuadPoint pp = MapUtils.getProjectionPoint31(px, py, x31[i], y31[i], x31End[i], y31End[i]);
+						prx = (int) pp.x;
+						pry = (int) pp.y;
+					}
+					double dist = MapUtils.squareRootDist31(px, py, prx, pry);
+					if (dist > radius) {
+						continue;
+					}
+					Building b = buildings[i];
+					if (b != null) {
+						if (dist < GeocodingUtilities.DISTANCE_BUILDING_PROXIMITY && !containsBuilding(closestBuildings, b)) {
+							GeocodingResult bld = createResult(searchPoint, streets[i], prx, pry);
+							bld.building = b;
+							if (b.getLatLon2() != null) {
+								double len = MapUtils.squareRootDist31(x31[i], y31[i], x31End[i], y31End[i]);
+								double coeff = len == 0 ? 0 : MapUtils.squareRootDist31(x31[i], y31[i], prx, pry) / len;
+								bld.buildingInterpolation = b.getInterpolationName(coeff);
+							}
+							closestBuildings.add(bld);
+							// same measure as filter below, 31 distance is not exact
+							if (minBuildingDist < 0 || bld.getDistance() < minBuildingDist) {
+								minBuildingDist = bld.getDistance();
+							}
+						}
+					} else {
+						GeocodingResult st = closestStreets.get(streets[i]);
+						if (st == null || st.getDistance() > dist) {
+							closestStreets.put(streets[i], createResult(searchPoint, streets[i], prx, pry));
+						}
+					}
+				}
+			}
+		}
+		List<GeocodingResult> res = new ArrayList<GeocodingResult>();
+		for (GeocodingResult bld : closestBuildings) {
+			if (bld.getDistance() <= minBuildingDist * GeocodingUtilities.THRESHOLD_MULTIPLIER_SKIP_BUILDINGS_AFTER) {
+				res.add(bld);
+			}
+		}
+		res.addAll(closestStreets.values());
+		if (res.isEmpty()) {
+			City city = findCity(px, py);
+			if (city != null) {
+				GeocodingResult cr = new GeocodingResult();
+				cr.searchPoint = searchPoint;
+				cr.city = city;
+				cr.connectionPoint = city.getLocation();
+				res.add(cr);
+			}
+		}
+		Collections.sort(res, GeocodingUtilities.DISTANCE_COMPARATOR);
+		return res;
+	}
+
+	private City findCity(int px, int py) {
+		int shift = 31 - CITY_CELL_ZOOM;
+		TIntArrayList l = cityCells.get(cellKey(px >> shift, py >> shift));
+		City closest = null;
+		double closestDist = 0;
+		if (l != null) {
+			double lat = MapUtils.get31LatitudeY(py);
+			double lon = MapUtils.get31LongitudeX(px);
+			for (int k = 0; k < l.size(); k++) {
+				City c = cities.get(l.get(k));
+				double dist = MapUtils.getDistance(c.getLocation(), lat, lon);
+				double radius = c.getType() == null ? City.CityType.VILLAGE.getRadius() : c.getType().getRadius();
+				// relative distance prefers bigger cities
+				if (dist < radius && (closest == null || dist / radius < closestDist)) {
+					closest = c;
+					closestDist = dist / radius;
+				}
+			}
+		}
+		return closest;
+	}
+
+	private static boolean containsBuilding(List<GeocodingResult> res, Building b) {
+		for (GeocodingResult r : res) {
+			if (r.building == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static GeocodingResult createResult(LatLon searchPoint, Street s, int x31, int y31) {
+		GeocodingResult r = new GeocodingResult();
+		r.searchPoint = searchPoint;
+		r.street = s;
+		r.streetName = s.getName();
+		r.city = s.getCity();
+		r.connectionPoint = new LatLon(MapUtils.get31LatitudeY(y31), MapUtils.get31LongitudeX(x31));
+		return r;
+	}
+}
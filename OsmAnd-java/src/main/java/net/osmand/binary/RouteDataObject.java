@@ -504,6 +504,58 @@ public class RouteDataObject {
 		return types;
 	}
 
+	public boolean hasConditionalTypes() {
+		for (int i = 0; i < types.length; i++) {
+			RouteTypeRule r = region.quickGetEncodingRule(types[i]);
+			if (r != null && r.conditional()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns types with conditional values active at the time, object itself is not modified 
+	 * (so it could be shared between routing requests with different time).
+	 * Same array is returned if there are no active conditions. 
+	 */
+	public int[] getConditionalTypes(long conditionalTime) {
+		int[] res = types;
+		int sz = types.length;
+		for (int i = 0; i < sz; i++) {
+			RouteTypeRule r = region.quickGetEncodingRule(types[i]);
+			if (r != null && r.conditional()) {
+				int vl = r.conditionalValueByIntervals(conditionalTime);
+				if (vl != 0) {
+					if (res == types) {
+						res = types.clone();
+					}
+					res = replaceNonConditionalType(res, vl);
+				}
+			}
+		}
+		return res;
+	}
+
+	private int[] replaceNonConditionalType(int[] types, int vl) {
+		RouteTypeRule rtr = region.quickGetEncodingRule(vl);
+		String nonCondTag = rtr.getTag();
+		int ks;
+		for (ks = 0; ks < types.length; ks++) {
+			RouteTypeRule toReplace = region.quickGetEncodingRule(types[ks]);
+			if (toReplace != null && toReplace.getTag().equals(nonCondTag)) {
+				break;
+			}
+		}
+		if (ks == types.length) {
+			int[] ntypes = new int[types.length + 1];
+			System.arraycopy(types, 0, ntypes, 0, types.length);
+			types = ntypes;
+		}
+		types[ks] = vl;
+		return types;
+	}
+
 	public void processConditionalTags(long conditionalTime) {
 		int sz = types.length;
 		for (int i = 0; i < sz; i++) {
@@ -511,21 +563,7 @@ public class RouteDataObject {
 			if (r != null && r.conditional()) {
 				int vl = r.conditionalValue(conditionalTime);
 				if (vl != 0) {
-					RouteTypeRule rtr = region.quickGetEncodingRule(vl);
-					String nonCondTag = rtr.getTag();
-					int ks;
-					for (ks = 0; ks < types.length; ks++) {
-						RouteTypeRule toReplace = region.quickGetEncodingRule(types[ks]);
-						if (toReplace != null && toReplace.getTag().equals(nonCondTag)) {
-							break;
-						}
-					}
-					if (ks == types.length) {
-						int[] ntypes = new int[types.length + 1];
-						System.arraycopy(types, 0, ntypes, 0, types.length);
-						types = ntypes;
-					}
-					types[ks] = vl;
+					types = replaceNonConditionalType(types, vl);
 				}
 			}
 		}
@@ -2,6 +2,7 @@ package net.osmand.data;
 
 
 import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
 import net.osmand.OsmAndCollator;
 import net.osmand.util.Algorithms;
 import net.osmand.util.TransliterationHelper;
@@ -44,6 +45,8 @@ public abstract class MapObject implements Comparable<MapObject> {
 	protected int fileOffset = 0;
 	protected Long id = null;
 	private Object referenceFile = null;
+	// name, en name (transliterated) and other names with their folded forms, see CollatorStringMatcher.foldString
+	private volatile String[][] foldedNames = null;
 
 
 	public void setId(Long id) {
@@ -66,6 +69,7 @@ public abstract class MapObject implements Comparable<MapObject> {
 
 	public void setName(String name) {
 		this.name = name;
+		foldedNames = null;
 	}
 
 	public void setName(String lang, String name) {
@@ -78,6 +82,7 @@ public abstract class MapObject implements Comparable<MapObject> {
 				names = new HashMap<String, String>();
 			}
 			names.put(lang, unzipContent(name));
+			foldedNames = null;
 		}
 	}
 
@@ -87,6 +92,7 @@ public abstract class MapObject implements Comparable<MapObject> {
 				names = new HashMap<String, String>();
 			}
 			names.putAll(name);
+			foldedNames = null;
 		}
 	}
 	
@@ -134,6 +140,7 @@ public abstract class MapObject implements Comparable<MapObject> {
 	}
 
 	public void copyNames(String otherName, String otherEnName, Map<String, String> otherNames, boolean overwrite) {
+		foldedNames = null;
 		if (!Algorithms.isEmpty(otherName) && (overwrite || Algorithms.isEmpty(name))) {
 			name = otherName;
 		}
@@ -210,6 +217,30 @@ public abstract class MapObject implements Comparable<MapObject> {
 
 	public void setEnName(String enName) {
 		this.enName = enName;
+		foldedNames = null;
+	}
+
+	/**
+	 * Returns pair of arrays: names (name and {@link #getAllNames(boolean)} with transliteration) and 
+	 * their folded forms for fast matching. Result is cached till names are changed.
+	 */
+	public String[][] getFoldedNames() {
+		String[][] res = foldedNames;
+		if (res == null) {
+			List<String> all = new ArrayList<String>();
+			String nm = getName();
+			if (!Algorithms.isEmpty(nm)) {
+				all.add(nm);
+			}
+			all.addAll(getAllNames(true));
+			String[] folded = new String[all.size()];
+			for (int i = 0; i < folded.length; i++) {
+				folded[i] = CollatorStringMatcher.foldString(all.get(i));
+			}
+			res = new String[][] { all.toArray(new String[all.size()]), folded };
+			foldedNames = res;
+		}
+		return res;
 	}
 
 	public LatLon getLocation() {
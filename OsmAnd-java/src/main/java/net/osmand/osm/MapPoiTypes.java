@@ -45,6 +45,7 @@ public class MapPoiTypes {
 	public static final String SPEED_CAMERA = "speed_camera";
 
 	private PoiTranslator poiTranslator = null;
+	private volatile PoiTypeNamesIndex namesIndex = null;
 	private boolean init;
 	Map<String, PoiType> poiTypesByTag = new LinkedHashMap<String, PoiType>();
 	Map<String, String> deprecatedTags = new LinkedHashMap<String, String>();
@@ -238,6 +239,18 @@ public class MapPoiTypes {
 		}
 	}
 
+	/**
+	 * Index of names of all types, it is built once and rebuilt only if translator or categories are changed
+	 */
+	public PoiTypeNamesIndex getNamesIndex() {
+		PoiTypeNamesIndex index = namesIndex;
+		if (index == null) {
+			index = new PoiTypeNamesIndex(categories);
+			namesIndex = index;
+		}
+		return index;
+	}
+
 	public List<AbstractPoiType> getAllTypesTranslatedNames(StringMatcher matcher) {
 		List<AbstractPoiType> tm = new ArrayList<AbstractPoiType>();
 		for (int i = 0; i < categories.size(); i++) {
@@ -317,6 +330,7 @@ public class MapPoiTypes {
 		List<PoiCategory> copy = new ArrayList<>(categories);
 		copy.add(category);
 		categories = copy;
+		namesIndex = null;
 	}
 
 	public PoiTranslator getPoiTranslator() {
@@ -325,6 +339,7 @@ public class MapPoiTypes {
 
 	public void setPoiTranslator(PoiTranslator poiTranslator) {
 		this.poiTranslator = poiTranslator;
+		namesIndex = null;
 		sortList(categories);
 
 	}
@@ -536,6 +551,7 @@ public class MapPoiTypes {
 			}
 		}
 		this.categories = categoriesList;
+		this.namesIndex = null;
 		this.poiTypesByTag = poiTypesByTag;
 		this.deprecatedTags = deprecatedTags;
 		this.poiAdditionalCategoryIconNames = poiAdditionalCategoryIconNames;
@@ -0,0 +1,117 @@
+package net.osmand.osm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import net.osmand.CollatorStringMatcher;
+
+/**
+ * Immutable prefix index of names of all poi categories, filters, types and their additionals:
+ * translation, english translation, key name and synonyms. Every word of folded name
+ * (see {@link CollatorStringMatcher#foldString(String)}) is stored with the rest of the name in a sorted array,
+ * so types with any word starting with prefix are found by binary search.
+ */
+public class PoiTypeNamesIndex {
+
+	private final String[] keys;
+	private final AbstractPoiType[] types;
+
+	private static class IndexEntry {
+		private final String key;
+		private final AbstractPoiType type;
+
+		public IndexEntry(String key, AbstractPoiType type) {
+			this.key = key;
+			this.type = type;
+		}
+	}
+
+	PoiTypeNamesIndex(List<PoiCategory> categories) {
+		List<IndexEntry> entries = new ArrayList<IndexEntry>();
+		Set<AbstractPoiType> visited = Collections.newSetFromMap(new IdentityHashMap<AbstractPoiType, Boolean>());
+		for (PoiCategory pc : categories) {
+			addType(entries, visited, pc);
+			for (PoiFilter pf : pc.getPoiFilters()) {
+				addType(entries, visited, pf);
+			}
+			for (PoiType pt : pc.getPoiTypes()) {
+				addType(entries, visited, pt);
+			}
+		}
+		Collections.sort(entries, new Comparator<IndexEntry>() {
+
+			@Override
+			public int compare(IndexEntry o1, IndexEntry o2) {
+				return o1.key.compareTo(o2.key);
+			}
+		});
+		keys = new String[entries.size()];
+		types = new AbstractPoiType[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			keys[i] = entries.get(i).key;
+			types[i] = entries.get(i).type;
+		}
+	}
+
+	private void addType(List<IndexEntry> entries, Set<AbstractPoiType> visited, AbstractPoiType pt) {
+		if (!visited.add(pt)) {
+			return;
+		}
+		addName(entries, pt, pt.getTranslation());
+		addName(entries, pt, pt.getEnTranslation());
+		addName(entries, pt, pt.getKeyName());
+		addName(entries, pt, pt.getSynonyms());
+		List<PoiType> additionals = pt.getPoiAdditionals();
+		if (additionals != null) {
+			for (PoiType a : additionals) {
+				addType(entries, visited, a);
+			}
+		}
+	}
+
+	private void addName(List<IndexEntry> entries, AbstractPoiType pt, String name) {
+		if (name == null || name.length() == 0) {
+			return;
+		}
+		String folded = CollatorStringMatcher.foldString(name);
+		for (int i = 0; i < folded.length(); i++) {
+			if (i == 0 || (!isSpace(folded.charAt(i)) && isSpace(folded.charAt(i - 1)))) {
+				entries.add(new IndexEntry(folded.substring(i), pt));
+			}
+		}
+	}
+
+	private static boolean isSpace(char c) {
+		return !Character.isLetter(c) && !Character.isDigit(c);
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns types having a word of any name starting with folded prefix
+	 */
+	public Set<AbstractPoiType> findTypes(String foldedPrefix) {
+		Set<AbstractPoiType> res = Collections.newSetFromMap(new IdentityHashMap<AbstractPoiType, Boolean>());
+		// first key not less than prefix
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(foldedPrefix) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		for (int i = lo; i < keys.length && keys[i].startsWith(foldedPrefix); i++) {
+			res.add(types[i]);
+		}
+		return res;
+	}
+}
@@ -0,0 +1,1057 @@
+package net.osmand.render;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.procedure.TIntObjectProcedure;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.TexturePaint;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import net.osmand.PlatformUtil;
+import net.osmand.RenderingContext.ShadowRenderingMode;
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.data.QuadRect;
+import net.osmand.data.QuadTree;
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Pure java (java.awt) renderer of map objects to images, it doesn't need android or native library.
+ * Objects are ordered and drawn in the same way as android OsmandRenderer does:
+ * polygons, shadows of lines, lines, points, icons and text.
+ * Several threads could render tiles with one instance if every thread uses its own {@link RenderingRuleSearchRequest}
+ * and rendering style is not parsed meanwhile (strings of objects are added to dictionary of style by all threads).
+ */
+public class HeadlessMapRenderer {
+	private static final Log log = PlatformUtil.getLog(HeadlessMapRenderer.class);
+
+	public static final int DEFAULT_POLYGON_MAX = 11;
+	public static final int DEFAULT_LINE_MAX = 100;
+	public static final int DEFAULT_POINTS_MAX = 200;
+
+	public static final int TILE_SIZE = 256;
+	private static final int MAX_V = 10;
+	private static final int MAX_V_AREA = 2000;
+	private static final int ONEWAY_COLOR = 0xff6c70d5;
+
+	private final RenderingRulesStorage storage;
+	private final IconProvider iconProvider;
+	private final float density;
+	private final int tileSize;
+	private final Map<String, float[]> dashEffects = new ConcurrentHashMap<String, float[]>();
+
+	public interface IconProvider {
+
+		/**
+		 * @return icon or null if there is no such icon, method is called from several threads
+		 */
+		BufferedImage getIcon(String resId);
+	}
+
+	/**
+	 * Loads png icons from directory (as they are stored in OsmAnd resources: h_*, mm_*, mx_*).
+	 */
+	public static class DirectoryIconProvider implements IconProvider {
+		private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		private static final String[] PREFIXES = new String[] { "", "mx_", "h_", "mm_" };
+		private final File dir;
+		private final Map<String, BufferedImage> icons = new ConcurrentHashMap<String, BufferedImage>();
+
+		public DirectoryIconProvider(File dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		public BufferedImage getIcon(String resId) {
+			if (Algorithms.isEmpty(resId)) {
+				return null;
+			}
+			BufferedImage img = icons.get(resId);
+			if (img == null) {
+				img = MISSING;
+				for (String prefix : PREFIXES) {
+					File f = new File(dir, prefix + resId + ".png");
+					if (f.exists()) {
+						try {
+							BufferedImage r = ImageIO.read(f);
+							if (r != null) {
+								img = r;
+								break;
+							}
+						} catch (IOException e) {
+							log.warn("Icon " + f.getName() + " couldn't be read", e);
+						}
+					}
+				}
+				icons.put(resId, img);
+			}
+			return img == MISSING ? null : img;
+		}
+	}
+
+	public static class MapDataObjectPrimitive {
+		BinaryMapDataObject obj;
+		int typeInd;
+		double order;
+		double area;
+		int objectType;
+	}
+
+	private static class IconDrawInfo {
+		float x = 0;
+		float y = 0;
+		String resId_1;
+		String resId;
+		String resId2;
+		String resId3;
+		String resId4;
+		String resId5;
+		String shieldId;
+		int iconOrder;
+		float iconSize;
+	}
+
+	private static class TextDrawInfo {
+		String text;
+		float centerX;
+		float centerY;
+		float pathRotate;
+		float textSize;
+		int textColor;
+		int textShadow;
+		int textShadowColor;
+		boolean bold;
+		boolean italic;
+		int textOrder;
+		float minLength;
+	}
+
+	private static class PaintState {
+		java.awt.Paint paint;
+		BasicStroke stroke;
+		boolean fill;
+		int shadowColor;
+		int shadowRadius;
+	}
+
+	public static class TileRenderingContext extends net.osmand.RenderingContext {
+		List<TextDrawInfo> textToDraw = new ArrayList<TextDrawInfo>();
+		List<IconDrawInfo> iconsToDraw = new ArrayList<IconDrawInfo>();
+		PaintState paint = new PaintState();
+		float tileSize;
+
+		int shadowLevelMin = 256;
+		int shadowLevelMax = 0;
+	}
+
+	public HeadlessMapRenderer(RenderingRulesStorage storage, IconProvider iconProvider, float density) {
+		this.storage = storage;
+		this.iconProvider = iconProvider;
+		this.density = density;
+		this.tileSize = (int) (TILE_SIZE * density);
+	}
+
+	public RenderingRulesStorage getStorage() {
+		return storage;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Context to render tile, rendering attributes (default color, shadows) are read from style.
+	 */
+	public TileRenderingContext createContext(RenderingRuleSearchRequest req, int zoom, int tileX, int tileY) {
+		TileRenderingContext rc = new TileRenderingContext();
+		rc.zoom = zoom;
+		rc.leftX = tileX;
+		rc.topY = tileY;
+		rc.width = tileSize;
+		rc.height = tileSize;
+		rc.tileSize = tileSize;
+		rc.tileDivisor = MapUtils.getPowZoom(31 - zoom);
+		rc.setDensityValue(density);
+		if (req.searchRenderingAttribute(RenderingRuleStorageProperties.A_DEFAULT_COLOR)) {
+			rc.defaultColor = req.getIntPropertyValue(req.ALL.R_ATTR_COLOR_VALUE);
+		}
+		if (req.searchRenderingAttribute(RenderingRuleStorageProperties.A_SHADOW_RENDERING)) {
+			rc.shadowRenderingMode = req.getIntPropertyValue(req.ALL.R_ATTR_INT_VALUE);
+		}
+		if (req.searchRenderingAttribute("shadowColor")) {
+			rc.shadowRenderingColor = req.getIntPropertyValue(req.ALL.R_ATTR_COLOR_VALUE);
+		}
+		if (req.searchRenderingAttribute("polygonMinSizeToDisplay")) {
+			rc.polygonMinSizeToDisplay = req.getIntPropertyValue(req.ALL.R_ATTR_INT_VALUE);
+		}
+		return rc;
+	}
+
+	public BufferedImage renderTile(RenderingRuleSearchRequest req, List<BinaryMapDataObject> objects,
+			int zoom, int tileX, int tileY) {
+		TileRenderingContext rc = createContext(req, zoom, tileX, tileY);
+		BufferedImage img = new BufferedImage(rc.width, rc.height, BufferedImage.TYPE_INT_ARGB);
+		generateNewBitmap(rc, objects, img, req);
+		return img;
+	}
+
+	public void generateNewBitmap(TileRenderingContext rc, List<BinaryMapDataObject> objects, BufferedImage img,
+			RenderingRuleSearchRequest render) {
+		long now = System.currentTimeMillis();
+		Graphics2D cv = img.createGraphics();
+		try {
+			cv.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			cv.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			cv.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			if (rc.defaultColor != 0) {
+				// style colors without alpha are opaque
+				int c = rc.defaultColor;
+				if ((c >>> 24) == 0) {
+					c |= 0xff000000;
+				}
+				cv.setComposite(AlphaComposite.Src);
+				cv.setColor(new Color(c, true));
+				cv.fillRect(0, 0, rc.width, rc.height);
+				cv.setComposite(AlphaComposite.SrcOver);
+			}
+			if (objects != null && !objects.isEmpty() && rc.width > 0 && rc.height > 0) {
+				List<MapDataObjectPrimitive> pointsArray = new ArrayList<MapDataObjectPrimitive>();
+				List<MapDataObjectPrimitive> polygonsArray = new ArrayList<MapDataObjectPrimitive>();
+				List<MapDataObjectPrimitive> linesArray = new ArrayList<MapDataObjectPrimitive>();
+				sortObjectsByProperOrder(rc, objects, render, pointsArray, polygonsArray, linesArray);
+
+				rc.lastRenderedKey = 0;
+				drawObject(rc, cv, render, polygonsArray, 0);
+				rc.lastRenderedKey = DEFAULT_POLYGON_MAX;
+				if (rc.shadowRenderingMode > 1) {
+					drawObject(rc, cv, render, linesArray, 1);
+				}
+				rc.lastRenderedKey = (DEFAULT_LINE_MAX + DEFAULT_POLYGON_MAX) / 2;
+				drawObject(rc, cv, render, linesArray, 2);
+				rc.lastRenderedKey = DEFAULT_LINE_MAX;
+
+				drawObject(rc, cv, render, pointsArray, 3);
+				rc.lastRenderedKey = DEFAULT_POINTS_MAX;
+
+				long beforeIconTextTime = System.currentTimeMillis() - now;
+				drawIconsOverCanvas(rc, cv);
+				drawTextOverCanvas(rc, cv);
+
+				long time = System.currentTimeMillis() - now;
+				rc.textRenderingTime = (int) (time - beforeIconTextTime);
+				rc.renderingDebugInfo = String.format("Rendering: %s ms  (%s text)\n"
+						+ "(%s points, %s points inside, %s of %s objects visible)",//$NON-NLS-1$
+						time, time - beforeIconTextTime, rc.pointCount, rc.pointInsideCount, rc.visible, rc.allObjects);
+				if (log.isDebugEnabled()) {
+					log.debug(rc.renderingDebugInfo);
+				}
+			}
+		} finally {
+			cv.dispose();
+		}
+	}
+
+	void drawObject(TileRenderingContext rc, Graphics2D cv, RenderingRuleSearchRequest req,
+			List<MapDataObjectPrimitive> array, int objOrder) {
+		double minPolygonSize = 1. / rc.polygonMinSizeToDisplay;
+		for (int i = 0; i < array.size(); i++) {
+			rc.allObjects++;
+			MapDataObjectPrimitive prim = array.get(i);
+			BinaryMapDataObject mObj = prim.obj;
+			TagValuePair pair = mObj.getMapIndex().decodeType(mObj.getTypes()[prim.typeInd]);
+			if (prim.objectType == 3) {
+				if (prim.order > minPolygonSize + ((int) prim.order)) {
+					continue;
+				}
+				drawPolygon(mObj, req, cv, rc, pair, prim.area);
+			} else if (prim.objectType == 2) {
+				drawPolyline(mObj, req, cv, rc, pair, mObj.getSimpleLayer(), objOrder == 1);
+			} else if (prim.objectType == 1) {
+				drawPoint(mObj, req, cv, rc, pair, prim.typeInd == 0);
+			}
+			if (i % 25 == 0 && rc.interrupted) {
+				return;
+			}
+		}
+	}
+
+	Comparator<MapDataObjectPrimitive> sortByOrder() {
+		return new Comparator<MapDataObjectPrimitive>() {
+
+			@Override
+			public int compare(MapDataObjectPrimitive i, MapDataObjectPrimitive j) {
+				if (i.order == j.order) {
+					if (i.typeInd == j.typeInd) {
+						if (i.obj.getPointsLength() == j.obj.getPointsLength()) {
+							return 0;
+						}
+						return i.obj.getPointsLength() < j.obj.getPointsLength() ? -1 : 1;
+					}
+					return i.typeInd < j.typeInd ? -1 : 1;
+				}
+				return (i.order < j.order ? -1 : 1);
+			}
+
+		};
+	}
+
+	void sortObjectsByProperOrder(TileRenderingContext rc, List<BinaryMapDataObject> objects,
+			RenderingRuleSearchRequest render,
+			List<MapDataObjectPrimitive> pointsArray, List<MapDataObjectPrimitive> polygonsArray,
+			List<MapDataObjectPrimitive> linesArray) {
+		int sz = objects.size();
+		if (render != null) {
+			render.clearState();
+
+			float mult = (float) (1. / MapUtils.getPowZoom(Math.max(31 - (rc.zoom + 8), 0)));
+			for (int i = 0; i < sz; i++) {
+				BinaryMapDataObject o = objects.get(i);
+				for (int j = 0; j < o.getTypes().length; j++) {
+					int wholeType = o.getTypes()[j];
+					int layer = 0;
+					if (o.getPointsLength() > 1) {
+						layer = o.getSimpleLayer();
+					}
+
+					TagValuePair pair = o.getMapIndex().decodeType(wholeType);
+					if (pair != null) {
+						render.setTagValueZoomLayer(pair.tag, pair.value, rc.zoom, layer, o);
+						render.setBooleanFilter(render.ALL.R_AREA, o.isArea());
+						render.setBooleanFilter(render.ALL.R_POINT, o.getPointsLength() == 1);
+						render.setBooleanFilter(render.ALL.R_CYCLE, o.isCycle());
+						if (render.search(RenderingRulesStorage.ORDER_RULES)) {
+							int objectType = render.getIntPropertyValue(render.ALL.R_OBJECT_TYPE);
+							boolean ignorePointArea = render.getIntPropertyValue(render.ALL.R_IGNORE_POLYGON_AS_POINT_AREA) != 0;
+							int order = render.getIntPropertyValue(render.ALL.R_ORDER);
+							MapDataObjectPrimitive mapObj = new MapDataObjectPrimitive();
+							mapObj.objectType = objectType;
+							mapObj.order = order;
+							mapObj.typeInd = j;
+							mapObj.obj = o;
+							if (objectType == 3) {
+								MapDataObjectPrimitive pointObj = new MapDataObjectPrimitive();
+								pointObj.order = order;
+								pointObj.typeInd = j;
+								pointObj.obj = o;
+								pointObj.objectType = 1;
+								double area = polygonArea(mapObj, mult);
+								mapObj.area = area;
+								if (area > MAX_V) {
+									mapObj.order = mapObj.order + (1. / area);
+									if (order < DEFAULT_POLYGON_MAX) {
+										polygonsArray.add(mapObj);
+									} else {
+										linesArray.add(mapObj);
+									}
+									if (area > MAX_V_AREA || ignorePointArea) {
+										pointsArray.add(pointObj);
+									}
+								}
+							} else if (objectType == 1) {
+								pointsArray.add(mapObj);
+							} else {
+								linesArray.add(mapObj);
+							}
+							if (render.isSpecified(render.ALL.R_SHADOW_LEVEL)) {
+								rc.shadowLevelMin = Math.min(rc.shadowLevelMin, order);
+								rc.shadowLevelMax = Math.max(rc.shadowLevelMax, order);
+								render.clearValue(render.ALL.R_SHADOW_LEVEL);
+							}
+						}
+					}
+				}
+
+				if (rc.interrupted) {
+					return;
+				}
+			}
+		}
+		Collections.sort(polygonsArray, sortByOrder());
+		Collections.sort(pointsArray, sortByOrder());
+		Collections.sort(linesArray, sortByOrder());
+	}
+
+	private double polygonArea(MapDataObjectPrimitive mapObj, float mult) {
+		double area = 0.;
+		int j = mapObj.obj.getPointsLength() - 1;
+		for (int i = 0; i < mapObj.obj.getPointsLength(); i++) {
+			int px = mapObj.obj.getPoint31XTile(i);
+			int py = mapObj.obj.getPoint31YTile(i);
+			int sx = mapObj.obj.getPoint31XTile(j);
+			int sy = mapObj.obj.getPoint31YTile(j);
+			area += (sx + ((float) px)) * (sy - ((float) py));
+			j = i;
+		}
+		return Math.abs(area) * mult * mult * .5;
+	}
+
+	private float calcX(int xt, TileRenderingContext rc) {
+		return (float) ((xt / rc.tileDivisor - rc.leftX) * rc.tileSize);
+	}
+
+	private float calcY(int yt, TileRenderingContext rc) {
+		return (float) ((yt / rc.tileDivisor - rc.topY) * rc.tileSize);
+	}
+
+	private boolean inside(float x, float y, TileRenderingContext rc) {
+		rc.pointCount++;
+		if (x >= 0 && x < rc.width && y >= 0 && y < rc.height) {
+			rc.pointInsideCount++;
+			return true;
+		}
+		return false;
+	}
+
+	private void drawPolygon(BinaryMapDataObject obj, RenderingRuleSearchRequest render, Graphics2D canvas,
+			TileRenderingContext rc, TagValuePair pair, double area) {
+		if (render == null || pair == null) {
+			return;
+		}
+		render.setInitialTagValueZoom(pair.tag, pair.value, rc.zoom, obj);
+		boolean rendered = render.search(RenderingRulesStorage.POLYGON_RULES);
+		if (!rendered || !updatePaint(render, rc.paint, 0, true, rc)) {
+			return;
+		}
+		int len = obj.getPointsLength();
+		if (len == 0) {
+			return;
+		}
+		rc.visible++;
+		float xText = 0;
+		float yText = 0;
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_EVEN_ODD, len);
+		for (int i = 0; i < len; i++) {
+			float x = calcX(obj.getPoint31XTile(i), rc);
+			float y = calcY(obj.getPoint31YTile(i), rc);
+			inside(x, y, rc);
+			xText += x;
+			yText += y;
+			if (i == 0) {
+				path.moveTo(x, y);
+			} else {
+				path.lineTo(x, y);
+			}
+		}
+		int[][] polygonInnerCoordinates = obj.getPolygonInnerCoordinates();
+		if (polygonInnerCoordinates != null) {
+			for (int j = 0; j < polygonInnerCoordinates.length; j++) {
+				for (int i = 0; i < polygonInnerCoordinates[j].length; i += 2) {
+					float x = calcX(polygonInnerCoordinates[j][i], rc);
+					float y = calcY(polygonInnerCoordinates[j][i + 1], rc);
+					if (i == 0) {
+						path.moveTo(x, y);
+					} else {
+						path.lineTo(x, y);
+					}
+				}
+			}
+		}
+		drawPath(canvas, path, rc.paint);
+		if (updatePaint(render, rc.paint, 1, false, rc)) {
+			drawPath(canvas, path, rc.paint);
+		}
+		boolean ignorePointArea = render.getIntPropertyValue(render.ALL.R_IGNORE_POLYGON_AS_POINT_AREA) != 0;
+		if (area > MAX_V_AREA || ignorePointArea) {
+			renderText(obj, render, rc, pair, xText / len, yText / len, null, null);
+		}
+	}
+
+	private void drawPolyline(BinaryMapDataObject obj, RenderingRuleSearchRequest render, Graphics2D canvas,
+			TileRenderingContext rc, TagValuePair pair, int layer, boolean drawOnlyShadow) {
+		if (render == null || pair == null) {
+			return;
+		}
+		int length = obj.getPointsLength();
+		if (length < 2) {
+			return;
+		}
+		render.setInitialTagValueZoom(pair.tag, pair.value, rc.zoom, obj);
+		render.setIntFilter(render.ALL.R_LAYER, layer);
+		boolean rendered = render.search(RenderingRulesStorage.LINE_RULES);
+		if (!rendered || !updatePaint(render, rc.paint, 0, false, rc)) {
+			return;
+		}
+		int oneway = 0;
+		if (rc.zoom >= 16 && "highway".equals(pair.tag)) { //$NON-NLS-1$
+			if (obj.containsAdditionalType(obj.getMapIndex().onewayAttribute)) {
+				oneway = 1;
+			} else if (obj.containsAdditionalType(obj.getMapIndex().onewayReverseAttribute)) {
+				oneway = -1;
+			}
+		}
+
+		float[] xs = new float[length];
+		float[] ys = new float[length];
+		boolean intersect = false;
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, length);
+		for (int i = 0; i < length; i++) {
+			float x = calcX(obj.getPoint31XTile(i), rc);
+			float y = calcY(obj.getPoint31YTile(i), rc);
+			xs[i] = x;
+			ys[i] = y;
+			boolean in = inside(x, y, rc);
+			if (!intersect) {
+				if (in) {
+					intersect = true;
+				} else if (i > 0) {
+					float px = xs[i - 1];
+					float py = ys[i - 1];
+					intersect = !((x < 0 && px < 0) || (y < 0 && py < 0) || (x > rc.width && px > rc.width)
+							|| (y > rc.height && py > rc.height));
+				}
+			}
+			if (i == 0) {
+				path.moveTo(x, y);
+			} else {
+				path.lineTo(x, y);
+			}
+		}
+		if (!intersect) {
+			return;
+		}
+		rc.visible++;
+		PaintState p = rc.paint;
+		if (drawOnlyShadow) {
+			int shadowColor = render.getIntPropertyValue(render.ALL.R_SHADOW_COLOR);
+			int shadowRadius = (int) rc.getComplexValue(render, render.ALL.R_SHADOW_RADIUS);
+			if (shadowColor == 0) {
+				shadowColor = rc.shadowRenderingColor;
+			}
+			drawPolylineShadow(canvas, rc, path, p, shadowColor, shadowRadius);
+		} else {
+			boolean update = false;
+			for (int ind = -3; ind < 0; ind++) {
+				if (updatePaint(render, p, ind, false, rc)) {
+					update = true;
+					drawPath(canvas, path, p);
+				}
+			}
+			if (update) {
+				updatePaint(render, p, 0, false, rc);
+			}
+			if (p.shadowRadius > 0) {
+				// one step shadow is drawn right under the line
+				drawPath(canvas, path, widen(p.stroke, p.shadowRadius * 2), new Color(p.shadowColor, true));
+			}
+			drawPath(canvas, path, p);
+			for (int ind = 1; ind <= 4; ind++) {
+				if (updatePaint(render, p, ind, false, rc)) {
+					drawPath(canvas, path, p);
+				}
+			}
+			if (oneway != 0) {
+				for (BasicStroke s : getOneWayStrokes(rc, oneway == -1)) {
+					drawPath(canvas, path, s, new Color(ONEWAY_COLOR, true));
+				}
+			}
+			renderText(obj, render, rc, pair, xs[length / 2], ys[length / 2], xs, ys);
+		}
+	}
+
+	private void drawPolylineShadow(Graphics2D canvas, TileRenderingContext rc, Shape path, PaintState p,
+			int shadowColor, int shadowRadius) {
+		if (shadowRadius <= 0) {
+			return;
+		}
+		if (rc.shadowRenderingMode == ShadowRenderingMode.BLUR_SHADOW.value) {
+			// blur is approximated by several translucent strokes of growing width
+			int steps = Math.min(shadowRadius, 4);
+			int alpha = (shadowColor >>> 24) == 0 ? 0xff : (shadowColor >>> 24);
+			int stepAlpha = Math.max(1, alpha / (steps + 1));
+			for (int s = steps; s >= 1; s--) {
+				float w = shadowRadius * 2f * s / steps;
+				int c = (stepAlpha << 24) | (shadowColor & 0xffffff);
+				drawPath(canvas, path, widen(p.stroke, w), new Color(c, true));
+			}
+		} else if (rc.shadowRenderingMode == ShadowRenderingMode.SOLID_SHADOW.value) {
+			drawPath(canvas, path, widen(p.stroke, shadowRadius * 2), new Color(shadowColor, true));
+		}
+	}
+
+	private void drawPoint(BinaryMapDataObject obj, RenderingRuleSearchRequest render, Graphics2D canvas,
+			TileRenderingContext rc, TagValuePair pair, boolean renderText) {
+		if (render == null || pair == null) {
+			return;
+		}
+		render.setInitialTagValueZoom(pair.tag, pair.value, rc.zoom, obj);
+		render.setIntFilter(render.ALL.R_TEXT_LENGTH, obj.getName().length());
+		render.search(RenderingRulesStorage.POINT_RULES);
+
+		String resId = render.getStringPropertyValue(render.ALL.R_ICON);
+		if (resId == null && !renderText) {
+			return;
+		}
+		int len = obj.getPointsLength();
+		rc.visible++;
+		float psx = 0;
+		float psy = 0;
+		for (int i = 0; i < len; i++) {
+			float x = calcX(obj.getPoint31XTile(i), rc);
+			float y = calcY(obj.getPoint31YTile(i), rc);
+			inside(x, y, rc);
+			psx += x;
+			psy += y;
+		}
+		if (len > 1) {
+			psx /= len;
+			psy /= len;
+		}
+
+		if (resId != null) {
+			IconDrawInfo ico = new IconDrawInfo();
+			ico.x = psx;
+			ico.y = psy;
+			ico.iconOrder = render.getIntPropertyValue(render.ALL.R_ICON_ORDER, 100);
+			ico.iconSize = rc.getComplexValue(render, render.ALL.R_ICON_VISIBLE_SIZE, -1);
+			ico.shieldId = render.getStringPropertyValue(render.ALL.R_SHIELD);
+			ico.resId_1 = render.getStringPropertyValue(render.ALL.R_ICON__1);
+			ico.resId = resId;
+			ico.resId2 = render.getStringPropertyValue(render.ALL.R_ICON_2);
+			ico.resId3 = render.getStringPropertyValue(render.ALL.R_ICON_3);
+			ico.resId4 = render.getStringPropertyValue(render.ALL.R_ICON_4);
+			ico.resId5 = render.getStringPropertyValue(render.ALL.R_ICON_5);
+			rc.iconsToDraw.add(ico);
+		}
+		if (renderText) {
+			renderText(obj, render, rc, pair, psx, psy, null, null);
+		}
+	}
+
+	private void drawPath(Graphics2D canvas, Shape path, PaintState p) {
+		canvas.setPaint(p.paint);
+		if (p.fill) {
+			canvas.fill(path);
+		} else {
+			canvas.setStroke(p.stroke);
+			canvas.draw(path);
+		}
+	}
+
+	private void drawPath(Graphics2D canvas, Shape path, BasicStroke stroke, java.awt.Paint paint) {
+		canvas.setPaint(paint);
+		canvas.setStroke(stroke);
+		canvas.draw(path);
+	}
+
+	private static BasicStroke widen(BasicStroke s, float add) {
+		return new BasicStroke(s.getLineWidth() + add, s.getEndCap(), s.getLineJoin(), s.getMiterLimit(),
+				s.getDashArray(), s.getDashPhase());
+	}
+
+	private boolean updatePaint(RenderingRuleSearchRequest req, PaintState p, int ind, boolean area,
+			TileRenderingContext rc) {
+		RenderingRuleProperty rColor;
+		RenderingRuleProperty rStrokeW;
+		RenderingRuleProperty rCap;
+		RenderingRuleProperty rPathEff;
+
+		if (ind == 0) {
+			rColor = req.ALL.R_COLOR;
+			rStrokeW = req.ALL.R_STROKE_WIDTH;
+			rCap = req.ALL.R_CAP;
+			rPathEff = req.ALL.R_PATH_EFFECT;
+		} else if (ind == 1) {
+			rColor = req.ALL.R_COLOR_2;
+			rStrokeW = req.ALL.R_STROKE_WIDTH_2;
+			rCap = req.ALL.R_CAP_2;
+			rPathEff = req.ALL.R_PATH_EFFECT_2;
+		} else if (ind == -1) {
+			rColor = req.ALL.R_COLOR_0;
+			rStrokeW = req.ALL.R_STROKE_WIDTH_0;
+			rCap = req.ALL.R_CAP_0;
+			rPathEff = req.ALL.R_PATH_EFFECT_0;
+		} else if (ind == -2) {
+			rColor = req.ALL.R_COLOR__1;
+			rStrokeW = req.ALL.R_STROKE_WIDTH__1;
+			rCap = req.ALL.R_CAP__1;
+			rPathEff = req.ALL.R_PATH_EFFECT__1;
+		} else if (ind == 2) {
+			rColor = req.ALL.R_COLOR_3;
+			rStrokeW = req.ALL.R_STROKE_WIDTH_3;
+			rCap = req.ALL.R_CAP_3;
+			rPathEff = req.ALL.R_PATH_EFFECT_3;
+		} else if (ind == -3) {
+			rColor = req.ALL.R_COLOR__2;
+			rStrokeW = req.ALL.R_STROKE_WIDTH__2;
+			rCap = req.ALL.R_CAP__2;
+			rPathEff = req.ALL.R_PATH_EFFECT__2;
+		} else if (ind == 3) {
+			rColor = req.ALL.R_COLOR_4;
+			rStrokeW = req.ALL.R_STROKE_WIDTH_4;
+			rCap = req.ALL.R_CAP_4;
+			rPathEff = req.ALL.R_PATH_EFFECT_4;
+		} else {
+			rColor = req.ALL.R_COLOR_5;
+			rStrokeW = req.ALL.R_STROKE_WIDTH_5;
+			rCap = req.ALL.R_CAP_5;
+			rPathEff = req.ALL.R_PATH_EFFECT_5;
+		}
+		p.shadowRadius = 0;
+		if (area) {
+			if (!req.isSpecified(rColor) && !req.isSpecified(req.ALL.R_SHADER)) {
+				return false;
+			}
+			p.fill = true;
+			p.stroke = null;
+		} else {
+			if (!req.isSpecified(rStrokeW)) {
+				return false;
+			}
+			p.fill = false;
+			float width = rc.getComplexValue(req, rStrokeW);
+			int cap = BasicStroke.CAP_BUTT;
+			String capName = req.getStringPropertyValue(rCap);
+			if ("ROUND".equalsIgnoreCase(capName)) {
+				cap = BasicStroke.CAP_ROUND;
+			} else if ("SQUARE".equalsIgnoreCase(capName)) {
+				cap = BasicStroke.CAP_SQUARE;
+			}
+			float[] dashes = getDashEffect(rc, req.getStringPropertyValue(rPathEff));
+			p.stroke = new BasicStroke(width, cap, BasicStroke.JOIN_ROUND, 10f, dashes, 0);
+		}
+		int color = req.getIntPropertyValue(rColor);
+		p.paint = new Color(color, true);
+		if (ind == 0) {
+			String resId = req.getStringPropertyValue(req.ALL.R_SHADER);
+			if (resId != null) {
+				BufferedImage shader = iconProvider == null ? null : iconProvider.getIcon(resId);
+				if (shader != null) {
+					p.paint = new TexturePaint(shader, new Rectangle2D.Float(0, 0, shader.getWidth(), shader.getHeight()));
+				}
+			}
+			// do not check shadow color here
+			if (!area && rc.shadowRenderingMode == ShadowRenderingMode.ONE_STEP.value) {
+				int shadowColor = req.getIntPropertyValue(req.ALL.R_SHADOW_COLOR);
+				if (shadowColor == 0) {
+					shadowColor = rc.shadowRenderingColor;
+				}
+				p.shadowColor = shadowColor;
+				p.shadowRadius = shadowColor == 0 ? 0 : (int) rc.getComplexValue(req, req.ALL.R_SHADOW_RADIUS);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Path effect is list of "length:offset" separated by '_', length is scaled with density.
+	 */
+	private float[] getDashEffect(TileRenderingContext rc, String pathEffect) {
+		if (Algorithms.isEmpty(pathEffect)) {
+			return null;
+		}
+		float[] dashes = dashEffects.get(pathEffect);
+		if (dashes == null) {
+			String[] vls = pathEffect.split("_");
+			dashes = new float[vls.length];
+			boolean positive = false;
+			for (int i = 0; i < vls.length; i++) {
+				int s = vls[i].indexOf(':');
+				String pre = vls[i];
+				String post = "";
+				if (s != -1) {
+					pre = vls[i].substring(0, s);
+					post = vls[i].substring(s + 1);
+				}
+				float v = 0;
+				try {
+					if (pre.length() > 0) {
+						v += rc.getDensityValue(Float.parseFloat(pre));
+					}
+					if (post.length() > 0) {
+						v += Float.parseFloat(post);
+					}
+				} catch (NumberFormatException e) {
+					log.warn("Illegal path effect " + pathEffect);
+				}
+				dashes[i] = Math.max(v, 0);
+				positive |= v > 0;
+			}
+			// awt requires even number of dashes and at least one positive value
+			if (!positive) {
+				dashes = new float[0];
+			} else if (dashes.length % 2 == 1) {
+				float[] d = new float[dashes.length * 2];
+				System.arraycopy(dashes, 0, d, 0, dashes.length);
+				System.arraycopy(dashes, 0, d, dashes.length, dashes.length);
+				dashes = d;
+			}
+			dashEffects.put(pathEffect, dashes);
+		}
+		return dashes.length == 0 ? null : dashes;
+	}
+
+	private List<BasicStroke> getOneWayStrokes(TileRenderingContext rc, boolean reverse) {
+		List<BasicStroke> strokes = new ArrayList<BasicStroke>(4);
+		if (reverse) {
+			int rmin = (int) rc.getDensityValue(1);
+			if (rmin > 2) {
+				rmin = rmin / 2;
+			}
+			strokes.add(oneWayStroke(rmin * 2, new float[] { 0, 12, 10 * rmin, 152 }, 0));
+			strokes.add(oneWayStroke(rmin, new float[] { 0, 12 + rmin, 9 * rmin, 152 }, 1));
+			strokes.add(oneWayStroke(rmin * 3, new float[] { 0, 12 + 2 * rmin, 2 * rmin, 152 + 6 * rmin }, 1));
+			strokes.add(oneWayStroke(rmin * 4, new float[] { 0, 12 + 3 * rmin, 1 * rmin, 152 + 6 * rmin }, 1));
+		} else {
+			float rmin = rc.getDensityValue(1);
+			if (rmin > 1) {
+				rmin = rmin * 2 / 3;
+			}
+			strokes.add(oneWayStroke(rmin, new float[] { 0, 12, 10 * rmin, 152 }, 0));
+			strokes.add(oneWayStroke(rmin * 2, new float[] { 0, 12, 9 * rmin, 152 + rmin }, 1));
+			strokes.add(oneWayStroke(rmin * 3, new float[] { 0, 12 + 6 * rmin, 2 * rmin, 152 + 2 * rmin }, 1));
+			strokes.add(oneWayStroke(rmin * 4, new float[] { 0, 12 + 6 * rmin, 1 * rmin, 152 + 3 * rmin }, 1));
+		}
+		return strokes;
+	}
+
+	private static BasicStroke oneWayStroke(float width, float[] dashes, float phase) {
+		return new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 10f, dashes, phase);
+	}
+
+	private void drawIconsOverCanvas(TileRenderingContext rc, Graphics2D cv) {
+		if (iconProvider == null) {
+			return;
+		}
+		Collections.sort(rc.iconsToDraw, new Comparator<IconDrawInfo>() {
+			@Override
+			public int compare(IconDrawInfo object1, IconDrawInfo object2) {
+				return object1.iconOrder - object2.iconOrder;
+			}
+		});
+		QuadRect bounds = new QuadRect(0, 0, rc.width, rc.height);
+		bounds.inset(-bounds.width() / 4, -bounds.height() / 4);
+		QuadTree<QuadRect> boundIntersections = new QuadTree<QuadRect>(bounds, 4, 0.6f);
+		List<QuadRect> result = new ArrayList<QuadRect>();
+		float coeff = rc.getDensityValue(rc.screenDensityRatio * rc.textScale);
+		for (IconDrawInfo icon : rc.iconsToDraw) {
+			BufferedImage ico = iconProvider.getIcon(icon.resId);
+			if (ico == null || icon.y < 0 || icon.y >= rc.height || icon.x < 0 || icon.x >= rc.width) {
+				continue;
+			}
+			int visibleWidth = icon.iconSize >= 0 ? (int) icon.iconSize : ico.getWidth();
+			int visibleHeight = icon.iconSize >= 0 ? (int) icon.iconSize : ico.getHeight();
+			QuadRect rf = calculateRect(icon, ico.getWidth(), ico.getHeight(), coeff);
+			QuadRect visibleRect = null;
+			boolean intersects = false;
+			if (visibleHeight > 0 && visibleWidth > 0) {
+				visibleRect = calculateRect(icon, visibleWidth, visibleHeight, coeff);
+				result.clear();
+				boundIntersections.queryInBox(visibleRect, result);
+				for (QuadRect r : result) {
+					if (QuadRect.intersects(r, visibleRect)) {
+						intersects = true;
+						break;
+					}
+				}
+			}
+			if (!intersects) {
+				BufferedImage shield = icon.shieldId == null ? null : iconProvider.getIcon(icon.shieldId);
+				if (shield != null) {
+					draw(cv, shield, calculateRect(icon, shield.getWidth(), shield.getHeight(), coeff));
+				}
+				draw(cv, iconProvider.getIcon(icon.resId_1), rf);
+				draw(cv, ico, rf);
+				draw(cv, iconProvider.getIcon(icon.resId2), rf);
+				draw(cv, iconProvider.getIcon(icon.resId3), rf);
+				draw(cv, iconProvider.getIcon(icon.resId4), rf);
+				draw(cv, iconProvider.getIcon(icon.resId5), rf);
+				if (visibleRect != null) {
+					visibleRect.inset(-visibleRect.width() / 4, -visibleRect.height() / 4);
+					boundIntersections.insert(visibleRect, visibleRect);
+				}
+			}
+			if (rc.interrupted) {
+				return;
+			}
+		}
+	}
+
+	private void draw(Graphics2D cv, BufferedImage ico, QuadRect rf) {
+		if (ico != null) {
+			cv.drawImage(ico, (int) rf.left, (int) rf.top, (int) Math.ceil(rf.width()), (int) Math.ceil(rf.height()), null);
+		}
+	}
+
+	private QuadRect calculateRect(IconDrawInfo icon, int visibleWidth, int visibleHeight, float coeff) {
+		float left = icon.x - visibleWidth / 2 * coeff;
+		float top = icon.y - visibleHeight / 2 * coeff;
+		return new QuadRect(left, top, left + visibleWidth * coeff, top + visibleHeight * coeff);
+	}
+
+	private void renderText(final BinaryMapDataObject obj, final RenderingRuleSearchRequest render,
+			final TileRenderingContext rc, final TagValuePair pair, final float xMid, final float yMid,
+			final float[] xs, final float[] ys) {
+		final TIntObjectHashMap<String> map = obj.getObjectNames();
+		if (map != null) {
+			map.forEachEntry(new TIntObjectProcedure<String>() {
+				@Override
+				public boolean execute(int tag, String name) {
+					if (name != null && name.trim().length() > 0) {
+						boolean isName = tag == obj.getMapIndex().nameEncodingType;
+						String nameTag = isName ? "" : obj.getMapIndex().decodeType(tag).tag;
+						// not completely correct we should check "name"+rc.preferredLocale
+						boolean skip = isName && !rc.preferredLocale.isEmpty()
+								&& map.containsKey(obj.getMapIndex().nameEnEncodingType);
+						if (!skip) {
+							createTextDrawInfo(obj, render, rc, pair, xMid, yMid, xs, ys, name, nameTag);
+						}
+					}
+					return true;
+				}
+			});
+		}
+	}
+
+	private void createTextDrawInfo(final BinaryMapDataObject o, RenderingRuleSearchRequest render,
+			TileRenderingContext rc, TagValuePair pair, float xMid, float yMid, float[] xs, float[] ys,
+			String name, String tagName) {
+		render.setInitialTagValueZoom(pair.tag, pair.value, rc.zoom, o);
+		render.setIntFilter(render.ALL.R_TEXT_LENGTH, name.length());
+		render.setStringFilter(render.ALL.R_NAME_TAG, tagName);
+		if (!render.search(RenderingRulesStorage.TEXT_RULES) || render.getFloatPropertyValue(render.ALL.R_TEXT_SIZE) <= 0) {
+			return;
+		}
+		final TextDrawInfo text = new TextDrawInfo();
+		text.text = name;
+		text.centerX = xMid;
+		text.centerY = yMid + (int) rc.getComplexValue(render, render.ALL.R_TEXT_DY);
+		text.textColor = render.getIntPropertyValue(render.ALL.R_TEXT_COLOR);
+		if (text.textColor == 0) {
+			text.textColor = 0xff000000;
+		}
+		text.textSize = rc.getComplexValue(render, render.ALL.R_TEXT_SIZE);
+		text.textShadow = (int) rc.getComplexValue(render, render.ALL.R_TEXT_HALO_RADIUS);
+		text.textShadowColor = render.getIntPropertyValue(render.ALL.R_TEXT_HALO_COLOR);
+		if (text.textShadowColor == 0) {
+			text.textShadowColor = 0xffffffff;
+		}
+		text.bold = render.getIntPropertyValue(render.ALL.R_TEXT_BOLD, 0) > 0;
+		text.italic = render.getIntPropertyValue(render.ALL.R_TEXT_ITALIC, 0) > 0;
+		text.textOrder = render.getIntPropertyValue(render.ALL.R_TEXT_ORDER, 100);
+		final String tagName2 = render.getStringPropertyValue(render.ALL.R_NAME_TAG2);
+		if (!Algorithms.isEmpty(tagName2)) {
+			o.getObjectNames().forEachEntry(new TIntObjectProcedure<String>() {
+				@Override
+				public boolean execute(int tagid, String nname) {
+					String tagNameN2 = o.getMapIndex().decodeType(tagid).tag;
+					if (tagName2.equals(tagNameN2)) {
+						if (nname != null && nname.trim().length() > 0) {
+							text.text += " (" + nname + ")";
+						}
+						return false;
+					}
+					return true;
+				}
+			});
+		}
+		if (xs != null) {
+			// text of lines is drawn straight along middle segment and only if line is long enough
+			int m = Math.max(1, xs.length / 2);
+			float dx = xs[m] - xs[m - 1];
+			float dy = ys[m] - ys[m - 1];
+			if (dx < 0) {
+				dx = -dx;
+				dy = -dy;
+			}
+			text.pathRotate = (float) Math.atan2(dy, dx);
+			text.centerX = (xs[m] + xs[m - 1]) / 2;
+			text.centerY = (ys[m] + ys[m - 1]) / 2;
+			float len = 0;
+			for (int i = 1; i < xs.length; i++) {
+				len += (float) Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+			}
+			text.minLength = len;
+		}
+		rc.textToDraw.add(text);
+	}
+
+	private void drawTextOverCanvas(TileRenderingContext rc, Graphics2D cv) {
+		Collections.sort(rc.textToDraw, new Comparator<TextDrawInfo>() {
+			@Override
+			public int compare(TextDrawInfo object1, TextDrawInfo object2) {
+				return object1.textOrder - object2.textOrder;
+			}
+		});
+		QuadRect bounds = new QuadRect(0, 0, rc.width, rc.height);
+		bounds.inset(-bounds.width() / 4, -bounds.height() / 4);
+		QuadTree<QuadRect> boundIntersections = new QuadTree<QuadRect>(bounds, 4, 0.6f);
+		List<QuadRect> result = new ArrayList<QuadRect>();
+		FontRenderContext frc = cv.getFontRenderContext();
+		AffineTransform original = cv.getTransform();
+		for (TextDrawInfo text : rc.textToDraw) {
+			if (text.centerX < 0 || text.centerX >= rc.width || text.centerY < 0 || text.centerY >= rc.height) {
+				continue;
+			}
+			int style = (text.bold ? Font.BOLD : 0) | (text.italic ? Font.ITALIC : 0);
+			Font font = new Font(Font.SANS_SERIF, style, 1).deriveFont(text.textSize);
+			TextLayout layout = new TextLayout(text.text, font, frc);
+			Rectangle2D tb = layout.getBounds();
+			float w = (float) tb.getWidth();
+			if (text.minLength > 0 && w > text.minLength) {
+				continue;
+			}
+			// collision box is axis aligned box of (rotated) text
+			double cos = Math.abs(Math.cos(text.pathRotate));
+			double sin = Math.abs(Math.sin(text.pathRotate));
+			double bw = w * cos + tb.getHeight() * sin + rc.getDensityValue(6);
+			double bh = w * sin + tb.getHeight() * cos + rc.getDensityValue(6);
+			QuadRect box = new QuadRect(text.centerX - bw / 2, text.centerY - bh / 2, text.centerX + bw / 2,
+					text.centerY + bh / 2);
+			result.clear();
+			boundIntersections.queryInBox(box, result);
+			boolean intersects = false;
+			for (QuadRect r : result) {
+				if (QuadRect.intersects(r, box)) {
+					intersects = true;
+					break;
+				}
+			}
+			if (intersects) {
+				continue;
+			}
+			boundIntersections.insert(box, box);
+			cv.translate(text.centerX, text.centerY);
+			if (text.pathRotate != 0) {
+				cv.rotate(text.pathRotate);
+			}
+			float tx = (float) (-tb.getX() - w / 2);
+			float ty = (float) (-tb.getY() - tb.getHeight() / 2);
+			Shape outline = layout.getOutline(AffineTransform.getTranslateInstance(tx, ty));
+			if (text.textShadow > 0) {
+				cv.setPaint(new Color(text.textShadowColor, true));
+				cv.setStroke(new BasicStroke(text.textShadow * 2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+				cv.draw(outline);
+			}
+			cv.setPaint(new Color(text.textColor, true));
+			cv.fill(outline);
+			cv.setTransform(original);
+			if (rc.interrupted) {
+				return;
+			}
+		}
+	}
+}
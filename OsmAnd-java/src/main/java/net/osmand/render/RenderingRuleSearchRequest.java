@@ -1,8 +1,13 @@
 package net.osmand.render;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.render.RenderingRulesStorage.SearchProperties;
 import net.osmand.util.Algorithms;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 public class RenderingRuleSearchRequest {
 
@@ -16,7 +21,18 @@ public class RenderingRuleSearchRequest {
 	float[] savedFvalues;
 	
 	boolean searchResult = false;
-	
+
+	// results of search by state and values of properties which could be read or changed by search
+	private static final int SEARCH_CACHE_SIZE = 4096;
+	private final Map<SearchKey, int[]> searchCache = new LinkedHashMap<SearchKey, int[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SearchKey, int[]> eldest) {
+			return size() > SEARCH_CACHE_SIZE;
+		}
+	};
+	private boolean searchCacheEnabled = true;
 	
 	public final RenderingRuleStorageProperties ALL;
 
@@ -126,10 +142,49 @@ public class RenderingRuleSearchRequest {
 		return search(state, true);
 	}
 	
+	public void setSearchCacheEnabled(boolean searchCacheEnabled) {
+		this.searchCacheEnabled = searchCacheEnabled;
+		searchCache.clear();
+	}
+
 	public boolean search(int state, boolean loadOutput) {
-		searchResult = false;
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
+		SearchProperties sp = searchCacheEnabled ? storage.getSearchProperties(state, tagKey, valueKey) : null;
+		if (sp == null || (sp.objectDependent && object != null)) {
+			return searchRules(state, tagKey, valueKey, loadOutput);
+		}
+		int[] ids = sp.ids;
+		int[] key = new int[2 + ids.length * 2];
+		key[0] = state;
+		key[1] = loadOutput ? 1 : 0;
+		for (int i = 0; i < ids.length; i++) {
+			key[2 + 2 * i] = values[ids[i]];
+			key[3 + 2 * i] = Float.floatToRawIntBits(fvalues[ids[i]]);
+		}
+		SearchKey searchKey = new SearchKey(key);
+		int[] result = searchCache.get(searchKey);
+		if (result == null) {
+			boolean found = searchRules(state, tagKey, valueKey, loadOutput);
+			result = new int[1 + ids.length * 2];
+			result[0] = found ? 1 : 0;
+			for (int i = 0; i < ids.length; i++) {
+				result[1 + 2 * i] = values[ids[i]];
+				result[2 + 2 * i] = Float.floatToRawIntBits(fvalues[ids[i]]);
+			}
+			searchCache.put(searchKey, result);
+			return found;
+		}
+		for (int i = 0; i < ids.length; i++) {
+			values[ids[i]] = result[1 + 2 * i];
+			fvalues[ids[i]] = Float.intBitsToFloat(result[2 + 2 * i]);
+		}
+		searchResult = result[0] != 0;
+		return searchResult;
+	}
+
+	private boolean searchRules(int state, int tagKey, int valueKey, boolean loadOutput) {
+		searchResult = false;
 		boolean result = searchInternal(state, tagKey, valueKey, loadOutput);
 		if (result) {
 			searchResult = true;
@@ -307,4 +362,24 @@ public class RenderingRuleSearchRequest {
 		return storage;
 	}
 
+	private static class SearchKey {
+		private final int[] key;
+		private final int hash;
+
+		SearchKey(int[] key) {
+			this.key = key;
+			this.hash = Arrays.hashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SearchKey && hash == ((SearchKey) obj).hash && Arrays.equals(key, ((SearchKey) obj).key);
+		}
+	}
+
 }
\ No newline at end of file
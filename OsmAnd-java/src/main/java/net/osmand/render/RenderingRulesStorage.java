@@ -1,20 +1,25 @@
 package net.osmand.render;
 
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.osmand.PlatformUtil;
 import net.osmand.util.Algorithms;
@@ -41,12 +46,21 @@ public class RenderingRulesStorage {
 	private final static int SHIFT_TAG_VAL = 16;
 	
 
+	public final static String DEFAULT_RENDERING_STYLE = "default";
+	private static final Map<String, RenderingRulesStorage> bundledStorages = new HashMap<String, RenderingRulesStorage>();
+	private static Map<String, String> bundledRenderingConstants;
+
 	private final static String SEQ_ATTR_KEY = "seq";
 	private final static String SEQ_PLACEHOLDER = "#SEQ";
 	
 	// C++
+	// strings could be appended by several rendering threads, so they are appended under lock
+	// and read from dictionaryMap and dictionaryValues without lock
 	List<String> dictionary = new ArrayList<String>();
-	Map<String, Integer> dictionaryMap = new LinkedHashMap<String, Integer>();
+	Map<String, Integer> dictionaryMap = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] dictionaryValues = new String[64];
+	// concurrent map doesn't keep null
+	private volatile int nullDictionaryValue = -1;
 	
 	public RenderingRuleStorageProperties PROPS = new RenderingRuleStorageProperties();
 
@@ -56,6 +70,9 @@ public class RenderingRulesStorage {
 	protected Map<String, RenderingRule> renderingAttributes = new LinkedHashMap<String, RenderingRule>();
 	protected Map<String, String> renderingConstants = new LinkedHashMap<String, String>();
 	
+	// see compile()
+	private volatile TLongObjectHashMap<SearchProperties> searchProperties;
+
 	protected String renderingName;
 	protected String internalRenderingName;
 	
@@ -73,19 +90,48 @@ public class RenderingRulesStorage {
 		}
 	}
 	
+	/**
+	 * Adds string to dictionary if it is not there, could be called by several rendering threads.
+	 */
 	public int getDictionaryValue(String val) {
-		if(dictionaryMap.containsKey(val)){
-			return dictionaryMap.get(val);
+		int ind = findDictionaryValue(val);
+		if (ind != -1) {
+			return ind;
 		}
-		int nextInd = dictionaryMap.size();
-		dictionaryMap.put(val, nextInd);
-		dictionary.add(val);
-		return nextInd;
+		return addDictionaryValue(val);
+	}
 
+	private int findDictionaryValue(String val) {
+		if (val == null) {
+			return nullDictionaryValue;
+		}
+		Integer ind = dictionaryMap.get(val);
+		return ind == null ? -1 : ind;
 	}
-	
+
+	private synchronized int addDictionaryValue(String val) {
+		int ind = findDictionaryValue(val);
+		if (ind == -1) {
+			ind = dictionary.size();
+			dictionary.add(val);
+			String[] values = dictionaryValues;
+			if (ind >= values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[ind] = val;
+			// string is published before its index is visible to other threads
+			dictionaryValues = values;
+			if (val == null) {
+				nullDictionaryValue = ind;
+			} else {
+				dictionaryMap.put(val, ind);
+			}
+		}
+		return ind;
+	}
+
 	public String getStringValue(int i){
-		return dictionary.get(i);
+		return dictionaryValues[i];
 	}
 	
 	
@@ -145,7 +191,115 @@ public class RenderingRulesStorage {
 					tagValueGlobalRules[i] = depends.tagValueGlobalRules[i];
 				}
 			}
+			// attribute rules of depends storage are changed by merge
+			depends.compile();
+		}
+		compile();
+	}
+
+	/**
+	 * Precomputes for each state and tag-value key properties which could be read or changed by search,
+	 * so results of {@link RenderingRuleSearchRequest#search(int, boolean)} could be memoized by values of these properties.
+	 * Should be called again after rules are changed.
+	 */
+	public void compile() {
+		int propsCount = PROPS.getPoperties().length;
+		Map<RenderingRule, int[]> ruleProperties = new IdentityHashMap<RenderingRule, int[]>();
+		TLongObjectHashMap<SearchProperties> compiled = new TLongObjectHashMap<SearchProperties>();
+		int[] fixed = new int[] { PROPS.R_TAG.getId(), PROPS.R_VALUE.getId(), PROPS.R_DISABLE.getId(),
+				PROPS.R_ATTR_COLOR_VALUE.getId(), PROPS.R_ATTR_INT_VALUE.getId(), PROPS.R_ATTR_BOOL_VALUE.getId() };
+		for (int state = 0; state < LENGTH_RULES; state++) {
+			TIntObjectHashMap<RenderingRule> rules = tagValueGlobalRules[state];
+			if (rules == null) {
+				continue;
+			}
+			RenderingRule defaultRule = rules.get(0);
+			for (int key : rules.keys()) {
+				boolean[] ids = new boolean[propsCount];
+				for (int id : fixed) {
+					ids[id] = true;
+				}
+				markRuleProperties(rules.get(key), ruleProperties, ids);
+				int tagRuleKey = (key >> SHIFT_TAG_VAL) << SHIFT_TAG_VAL;
+				if (tagRuleKey != key && rules.get(tagRuleKey) != null) {
+					markRuleProperties(rules.get(tagRuleKey), ruleProperties, ids);
+				}
+				if (key != 0 && defaultRule != null) {
+					markRuleProperties(defaultRule, ruleProperties, ids);
+				}
+				compiled.put(((long) state << 32) | (key & 0xffffffffL), new SearchProperties(ids, PROPS.R_ADDITIONAL.getId()));
+			}
+		}
+		this.searchProperties = compiled;
+	}
+
+	private void markRuleProperties(RenderingRule rule, Map<RenderingRule, int[]> ruleProperties, boolean[] ids) {
+		int[] props = ruleProperties.get(rule);
+		if (props == null) {
+			TIntArrayList list = new TIntArrayList();
+			collectRuleProperties(rule, new boolean[ids.length], list);
+			props = list.toArray();
+			ruleProperties.put(rule, props);
+		}
+		for (int id : props) {
+			ids[id] = true;
+		}
+	}
+
+	private void collectRuleProperties(RenderingRule rule, boolean[] visited, TIntArrayList list) {
+		RenderingRuleProperty[] properties = rule.getProperties();
+		for (int i = 0; i < properties.length; i++) {
+			int id = properties[i].getId();
+			if (!visited[id]) {
+				visited[id] = true;
+				list.add(id);
+			}
+			RenderingRule attr = rule.getAttrProp(i);
+			if (attr != null) {
+				collectRuleProperties(attr, visited, list);
+			}
+		}
+		for (RenderingRule rr : rule.getIfElseChildren()) {
+			collectRuleProperties(rr, visited, list);
+		}
+		for (RenderingRule rr : rule.getIfChildren()) {
+			collectRuleProperties(rr, visited, list);
+		}
+	}
+
+	/**
+	 * @return properties of search by tag-value key in state or null if storage is not compiled or there are no rules
+	 */
+	SearchProperties getSearchProperties(int state, int tagKey, int valueKey) {
+		TLongObjectHashMap<SearchProperties> compiled = searchProperties;
+		if (compiled == null) {
+			return null;
+		}
+		long stateKey = (long) state << 32;
+		SearchProperties sp = compiled.get(stateKey | (((tagKey << SHIFT_TAG_VAL) | valueKey) & 0xffffffffL));
+		if (sp == null) {
+			sp = compiled.get(stateKey | ((tagKey << SHIFT_TAG_VAL) & 0xffffffffL));
+		}
+		if (sp == null) {
+			sp = compiled.get(stateKey);
+		}
+		return sp;
+	}
 
+	static class SearchProperties {
+		final int[] ids;
+		// search depends on additional types of map object
+		final boolean objectDependent;
+
+		SearchProperties(boolean[] marked, int objectPropertyId) {
+			TIntArrayList list = new TIntArrayList();
+			for (int i = 0; i < marked.length; i++) {
+				if (marked[i]) {
+					list.add(i);
+				}
+			}
+			ids = list.toArray();
+			objectDependent = marked[objectPropertyId];
 		}
 	}
 
@@ -360,9 +514,13 @@ public class RenderingRulesStorage {
 					this.dependsStorage = resolver.resolve(depends, resolver);
 				}
 				if(dependsStorage != null){
-					// copy dictionary
-					dictionary = new ArrayList<String>(dependsStorage.dictionary);
-					dictionaryMap = new LinkedHashMap<String, Integer>(dependsStorage.dictionaryMap);
+					// copy dictionary, depends style could be used by rendering threads meanwhile
+					synchronized (dependsStorage) {
+						dictionary = new ArrayList<String>(dependsStorage.dictionary);
+						dictionaryMap = new ConcurrentHashMap<String, Integer>(dependsStorage.dictionaryMap);
+						dictionaryValues = dependsStorage.dictionaryValues.clone();
+						nullDictionaryValue = dependsStorage.nullDictionaryValue;
+					}
 					PROPS = new RenderingRuleStorageProperties(dependsStorage.PROPS);
 					
 				}
@@ -522,16 +680,11 @@ public class RenderingRulesStorage {
 	}
 	
 	
-	public static void main(String[] args) throws XmlPullParserException, IOException {
-		STORE_ATTRIBUTES = true;
-//		InputStream is = RenderingRulesStorage.class.getResourceAsStream("default.render.xml");
-		final String loc = "/Users/victorshcherb/osmand/repos/resources/rendering_styles/";
-		String defaultFile = loc + "UniRS.render.xml";
-		if(args.length > 0) {
-			defaultFile = args[0];
-		}
-		final Map<String, String> renderingConstants = new LinkedHashMap<String, String>();
-		InputStream is = new FileInputStream(loc + "default.render.xml");
+	/**
+	 * Reads rendering constants from the style, input stream is closed after reading
+	 */
+	public static Map<String, String> parseRenderingConstants(InputStream is) throws XmlPullParserException, IOException {
+		Map<String, String> renderingConstants = new LinkedHashMap<String, String>();
 		try {
 			XmlPullParser parser = PlatformUtil.newXMLPullParser();
 			parser.setInput(is, "UTF-8");
@@ -550,6 +703,64 @@ public class RenderingRulesStorage {
 		} finally {
 			is.close();
 		}
+		return renderingConstants;
+	}
+
+	/**
+	 * Returns storage of the style bundled with library resources (i.e. "default").
+	 * Style is parsed once and shared between all callers, so returned storage must not be modified.
+	 */
+	public static RenderingRulesStorage getBundledStorage(String name) throws XmlPullParserException, IOException {
+		synchronized (bundledStorages) {
+			RenderingRulesStorage storage = bundledStorages.get(name);
+			if (storage == null) {
+				if (bundledRenderingConstants == null) {
+					bundledRenderingConstants = parseRenderingConstants(
+							RenderingRulesStorage.class.getResourceAsStream(DEFAULT_RENDERING_STYLE + ".render.xml"));
+				}
+				storage = loadBundledStorage(name, bundledRenderingConstants);
+				bundledStorages.put(name, storage);
+			}
+			return storage;
+		}
+	}
+
+	public static RenderingRulesStorage getDefaultBundledStorage() throws XmlPullParserException, IOException {
+		return getBundledStorage(DEFAULT_RENDERING_STYLE);
+	}
+
+	private static RenderingRulesStorage loadBundledStorage(String name, final Map<String, String> renderingConstants)
+			throws XmlPullParserException, IOException {
+		RenderingRulesStorage storage = new RenderingRulesStorage(name, renderingConstants);
+		InputStream is = RenderingRulesStorage.class.getResourceAsStream(name + ".render.xml");
+		if (is == null) {
+			throw new IOException("Rendering style " + name + " is not bundled");
+		}
+		try {
+			storage.parseRulesFromXmlInputStream(is, new RenderingRulesStorageResolver() {
+
+				@Override
+				public RenderingRulesStorage resolve(String name, RenderingRulesStorageResolver ref)
+						throws XmlPullParserException, IOException {
+					// dependency is merged into dependent storage, so it couldn't be shared
+					return loadBundledStorage(name, renderingConstants);
+				}
+			});
+		} finally {
+			is.close();
+		}
+		return storage;
+	}
+	
+	public static void main(String[] args) throws XmlPullParserException, IOException {
+		STORE_ATTRIBUTES = true;
+//		InputStream is = RenderingRulesStorage.class.getResourceAsStream("default.render.xml");
+		final String loc = "/Users/victorshcherb/osmand/repos/resources/rendering_styles/";
+		String defaultFile = loc + "UniRS.render.xml";
+		if(args.length > 0) {
+			defaultFile = args[0];
+		}
+		final Map<String, String> renderingConstants = parseRenderingConstants(new FileInputStream(loc + "default.render.xml"));
 		RenderingRulesStorage storage = new RenderingRulesStorage("default", renderingConstants);
 		final RenderingRulesStorageResolver resolver = new RenderingRulesStorageResolver() {
 			@Override
@@ -560,7 +771,7 @@ public class RenderingRulesStorage {
 				return depends;
 			}
 		};
-		is = new FileInputStream(defaultFile);
+		InputStream is = new FileInputStream(defaultFile);
 		storage.parseRulesFromXmlInputStream(is, resolver);
 		
 //		storage = new RenderingRulesStorage("", null);
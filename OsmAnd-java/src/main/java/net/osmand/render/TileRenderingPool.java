@@ -0,0 +1,171 @@
+package net.osmand.render;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Renders map tiles in parallel with {@link HeadlessMapRenderer} on fork join pool.
+ * Every worker thread has its own copy of rendering request (so cache of rule search results is kept per thread).
+ */
+public class TileRenderingPool {
+	private static final Log LOG = PlatformUtil.getLog(TileRenderingPool.class);
+
+	private final HeadlessMapRenderer renderer;
+	private final MapDataProvider dataProvider;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<RenderingRuleSearchRequest> requests;
+
+	public interface MapDataProvider {
+
+		/**
+		 * @return objects to render in 31 tile bounds, method is called from several threads
+		 */
+		List<BinaryMapDataObject> getObjects(int zoom, int left31, int top31, int right31, int bottom31) throws IOException;
+	}
+
+	public interface TileListener {
+
+		/**
+		 * Called from worker threads
+		 */
+		void tileRendered(int zoom, int x, int y, BufferedImage image);
+
+		void tileFailed(int zoom, int x, int y, Exception e);
+	}
+
+	/**
+	 * Reads objects from obf files, readers are not thread safe so every reader is accessed by one thread at a time.
+	 */
+	public static class MapFilesDataProvider implements MapDataProvider {
+		private final List<BinaryMapIndexReader> readers;
+
+		public MapFilesDataProvider(List<BinaryMapIndexReader> readers) {
+			this.readers = readers;
+		}
+
+		@Override
+		public List<BinaryMapDataObject> getObjects(int zoom, int left31, int top31, int right31, int bottom31)
+				throws IOException {
+			List<BinaryMapDataObject> result = new ArrayList<BinaryMapDataObject>();
+			TLongHashSet ids = new TLongHashSet();
+			for (BinaryMapIndexReader reader : readers) {
+				List<BinaryMapDataObject> objects;
+				synchronized (reader) {
+					objects = reader.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(left31, right31, top31,
+							bottom31, zoom, null));
+				}
+				for (BinaryMapDataObject o : objects) {
+					// same object could be stored in several overlapping files
+					if (o.getId() <= 0 || ids.add(o.getId())) {
+						result.add(o);
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * @param prototype request with custom style properties set (e.g. night mode), could be null
+	 */
+	public TileRenderingPool(HeadlessMapRenderer renderer, final RenderingRuleSearchRequest prototype,
+			MapDataProvider dataProvider, int threads) {
+		this.renderer = renderer;
+		this.dataProvider = dataProvider;
+		this.pool = new ForkJoinPool(Math.max(1, threads));
+		final RenderingRulesStorage storage = renderer.getStorage();
+		this.requests = new ThreadLocal<RenderingRuleSearchRequest>() {
+			@Override
+			protected RenderingRuleSearchRequest initialValue() {
+				synchronized (TileRenderingPool.this) {
+					return prototype != null ? new RenderingRuleSearchRequest(prototype)
+							: new RenderingRuleSearchRequest(storage);
+				}
+			}
+		};
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Renders single tile in current thread.
+	 */
+	public BufferedImage renderTile(int zoom, int x, int y) throws IOException {
+		int shift = 31 - zoom;
+		int left = x << shift;
+		int top = y << shift;
+		int right = (int) Math.min(Integer.MAX_VALUE, ((long) (x + 1) << shift) - 1);
+		int bottom = (int) Math.min(Integer.MAX_VALUE, ((long) (y + 1) << shift) - 1);
+		List<BinaryMapDataObject> objects = dataProvider.getObjects(zoom, left, top, right, bottom);
+		return renderer.renderTile(requests.get(), objects, zoom, x, y);
+	}
+
+	/**
+	 * Renders tiles from left..right, top..bottom (inclusive) in parallel, returns when all tiles are rendered.
+	 */
+	public void renderTiles(int zoom, int left, int top, int right, int bottom, TileListener listener) {
+		int width = right - left + 1;
+		int height = bottom - top + 1;
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		pool.invoke(new TilesTask(zoom, left, top, width, 0, width * height, listener));
+	}
+
+	private class TilesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int zoom;
+		private final int left;
+		private final int top;
+		private final int width;
+		private final int from;
+		private final int to;
+		private final TileListener listener;
+
+		TilesTask(int zoom, int left, int top, int width, int from, int to, TileListener listener) {
+			this.zoom = zoom;
+			this.left = left;
+			this.top = top;
+			this.width = width;
+			this.from = from;
+			this.to = to;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 1) {
+				if (to > from) {
+					int x = left + from % width;
+					int y = top + from / width;
+					try {
+						listener.tileRendered(zoom, x, y, renderTile(zoom, x, y));
+					} catch (IOException | RuntimeException e) {
+						LOG.error("Tile " + zoom + "/" + x + "/" + y + " is not rendered", e);
+						listener.tileFailed(zoom, x, y, e);
+					}
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			TilesTask right = new TilesTask(zoom, left, top, width, mid, to, listener);
+			right.fork();
+			new TilesTask(zoom, left, top, width, from, mid, listener).compute();
+			right.join();
+		}
+	}
+}
@@ -4,9 +4,12 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 import net.osmand.PlatformUtil;
@@ -176,6 +179,177 @@ public class BinaryRoutePlanner {
 		return finalSegment;
 	}
 
+	/**
+	 * Calculate all road points reachable from start within time limit (seconds of real travel time) and/or 
+	 * distance limit (meters, length of the fastest path), limit <= 0 is ignored.
+	 * Uses Dijkstra algorithm (A* without heuristic) in forward direction only, 
+	 * last point on every road is interpolated to the edge of the area.
+	 */
+	ReachableArea searchReachableArea(final RoutingContext ctx, RouteSegmentPoint start, final float timeLimit, 
+			final float distanceLimit) throws InterruptedException, IOException {
+		if (timeLimit <= 0 && distanceLimit <= 0) {
+			throw new IllegalArgumentException("Time or distance limit should be specified");
+		}
+		ctx.memoryOverhead = 1000;
+		float heuristicCoefficient = ctx.config.heuristicCoefficient;
+		PrecalculatedRouteDirection routeDirection = ctx.precalculatedRouteDirection;
+		final RouteSegmentVisitor visitor = ctx.visitor;
+		ctx.config.heuristicCoefficient = 0;
+		ctx.precalculatedRouteDirection = null;
+		ctx.travelTimeRequired = true;
+		try {
+			PriorityQueue<RouteSegment> graphSegments = new PriorityQueue<RouteSegment>(50, new SegmentsComparator(ctx));
+			TLongObjectHashMap<RouteSegment> visitedSegments = new TLongObjectHashMap<RouteSegment>();
+			// stays empty, so final segment is never created
+			TLongObjectHashMap<RouteSegment> oppositeSegments = new TLongObjectHashMap<RouteSegment>();
+			final Map<RouteSegment, Float> pathDistances = new IdentityHashMap<RouteSegment, Float>();
+			final ReachableArea area = new ReachableArea(timeLimit, distanceLimit);
+			// several processed roads could pass the same point
+			final TLongObjectHashMap<Integer> pointIndexes = new TLongObjectHashMap<Integer>();
+			ctx.visitor = new RouteSegmentVisitor() {
+				
+				@Override
+				public void visitSegment(RouteSegment segment, int segmentEnd, boolean poll) {
+					addReachablePoints(ctx, segment, segmentEnd, area, pointIndexes, pathDistances);
+					if (visitor != null) {
+						visitor.visitSegment(segment, segmentEnd, poll);
+					}
+				}
+			};
+			RouteSegment startPos = initRouteSegment(ctx, start, true);
+			RouteSegment startNeg = initRouteSegment(ctx, start, false);
+			if (startPos != null) {
+				graphSegments.add(startPos);
+			}
+			if (startNeg != null) {
+				graphSegments.add(startNeg);
+			}
+			while (!graphSegments.isEmpty()) {
+				RouteSegment segment = graphSegments.poll();
+				ctx.memoryOverhead = visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+						+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD + pathDistances.size() * 32;
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.95) {
+					throw new IllegalStateException("There is not enough memory " + ctx.config.memoryLimitation / (1 << 20) + " Mb");
+				}
+				// segments are polled in order of routing cost, so real time is not monotonic
+				if (timeLimit > 0 && segment.timeFromStart > timeLimit) {
+					continue;
+				}
+				if (distanceLimit > 0 && getPathDistance(segment, pathDistances) > distanceLimit) {
+					continue;
+				}
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+				}
+				processRouteSegment(ctx, false, graphSegments, visitedSegments, segment, oppositeSegments, false);
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+			}
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.visitedDirectSegments += visitedSegments.size();
+				ctx.calculationProgress.directQueueSize += graphSegments.size();
+			}
+			return area;
+		} finally {
+			ctx.config.heuristicCoefficient = heuristicCoefficient;
+			ctx.precalculatedRouteDirection = routeDirection;
+			ctx.visitor = visitor;
+			ctx.travelTimeRequired = false;
+		}
+	}
+
+	/**
+	 * Adds all points of processed part of the road, point where the limit is crossed is interpolated
+	 */
+	private void addReachablePoints(RoutingContext ctx, RouteSegment segment, int segmentEnd, ReachableArea area,
+			TLongObjectHashMap<Integer> pointIndexes, Map<RouteSegment, Float> pathDistances) {
+		RouteDataObject road = segment.getRoad();
+		boolean plus = segment.isPositive();
+		int end = plus ? Math.min(segmentEnd, road.getPointsLength() - 1) : Math.max(segmentEnd, 0);
+		int ind = segment.getSegmentStart();
+		float time = segment.timeFromStart;
+		float dist = getPathDistance(segment, pathDistances);
+		int x = road.getPoint31XTile(ind);
+		int y = road.getPoint31YTile(ind);
+		addReachablePoint(area, pointIndexes, x, y, time, dist);
+		float timePerMeter = calculateTravelTime(ctx, road, 1, 0, ctx.getConditionalTime(segment, false));
+		while (ind != end) {
+			int next = plus ? ind + 1 : ind - 1;
+			int nx = road.getPoint31XTile(next);
+			int ny = road.getPoint31YTile(next);
+			float d = (float) squareRootDist(x, y, nx, ny);
+			float obstacle = ctx.getRouter().defineObstacle(road, next, plus);
+			float nextTime = time + d * timePerMeter + Math.max(obstacle, 0);
+			float nextDist = dist + d;
+			float part = 1;
+			if (area.timeLimit > 0 && nextTime > area.timeLimit) {
+				part = (area.timeLimit - time) / (nextTime - time);
+			}
+			if (area.distanceLimit > 0 && nextDist > area.distanceLimit) {
+				part = Math.min(part, (area.distanceLimit - dist) / d);
+			}
+			if (part < 1) {
+				addReachablePoint(area, pointIndexes, x + (int) ((nx - x) * part), y + (int) ((ny - y) * part),
+						time + (nextTime - time) * part, dist + d * part);
+				break;
+			}
+			addReachablePoint(area, pointIndexes, nx, ny, nextTime, nextDist);
+			ind = next;
+			x = nx;
+			y = ny;
+			time = nextTime;
+			dist = nextDist;
+		}
+	}
+
+	private void addReachablePoint(ReachableArea area, TLongObjectHashMap<Integer> pointIndexes, int x, int y, 
+			float time, float dist) {
+		long pointId = (((long) x) << 31) + y;
+		Integer ind = pointIndexes.get(pointId);
+		if (ind == null) {
+			pointIndexes.put(pointId, area.size());
+			area.addPoint(x, y, time, dist);
+		} else if (time < area.getTime(ind)) {
+			area.updatePoint(ind, time, dist);
+		}
+	}
+
+	private float getPathDistance(RouteSegment segment, Map<RouteSegment, Float> pathDistances) {
+		List<RouteSegment> chain = null;
+		RouteSegment s = segment;
+		float dist = 0;
+		while (s != null) {
+			Float d = pathDistances.get(s);
+			if (d != null) {
+				dist = d;
+				break;
+			}
+			if (chain == null) {
+				chain = new ArrayList<RouteSegment>();
+			}
+			chain.add(s);
+			s = s.getParentRoute();
+		}
+		if (chain != null) {
+			for (int i = chain.size() - 1; i >= 0; i--) {
+				RouteSegment c = chain.get(i);
+				RouteSegment parent = c.getParentRoute();
+				if (parent != null) {
+					RouteDataObject road = parent.getRoad();
+					int st = Math.min(parent.getSegmentStart(), c.getParentSegmentEnd());
+					int end = Math.max(parent.getSegmentStart(), c.getParentSegmentEnd());
+					for (int k = st; k < end; k++) {
+						dist += squareRootDist(road.getPoint31XTile(k), road.getPoint31YTile(k), 
+								road.getPoint31XTile(k + 1), road.getPoint31YTile(k + 1));
+					}
+				}
+				pathDistances.put(c, dist);
+			}
+		}
+		return dist;
+	}
+
 	protected void checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
 			PriorityQueue<RouteSegment> graphSegments, RouteSegmentPoint pnt, TLongObjectHashMap<RouteSegment> visited,
 			String msg) {
@@ -398,7 +572,12 @@ public class BinaryRoutePlanner {
 			PriorityQueue<RouteSegment> graphSegments, TLongObjectHashMap<RouteSegment> visitedSegments, 
             RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments, boolean doNotAddIntersections) throws IOException {
 		final RouteDataObject road = segment.road;
-		boolean initDirectionAllowed = checkIfInitialMovementAllowedOnSegment(ctx, reverseWaySearch, visitedSegments, segment, road);
+		final long conditionalTime = ctx.getConditionalTime(segment, reverseWaySearch);
+		if (conditionalTime != 0 && !ctx.getRouter().acceptLine(road, conditionalTime)) {
+			return;
+		}
+		boolean initDirectionAllowed = checkIfInitialMovementAllowedOnSegment(ctx, reverseWaySearch, visitedSegments, segment, road,
+				conditionalTime);
 		if (TEST_SPECIFIC && road.getId() >> 6 == TEST_ID) {
 			printRoad(" ! "  + segment.distanceFromStart + " ", segment, reverseWaySearch);
 		}
@@ -413,6 +592,8 @@ public class BinaryRoutePlanner {
 		// ! Actually there is small bug when there is restriction to move forward on the way (it doesn't take into account)
 		float obstaclesTime = 0;
 		float segmentDist = 0;
+		boolean travelTime = ctx.isTravelTimeCalculated();
+		float realObstaclesTime = 0;
 		// +/- diff from middle point
 		short segmentPoint = segment.getSegmentStart();
 		boolean[] processFurther = new boolean[1];
@@ -458,9 +639,15 @@ public class BinaryRoutePlanner {
 				continue;
 			}
 			boolean alreadyVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments, segment, oppositeSegments,
-					segmentPoint, segmentDist, obstaclesTime);
+					segmentPoint, segmentDist, obstaclesTime, conditionalTime);
 			obstaclesTime += obstacle;
 			obstaclesTime += heightObstacle;
+			if (travelTime) {
+				float realObstacle = ctx.getRouter().defineObstacle(road, segmentPoint, (dir && !reverseWaySearch));
+				if (realObstacle > 0) {
+					realObstaclesTime += realObstacle;
+				}
+			}
 			if (alreadyVisited) {
 				directionAllowed = false;
 				continue;
@@ -480,16 +667,19 @@ public class BinaryRoutePlanner {
 			// could be expensive calculation
 			// 3. get intersected ways
 			final RouteSegment roadNext = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - ctx.memoryOverhead);
-			float distStartObstacles = segment.distanceFromStart + calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime);
+			float distStartObstacles = segment.distanceFromStart + calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime,
+					conditionalTime);
 			if (ctx.precalculatedRouteDirection != null && ctx.precalculatedRouteDirection.isFollowNext()) {
 				// reset to f
 //				distStartObstacles = 0;
 				// more precise but slower
 				distStartObstacles = ctx.precalculatedRouteDirection.getDeviationDistance(x, y) / ctx.getRouter().getMaxSpeed();
 			}
+			float timeStartObstacles = !travelTime ? 0 : segment.timeFromStart
+					+ calculateTravelTime(ctx, road, segmentDist, realObstaclesTime, conditionalTime);
 
 			// We don't check if there are outgoing connections
-			previous = processIntersections(ctx, graphSegments, visitedSegments, distStartObstacles,
+			previous = processIntersections(ctx, graphSegments, visitedSegments, distStartObstacles, timeStartObstacles,
 					segment, segmentPoint, roadNext, reverseWaySearch, doNotAddIntersections, processFurther);
 			if (!processFurther[0]) {
 				directionAllowed = false;
@@ -502,9 +692,9 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfInitialMovementAllowedOnSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			TLongObjectHashMap<RouteSegment> visitedSegments, RouteSegment segment, final RouteDataObject road) {
+			TLongObjectHashMap<RouteSegment> visitedSegments, RouteSegment segment, final RouteDataObject road, long conditionalTime) {
 		boolean directionAllowed;
-		int oneway = ctx.getRouter().isOneWay(road);
+		int oneway = conditionalTime != 0 ? ctx.getRouter().isOneWay(road, conditionalTime) : ctx.getRouter().isOneWay(road);
 		// use positive direction as agreed
 		if (!reverseWaySearch) {
 			if (segment.isPositive()) {
@@ -557,7 +747,7 @@ public class BinaryRoutePlanner {
 
 	private boolean checkIfOppositeSegmentWasVisited(final RoutingContext ctx, boolean reverseWaySearch,
 			PriorityQueue<RouteSegment> graphSegments, RouteSegment segment, TLongObjectHashMap<RouteSegment> oppositeSegments,
-			int segmentPoint, float segmentDist, float obstaclesTime) {
+			int segmentPoint, float segmentDist, float obstaclesTime, long conditionalTime) {
 		RouteDataObject road = segment.getRoad();
 		long opp = calculateRoutePointId(road, segment.isPositive() ? segmentPoint - 1 : segmentPoint, !segment.isPositive());
 		if (oppositeSegments.containsKey(opp)) {
@@ -567,7 +757,7 @@ public class BinaryRoutePlanner {
 			if (checkViaRestrictions(from, to)) {
 				FinalRouteSegment frs = new FinalRouteSegment(road, segmentPoint);
 				float distStartObstacles = segment.distanceFromStart
-						+ calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime);
+						+ calculateTimeWithObstacles(ctx, road, segmentDist, obstaclesTime, conditionalTime);
 				frs.setParentRoute(segment);
 				frs.setParentSegmentEnd(segmentPoint);
 				frs.reverseWaySearch = reverseWaySearch;
@@ -585,9 +775,17 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private float calculateTimeWithObstacles(RoutingContext ctx, RouteDataObject road, float distOnRoadToPass, float obstaclesTime) {
-		float priority = ctx.getRouter().defineSpeedPriority(road);
-		float speed = (ctx.getRouter().defineRoutingSpeed(road) * priority);
+	private float calculateTimeWithObstacles(RoutingContext ctx, RouteDataObject road, float distOnRoadToPass, float obstaclesTime,
+			long conditionalTime) {
+		float priority;
+		float speed;
+		if (conditionalTime != 0) {
+			priority = ctx.getRouter().defineSpeedPriority(road, conditionalTime);
+			speed = (ctx.getRouter().defineRoutingSpeed(road, conditionalTime) * priority);
+		} else {
+			priority = ctx.getRouter().defineSpeedPriority(road);
+			speed = (ctx.getRouter().defineRoutingSpeed(road) * priority);
+		}
 		if (speed == 0) {
 			speed = (ctx.getRouter().getDefaultSpeed() * priority);
 		}
@@ -598,6 +796,19 @@ public class BinaryRoutePlanner {
 		return obstaclesTime + distOnRoadToPass / speed;
 	}
 
+	/**
+	 * Real time to pass the road with vehicle speed (as time of prepared route), used to know arrival time to the road
+	 */
+	private float calculateTravelTime(RoutingContext ctx, RouteDataObject road, float distOnRoadToPass, float obstaclesTime,
+			long conditionalTime) {
+		float speed = conditionalTime != 0 ? ctx.getRouter().defineVehicleSpeed(road, conditionalTime) :
+				ctx.getRouter().defineVehicleSpeed(road);
+		if (speed == 0) {
+			speed = ctx.getRouter().getDefaultSpeed();
+		}
+		return obstaclesTime + distOnRoadToPass / speed;
+	}
+
 	private long calculateRoutePointId(final RouteDataObject road, int intervalId, boolean positive) {
 		if (intervalId < 0) {
 			// should be assert
@@ -719,7 +930,7 @@ public class BinaryRoutePlanner {
 
 
 	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
-			TLongObjectHashMap<RouteSegment> visitedSegments,  float distFromStart, RouteSegment segment,
+			TLongObjectHashMap<RouteSegment> visitedSegments,  float distFromStart, float timeFromStart, RouteSegment segment,
 			short segmentPoint, RouteSegment inputNext, boolean reverseWaySearch, boolean doNotAddIntersections, 
 			boolean[] processFurther) {
 		boolean thereAreRestrictions;
@@ -759,6 +970,7 @@ public class BinaryRoutePlanner {
 						|| ctx.roadPriorityComparator(itself.distanceFromStart, itself.distanceToEnd, distFromStart,
 								distanceToEnd) > 0) {
 					itself.distanceFromStart = distFromStart;
+					itself.timeFromStart = timeFromStart;
 					itself.distanceToEnd = distanceToEnd;
 					itself.setParentRoute(segment);
 					itself.setParentSegmentEnd(segmentPoint);
@@ -770,10 +982,10 @@ public class BinaryRoutePlanner {
 			} else if (!doNotAddIntersections) {
 				RouteSegment nextPos = next.initRouteSegment(true);
 				RouteSegment nextNeg = next.initRouteSegment(false);
-				processOneRoadIntersection(ctx, graphSegments, visitedSegments, distFromStart, distanceToEnd, segment, segmentPoint,
-						nextPos);
-				processOneRoadIntersection(ctx, graphSegments, visitedSegments, distFromStart, distanceToEnd, segment, segmentPoint,
-						nextNeg);
+				processOneRoadIntersection(ctx, graphSegments, visitedSegments, distFromStart, timeFromStart, distanceToEnd, segment,
+						segmentPoint, nextPos);
+				processOneRoadIntersection(ctx, graphSegments, visitedSegments, distFromStart, timeFromStart, distanceToEnd, segment,
+						segmentPoint, nextNeg);
 
 			}
 			// iterate to next road
@@ -790,13 +1002,16 @@ public class BinaryRoutePlanner {
 
 	@SuppressWarnings("unused")
 	private void processOneRoadIntersection(RoutingContext ctx, PriorityQueue<RouteSegment> graphSegments,
-			TLongObjectHashMap<RouteSegment> visitedSegments, float distFromStart, float distanceToEnd,  RouteSegment segment,
-			int segmentPoint, RouteSegment next) {
+			TLongObjectHashMap<RouteSegment> visitedSegments, float distFromStart, float timeFromStart, float distanceToEnd,
+			RouteSegment segment, int segmentPoint, RouteSegment next) {
 		if (next != null) {
 			float obstaclesTime = (float) ctx.getRouter().calculateTurnTime(next, 
 					next.isPositive() ? next.getRoad().getPointsLength() - 1 : 0,    
 					segment, segmentPoint);
 			distFromStart += obstaclesTime;
+			if (ctx.isTravelTimeCalculated()) {
+				timeFromStart += obstaclesTime;
+			}
 			if (TEST_SPECIFIC && next.road.getId() >> 6 == TEST_ID) {
 				printRoad(" !? distFromStart=" +distFromStart + " from " + segment.getRoad().getId() +
 						" dir=" + segment.getDirectionAssigned() +
@@ -828,6 +1043,7 @@ public class BinaryRoutePlanner {
 			if (toAdd && (next.getParentRoute() == null || ctx.roadPriorityComparator(next.distanceFromStart,
 					next.distanceToEnd, distFromStart, distanceToEnd) > 0)) {
 				next.distanceFromStart = distFromStart;
+				next.timeFromStart = timeFromStart;
 				next.distanceToEnd = distanceToEnd;
 				if (TRACE_ROUTING) {
 					printRoad(" " + segmentPoint + ">>", next, null);
@@ -904,6 +1120,8 @@ public class BinaryRoutePlanner {
 		// distance measured in time (seconds)
 		float distanceFromStart = 0;
 		float distanceToEnd = 0;
+		// real travel time (seconds) without priorities and routing penalties, calculated only if it is needed
+		float timeFromStart = 0;
 
 		public RouteSegment(RouteDataObject road, int segmentStart) {
 			this.road = road;
@@ -979,6 +1197,10 @@ public class BinaryRoutePlanner {
 			this.distanceFromStart = distanceFromStart;
 		}
 
+		public float getTimeFromStart() {
+			return timeFromStart;
+		}
+
 		public RouteDataObject getRoad() {
 			return road;
 		}
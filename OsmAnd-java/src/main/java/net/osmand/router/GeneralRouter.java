@@ -76,6 +76,7 @@ public class GeneralRouter implements VehicleRouter {
 	private float maxVehicleSpeed;
 
 	private TLongHashSet impassableRoads;
+	private SpeedOverrideProvider speedOverrides;
 	private GeneralRouterProfile profile;
 	
 	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;	
@@ -134,6 +135,7 @@ public class GeneralRouter implements VehicleRouter {
 		tagRuleMask = parent.tagRuleMask;
 		ruleToValue = parent.ruleToValue;
 		parameters = parent.parameters;
+		speedOverrides = parent.speedOverrides;
 		
 		objectAttributes = new RouteAttributeContext[RouteDataObjectAttribute.values().length];
 		for (int i = 0; i < objectAttributes.length; i++) {
@@ -237,6 +239,28 @@ public class GeneralRouter implements VehicleRouter {
 		}
 	}
 	
+	public SpeedOverrideProvider getSpeedOverrideProvider() {
+		return speedOverrides;
+	}
+
+	/**
+	 * Speed of roads is multiplied by factor of the provider, provider is shared with routers built from this one.
+	 */
+	public void setSpeedOverrideProvider(SpeedOverrideProvider speedOverrides) {
+		this.speedOverrides = speedOverrides;
+	}
+
+	private float applySpeedOverride(RouteDataObject road, float speed, float maxSpeed) {
+		if (speedOverrides == null) {
+			return speed;
+		}
+		float factor = speedOverrides.getSpeedFactor(road);
+		if (factor == SpeedOverrideProvider.NO_OVERRIDE) {
+			return speed;
+		}
+		return Math.max(Math.min(speed * factor, maxSpeed), minSpeed);
+	}
+
 	public RouteAttributeContext getObjContext(RouteDataObjectAttribute a) {
 		return objectAttributes[a.ordinal()];
 	}
@@ -278,6 +302,23 @@ public class GeneralRouter implements VehicleRouter {
 		return res >= 0;
 	}
 
+	@Override
+	public boolean acceptLine(RouteDataObject way, long conditionalTime) {
+		int[] types = way.getConditionalTypes(conditionalTime);
+		if (types == way.types) {
+			return acceptLine(way);
+		}
+		Float res = getCache(RouteDataObjectAttribute.ACCESS, way.region, types, false);
+		if (res == null) {
+			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way.region, types, 0);
+			putCache(RouteDataObjectAttribute.ACCESS, way.region, types, res, false);
+		}
+		if (impassableRoads != null && impassableRoads.contains(way.id)) {
+			return false;
+		}
+		return res >= 0;
+	}
+
 	public boolean isAllowPrivate() {
 		return allowPrivate;
 	}
@@ -463,6 +504,20 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		return res.intValue();
 	}
+
+	@Override
+	public int isOneWay(RouteDataObject road, long conditionalTime) {
+		int[] types = road.getConditionalTypes(conditionalTime);
+		if (types == road.types) {
+			return isOneWay(road);
+		}
+		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road.region, types, false);
+		if (res == null) {
+			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road.region, types, 0);
+			putCache(RouteDataObjectAttribute.ONEWAY, road.region, types, res, false);
+		}
+		return res.intValue();
+	}
 	
 	@Override
 	public boolean isArea(RouteDataObject road) {
@@ -487,7 +542,22 @@ public class GeneralRouter implements VehicleRouter {
 			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
 			putCache(RouteDataObjectAttribute.ROAD_SPEED, road, definedSpd);
 		}
-		return definedSpd;
+		return applySpeedOverride(road, definedSpd, maxSpeed);
+	}
+
+	@Override
+	public float defineRoutingSpeed(RouteDataObject road, long conditionalTime) {
+		int[] types = road.getConditionalTypes(conditionalTime);
+		if (types == road.types) {
+			return defineRoutingSpeed(road);
+		}
+		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road.region, types, false);
+		if (definedSpd == null) {
+			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road.region, types, defaultSpeed);
+			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
+			putCache(RouteDataObjectAttribute.ROAD_SPEED, road.region, types, definedSpd, false);
+		}
+		return applySpeedOverride(road, definedSpd, maxSpeed);
 	}
 	
 	@Override
@@ -495,7 +565,7 @@ public class GeneralRouter implements VehicleRouter {
 		// don't use cache cause max/min is different for routing speed
 		if (maxVehicleSpeed != maxSpeed) {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
-			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
+			return applySpeedOverride(road, Math.max(Math.min(spd, maxVehicleSpeed), minSpeed), maxVehicleSpeed);
 		}
 		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road);
 		if (sp == null) {
@@ -503,7 +573,26 @@ public class GeneralRouter implements VehicleRouter {
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 			putCache(RouteDataObjectAttribute.ROAD_SPEED, road, sp);
 		}
-		return sp;
+		return applySpeedOverride(road, sp, maxVehicleSpeed);
+	}
+	
+	@Override
+	public float defineVehicleSpeed(RouteDataObject road, long conditionalTime) {
+		int[] types = road.getConditionalTypes(conditionalTime);
+		if (types == road.types) {
+			return defineVehicleSpeed(road);
+		}
+		if (maxVehicleSpeed != maxSpeed) {
+			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road.region, types, defaultSpeed);
+			return applySpeedOverride(road, Math.max(Math.min(spd, maxVehicleSpeed), minSpeed), maxVehicleSpeed);
+		}
+		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road.region, types, false);
+		if (sp == null) {
+			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road.region, types, defaultSpeed);
+			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
+			putCache(RouteDataObjectAttribute.ROAD_SPEED, road.region, types, sp, false);
+		}
+		return applySpeedOverride(road, sp, maxVehicleSpeed);
 	}
 	
 	@Override
@@ -516,6 +605,20 @@ public class GeneralRouter implements VehicleRouter {
 		return sp;
 	}
 
+	@Override
+	public float defineSpeedPriority(RouteDataObject road, long conditionalTime) {
+		int[] types = road.getConditionalTypes(conditionalTime);
+		if (types == road.types) {
+			return defineSpeedPriority(road);
+		}
+		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road.region, types, false);
+		if (sp == null) {
+			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road.region, types, 1f);
+			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road.region, types, sp, false);
+		}
+		return sp;
+	}
+
 	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
 		putCache(attr, road.region, road.types, val, false);
 	}
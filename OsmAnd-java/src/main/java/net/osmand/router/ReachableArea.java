@@ -0,0 +1,164 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.data.Multipolygon;
+import net.osmand.data.MultipolygonBuilder;
+import net.osmand.data.Ring;
+import net.osmand.osm.edit.Node;
+import net.osmand.osm.edit.Way;
+import net.osmand.util.MapUtils;
+
+/**
+ * Road points reachable from start point within time or distance limit (result of one-to-all search).
+ * Point i has coordinates x31[i], y31[i], fastest time in seconds times[i] and length of that fastest path distances[i].
+ */
+public class ReachableArea {
+
+	public final float timeLimit;
+	public final float distanceLimit;
+
+	private int size;
+	private int[] x31;
+	private int[] y31;
+	private float[] times;
+	private float[] distances;
+
+	public ReachableArea(float timeLimit, float distanceLimit) {
+		this.timeLimit = timeLimit;
+		this.distanceLimit = distanceLimit;
+		x31 = new int[64];
+		y31 = new int[64];
+		times = new float[64];
+		distances = new float[64];
+	}
+
+	void addPoint(int x, int y, float time, float distance) {
+		if (size == x31.length) {
+			int capacity = size * 2;
+			x31 = Arrays.copyOf(x31, capacity);
+			y31 = Arrays.copyOf(y31, capacity);
+			times = Arrays.copyOf(times, capacity);
+			distances = Arrays.copyOf(distances, capacity);
+		}
+		x31[size] = x;
+		y31[size] = y;
+		times[size] = time;
+		distances[size] = distance;
+		size++;
+	}
+
+	void updatePoint(int ind, float time, float distance) {
+		times[ind] = time;
+		distances[ind] = distance;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int[] getX31() {
+		return Arrays.copyOf(x31, size);
+	}
+
+	public int[] getY31() {
+		return Arrays.copyOf(y31, size);
+	}
+
+	public float[] getTimes() {
+		return Arrays.copyOf(times, size);
+	}
+
+	public float[] getDistances() {
+		return Arrays.copyOf(distances, size);
+	}
+
+	public int getX31(int ind) {
+		return x31[ind];
+	}
+
+	public int getY31(int ind) {
+		return y31[ind];
+	}
+
+	public float getTime(int ind) {
+		return times[ind];
+	}
+
+	public float getDistance(int ind) {
+		return distances[ind];
+	}
+
+	/**
+	 * Builds concave area around reachable points: points are put into grid of tiles of cellZoom
+	 * and boundary of occupied cells is combined into rings (rings inside odd number of other rings are inner).
+	 */
+	public Multipolygon buildArea(int cellZoom) {
+		int shift = 31 - cellZoom;
+		TLongHashSet cells = new TLongHashSet();
+		for (int i = 0; i < size; i++) {
+			cells.add(cellKey(x31[i] >> shift, y31[i] >> shift));
+		}
+		MultipolygonBuilder builder = new MultipolygonBuilder();
+		long wayId = -1;
+		TLongIterator it = cells.iterator();
+		while (it.hasNext()) {
+			long key = it.next();
+			int cx = (int) (key >> 32);
+			int cy = (int) key;
+			// edges have occupied cell on the same side to keep ring orientation
+			if (!cells.contains(cellKey(cx, cy - 1))) {
+				builder.addOuterWay(createEdge(wayId--, cx, cy, cx + 1, cy, shift));
+			}
+			if (!cells.contains(cellKey(cx + 1, cy))) {
+				builder.addOuterWay(createEdge(wayId--, cx + 1, cy, cx + 1, cy + 1, shift));
+			}
+			if (!cells.contains(cellKey(cx, cy + 1))) {
+				builder.addOuterWay(createEdge(wayId--, cx + 1, cy + 1, cx, cy + 1, shift));
+			}
+			if (!cells.contains(cellKey(cx - 1, cy))) {
+				builder.addOuterWay(createEdge(wayId--, cx, cy + 1, cx, cy, shift));
+			}
+		}
+		List<Ring> rings = builder.combineToRings(builder.getOuterWays());
+		List<Ring> outer = new ArrayList<Ring>();
+		List<Ring> inner = new ArrayList<Ring>();
+		for (Ring r : rings) {
+			int depth = 0;
+			for (Ring o : rings) {
+				if (o != r && r.isIn(o)) {
+					depth++;
+				}
+			}
+			if (depth % 2 == 0) {
+				outer.add(r);
+			} else {
+				inner.add(r);
+			}
+		}
+		return new Multipolygon(outer, inner, builder.getId());
+	}
+
+	private static Way createEdge(long id, int x1, int y1, int x2, int y2, int shift) {
+		List<Node> nodes = new ArrayList<Node>(2);
+		nodes.add(createNode(x1, y1, shift));
+		nodes.add(createNode(x2, y2, shift));
+		return new Way(id, nodes);
+	}
+
+	private static Node createNode(int cx, int cy, int shift) {
+		long x = ((long) cx) << shift;
+		long y = ((long) cy) << shift;
+		long id = (y << 31) | x;
+		return new Node(MapUtils.get31LatitudeY((int) Math.min(y, Integer.MAX_VALUE)),
+				MapUtils.get31LongitudeX((int) Math.min(x, Integer.MAX_VALUE)), id);
+	}
+
+	private static long cellKey(int cx, int cy) {
+		return (((long) cx) << 32) | (cy & 0xffffffffL);
+	}
+}
@@ -0,0 +1,139 @@
+package net.osmand.router;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import gnu.trove.list.array.TLongArrayList;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Speed factors by road id (same id as {@link RouteDataObject#getId()}) kept in immutable primitive hash table. 
+ * Table is replaced atomically, so routing threads read it without locks and pick up new factors on next road.
+ */
+public class RoadSpeedOverrides implements SpeedOverrideProvider {
+
+	private final AtomicReference<FactorsTable> table = new AtomicReference<>(new FactorsTable(new long[0], new float[0]));
+
+	@Override
+	public float getSpeedFactor(RouteDataObject road) {
+		return table.get().get(road.getId());
+	}
+
+	public int size() {
+		return table.get().size;
+	}
+
+	public void setSpeedFactors(long[] roadIds, float[] factors) {
+		table.set(new FactorsTable(roadIds, factors));
+	}
+
+	public void clear() {
+		setSpeedFactors(new long[0], new float[0]);
+	}
+
+	/**
+	 * Replaces all factors with factors from the file, line format is "roadId factor", lines starting with # are skipped.
+	 */
+	public void loadFromFile(File file) throws IOException {
+		InputStream is = new FileInputStream(file);
+		try {
+			loadFromStream(is);
+		} finally {
+			is.close();
+		}
+	}
+
+	public void loadFromStream(InputStream is) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+		TLongArrayList roadIds = new TLongArrayList();
+		float[] factors = new float[16];
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.charAt(0) == '#') {
+				continue;
+			}
+			int sep = 0;
+			while (sep < line.length() && !Character.isWhitespace(line.charAt(sep)) && line.charAt(sep) != ',') {
+				sep++;
+			}
+			try {
+				long roadId = Long.parseLong(line.substring(0, sep));
+				float factor = Float.parseFloat(line.substring(Math.min(sep + 1, line.length())).trim());
+				if (roadIds.size() == factors.length) {
+					factors = Arrays.copyOf(factors, factors.length * 2);
+				}
+				factors[roadIds.size()] = factor;
+				roadIds.add(roadId);
+			} catch (NumberFormatException e) {
+				throw new IOException("Incorrect speed factor at line " + lineNumber + ": " + line, e);
+			}
+		}
+		setSpeedFactors(roadIds.toArray(), Arrays.copyOf(factors, roadIds.size()));
+	}
+
+	private static class FactorsTable {
+		private final long[] keys;
+		private final float[] values;
+		private final int mask;
+		private final int size;
+
+		FactorsTable(long[] roadIds, float[] factors) {
+			if (roadIds.length != factors.length) {
+				throw new IllegalArgumentException("Road ids and factors have different length");
+			}
+			int capacity = 4;
+			while (capacity < roadIds.length * 2) {
+				capacity <<= 1;
+			}
+			keys = new long[capacity];
+			values = new float[capacity];
+			// NaN marks empty slot
+			Arrays.fill(values, Float.NaN);
+			mask = capacity - 1;
+			int cnt = 0;
+			for (int i = 0; i < roadIds.length; i++) {
+				if (Float.isNaN(factors[i]) || Float.isInfinite(factors[i]) || factors[i] <= 0) {
+					continue;
+				}
+				int ind = hash(roadIds[i]) & mask;
+				while (!Float.isNaN(values[ind]) && keys[ind] != roadIds[i]) {
+					ind = (ind + 1) & mask;
+				}
+				if (Float.isNaN(values[ind])) {
+					cnt++;
+				}
+				keys[ind] = roadIds[i];
+				values[ind] = factors[i];
+			}
+			size = cnt;
+		}
+
+		float get(long roadId) {
+			int ind = hash(roadId) & mask;
+			float v;
+			while (!Float.isNaN(v = values[ind])) {
+				if (keys[ind] == roadId) {
+					return v;
+				}
+				ind = (ind + 1) & mask;
+			}
+			return NO_OVERRIDE;
+		}
+
+		private static int hash(long key) {
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int) key;
+		}
+	}
+}
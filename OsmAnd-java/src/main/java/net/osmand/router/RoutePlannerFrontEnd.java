@@ -869,6 +869,24 @@ public class RoutePlannerFrontEnd {
 		}
 	}
 
+	/**
+	 * Calculate road points reachable from start within time limit (seconds) and/or distance limit (meters).
+	 * return null if start road is not found
+	 */
+	public ReachableArea searchReachableArea(final RoutingContext ctx, LatLon start, float timeLimit, float distanceLimit)
+			throws IOException, InterruptedException {
+		if (ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		RouteSegmentPoint startPoint = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+		if (startPoint == null) {
+			ctx.calculationProgress.segmentNotFound = 0;
+			return null;
+		}
+		ctx.initStartAndTargetPoints(startPoint, startPoint);
+		return new BinaryRoutePlanner().searchReachableArea(ctx, startPoint, timeLimit, distanceLimit);
+	}
+
 	public RouteSegment getRecalculationEnd(final RoutingContext ctx) {
 		RouteSegment recalculationEnd = null;
 		boolean runRecalculation = ctx.previouslyCalculatedRoute != null && ctx.previouslyCalculatedRoute.size() > 0
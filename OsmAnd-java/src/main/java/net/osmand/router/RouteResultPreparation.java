@@ -2,24 +2,29 @@ package net.osmand.router;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader;
@@ -29,7 +34,6 @@ import net.osmand.data.LatLon;
 import net.osmand.osm.MapRenderingTypes;
 import net.osmand.render.RenderingRuleSearchRequest;
 import net.osmand.render.RenderingRulesStorage;
-import net.osmand.render.RenderingRulesStorage.RenderingRulesStorageResolver;
 import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.GeneralRouter.GeneralRouterProfile;
@@ -47,6 +51,12 @@ public class RouteResultPreparation {
 	private static final float UNMATCHED_TURN_DEGREE_MINIMUM = 45;
 	private static final float SPLIT_TURN_DEGREE_NOT_STRAIGHT = 100;
 	public static final int SHIFT_ID = 6;
+	// distance of the route prefix passed to preparation listener at once
+	private static final float STREAM_PREPARED_DISTANCE = 5000;
+	// number of route points which attached roads are loaded at once
+	private static final int PRELOAD_WINDOW_POINTS = 256;
+	// turn lanes are merged with next turn up to this distance
+	private static final float MAX_TURN_LANES_MERGE_DISTANCE = 400;
 	private Log log = PlatformUtil.getLog(RouteResultPreparation.class);
 	public static final String UNMATCHED_HIGHWAY_TYPE = "unmatched";
 	/**
@@ -175,8 +185,12 @@ public class RouteResultPreparation {
 		}
 		combineWayPointsForAreaRouting(ctx, result);
 		validateAllPointsConnected(result);
-		splitRoadsAndAttachRoadSegments(ctx, result, recalculation);
-		calculateTimeSpeed(ctx, result);
+		PreparedRouteStream stream = null;
+		if (ctx.resultPreparationListener != null) {
+			stream = new PreparedRouteStream(ctx);
+		}
+		splitRoadsAndAttachRoadSegments(ctx, result, recalculation, stream);
+		calculateTimeSpeed(ctx, result, 0);
 		
 		prepareTurnResults(ctx, result);
 		return result;
@@ -194,6 +208,98 @@ public class RouteResultPreparation {
 		addTurnInfoDescriptions(result);
 	}
 
+	/**
+	 * Receives beginning of the route while the rest of route is still being prepared.
+	 * Segments are copies with final turn instructions (same as in the result of route calculation), 
+	 * they are not changed after they are passed. Only precise start point is not set to the first segment yet.
+	 */
+	public interface RouteResultPreparationListener {
+
+		void onRoutePrefixPrepared(List<RouteSegmentResult> preparedSegments, float preparedDistance);
+	}
+
+	/**
+	 * Prepares turns on copies of attached segments, so the result itself is prepared once all segments are attached.
+	 * Turn of segment depends only on previous segment (roundabout on its segments till exit), turn passes
+	 * don't cross segment without turn followed by segments without turns at least MAX_TURN_LANES_MERGE_DISTANCE long,
+	 * so prefix before such segment is final.
+	 */
+	private class PreparedRouteStream {
+		private final RoutingContext ctx;
+		private final List<RouteSegmentResult> segments = new ArrayList<RouteSegmentResult>();
+		private int calculatedIndex = 0;
+		private float calculatedDistance = 0;
+		private float calculatedTime = 0;
+		// segments with calculated turn info
+		private int turnIndex = 0;
+		// last segment which starts prefix without turns and next segment with turn after it
+		private int finalIndex = 0;
+		private int nextTurnIndex = 0;
+		private int emittedIndex = 0;
+		private float emittedDistance = 0;
+
+		PreparedRouteStream(RoutingContext ctx) {
+			this.ctx = ctx;
+		}
+
+		void segmentsAttached(List<RouteSegmentResult> result) throws IOException {
+			if (calculatedIndex == result.size()) {
+				return;
+			}
+			calculateTimeSpeed(ctx, result.subList(calculatedIndex, result.size()), calculatedTime);
+			for (; calculatedIndex < result.size(); calculatedIndex++) {
+				RouteSegmentResult rr = result.get(calculatedIndex);
+				calculatedDistance += rr.getDistance();
+				calculatedTime += rr.getSegmentTime();
+				segments.add(rr.copy());
+			}
+			if (calculatedDistance - emittedDistance < STREAM_PREPARED_DISTANCE) {
+				return;
+			}
+			// roundabout turn is known when exit from roundabout is attached
+			int to = segments.size();
+			while (to > turnIndex && segments.get(to - 1).getObject().roundabout()) {
+				to--;
+			}
+			for (; turnIndex < to; turnIndex++) {
+				RouteSegmentResult rr = segments.get(turnIndex);
+				rr.setTurnType(getTurnInfo(segments, turnIndex, ctx.leftSideNavigation));
+				if (rr.getTurnType() != null && turnIndex > 0 && segments.get(turnIndex - 1).getTurnType() == null) {
+					int ind = turnIndex;
+					float noTurnDistance = 0;
+					while (ind > emittedIndex + 1 && noTurnDistance < MAX_TURN_LANES_MERGE_DISTANCE
+							&& segments.get(ind - 1).getTurnType() == null) {
+						ind--;
+						noTurnDistance += segments.get(ind).getDistance();
+					}
+					if (noTurnDistance >= MAX_TURN_LANES_MERGE_DISTANCE) {
+						finalIndex = ind;
+						nextTurnIndex = turnIndex;
+					}
+				}
+			}
+			if (finalIndex > emittedIndex) {
+				prepareTurns(emittedIndex, finalIndex, nextTurnIndex);
+				for (int i = emittedIndex; i < finalIndex; i++) {
+					emittedDistance += segments.get(i).getDistance();
+				}
+				emittedIndex = finalIndex;
+				ctx.resultPreparationListener.onRoutePrefixPrepared(
+						new ArrayList<RouteSegmentResult>(segments.subList(0, emittedIndex)), emittedDistance);
+			}
+		}
+
+		private void prepareTurns(int from, int to, int nextTurn) {
+			List<RouteSegmentResult> prefix = segments.subList(from, to);
+			determineTurnsToMerge(ctx.leftSideNavigation, prefix);
+			ignorePrecedingStraightsOnSameIntersection(ctx.leftSideNavigation, prefix);
+			// u-turns read names of neighbours, turns of neighbours are not changed
+			justifyUTurns(ctx.leftSideNavigation, segments.subList(Math.max(from - 1, 0), to + 1));
+			// last turn goes up to the next turn
+			addTurnInfoDescriptions(segments.subList(from, nextTurn));
+		}
+	}
+
 	protected void ignorePrecedingStraightsOnSameIntersection(boolean leftside, List<RouteSegmentResult> result) {
 		//Issue 2571: Ignore TurnType.C if immediately followed by another turn in non-motorway cases, as these likely belong to the very same intersection
 		RouteSegmentResult nextSegment = null;
@@ -244,15 +350,21 @@ public class RouteResultPreparation {
 	// reference speed 30ms (108kmh) - 2ms (7kmh)
 	private static final double SLOW_DOWN_SPEED = 2;
 	
-	private void calculateTimeSpeed(RoutingContext ctx, List<RouteSegmentResult> result) throws IOException {
+	/**
+	 * @param startTime travel time (seconds) from route start to the first segment, conditional speeds
+	 * are evaluated at real arrival time to the segment
+	 */
+	private void calculateTimeSpeed(RoutingContext ctx, List<RouteSegmentResult> result, float startTime) throws IOException {
 		//for Naismith
 		boolean usePedestrianHeight = ((((GeneralRouter) ctx.getRouter()).getProfile() == GeneralRouterProfile.PEDESTRIAN) && ((GeneralRouter) ctx.getRouter()).getHeightObstacles());
-
+		boolean timeDependent = ctx.isTimeDependent();
+		double arrivalTime = startTime;
 		for (int i = 0; i < result.size(); i++) {
 			RouteSegmentResult rr = result.get(i);
 			RouteDataObject road = rr.getObject();
 			double distOnRoadToPass = 0;
-			double speed = ctx.getRouter().defineVehicleSpeed(road);
+			double speed = timeDependent ? ctx.getRouter().defineVehicleSpeed(road,
+					ctx.config.routeCalculationTime + (long) (arrivalTime * 1000)) : ctx.getRouter().defineVehicleSpeed(road);
 			if (speed == 0) {
 				speed = ctx.getRouter().getDefaultSpeed();
 			} else {
@@ -305,71 +417,243 @@ public class RouteResultPreparation {
 			rr.setSegmentTime((float) distOnRoadToPass);
 			rr.setSegmentSpeed((float) speed);
 			rr.setDistance((float) distance);
+			arrivalTime += distOnRoadToPass;
 		}
 	}
 
-	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, boolean recalculation) throws IOException {
-		for (int i = 0; i < result.size(); i++) {
+	private void splitRoadsAndAttachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, boolean recalculation,
+			PreparedRouteStream stream) throws IOException {
+		final List<RouteSegmentResult> original = new ArrayList<RouteSegmentResult>(result);
+		// end points are changed by split
+		final int[] originalEndPoints = new int[original.size()];
+		for (int i = 0; i < original.size(); i++) {
+			originalEndPoints[i] = original.get(i).getEndPointIndex();
+		}
+		result.clear();
+		ExecutorService executor = null;
+		if (ctx.config.preparationThreads > 1 && original.size() > 1) {
+			executor = getPreparationExecutor(ctx.config.preparationThreads);
+		}
+		// roads are loaded by windows of route, next window is loaded while previous one is split
+		int from = 0;
+		int to = nextPreloadWindow(original, from);
+		PreloadedRoads preloaded = preloadAttachedRoads(ctx, original, from, to, recalculation);
+		List<Future<List<RouteSegmentResult>>> futures = new ArrayList<Future<List<RouteSegmentResult>>>();
+		try {
+			while (from < original.size()) {
+				futures.clear();
+				if (executor != null) {
+					for (int i = from; i < to; i++) {
+						futures.add(executor.submit(new SplitRoadTask(original, originalEndPoints, i, preloaded)));
+					}
+				}
+				int nextTo = nextPreloadWindow(original, to);
+				PreloadedRoads nextPreloaded = preloadAttachedRoads(ctx, original, to, nextTo, recalculation);
+				for (int i = from; i < to; i++) {
+					if (executor != null) {
+						result.addAll(futures.get(i - from).get());
+					} else {
+						result.addAll(splitRoadAndAttachRoadSegments(original, originalEndPoints, i, preloaded));
+					}
+					if (stream != null) {
+						stream.segmentsAttached(result);
+					}
+				}
+				// roads of split window are released
+				preloaded = nextPreloaded;
+				from = to;
+				to = nextTo;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Route preparation was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Attaching road segments exception", e.getCause());
+		} finally {
+			for (Future<List<RouteSegmentResult>> f : futures) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	private class SplitRoadTask implements Callable<List<RouteSegmentResult>> {
+		private final List<RouteSegmentResult> original;
+		private final int[] originalEndPoints;
+		private final int routeInd;
+		private final PreloadedRoads preloaded;
+
+		SplitRoadTask(List<RouteSegmentResult> original, int[] originalEndPoints, int routeInd, PreloadedRoads preloaded) {
+			this.original = original;
+			this.originalEndPoints = originalEndPoints;
+			this.routeInd = routeInd;
+			this.preloaded = preloaded;
+		}
+
+		@Override
+		public List<RouteSegmentResult> call() {
+			return splitRoadAndAttachRoadSegments(original, originalEndPoints, routeInd, preloaded);
+		}
+	}
+
+	private static ThreadPoolExecutor preparationExecutor;
+
+	/**
+	 * Executor is shared by all routes, it grows up to the biggest number of threads requested
+	 */
+	private static synchronized ExecutorService getPreparationExecutor(int threads) {
+		if (preparationExecutor == null) {
+			preparationExecutor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Route preparation");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			preparationExecutor.allowCoreThreadTimeOut(true);
+		} else if (preparationExecutor.getMaximumPoolSize() < threads) {
+			preparationExecutor.setMaximumPoolSize(threads);
+			preparationExecutor.setCorePoolSize(threads);
+		}
+		return preparationExecutor;
+	}
+
+	private int nextPreloadWindow(List<RouteSegmentResult> original, int from) {
+		int to = from;
+		int points = 0;
+		while (to < original.size() && points < PRELOAD_WINDOW_POINTS) {
+			RouteSegmentResult rr = original.get(to++);
+			points += Math.abs(rr.getEndPointIndex() - rr.getStartPointIndex());
+		}
+		return to;
+	}
+
+	/**
+	 * Splits route segment by attached roads, it doesn't access routing context so it can be done in parallel.
+	 * Returns the segment itself and all parts split from it.
+	 */
+	private List<RouteSegmentResult> splitRoadAndAttachRoadSegments(List<RouteSegmentResult> original, int[] originalEndPoints,
+			int routeInd, PreloadedRoads preloaded) {
+		List<RouteSegmentResult> result = new ArrayList<RouteSegmentResult>(1);
+		RouteSegmentResult rr = original.get(routeInd);
+		result.add(rr);
+		// last part split from previous segment has the same road, direction and end point
+		RouteDataObject previousRoad = null;
+		int previousStart = 0;
+		int previousEnd = 0;
+		if (routeInd > 0) {
+			RouteSegmentResult previousResult = original.get(routeInd - 1);
+			previousRoad = previousResult.getObject();
+			previousEnd = originalEndPoints[routeInd - 1];
+			previousStart = previousResult.getStartPointIndex();
+		}
+		boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
+		int next;
+		boolean unmatched = UNMATCHED_HIGHWAY_TYPE.equals(rr.getObject().getHighway());
+		for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
+			next = plus ? j + 1 : j - 1;
+			if (j == rr.getStartPointIndex()) {
+				attachRoadSegments(preloaded, rr, previousRoad, previousStart, previousEnd, j);
+			}
+			if (next != rr.getEndPointIndex()) {
+				attachRoadSegments(preloaded, rr, previousRoad, previousStart, previousEnd, next);
+			}
+			List<RouteSegmentResult> attachedRoutes = rr.getAttachedRoutes(next);
+			boolean tryToSplit = next != rr.getEndPointIndex() && !rr.getObject().roundabout() && attachedRoutes != null;
+			if (rr.getDistance(next, plus) == 0) {
+				// same point will be processed next step
+				tryToSplit = false;
+			}
+			if (tryToSplit) {
+				float distBearing = unmatched ? RouteSegmentResult.DIST_BEARING_DETECT_UNMATCHED : RouteSegmentResult.DIST_BEARING_DETECT;
+				// avoid small zigzags
+				float before = rr.getBearingEnd(next, distBearing);
+				float after = rr.getBearingBegin(next, distBearing);
+				if (rr.getDistance(next, plus) < distBearing) {
+					after = before;
+				} else if (rr.getDistance(next, !plus) < distBearing) {
+					before = after;
+				}
+				double contAngle = Math.abs(MapUtils.degreesDiff(before, after));
+				boolean straight = contAngle < TURN_DEGREE_MIN;
+				boolean isSplit = false;
+				
+				if (unmatched && Math.abs(contAngle) >= UNMATCHED_TURN_DEGREE_MINIMUM) {
+					isSplit = true;
+				}
+				// split if needed
+				for (RouteSegmentResult rs : attachedRoutes) {
+					double diff = MapUtils.degreesDiff(before, rs.getBearingBegin());
+					if (Math.abs(diff) <= TURN_DEGREE_MIN) {
+						isSplit = true;
+					} else if (!straight && Math.abs(diff) < SPLIT_TURN_DEGREE_NOT_STRAIGHT) {
+						isSplit = true;
+					}
+				}
+				if (isSplit) {
+					int endPointIndex = rr.getEndPointIndex();
+					RouteSegmentResult split = new RouteSegmentResult(rr.getObject(), next, endPointIndex);
+					split.copyPreattachedRoutes(rr, Math.abs(next - rr.getStartPointIndex()));
+					rr.setEndPointIndex(next);
+					result.add(split);
+					previousRoad = rr.getObject();
+					previousStart = rr.getStartPointIndex();
+					previousEnd = next;
+					// switch current segment to the splitted
+					rr = split;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Road segments around route points of a route window loaded once from routing context (tiles are not thread safe)
+	 */
+	private static class PreloadedRoads {
+		final TLongObjectHashMap<RouteSegment> segments = new TLongObjectHashMap<RouteSegment>();
+		final TLongObjectHashMap<Integer> oneWay = new TLongObjectHashMap<Integer>();
+	}
+
+	private PreloadedRoads preloadAttachedRoads(RoutingContext ctx, List<RouteSegmentResult> result, int from, int to,
+			boolean recalculation) throws IOException {
+		PreloadedRoads preloaded = new PreloadedRoads();
+		for (int i = from; i < to; i++) {
 			if (ctx.checkIfMemoryLimitCritical(ctx.config.memoryLimitation)) {
 				ctx.unloadUnusedTiles(ctx.config.memoryLimitation);
 			}
 			RouteSegmentResult rr = result.get(i);
+			RouteDataObject road = rr.getObject();
 			boolean plus = rr.getStartPointIndex() < rr.getEndPointIndex();
-			int next;
-			boolean unmatched = UNMATCHED_HIGHWAY_TYPE.equals(rr.getObject().getHighway());
-			for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = next) {
-				next = plus ? j + 1 : j - 1;
-				if (j == rr.getStartPointIndex()) {
-					attachRoadSegments(ctx, result, i, j, plus, recalculation);
-				}
-				if (next != rr.getEndPointIndex()) {
-					attachRoadSegments(ctx, result, i, next, plus, recalculation);
-				}
-				List<RouteSegmentResult> attachedRoutes = rr.getAttachedRoutes(next);
-				boolean tryToSplit = next != rr.getEndPointIndex() && !rr.getObject().roundabout() && attachedRoutes != null;
-				if (rr.getDistance(next, plus) == 0) {
-					// same point will be processed next step
-					tryToSplit = false;
-				}
-				if (tryToSplit) {
-					float distBearing = unmatched ? RouteSegmentResult.DIST_BEARING_DETECT_UNMATCHED : RouteSegmentResult.DIST_BEARING_DETECT;
-					// avoid small zigzags
-					float before = rr.getBearingEnd(next, distBearing);
-					float after = rr.getBearingBegin(next, distBearing);
-					if (rr.getDistance(next, plus) < distBearing) {
-						after = before;
-					} else if (rr.getDistance(next, !plus) < distBearing) {
-						before = after;
+			for (int j = rr.getStartPointIndex(); j != rr.getEndPointIndex(); j = plus ? j + 1 : j - 1) {
+				RouteSegmentResult[] preAttached = rr.getPreAttachedRoutes(j);
+				if (preAttached != null) {
+					for (RouteSegmentResult r : preAttached) {
+						preloadRoad(ctx, preloaded, r.getObject());
 					}
-					double contAngle = Math.abs(MapUtils.degreesDiff(before, after));
-					boolean straight = contAngle < TURN_DEGREE_MIN;
-					boolean isSplit = false;
-					
-					if (unmatched && Math.abs(contAngle) >= UNMATCHED_TURN_DEGREE_MINIMUM) {
-						isSplit = true;
-					}
-					// split if needed
-					for (RouteSegmentResult rs : attachedRoutes) {
-						double diff = MapUtils.degreesDiff(before, rs.getBearingBegin());
-						if (Math.abs(diff) <= TURN_DEGREE_MIN) {
-							isSplit = true;
-						} else if (!straight && Math.abs(diff) < SPLIT_TURN_DEGREE_NOT_STRAIGHT) {
-							isSplit = true;
+				} else if (recalculation || ctx.nativeLib == null) {
+					long point = getPoint(road, j);
+					if (!preloaded.segments.containsKey(point)) {
+						RouteSegment rt = ctx.loadRouteSegment(road.getPoint31XTile(j), road.getPoint31YTile(j),
+								ctx.config.memoryLimitation);
+						preloaded.segments.put(point, rt);
+						while (rt != null) {
+							preloadRoad(ctx, preloaded, rt.road);
+							rt = rt.next;
 						}
 					}
-					if (isSplit) {
-						int endPointIndex = rr.getEndPointIndex();
-						RouteSegmentResult split = new RouteSegmentResult(rr.getObject(), next, endPointIndex);
-						split.copyPreattachedRoutes(rr, Math.abs(next - rr.getStartPointIndex()));
-						rr.setEndPointIndex(next);
-						result.add(i + 1, split);
-						i++;
-						// switch current segment to the splitted
-						rr = split;
-					}
 				}
 			}
 		}
+		return preloaded;
+	}
+
+	private void preloadRoad(RoutingContext ctx, PreloadedRoads preloaded, RouteDataObject road) throws IOException {
+		if (!preloaded.oneWay.containsKey(road.getId())) {
+			checkAndInitRouteRegion(ctx, road);
+			preloaded.oneWay.put(road.getId(), ctx.getRouter().isOneWay(road));
+		}
 	}
 
 	private void checkAndInitRouteRegion(RoutingContext ctx, RouteDataObject road) throws IOException {
@@ -639,37 +923,8 @@ public class RouteResultPreparation {
 	}
 
 	protected void calculateStatistics(List<RouteSegmentResult> result) {
-		InputStream is = RenderingRulesStorage.class.getResourceAsStream("default.render.xml");
-		final Map<String, String> renderingConstants = new LinkedHashMap<String, String>();
 		try {
-			InputStream pis = RenderingRulesStorage.class.getResourceAsStream("default.render.xml");
-			try {
-				XmlPullParser parser = PlatformUtil.newXMLPullParser();
-				parser.setInput(pis, "UTF-8");
-				int tok;
-				while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
-					if (tok == XmlPullParser.START_TAG) {
-						String tagName = parser.getName();
-						if (tagName.equals("renderingConstant")) {
-							if (!renderingConstants.containsKey(parser.getAttributeValue("", "name"))) {
-								renderingConstants.put(parser.getAttributeValue("", "name"), 
-										parser.getAttributeValue("", "value"));
-							}
-						}
-					}
-				}
-			} finally {
-				pis.close();
-			}
-			RenderingRulesStorage rrs = new RenderingRulesStorage("default", renderingConstants);
-			rrs.parseRulesFromXmlInputStream(is, new RenderingRulesStorageResolver() {
-				
-				@Override
-				public RenderingRulesStorage resolve(String name, RenderingRulesStorageResolver ref)
-						throws XmlPullParserException, IOException {
-					throw new UnsupportedOperationException();
-				}
-			});
+			RenderingRulesStorage rrs = RenderingRulesStorage.getDefaultBundledStorage();
 			RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(rrs);
 			List<RouteStatistics> rsr = RouteStatisticsHelper.calculateRouteStatistic(result, null, rrs, null, req);
 			for(RouteStatistics r : rsr) {
@@ -811,7 +1066,7 @@ public class RouteResultPreparation {
 					String hw = currentSegment.getObject().getHighway();
 					double mergeDistance = 200;
 					if (hw != null && (hw.startsWith("trunk") || hw.startsWith("motorway"))) {
-						mergeDistance = 400;
+						mergeDistance = MAX_TURN_LANES_MERGE_DISTANCE;
 					}
 					if (dist < mergeDistance) {
 						mergeTurnLanes(leftside, currentSegment, nextSegment);
@@ -1736,28 +1991,23 @@ public class RouteResultPreparation {
 	}
 
 	
-	private void attachRoadSegments(RoutingContext ctx, List<RouteSegmentResult> result, int routeInd, int pointInd, boolean plus, boolean recalculation) throws IOException {
-		RouteSegmentResult rr = result.get(routeInd);
+	private void attachRoadSegments(PreloadedRoads preloaded, RouteSegmentResult rr, RouteDataObject previousRoad,
+			int previousStart, int previousEnd, int pointInd) {
 		RouteDataObject road = rr.getObject();
 		long nextL = pointInd < road.getPointsLength() - 1 ? getPoint(road, pointInd + 1) : 0;
 		long prevL = pointInd > 0 ? getPoint(road, pointInd - 1) : 0;
 		
 		// attach additional roads to represent more information about the route
-		RouteSegmentResult previousResult = null;
-		
 		// by default make same as this road id
 		long previousRoadId = road.getId();
-		if (pointInd == rr.getStartPointIndex() && routeInd > 0) {
-			previousResult = result.get(routeInd - 1);
-			previousRoadId = previousResult.getObject().getId();
+		if (pointInd == rr.getStartPointIndex() && previousRoad != null) {
+			previousRoadId = previousRoad.getId();
 			if (previousRoadId != road.getId()) {
-				if (previousResult.getStartPointIndex() < previousResult.getEndPointIndex()
-						&& previousResult.getEndPointIndex() < previousResult.getObject().getPointsLength() - 1) {
-					rr.attachRoute(pointInd, new RouteSegmentResult(previousResult.getObject(), previousResult.getEndPointIndex(),
-							previousResult.getObject().getPointsLength() - 1));
-				} else if (previousResult.getStartPointIndex() > previousResult.getEndPointIndex() 
-						&& previousResult.getEndPointIndex() > 0) {
-					rr.attachRoute(pointInd, new RouteSegmentResult(previousResult.getObject(), previousResult.getEndPointIndex(), 0));
+				if (previousStart < previousEnd && previousEnd < previousRoad.getPointsLength() - 1) {
+					rr.attachRoute(pointInd, new RouteSegmentResult(previousRoad, previousEnd,
+							previousRoad.getPointsLength() - 1));
+				} else if (previousStart > previousEnd && previousEnd > 0) {
+					rr.attachRoute(pointInd, new RouteSegmentResult(previousRoad, previousEnd, 0));
 				}
 			}
 		}
@@ -1781,21 +2031,18 @@ public class RouteResultPreparation {
 				public void remove() {
 				}
 			};	
-		} else if (recalculation || ctx.nativeLib == null) {
-			RouteSegment rt = ctx.loadRouteSegment(road.getPoint31XTile(pointInd), road.getPoint31YTile(pointInd), ctx.config.memoryLimitation);
-			it = rt == null ? null : rt.getIterator();
 		} else {
-			// Here we assume that all segments should be attached by native
-			it = null;
+			// segments are not preloaded in case all of them should be attached by native
+			RouteSegment rt = preloaded.segments.get(getPoint(road, pointInd));
+			it = rt == null ? null : rt.getIterator();
 		}
 		// try to attach all segments except with current id
 		while (it != null && it.hasNext()) {
 			RouteSegment routeSegment = it.next();
 			if (routeSegment.road.getId() != road.getId() && routeSegment.road.getId() != previousRoadId) {
 				RouteDataObject addRoad = routeSegment.road;
-				checkAndInitRouteRegion(ctx, addRoad);
 				// Future: restrictions can be considered as well
-				int oneWay = ctx.getRouter().isOneWay(addRoad);
+				int oneWay = preloaded.oneWay.get(addRoad.getId()).intValue();
 				if (oneWay >= 0 && routeSegment.getSegmentStart() < addRoad.getPointsLength() - 1) {
 					long pointL = getPoint(addRoad, routeSegment.getSegmentStart() + 1);
 					if(pointL != nextL && pointL != prevL) {
@@ -50,6 +50,24 @@ public class RouteSegmentResult implements StringExternalizable<RouteDataBundle>
 		updateCapacity();
 	}
 
+	/**
+	 * Copy with its own turn and description, attached roads are shared (they are not changed after split)
+	 */
+	RouteSegmentResult copy() {
+		RouteSegmentResult c = new RouteSegmentResult(object);
+		c.startPointIndex = startPointIndex;
+		c.endPointIndex = endPointIndex;
+		c.attachedRoutes = attachedRoutes;
+		c.preAttachedRoutes = preAttachedRoutes;
+		c.segmentTime = segmentTime;
+		c.routingTime = routingTime;
+		c.speed = speed;
+		c.distance = distance;
+		c.description = description;
+		c.turnType = turnType;
+		return c;
+	}
+
 	void collectTypes(RouteDataResources resources) {
 		Map<RouteTypeRule, Integer> rules = resources.getRules();
 		if (object.types != null) {
@@ -6,8 +6,10 @@ import net.osmand.render.RenderingRuleSearchRequest;
 import net.osmand.render.RenderingRulesStorage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -238,6 +240,8 @@ public class RouteStatisticsHelper {
 		final RenderingRulesStorage defaultRenderer;
 		final RenderingRuleSearchRequest currentRenderingRuleSearchRequest;
 		final RenderingRuleSearchRequest defaultRenderingRuleSearchRequest;
+		// classification depends only on road types, so rules are evaluated once per region and types 
+		final Map<SegmentTypesKey, RouteSegmentAttribute> classifiedTypes = new HashMap<>();
 
 		RouteStatisticComputer(RenderingRulesStorage currentRenderer, RenderingRulesStorage defaultRenderer,
 							   RenderingRuleSearchRequest currentRenderingRuleSearchRequest, RenderingRuleSearchRequest defaultRenderingRuleSearchRequest) {
@@ -341,6 +345,16 @@ public class RouteStatisticsHelper {
 
 
 		public RouteSegmentAttribute classifySegment(String attribute, int slopeClass, RouteSegmentWithIncline segment) {
+			SegmentTypesKey key = new SegmentTypesKey(segment.obj, slopeClass);
+			RouteSegmentAttribute cached = classifiedTypes.get(key);
+			if (cached == null) {
+				cached = classifySegmentTypes(attribute, slopeClass, segment);
+				classifiedTypes.put(key, cached);
+			}
+			return new RouteSegmentAttribute(cached);
+		}
+
+		private RouteSegmentAttribute classifySegmentTypes(String attribute, int slopeClass, RouteSegmentWithIncline segment) {
 			RouteSegmentAttribute res = new RouteSegmentAttribute(UNDEFINED_ATTR, 0, -1);
 			RenderingRuleSearchRequest currentRequest = 
 					currentRenderer == null ? null : new RenderingRuleSearchRequest(currentRenderingRuleSearchRequest);
@@ -383,6 +397,37 @@ public class RouteStatisticsHelper {
 		}
 	}
 
+	private static class SegmentTypesKey {
+		private final BinaryMapRouteReaderAdapter.RouteRegion region;
+		private final int[] types;
+		private final int slopeClass;
+		private final int hash;
+
+		SegmentTypesKey(RouteDataObject obj, int slopeClass) {
+			this.region = obj.region;
+			this.types = obj.getTypes();
+			this.slopeClass = slopeClass;
+			this.hash = 31 * (31 * System.identityHashCode(region) + Arrays.hashCode(types)) + slopeClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SegmentTypesKey)) {
+				return false;
+			}
+			SegmentTypesKey other = (SegmentTypesKey) obj;
+			return region == other.region && slopeClass == other.slopeClass && Arrays.equals(types, other.types);
+		}
+	}
+
 	public static class RouteSegmentAttribute {
 
 		private final int color;
@@ -48,6 +48,11 @@ public class RoutingConfiguration {
 	
 	// 1.6 Time to calculate all access restrictions based on conditions
 	public long routeCalculationTime = 0;
+	// evaluate conditions at the arrival time to the road instead of changing loaded roads
+	public boolean timeDependentConditions = false;
+	
+	// 1.7 Threads used to attach roads to the calculated route (should not affect result)
+	public int preparationThreads = 1;
 	
 	public static class Builder {
 		// Design time storage
@@ -106,6 +111,7 @@ public class RoutingConfiguration {
 				i.memoryLimitation = memoryLimitMB * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.preparationThreads = parseSilentInt(getAttribute(i.router, "preparationThreads"), i.preparationThreads);
 //			i.planRoadDirection = 1;
 			return i;
 		}
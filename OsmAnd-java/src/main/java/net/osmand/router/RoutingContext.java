@@ -32,6 +32,7 @@ import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentVisitor;
 import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteResultPreparationListener;
 
 
 public class RoutingContext {
@@ -68,6 +69,7 @@ public class RoutingContext {
 	
 	
 	public RouteCalculationProgress calculationProgress;
+	public RouteResultPreparationListener resultPreparationListener;
 	public boolean leftSideNavigation;
 	public List<RouteSegmentResult> previouslyCalculatedRoute;
 	public PrecalculatedRouteDirection precalculatedRouteDirection;
@@ -92,6 +94,8 @@ public class RoutingContext {
 
 	// callback of processing segments
 	RouteSegmentVisitor visitor = null;
+	// real travel time of segments is needed (i.e. for reachable area)
+	boolean travelTimeRequired = false;
 
 	// old planner
 	public FinalRouteSegment finalRouteSegment;
@@ -115,6 +119,7 @@ public class RoutingContext {
 						s.parentRoute = null;
 						s.parentSegmentEnd = 0;
 						s.distanceFromStart = 0;
+						s.timeFromStart = 0;
 						s.distanceToEnd = 0;
 						s = s.next;
 					}
@@ -174,6 +179,31 @@ public class RoutingContext {
 		config.heuristicCoefficient = heuristicCoefficient;
 	}
 
+	/**
+	 * Returns time to evaluate conditional tags of the road reached at the segment or 0 if roads are processed with 
+	 * route calculation time on load. Arrival time is known only for direct search, so reverse search uses start time.
+	 */
+	public long getConditionalTime(RouteSegment segment, boolean reverseWaySearch) {
+		if (!isTimeDependent()) {
+			return 0;
+		}
+		if (reverseWaySearch) {
+			return config.routeCalculationTime;
+		}
+		return config.routeCalculationTime + (long) (segment.timeFromStart * 1000);
+	}
+
+	public boolean isTimeDependent() {
+		return config.routeCalculationTime != 0 && config.timeDependentConditions;
+	}
+
+	/**
+	 * Real travel time (without priorities and routing penalties) is needed to know arrival time to the road
+	 */
+	boolean isTravelTimeCalculated() {
+		return travelTimeRequired || isTimeDependent();
+	}
+
 	public VehicleRouter getRouter() {
 		return config.router;
 	}
@@ -282,10 +312,12 @@ public class RoutingContext {
 				} else {
 					for(RouteDataObject ro : res){
 						if(ro != null) {
-							if(config.routeCalculationTime != 0) {
+							boolean timeDependent = isTimeDependent();
+							if(config.routeCalculationTime != 0 && !timeDependent) {
 								ro.processConditionalTags(config.routeCalculationTime);
 							}
-							if(config.router.acceptLine(ro)) {
+							// conditional access is checked during routing
+							if(config.router.acceptLine(ro) || (timeDependent && ro.hasConditionalTypes())) {
 								if(excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
 									ts.add(ro);
 								}
@@ -0,0 +1,17 @@
+package net.osmand.router;
+
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Provides live speed changes (i.e. traffic) for roads on top of static routing speed. 
+ * Implementation is called from routing threads for every processed road, so it should be fast and thread safe.
+ */
+public interface SpeedOverrideProvider {
+
+	float NO_OVERRIDE = 1f;
+
+	/**
+	 * return factor to multiply speed of the road or {@link #NO_OVERRIDE}
+	 */
+	float getSpeedFactor(RouteDataObject road);
+}
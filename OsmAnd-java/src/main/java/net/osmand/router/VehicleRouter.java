@@ -17,11 +17,21 @@ public interface VehicleRouter {
 	 */
 	public boolean acceptLine(RouteDataObject way);
 	
+	/**
+	 * return if the road is accepted for routing at the time (conditional tags are applied)
+	 */
+	public boolean acceptLine(RouteDataObject way, long conditionalTime);
+	
 	/**
 	 * return oneway +/- 1 if it is oneway and 0 if both ways
 	 */
 	public int isOneWay(RouteDataObject road);
 	
+	/**
+	 * return oneway at the time (conditional tags are applied)
+	 */
+	public int isOneWay(RouteDataObject road, long conditionalTime);
+	
 	/**
 	 * return penalty transition in seconds
 	 */
@@ -47,15 +57,30 @@ public interface VehicleRouter {
 	 */
 	public float defineRoutingSpeed(RouteDataObject road);
 	
+	/**
+	 * return routing speed in m/s for the road at the time (conditional tags are applied)
+	 */
+	public float defineRoutingSpeed(RouteDataObject road, long conditionalTime);
+	
 	/**
 	 * return real speed in m/s for vehicle for specified road
 	 */
 	public float defineVehicleSpeed(RouteDataObject road);
 	
+	/**
+	 * return real speed in m/s for vehicle for the road at the time (conditional tags are applied)
+	 */
+	public float defineVehicleSpeed(RouteDataObject road, long conditionalTime);
+	
 	/**
 	 * define priority to multiply the speed for g(x) A* 
 	 */
 	public float defineSpeedPriority(RouteDataObject road);
+	
+	/**
+	 * define priority at the time (conditional tags are applied)
+	 */
+	public float defineSpeedPriority(RouteDataObject road, long conditionalTime);
 
 	/**
 	 * Used for A* routing to calculate g(x)
@@ -0,0 +1,208 @@
+package net.osmand.search;
+
+import net.osmand.PlatformUtil;
+import net.osmand.ResultMatcher;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreAPI;
+import net.osmand.search.core.SearchCoreFactory.AddressCache;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Geocodes many addresses with address search apis of {@link SearchUICore} without its interactive delays.
+ * Each thread has own apis, but all of them share cities with loaded streets, so they are read once for all
+ * requests and search radius levels.
+ */
+public class BatchGeocoder {
+
+	private static final Log LOG = PlatformUtil.getLog(BatchGeocoder.class);
+	// requests in progress per thread
+	private static final int REQUESTS_PER_THREAD = 4;
+
+	private final SearchSettings settings;
+	private final int threads;
+	private final int maxRadiusLevel;
+	private final ExecutorService executor;
+	private final AddressCache addressCache = new AddressCache();
+	private final ThreadLocal<List<SearchCoreAPI>> addressApis = new ThreadLocal<List<SearchCoreAPI>>() {
+		@Override
+		protected List<SearchCoreAPI> initialValue() {
+			SearchBuildingAndIntersectionsByStreetAPI streetsApi = new SearchBuildingAndIntersectionsByStreetAPI();
+			SearchStreetByCityAPI cityApi = new SearchStreetByCityAPI(streetsApi);
+			List<SearchCoreAPI> apis = new ArrayList<>();
+			apis.add(streetsApi);
+			apis.add(cityApi);
+			apis.add(new SearchAddressByNameAPI(streetsApi, cityApi, addressCache));
+			return apis;
+		}
+	};
+
+	public static class GeocodingRequest {
+		public final String address;
+		public final LatLon locationHint;
+
+		public GeocodingRequest(String address, LatLon locationHint) {
+			this.address = address;
+			this.locationHint = locationHint;
+		}
+	}
+
+	public static class GeocodingResult {
+		public final GeocodingRequest request;
+		// sorted by relevance, first one is the best
+		public final List<SearchResult> results;
+		// not null if geocoding failed
+		public final Throwable error;
+
+		public GeocodingResult(GeocodingRequest request, List<SearchResult> results) {
+			this.request = request;
+			this.results = results;
+			this.error = null;
+		}
+
+		public GeocodingResult(GeocodingRequest request, Throwable error) {
+			this.request = request;
+			this.results = Collections.emptyList();
+			this.error = error;
+		}
+
+		public boolean isFailed() {
+			return error != null;
+		}
+
+		public SearchResult getBestResult() {
+			return results.isEmpty() ? null : results.get(0);
+		}
+	}
+
+	/**
+	 * @param settings settings with offline indexes (readers could be shared by threads)
+	 * @param threads number of threads to process batches
+	 * @param maxRadiusLevel search radius is increased up to this level till something is found
+	 */
+	public BatchGeocoder(SearchSettings settings, int threads, int maxRadiusLevel) {
+		this.settings = settings;
+		this.threads = Math.max(1, threads);
+		this.maxRadiusLevel = Math.max(1, maxRadiusLevel);
+		this.executor = Executors.newFixedThreadPool(this.threads);
+	}
+
+	/**
+	 * Geocodes one address in calling thread
+	 */
+	public GeocodingResult geocode(GeocodingRequest request) {
+		List<SearchResult> results = Collections.emptyList();
+		for (int radiusLevel = 1; radiusLevel <= maxRadiusLevel && results.isEmpty(); radiusLevel++) {
+			SearchSettings s = settings.setRadiusLevel(radiusLevel);
+			if (request.locationHint != null) {
+				s = s.setOriginalLocation(request.locationHint);
+			}
+			SearchPhrase phrase = SearchPhrase.emptyPhrase(s).generateNewPhrase(request.address, s);
+			phrase.sortFiles();
+			results = search(phrase);
+		}
+		return new GeocodingResult(request, results);
+	}
+
+	/**
+	 * Geocodes all requests in parallel and publishes one result per request in order of requests,
+	 * failed requests are published with error
+	 */
+	public void geocode(Iterator<GeocodingRequest> requests, ResultMatcher<GeocodingResult> resultMatcher)
+			throws InterruptedException {
+		LinkedList<GeocodingRequest> inProgressRequests = new LinkedList<>();
+		LinkedList<Future<GeocodingResult>> inProgress = new LinkedList<>();
+		try {
+			while (!resultMatcher.isCancelled()) {
+				while (requests.hasNext() && inProgress.size() < threads * REQUESTS_PER_THREAD) {
+					final GeocodingRequest request = requests.next();
+					inProgressRequests.add(request);
+					inProgress.add(executor.submit(new Callable<GeocodingResult>() {
+
+						@Override
+						public GeocodingResult call() throws Exception {
+							return geocode(request);
+						}
+					}));
+				}
+				if (inProgress.isEmpty()) {
+					break;
+				}
+				GeocodingRequest request = inProgressRequests.removeFirst();
+				GeocodingResult result;
+				try {
+					result = inProgress.removeFirst().get();
+				} catch (ExecutionException e) {
+					LOG.error(e.getMessage(), e);
+					result = new GeocodingResult(request, e.getCause());
+				}
+				resultMatcher.publish(result);
+			}
+		} finally {
+			for (Future<GeocodingResult> f : inProgress) {
+				f.cancel(false);
+			}
+		}
+	}
+
+	public void close() {
+		executor.shutdown();
+	}
+
+	private List<SearchResult> search(final SearchPhrase phrase) {
+		List<SearchCoreAPI> apis = new ArrayList<>(addressApis.get());
+		Collections.sort(apis, new Comparator<SearchCoreAPI>() {
+
+			@Override
+			public int compare(SearchCoreAPI o1, SearchCoreAPI o2) {
+				return Algorithms.compare(o1.getSearchPriority(phrase), o2.getSearchPriority(phrase));
+			}
+		});
+		SearchResultMatcher matcher = new SearchResultMatcher(null, phrase, 1, new AtomicInteger(1), -1);
+		for (SearchCoreAPI api : apis) {
+			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
+				continue;
+			}
+			try {
+				api.search(phrase, matcher);
+			} catch (Throwable e) {
+				LOG.error(e.getMessage(), e);
+			}
+		}
+		List<SearchResult> results = new ArrayList<>();
+		for (SearchResult r : matcher.getRequestResults()) {
+			if (ObjectType.isAddress(r.objectType)) {
+				results.add(r);
+			}
+		}
+		if (results.isEmpty()) {
+			return results;
+		}
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(results, true, true);
+		return new ArrayList<>(collection.getCurrentSearchResults());
+	}
+}
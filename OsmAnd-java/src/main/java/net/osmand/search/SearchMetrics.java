@@ -0,0 +1,108 @@
+package net.osmand.search;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timings of one search request: phases of {@link SearchUICore}, search apis and regions searched by each api.
+ * Collected only if {@link SearchMetricsListener} is set, so disabled metrics cost nothing.
+ */
+public class SearchMetrics {
+
+	public interface SearchMetricsListener {
+
+		void searchFinished(SearchMetrics metrics);
+	}
+
+	public enum SpanType {
+		PHASE,
+		API,
+		REGION
+	}
+
+	public static class Span {
+		public final SpanType type;
+		public final String name;
+		// api of region span
+		public final String api;
+		public final int count;
+		public final long nanos;
+
+		public Span(SpanType type, String name, String api, int count, long nanos) {
+			this.type = type;
+			this.name = name;
+			this.api = api;
+			this.count = count;
+			this.nanos = nanos;
+		}
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("type", type.name().toLowerCase());
+			json.put("name", name);
+			if (api != null) {
+				json.put("api", api);
+			}
+			json.put("count", count);
+			json.put("nanos", nanos);
+			return json;
+		}
+	}
+
+	private final String phrase;
+	private final long startTime;
+	private final List<Span> spans = new ArrayList<>();
+	private long totalNanos;
+	private boolean cancelled;
+
+	public SearchMetrics(String phrase) {
+		this.phrase = phrase;
+		this.startTime = System.nanoTime();
+	}
+
+	public String getPhrase() {
+		return phrase;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	// apis could run concurrently
+	public synchronized List<Span> getSpans() {
+		return new ArrayList<>(spans);
+	}
+
+	public synchronized void addSpan(SpanType type, String name, String api, int count, long nanos) {
+		spans.add(new Span(type, name, api, count, nanos));
+	}
+
+	public void addPhase(String phase, int count, long startNanos) {
+		addSpan(SpanType.PHASE, phase, null, count, System.nanoTime() - startNanos);
+	}
+
+	void finish(boolean cancelled) {
+		this.cancelled = cancelled;
+		this.totalNanos = System.nanoTime() - startTime;
+	}
+
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("phrase", phrase);
+		json.put("cancelled", cancelled);
+		json.put("nanos", totalNanos);
+		JSONArray spansArr = new JSONArray();
+		for (Span s : getSpans()) {
+			spansArr.put(s.toJSON());
+		}
+		json.put("spans", spansArr);
+		return json;
+	}
+}
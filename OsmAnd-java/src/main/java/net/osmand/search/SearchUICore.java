@@ -1,9 +1,11 @@
 package net.osmand.search;
 
+import gnu.trove.map.hash.TLongObjectHashMap;
 import net.osmand.Collator;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.NameIndexCache;
 import net.osmand.data.Amenity;
 import net.osmand.data.City;
 import net.osmand.data.LatLon;
@@ -11,6 +13,8 @@ import net.osmand.data.MapObject;
 import net.osmand.data.Street;
 import net.osmand.osm.AbstractPoiType;
 import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchMetrics.SearchMetricsListener;
+import net.osmand.search.SearchMetrics.SpanType;
 import net.osmand.search.core.CustomSearchPoiFilter;
 import net.osmand.search.core.ObjectType;
 import net.osmand.search.core.SearchCoreAPI;
@@ -36,11 +40,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -57,14 +67,20 @@ public class SearchUICore {
 
 	private ThreadPoolExecutor singleThreadedExecutor;
 	private LinkedBlockingQueue<Runnable> taskQueue;
+	// runs search apis concurrently if not null
+	private ExecutorService apiExecutor;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
+	private SearchMetricsListener metricsListener = null;
 	private AtomicInteger requestNumber = new AtomicInteger();
 	private int totalLimit = -1; // -1 unlimited - not used
+	private int topResultsLimit = -1; // -1 all results are kept
 
 	List<SearchCoreAPI> apis = new ArrayList<>();
 	private SearchSettings searchSettings;
 	private MapPoiTypes poiTypes;
+	// name index lookups reused while query is typed
+	private final NameIndexCache nameIndexCache = new NameIndexCache();
 
 	private static boolean debugMode = false;
 
@@ -86,10 +102,31 @@ public class SearchUICore {
 		return debugMode;
 	}
 
+	/**
+	 * Search apis run concurrently on given number of threads (1 - one after another). 
+	 * Results are still published in order of api priority, apis with {@link SearchCoreFactory#SEARCH_MAX_PRIORITY} 
+	 * run after all others cause they use their results.
+	 */
+	public void setSearchApiThreads(int threads) {
+		if (apiExecutor != null) {
+			apiExecutor.shutdown();
+			apiExecutor = null;
+		}
+		if (threads > 1) {
+			apiExecutor = Executors.newFixedThreadPool(threads);
+		}
+	}
+
 	public static class SearchResultCollection {
 		private List<SearchResult> searchResults;
 		private SearchPhrase phrase;
-		private static final int DEPTH_TO_CHECK_SAME_SEARCH_RESULTS = 20;
+		// results are sorted with comparator of phrase
+		private boolean sorted = true;
+		// index of results to remove duplicates, built when needed and updated while results are added
+		private SameSearchResultIndex duplicatesIndex;
+		// zoom of grid cell to look up same results, 3x3 cells of zoom 15 cover max address similarity radius (100 m) 
+		private static final int DUPLICATES_GRID_ZOOM = 15;
+		private static final double LARGE_SIMILARITY_RADIUS = 50000;
 
 		public SearchResultCollection(SearchPhrase phrase) {
 			searchResults = new ArrayList<>();
@@ -108,51 +145,51 @@ public class SearchUICore {
 				LOG.info("Add search results resortAll=" + (resortAll ? "true" : "false") + " removeDuplicates=" + (removeDuplicates ? "true" : "false") + " Results=" + sr.size() + " Current results=" + this.searchResults.size());
 			}
 			if (resortAll) {
-				this.searchResults.addAll(sr);
-				sortSearchResults();
+				if (sorted && !searchResults.isEmpty()) {
+					mergeSortedSearchResults(sr);
+				} else {
+					this.searchResults.addAll(sr);
+					sortSearchResults();
+				}
 				if (removeDuplicates) {
 					filterSearchDuplicateResults();
+				} else {
+					addToDuplicatesIndex(sr);
 				}
 			} else {
+				sorted = sorted && sr.isEmpty();
 				if (!removeDuplicates) {
 					this.searchResults.addAll(sr);
+					addToDuplicatesIndex(sr);
 				} else {
 					ArrayList<SearchResult> addedResults = new ArrayList<>(sr);
 					SearchResultComparator cmp = new SearchResultComparator(phrase);
 					Collections.sort(addedResults, cmp);
 					filterSearchDuplicateResults(addedResults);
+					SameSearchResultIndex index = getDuplicatesIndex();
 					int i = 0;
 					int j = 0;
 					while (j < addedResults.size()) {
 						SearchResult addedResult = addedResults.get(j);
-						if (i >= searchResults.size()) {
-							int k = 0;
-							boolean same = false;
-							while (searchResults.size() > k && k < DEPTH_TO_CHECK_SAME_SEARCH_RESULTS) {
-								if (sameSearchResult(addedResult, searchResults.get(searchResults.size() - k - 1))) {
-									same = true;
-									break;
-								}
-								k++;
-							}
-							if (!same) {
-								searchResults.add(addedResult);
-							}
+						if (index.containsSame(addedResult)) {
 							j++;
 							continue;
 						}
-						SearchResult existingResult = searchResults.get(i);
-						if (sameSearchResult(addedResult, existingResult)) {
+						if (i >= searchResults.size()) {
+							searchResults.add(addedResult);
+							index.add(addedResult);
 							j++;
 							continue;
 						}
+						SearchResult existingResult = searchResults.get(i);
 						int compare = cmp.compare(existingResult, addedResult);
 						if (compare == 0) {
 							// existingResult == addedResult
 							j++;
 						} else if (compare > 0) {
 							// existingResult > addedResult
-							this.searchResults.add(addedResults.get(j));
+							this.searchResults.add(addedResult);
+							index.add(addedResult);
 							j++;
 						} else {
 							// existingResult < addedResult
@@ -167,6 +204,24 @@ public class SearchUICore {
 			return this;
 		}
 
+		private SameSearchResultIndex getDuplicatesIndex() {
+			if (duplicatesIndex == null) {
+				duplicatesIndex = new SameSearchResultIndex();
+				for (SearchResult r : searchResults) {
+					duplicatesIndex.add(r);
+				}
+			}
+			return duplicatesIndex;
+		}
+
+		private void addToDuplicatesIndex(List<SearchResult> sr) {
+			if (duplicatesIndex != null) {
+				for (SearchResult r : sr) {
+					duplicatesIndex.add(r);
+				}
+			}
+		}
+
 		public List<SearchResult> getCurrentSearchResults() {
 			return Collections.unmodifiableList(searchResults);
 		}
@@ -180,45 +235,238 @@ public class SearchUICore {
 				LOG.info("Sorting search results <" + phrase + "> Results=" + searchResults.size());
 			}
 			Collections.sort(searchResults, new SearchResultComparator(phrase));
+			sorted = true;
 			if (debugMode) {
 				LOG.info("Search results sorted <" + phrase + ">");
 			}
 		}
 
+		private void mergeSortedSearchResults(List<SearchResult> sr) {
+			SearchResultComparator cmp = new SearchResultComparator(phrase);
+			List<SearchResult> added = new ArrayList<>(sr);
+			Collections.sort(added, cmp);
+			List<SearchResult> merged = new ArrayList<>(searchResults.size() + added.size());
+			int i = 0;
+			int j = 0;
+			while (i < searchResults.size() && j < added.size()) {
+				// existing results go first for equal results as in stable sort
+				if (cmp.compare(searchResults.get(i), added.get(j)) <= 0) {
+					merged.add(searchResults.get(i++));
+				} else {
+					merged.add(added.get(j++));
+				}
+			}
+			merged.addAll(searchResults.subList(i, searchResults.size()));
+			merged.addAll(added.subList(j, added.size()));
+			searchResults = merged;
+		}
+
 		public void filterSearchDuplicateResults() {
 			if (debugMode) {
 				LOG.info("Filter duplicate results <" + phrase + "> Results=" + searchResults.size());
 			}
-			filterSearchDuplicateResults(searchResults);
+			duplicatesIndex = filterSearchDuplicateResults(searchResults);
 			if (debugMode) {
 				LOG.info("Duplicate results filtered <" + phrase + "> Results=" + searchResults.size());
 			}
 		}
 
-		private void filterSearchDuplicateResults(List<SearchResult> lst) {
-			ListIterator<SearchResult> it = lst.listIterator();
-			LinkedList<SearchResult> lstUnique = new LinkedList<SearchResult>();
-			while (it.hasNext()) {
-				SearchResult r = it.next();
-				boolean same = false;
-				for (SearchResult rs : lstUnique) {
-					same = sameSearchResult(rs, r);
-					if (same) {
-						break;
+		/**
+		 * @return index of results left in the list
+		 */
+		private SameSearchResultIndex filterSearchDuplicateResults(List<SearchResult> lst) {
+			SameSearchResultIndex index = new SameSearchResultIndex();
+			List<SearchResult> unique = new ArrayList<>(lst.size());
+			for (SearchResult r : lst) {
+				if (!index.containsSame(r)) {
+					index.add(r);
+					unique.add(r);
+				}
+			}
+			if (unique.size() != lst.size()) {
+				lst.clear();
+				lst.addAll(unique);
+			}
+			return index;
+		}
+
+		/**
+		 * Index of results to find candidates for {@link #sameSearchResult(SearchResult, SearchResult)} 
+		 * without comparing with all results: by object, by street location, by name and grid cell, 
+		 * by name for amenities with large similarity radius and by amenity id.
+		 */
+		static class SameSearchResultIndex {
+			private final Map<Object, List<SearchResult>> byObject = new IdentityHashMap<>();
+			private final Map<LatLon, List<SearchResult>> streetsByLocation = new HashMap<>();
+			private final Map<String, TLongObjectHashMap<List<SearchResult>>> byNameAndCell = new HashMap<>();
+			private final Map<String, List<SearchResult>> largeRadiusByName = new HashMap<>();
+			private final Map<Long, List<SearchResult>> amenitiesById = new HashMap<>();
+
+			public void add(SearchResult r) {
+				if (r.object != null) {
+					put(byObject, r.object, r);
+				}
+				if (r.location == null || ObjectType.isTopVisible(r.objectType)) {
+					return;
+				}
+				if (r.objectType == ObjectType.STREET) {
+					put(streetsByLocation, ((Street) r.object).getLocation(), r);
+				}
+				if (r.localeName == null) {
+					return;
+				}
+				TLongObjectHashMap<List<SearchResult>> cells = byNameAndCell.get(r.localeName);
+				if (cells == null) {
+					cells = new TLongObjectHashMap<>();
+					byNameAndCell.put(r.localeName, cells);
+				}
+				long cell = getCell(r.location, 0, 0);
+				List<SearchResult> lst = cells.get(cell);
+				if (lst == null) {
+					lst = new ArrayList<>(2);
+					cells.put(cell, lst);
+				}
+				lst.add(r);
+				if (r.object instanceof Amenity) {
+					Amenity a = (Amenity) r.object;
+					if (hasLargeSimilarityRadius(a)) {
+						put(largeRadiusByName, r.localeName, r);
+					}
+					if (a.getId() != null) {
+						put(amenitiesById, a.getId(), r);
 					}
 				}
-				if (same) {
-					it.remove();
-				} else {
-					lstUnique.add(r);
-					if (lstUnique.size() > DEPTH_TO_CHECK_SAME_SEARCH_RESULTS) {
-						lstUnique.remove(0);
+			}
+
+			public void remove(SearchResult r) {
+				if (r.object != null) {
+					remove(byObject, r.object, r);
+				}
+				if (r.location == null || ObjectType.isTopVisible(r.objectType)) {
+					return;
+				}
+				if (r.objectType == ObjectType.STREET) {
+					remove(streetsByLocation, ((Street) r.object).getLocation(), r);
+				}
+				if (r.localeName == null) {
+					return;
+				}
+				TLongObjectHashMap<List<SearchResult>> cells = byNameAndCell.get(r.localeName);
+				if (cells != null) {
+					List<SearchResult> lst = cells.get(getCell(r.location, 0, 0));
+					if (lst != null) {
+						removeSame(lst, r);
+					}
+				}
+				if (r.object instanceof Amenity) {
+					Amenity a = (Amenity) r.object;
+					if (hasLargeSimilarityRadius(a)) {
+						remove(largeRadiusByName, r.localeName, r);
+					}
+					if (a.getId() != null) {
+						remove(amenitiesById, a.getId(), r);
+					}
+				}
+			}
+
+			public boolean containsSame(SearchResult r) {
+				return findSame(r) != null;
+			}
+
+			/**
+			 * @return added result which is same as given one or null
+			 */
+			public SearchResult findSame(SearchResult r) {
+				SearchResult same = null;
+				if (r.object != null) {
+					same = findSame(byObject.get(r.object), r);
+				}
+				if (same != null || r.location == null || ObjectType.isTopVisible(r.objectType)) {
+					return same;
+				}
+				if (r.objectType == ObjectType.STREET) {
+					same = findSame(streetsByLocation.get(((Street) r.object).getLocation()), r);
+				}
+				if (same != null || r.localeName == null) {
+					return same;
+				}
+				TLongObjectHashMap<List<SearchResult>> cells = byNameAndCell.get(r.localeName);
+				if (cells != null) {
+					for (int dx = -1; dx <= 1 && same == null; dx++) {
+						for (int dy = -1; dy <= 1 && same == null; dy++) {
+							same = findSame(cells.get(getCell(r.location, dx, dy)), r);
+						}
+					}
+				}
+				if (same == null && r.object instanceof Amenity) {
+					Amenity a = (Amenity) r.object;
+					if (hasLargeSimilarityRadius(a)) {
+						same = findSame(largeRadiusByName.get(r.localeName), r);
+					}
+					if (same == null && a.getId() != null) {
+						same = findSame(amenitiesById.get(a.getId()), r);
+					}
+				}
+				return same;
+			}
+
+			private SearchResult findSame(List<SearchResult> candidates, SearchResult r) {
+				if (candidates != null) {
+					for (SearchResult c : candidates) {
+						if (isSameSearchResult(c, r)) {
+							return c;
+						}
+					}
+				}
+				return null;
+			}
+
+			private <K> void put(Map<K, List<SearchResult>> map, K key, SearchResult r) {
+				List<SearchResult> lst = map.get(key);
+				if (lst == null) {
+					lst = new ArrayList<>(2);
+					map.put(key, lst);
+				}
+				lst.add(r);
+			}
+
+			private <K> void remove(Map<K, List<SearchResult>> map, K key, SearchResult r) {
+				List<SearchResult> lst = map.get(key);
+				if (lst != null) {
+					removeSame(lst, r);
+				}
+			}
+
+			private void removeSame(List<SearchResult> lst, SearchResult r) {
+				for (int i = 0; i < lst.size(); i++) {
+					if (lst.get(i) == r) {
+						lst.remove(i);
+						return;
 					}
 				}
 			}
+
+			private long getCell(LatLon l, int dx, int dy) {
+				long x = (long) MapUtils.getTileNumberX(DUPLICATES_GRID_ZOOM, l.getLongitude()) + dx;
+				long y = (long) MapUtils.getTileNumberY(DUPLICATES_GRID_ZOOM, l.getLatitude()) + dy;
+				return (x << 32) | (y & 0xffffffffL);
+			}
+		}
+
+		/**
+		 * Natural objects and route points are same in large radius with objects of same type (route points of same sub type)
+		 */
+		private static boolean hasLargeSimilarityRadius(Amenity a) {
+			String subType = a.getSubType();
+			return a.getType().getKeyName().equals("natural") || subType.contains("cn_ref") || subType.contains("wn_ref")
+					|| (subType.startsWith("route_hiking_") && subType.endsWith("n_poi"));
 		}
 
 		public boolean sameSearchResult(SearchResult r1, SearchResult r2) {
+			return isSameSearchResult(r1, r2);
+		}
+
+		private static boolean isSameSearchResult(SearchResult r1, SearchResult r2) {
 			if (r1.location != null && r2.location != null &&
 					!ObjectType.isTopVisible(r1.objectType) && !ObjectType.isTopVisible(r2.objectType)) {
 				if (r1.objectType == r2.objectType) {
@@ -250,13 +498,9 @@ public class SearchUICore {
 						if (!type1.equals(type2)) {
 							return false;
 						}
-						if (type1.equals("natural")) {
-							similarityRadius = 50000;
-						} else if (subType1.equals(subType2)) {
-							if (subType1.contains("cn_ref") || subType1.contains("wn_ref")
-									|| (subType1.startsWith("route_hiking_") && subType1.endsWith("n_poi"))) {
-								similarityRadius = 50000;
-							}
+						// natural objects or same route points
+						if (hasLargeSimilarityRadius(a1) && (type1.equals("natural") || subType1.equals(subType2))) {
+							similarityRadius = LARGE_SIMILARITY_RADIUS;
 						}
 					} else if (ObjectType.isAddress(r1.objectType) && ObjectType.isAddress(r2.objectType)) {
 						similarityRadius = 100;
@@ -282,6 +526,25 @@ public class SearchUICore {
 		this.totalLimit = totalLimit;
 	}
 
+	/**
+	 * Listener receives timings of every finished or cancelled search, null disables metrics
+	 */
+	public void setMetricsListener(SearchMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+	}
+
+	public int getTopResultsLimit() {
+		return topResultsLimit;
+	}
+
+	/**
+	 * Only given number of best results (by {@link SearchResultComparator}) are kept for the final sorting,
+	 * all results are still published to result matcher.
+	 */
+	public void setTopResultsLimit(int topResultsLimit) {
+		this.topResultsLimit = topResultsLimit;
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> T getApiByClass(Class<T> cl) {
 		for (SearchCoreAPI a : apis) {
@@ -309,6 +572,7 @@ public class SearchUICore {
 			preparePhrase(sphrase);
 			AtomicInteger ai = new AtomicInteger();
 			SearchResultMatcher rm = new SearchResultMatcher(matcher, sphrase, ai.get(), ai, totalLimit);
+			rm.setTopResultsLimit(topResultsLimit);
 			api.search(sphrase, rm);
 
 			SearchResultCollection collection = new SearchResultCollection(
@@ -386,6 +650,9 @@ public class SearchUICore {
 	}
 
 	public void updateSettings(SearchSettings settings) {
+		if (settings.getOfflineIndexes() != searchSettings.getOfflineIndexes()) {
+			nameIndexCache.clear();
+		}
 		searchSettings = settings;
 	}
 
@@ -415,6 +682,7 @@ public class SearchUICore {
 	}
 
 	public SearchPhrase resetPhrase() {
+		nameIndexCache.clear();
 		this.phrase = this.phrase.generateNewPhrase("", searchSettings);
 		return this.phrase;
 	}
@@ -430,7 +698,8 @@ public class SearchUICore {
 
 	public void search(final String text, final boolean delayedExecution, final ResultMatcher<SearchResult> matcher, final SearchSettings searchSettings) {
 		final int request = requestNumber.incrementAndGet();
-		final SearchPhrase phrase = this.phrase.generateNewPhrase(text, searchSettings);
+		final SearchPhrase phrase = this.phrase.generateNewPhrase(text, searchSettings.getNameIndexCache() == null
+				? searchSettings.setNameIndexCache(nameIndexCache) : searchSettings);
 		this.phrase = phrase;
 		if (debugMode) {
 			LOG.info("Prepare search <" + phrase + ">");
@@ -439,11 +708,15 @@ public class SearchUICore {
 
 			@Override
 			public void run() {
+				final SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
+				rm.setTopResultsLimit(topResultsLimit);
+				SearchMetricsListener metricsListener = SearchUICore.this.metricsListener;
+				SearchMetrics metrics = metricsListener != null ? new SearchMetrics(phrase.toString()) : null;
+				rm.setMetrics(metrics);
 				try {
 					if (onSearchStart != null) {
 						onSearchStart.run();
 					}
-					final SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
 					if (debugMode) {
 						LOG.info("Starting search <" + phrase.toString() + ">");
 					}
@@ -468,6 +741,7 @@ public class SearchUICore {
 							Thread.sleep(TIMEOUT_BEFORE_FILTER);
 
 							if (!filtered) {
+								long filterStart = metrics != null ? System.nanoTime() : 0;
 								final SearchResultCollection quickRes = new SearchResultCollection(phrase);
 								if (debugMode) {
 									LOG.info("Filtering current data <" + phrase + "> Results=" + currentSearchResult.searchResults.size());
@@ -491,6 +765,9 @@ public class SearchUICore {
 									currentSearchResult = quickRes;
 									rm.filterFinished(phrase);
 								}
+								if (metrics != null) {
+									metrics.addPhase("filter", quickRes.searchResults.size(), filterStart);
+								}
 								filtered = true;
 							}
 						}
@@ -503,14 +780,22 @@ public class SearchUICore {
 						}
 						return;
 					}
+					long searchStart = metrics != null ? System.nanoTime() : 0;
 					searchInternal(phrase, rm);
+					if (metrics != null) {
+						metrics.addPhase("search", rm.getCount(), searchStart);
+					}
 					if (!rm.isCancelled()) {
 						SearchResultCollection collection = new SearchResultCollection(
 								phrase);
 						if (debugMode) {
 							LOG.info("Processing search results <" + phrase + ">");
 						}
+						long sortStart = metrics != null ? System.nanoTime() : 0;
 						collection.addSearchResults(rm.getRequestResults(), true, true);
+						if (metrics != null) {
+							metrics.addPhase("sort", collection.getCurrentSearchResults().size(), sortStart);
+						}
 						if (debugMode) {
 							LOG.info("Finishing search <" + phrase + "> Results=" + rm.getRequestResults().size());
 						}
@@ -532,6 +817,12 @@ public class SearchUICore {
 					}
 				} catch (InterruptedException e) {
 					e.printStackTrace();
+				} finally {
+					// cancelled searches are reported as well
+					if (metrics != null) {
+						metrics.finish(rm.isCancelled());
+						metricsListener.searchFinished(metrics);
+					}
 				}
 			}
 		});
@@ -603,6 +894,11 @@ public class SearchUICore {
 						o2.getSearchPriority(phrase));
 			}
 		});
+		ExecutorService apiExecutor = this.apiExecutor;
+		if (apiExecutor != null) {
+			searchConcurrently(phrase, matcher, lst, apiExecutor);
+			return;
+		}
 		for (SearchCoreAPI api : lst) {
 			if (matcher.isCancelled()) {
 				break;
@@ -610,22 +906,119 @@ public class SearchUICore {
 			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
 				continue;
 			}
+			runApiSearch(phrase, matcher, api);
+		}
+	}
+
+	private void runApiSearch(SearchPhrase phrase, SearchResultMatcher matcher, SearchCoreAPI api) {
+		try {
+			if (debugMode) {
+				LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
+			}
+			matcher.apiMetricsStarted();
 			try {
-				if (debugMode) {
-					LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
-				}
 				api.search(phrase, matcher);
-				if (debugMode) {
-					LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+			} finally {
+				matcher.apiMetricsFinished(api);
+			}
+			if (debugMode) {
+				LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+			}
+			matcher.apiSearchFinished(api, phrase);
+			if (debugMode) {
+				LOG.info("API search done <" + phrase + "> API=<" + api + ">");
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+			LOG.error(e.getMessage(), e);
+		}
+	}
+
+	private void searchConcurrently(final SearchPhrase phrase, final SearchResultMatcher matcher, List<SearchCoreAPI> sortedApis,
+			ExecutorService apiExecutor) {
+		List<SearchCoreAPI> concurrentApis = new ArrayList<>();
+		List<SearchCoreAPI> dependentApis = new ArrayList<>();
+		for (SearchCoreAPI api : sortedApis) {
+			int priority = api.getSearchPriority(phrase);
+			if (!api.isSearchAvailable(phrase) || priority == -1) {
+				continue;
+			}
+			if (priority == SearchCoreFactory.SEARCH_MAX_PRIORITY) {
+				dependentApis.add(api);
+			} else {
+				concurrentApis.add(api);
+			}
+		}
+		final Object lock = new Object();
+		final int[] head = new int[1];
+		final List<List<SearchResult>> buffers = new ArrayList<>();
+		List<SearchResultMatcher> apiMatchers = new ArrayList<>();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < concurrentApis.size(); i++) {
+			final int ind = i;
+			final List<SearchResult> buffer = new ArrayList<>();
+			buffers.add(buffer);
+			// results of api are published directly while all apis with higher priority are finished, otherwise buffered
+			ResultMatcher<SearchResult> mergeMatcher = new ResultMatcher<SearchResult>() {
+
+				@Override
+				public boolean publish(SearchResult object) {
+					synchronized (lock) {
+						if (head[0] == ind) {
+							return matcher.publishMerged(object);
+						}
+						buffer.add(object);
+						return true;
+					}
 				}
-				matcher.apiSearchFinished(api, phrase);
-				if (debugMode) {
-					LOG.info("API search done <" + phrase + "> API=<" + api + ">");
+
+				@Override
+				public boolean isCancelled() {
+					return matcher.isCancelled();
 				}
-			} catch (Throwable e) {
-				e.printStackTrace();
-				LOG.error(e.getMessage(), e);
+			};
+			final SearchResultMatcher apiMatcher = matcher.createApiMatcher(mergeMatcher);
+			final SearchCoreAPI api = concurrentApis.get(i);
+			apiMatchers.add(apiMatcher);
+			futures.add(apiExecutor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					if (!apiMatcher.isCancelled()) {
+						runApiSearch(phrase, apiMatcher, api);
+					}
+				}
+			}));
+		}
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				futures.get(i).get();
+				matcher.mergeExported(apiMatchers.get(i));
+				synchronized (lock) {
+					head[0] = i + 1;
+					if (i + 1 < buffers.size()) {
+						for (SearchResult sr : buffers.get(i + 1)) {
+							matcher.publishMerged(sr);
+						}
+						buffers.get(i + 1).clear();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			LOG.error(e.getMessage(), e);
+			for (Future<?> f : futures) {
+				f.cancel(false);
 			}
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException e) {
+			LOG.error(e.getMessage(), e);
+		}
+		for (SearchCoreAPI api : dependentApis) {
+			if (matcher.isCancelled()) {
+				break;
+			}
+			runApiSearch(phrase, matcher, api);
 		}
 	}
 
@@ -655,6 +1048,18 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		// worst of the best results is on top
+		private PriorityQueue<RankedSearchResult> topResults;
+		// only best of same results is kept in top results
+		private SearchResultCollection.SameSearchResultIndex topResultsIndex;
+		private Map<SearchResult, RankedSearchResult> rankedTopResults;
+		private SearchResultComparator topResultsComparator;
+		private int topResultsLimit = -1;
+		private SearchMetrics metrics;
+		private long apiStartTime;
+		private int apiStartCount;
+		private long regionStartTime;
+		private int regionStartCount;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -675,12 +1080,74 @@ public class SearchUICore {
 			return parentSearchResult;
 		}
 
+		public void setTopResultsLimit(int topResultsLimit) {
+			this.topResultsLimit = topResultsLimit;
+			if (topResultsLimit > 0 && phrase != null) {
+				final SearchResultComparator cmp = new SearchResultComparator(phrase);
+				topResultsComparator = cmp;
+				topResults = new PriorityQueue<>(topResultsLimit + 1, new Comparator<RankedSearchResult>() {
+
+					@Override
+					public int compare(RankedSearchResult o1, RankedSearchResult o2) {
+						return -cmp.compareRanked(o1, o2);
+					}
+				});
+				topResultsIndex = new SearchResultCollection.SameSearchResultIndex();
+				rankedTopResults = new IdentityHashMap<>();
+			} else {
+				topResultsComparator = null;
+				topResults = null;
+				topResultsIndex = null;
+				rankedTopResults = null;
+			}
+		}
+
+		public void setMetrics(SearchMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		public SearchMetrics getMetrics() {
+			return metrics;
+		}
+
+		void apiMetricsStarted() {
+			if (metrics != null) {
+				apiStartTime = regionStartTime = System.nanoTime();
+				apiStartCount = regionStartCount = count;
+			}
+		}
+
+		void apiMetricsFinished(SearchCoreAPI api) {
+			if (metrics != null) {
+				metrics.addSpan(SpanType.API, api.getClass().getSimpleName(), null, count - apiStartCount,
+						System.nanoTime() - apiStartTime);
+			}
+		}
+
+		/**
+		 * @return results in order of publishing or sorted best first if top results limit is set
+		 */
 		public List<SearchResult> getRequestResults() {
+			if (topResults != null) {
+				List<RankedSearchResult> ranked = new ArrayList<>(topResults);
+				Collections.sort(ranked, new Comparator<RankedSearchResult>() {
+
+					@Override
+					public int compare(RankedSearchResult o1, RankedSearchResult o2) {
+						return topResultsComparator.compareRanked(o1, o2);
+					}
+				});
+				List<SearchResult> res = new ArrayList<>(ranked.size());
+				for (RankedSearchResult r : ranked) {
+					res.add(r.result);
+				}
+				return res;
+			}
 			return requestResults;
 		}
 
 		public int getCount() {
-			return requestResults.size();
+			return topResults != null ? topResults.size() : requestResults.size();
 		}
 
 		public void searchStarted(SearchPhrase phrase) {
@@ -718,6 +1185,13 @@ public class SearchUICore {
 		}
 
 		public void apiSearchRegionFinished(SearchCoreAPI api, BinaryMapIndexReader region, SearchPhrase phrase) {
+			if (metrics != null) {
+				long time = System.nanoTime();
+				metrics.addSpan(SpanType.REGION, region.getFile().getName(), api.getClass().getSimpleName(),
+						count - regionStartCount, time - regionStartTime);
+				regionStartTime = time;
+				regionStartCount = count;
+			}
 			if(matcher != null) {
 				SearchResult sr = new SearchResult(phrase);
 				sr.objectType = ObjectType.SEARCH_API_REGION_FINISHED;
@@ -731,6 +1205,42 @@ public class SearchUICore {
 			}
 		}
 
+		SearchResultMatcher createApiMatcher(ResultMatcher<SearchResult> mergeMatcher) {
+			SearchResultMatcher apiMatcher = new SearchResultMatcher(mergeMatcher, phrase, request, requestNumber, totalLimit);
+			apiMatcher.parentSearchResult = parentSearchResult;
+			apiMatcher.setTopResultsLimit(topResultsLimit);
+			apiMatcher.metrics = metrics;
+			return apiMatcher;
+		}
+
+		/**
+		 * Publishes result or api event already processed by matcher of api
+		 */
+		boolean publishMerged(SearchResult object) {
+			if (object.objectType == ObjectType.SEARCH_API_FINISHED || object.objectType == ObjectType.SEARCH_API_REGION_FINISHED) {
+				if (matcher != null) {
+					matcher.publish(object);
+				}
+				return true;
+			}
+			return publishResult(object);
+		}
+
+		void mergeExported(SearchResultMatcher apiMatcher) {
+			if (apiMatcher.exportedObjects != null) {
+				if (exportedObjects == null) {
+					exportedObjects = new ArrayList<>();
+				}
+				exportedObjects.addAll(apiMatcher.exportedObjects);
+			}
+			if (apiMatcher.exportedCities != null) {
+				if (exportedCities == null) {
+					exportedCities = new ArrayList<>();
+				}
+				exportedCities.addAll(apiMatcher.exportedCities);
+			}
+		}
+
 		@Override
 		public boolean publish(SearchResult object) {
 			if (phrase != null && object.otherNames != null && !phrase.getFirstUnknownNameStringMatcher().matches(object.localeName)) {
@@ -754,15 +1264,48 @@ public class SearchUICore {
 				object.alternateName = null;
 			}
 			object.parentSearchResult = parentSearchResult;
+			return publishResult(object);
+		}
+
+		private boolean publishResult(SearchResult object) {
 			if (matcher == null || matcher.publish(object)) {
 				count++;
-				if (totalLimit == -1 || count < totalLimit) {
+				if (topResults != null) {
+					addTopResult(object);
+				} else if (totalLimit == -1 || count < totalLimit) {
 					requestResults.add(object);
 				}
 				return true;
 			}
 			return false;
 		}
+
+		private void addTopResult(SearchResult object) {
+			RankedSearchResult ranked = topResultsComparator.rank(object);
+			SearchResult same;
+			while ((same = topResultsIndex.findSame(object)) != null) {
+				RankedSearchResult sameRanked = rankedTopResults.get(same);
+				if (topResultsComparator.compareRanked(ranked, sameRanked) >= 0) {
+					return;
+				}
+				removeTopResult(sameRanked);
+			}
+			if (topResults.size() >= topResultsLimit) {
+				if (topResultsComparator.compareRanked(ranked, topResults.peek()) >= 0) {
+					return;
+				}
+				removeTopResult(topResults.peek());
+			}
+			topResults.add(ranked);
+			topResultsIndex.add(object);
+			rankedTopResults.put(object, ranked);
+		}
+
+		private void removeTopResult(RankedSearchResult ranked) {
+			topResults.remove(ranked);
+			topResultsIndex.remove(ranked.result);
+			rankedTopResults.remove(ranked.result);
+		}
 		
 		@Override
 		public boolean isCancelled() {
@@ -1023,8 +1566,13 @@ public class SearchUICore {
 
 		@Override
 		public int compare(SearchResult o1, SearchResult o2) {
-			for(ResultCompareStep step : ResultCompareStep.values()) {
-				int r = step.compare(o1, o2, this);
+			return compare(o1, o2, 0);
+		}
+
+		private int compare(SearchResult o1, SearchResult o2, int firstStep) {
+			ResultCompareStep[] steps = ResultCompareStep.values();
+			for (int i = firstStep; i < steps.length; i++) {
+				int r = steps[i].compare(o1, o2, this);
 				if(r != 0) {
 					return r;
 				}
@@ -1032,5 +1580,53 @@ public class SearchUICore {
 			return 0;
 		}
 
+		RankedSearchResult rank(SearchResult sr) {
+			RankedSearchResult r = new RankedSearchResult(sr);
+			r.topVisible = ObjectType.isTopVisible(sr.objectType);
+			r.foundWordCount = sr.getFoundWordCount();
+			r.matchWeight = sr.getUnknownPhraseMatchWeight();
+			if (sr.object instanceof AbstractPoiType) {
+				r.additionalType = ((AbstractPoiType) sr.object).isAdditional() ? 2 : 1;
+			}
+			r.searchDistance = sortByName ? 0 : sr.getSearchDistance(loc);
+			return r;
+		}
+
+		/**
+		 * Same order as {@link #compare(SearchResult, SearchResult)}, first steps are compared by precalculated keys
+		 */
+		int compareRanked(RankedSearchResult r1, RankedSearchResult r2) {
+			if (r1.topVisible != r2.topVisible) {
+				return r1.topVisible ? -1 : 1;
+			}
+			if (r1.foundWordCount != r2.foundWordCount) {
+				return -Algorithms.compare(r1.foundWordCount, r2.foundWordCount);
+			}
+			if (r1.matchWeight != r2.matchWeight) {
+				return -Double.compare(r1.matchWeight, r2.matchWeight);
+			}
+			if (r1.additionalType != 0 && r2.additionalType != 0 && r1.additionalType != r2.additionalType) {
+				return r1.additionalType == 2 ? 1 : -1;
+			}
+			if (r1.searchDistance != r2.searchDistance) {
+				return Double.compare(r1.searchDistance, r2.searchDistance);
+			}
+			return compare(r1.result, r2.result, ResultCompareStep.COMPARE_FIRST_NUMBER_IN_NAME.ordinal());
+		}
+	}
+
+	// precalculated keys of first compare steps
+	private static class RankedSearchResult {
+		private final SearchResult result;
+		private boolean topVisible;
+		private int foundWordCount;
+		private double matchWeight;
+		// 0 - not a poi type, 1 - main type, 2 - additional type
+		private int additionalType;
+		private double searchDistance;
+
+		private RankedSearchResult(SearchResult result) {
+			this.result = result;
+		}
 	}
 }
@@ -36,20 +36,24 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
 
 public class SearchCoreFactory {
 
@@ -269,19 +273,23 @@ public class SearchCoreFactory {
 		private static final int DEFAULT_ADDRESS_BBOX_RADIUS = 100 * 1000;
 		private static final int LIMIT = 10000;
 
-		private Map<BinaryMapIndexReader, List<City>> townCities = new LinkedHashMap<>();
-		private QuadTree<City> townCitiesQR = new QuadTree<City>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
-				8, 0.55f);
+		private final AddressCache cache;
 		private List<City> resArray = new ArrayList<>();
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
 
 		public SearchAddressByNameAPI(SearchBuildingAndIntersectionsByStreetAPI streetsApi,
 									  SearchStreetByCityAPI cityApi) {
+			this(streetsApi, cityApi, new AddressCache());
+		}
+
+		public SearchAddressByNameAPI(SearchBuildingAndIntersectionsByStreetAPI streetsApi,
+									  SearchStreetByCityAPI cityApi, AddressCache cache) {
 			super(ObjectType.CITY, ObjectType.VILLAGE, ObjectType.POSTCODE,
 					ObjectType.STREET, ObjectType.HOUSE, ObjectType.STREET_INTERSECTION);
 			this.streetsApi = streetsApi;
 			this.cityApi = cityApi;
+			this.cache = cache;
 		}
 
 		@Override
@@ -333,27 +341,14 @@ public class SearchCoreFactory {
 			QuadRect bbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 20);
 			Iterator<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes(bbox, SearchPhraseDataType.ADDRESS);
 			while (offlineIndexes.hasNext()) {
-				BinaryMapIndexReader r = offlineIndexes.next();
-				if (!townCities.containsKey(r)) {
-					BinaryMapIndexReader.buildAddressRequest(null);
-					List<City> l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
-					townCities.put(r, l);
-					for (City c  : l) {
-						LatLon cl = c.getLocation();
-						c.setReferenceFile(r);
-						int y = MapUtils.get31TileNumberY(cl.getLatitude());
-						int x = MapUtils.get31TileNumberX(cl.getLongitude());
-						QuadRect qr = new QuadRect(x, y, x, y);
-						townCitiesQR.insert(c, qr);
-					}
-				}
+				cache.loadTownCities(offlineIndexes.next());
 			}
 			if (phrase.isNoSelectedType() && bbox != null
 					&& (phrase.isUnknownSearchWordPresent() || phrase.isEmptyQueryAllowed())
 					&& phrase.isSearchTypeAllowed(ObjectType.CITY)) {
 				NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
 				resArray.clear();
-				resArray = townCitiesQR.queryInBox(bbox, resArray);
+				resArray = cache.queryTownCities(bbox, resArray);
 				int limit = 0;
 				for (City c : resArray) {
 					if (phrase.getSettings().isExportObjects()) {
@@ -372,7 +367,7 @@ public class SearchCoreFactory {
 					res.objectType = ObjectType.CITY;
 					if (phrase.isEmptyQueryAllowed() && phrase.isEmpty()) {
 						resultMatcher.publish(res);
-					} else if (nm.matches(res.localeName) || nm.matches(res.otherNames)) {
+					} else if (nm.matches(c, res.localeName)) {
 						subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
 					}
 					if (limit++ > LIMIT * phrase.getRadiusLevel()) {
@@ -404,6 +399,10 @@ public class SearchCoreFactory {
 						if (isCancelled()) {
 							return false;
 						}
+						if (object instanceof City) {
+							// streets of villages and postcodes are loaded once
+							object = cache.getCity(currentFile[0], (City) object);
+						}
 						SearchResult sr = new SearchResult(phrase);
 						sr.object = object;
 						sr.file = currentFile[0];
@@ -459,7 +458,7 @@ public class SearchCoreFactory {
 								}
 								City c = null;
 								if (closestCities == null) {
-									closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
+									closestCities = cache.queryTownCities(villagesBbox, new ArrayList<City>());
 								}
 								double minDist = -1;
 								double pDist = -1;
@@ -524,6 +523,7 @@ public class SearchCoreFactory {
 						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
 								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
 					}
+					req.setNameIndexCache(phrase.getSettings().getNameIndexCache());
 					r.searchAddressDataByName(req);
 					for (SearchResult res : immediateResults) {
 						if (res.objectType == ObjectType.STREET) {
@@ -538,6 +538,53 @@ public class SearchCoreFactory {
 		}
 	}
 
+	/**
+	 * Towns and cities found by address search, the same city objects keep their loaded streets,
+	 * so cache could be shared by address apis of several threads
+	 */
+	public static class AddressCache {
+		private final Map<BinaryMapIndexReader, TIntObjectHashMap<City>> cities = new HashMap<>();
+		private final Set<BinaryMapIndexReader> townsLoaded = new HashSet<>();
+		private final QuadTree<City> townCitiesQR = new QuadTree<City>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
+				8, 0.55f);
+
+		synchronized void loadTownCities(BinaryMapIndexReader r) throws IOException {
+			if (townsLoaded.add(r)) {
+				List<City> l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+				for (City c : l) {
+					c = getCity(r, c);
+					LatLon cl = c.getLocation();
+					int y = MapUtils.get31TileNumberY(cl.getLatitude());
+					int x = MapUtils.get31TileNumberX(cl.getLongitude());
+					QuadRect qr = new QuadRect(x, y, x, y);
+					townCitiesQR.insert(c, qr);
+				}
+			}
+		}
+
+		synchronized List<City> queryTownCities(QuadRect bbox, List<City> result) {
+			return townCitiesQR.queryInBox(bbox, result);
+		}
+
+		/**
+		 * @return city read before from the same place of file or given city if it wasn't read
+		 */
+		synchronized City getCity(BinaryMapIndexReader r, City c) {
+			TIntObjectHashMap<City> fileCities = cities.get(r);
+			if (fileCities == null) {
+				fileCities = new TIntObjectHashMap<>();
+				cities.put(r, fileCities);
+			}
+			City cached = fileCities.get(c.getFileOffset());
+			if (cached != null) {
+				return cached;
+			}
+			c.setReferenceFile(r);
+			fileCities.put(c.getFileOffset(), c);
+			return c;
+		}
+	}
+
 	public static class SearchAmenityByNameAPI extends SearchBaseAPI {
 		private static final int LIMIT = 10000;
 		private static final int BBOX_RADIUS = 500 * 1000;
@@ -601,7 +648,7 @@ public class SearchCoreFactory {
 							sr.otherNames = object.getAllNames(true);
 							sr.localeName = object.getName(phrase.getSettings().getLang(),
 									phrase.getSettings().isTransliterate());
-							if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)
+							if (!nm.matches(object, sr.localeName)
 									&& !nm.matches(object.getAdditionalInfoValues(false))) {
 								return false;
 							}
@@ -630,6 +677,7 @@ public class SearchCoreFactory {
 							return resultMatcher.isCancelled() && (limit < LIMIT);
 						}
 					}, rawDataCollector);
+			req.setNameIndexCache(phrase.getSettings().getNameIndexCache());
 
 			while (offlineIterator.hasNext()) {
 				BinaryMapIndexReader r = offlineIterator.next();
@@ -684,6 +732,11 @@ public class SearchCoreFactory {
 		private Map<String, PoiType> translatedNames = new LinkedHashMap<>();
 		private List<AbstractPoiType> topVisibleFilters;
 		private List<PoiCategory> categories;
+		// types in order of checking by name matcher, additionals are checked by additional matcher
+		private List<AbstractPoiType> checkTypes;
+		private BitSet additionalChecks;
+		private Map<AbstractPoiType, TIntArrayList> typeChecks;
+		private Map<String, TIntArrayList> additionalChecksByKey;
 		private List<CustomSearchPoiFilter> customPoiFilters = new ArrayList<>();
 		private Map<String, Integer> activePoiFilters = new HashMap<>();
 		private MapPoiTypes types;
@@ -712,71 +765,101 @@ public class SearchCoreFactory {
 		}
 
 		public Map<String, PoiTypeResult> getPoiTypeResults(NameStringMatcher nm, NameStringMatcher nmAdditional) {
+			initPoiTypes();
 			Map<String, PoiTypeResult> results = new LinkedHashMap<>();
-			for (AbstractPoiType pf : topVisibleFilters) {
-				PoiTypeResult res = checkPoiType(nm, pf);
-				if(res != null) {
-					results.put(res.pt.getKeyName(), res);
+			// types which could match, null - all of them
+			Set<AbstractPoiType> candidates = findCandidates(nm);
+			Set<AbstractPoiType> additionalCandidates = nmAdditional == null ? null : findCandidates(nmAdditional);
+			if (candidates == null || (nmAdditional != null && additionalCandidates == null)) {
+				for (int i = 0; i < checkTypes.size(); i++) {
+					checkPoiType(i, nm, candidates, nmAdditional, additionalCandidates, results);
+				}
+			} else {
+				TIntArrayList checks = getCandidateChecks(candidates, additionalCandidates);
+				for (int i = 0; i < checks.size(); i++) {
+					checkPoiType(checks.get(i), nm, candidates, nmAdditional, additionalCandidates, results);
 				}
 			}
-			if (nmAdditional != null) {
-				addAditonals(nmAdditional, results, types.getOtherMapCategory());
+			return results;
+		}
+
+		/**
+		 * Checks of candidate types in order, other checks don't change results
+		 */
+		private TIntArrayList getCandidateChecks(Set<AbstractPoiType> candidates,
+				Set<AbstractPoiType> additionalCandidates) {
+			TIntArrayList checks = new TIntArrayList();
+			Set<String> keys = new HashSet<>();
+			for (AbstractPoiType pt : candidates) {
+				TIntArrayList l = typeChecks.get(pt);
+				if (l != null) {
+					checks.addAll(l);
+				}
+				keys.add(pt.getKeyName());
 			}
-			for (PoiCategory c : categories) {
-				PoiTypeResult res = checkPoiType(nm, c);
-				if(res != null) {
-					results.put(res.pt.getKeyName(), res);
+			if (additionalCandidates != null) {
+				for (AbstractPoiType pt : additionalCandidates) {
+					keys.add(pt.getKeyName());
 				}
-				if (nmAdditional != null) {
-					addAditonals(nmAdditional, results, c);
+				// additional is merged into found result with same key even if it doesn't match
+				for (String key : keys) {
+					TIntArrayList l = additionalChecksByKey.get(key);
+					if (l != null) {
+						checks.addAll(l);
+					}
 				}
 			}
-			Iterator<Entry<String, PoiType>> it = translatedNames.entrySet().iterator();
-			while (it.hasNext()) {
-				Entry<String, PoiType> e = it.next();
-				PoiType pt = e.getValue();
-				if (pt.getCategory() != types.getOtherMapCategory() && !pt.isReference()) {
-					PoiTypeResult res = checkPoiType(nm, pt);
-					if(res != null) {
-						results.put(res.pt.getKeyName(), res);
-					}
-					if (nmAdditional != null) {
-						addAditonals(nmAdditional, results, pt);
-					}
+			checks.sort();
+			return checks;
+		}
+
+		private void checkPoiType(int check, NameStringMatcher nm, Set<AbstractPoiType> candidates,
+				NameStringMatcher nmAdditional, Set<AbstractPoiType> additionalCandidates,
+				Map<String, PoiTypeResult> results) {
+			AbstractPoiType pt = checkTypes.get(check);
+			if (!additionalChecks.get(check)) {
+				PoiTypeResult res = checkPoiType(nm, candidates, pt);
+				if (res != null) {
+					results.put(res.pt.getKeyName(), res);
 				}
+			} else if (nmAdditional != null) {
+				addAditonal(nmAdditional, additionalCandidates, results, (PoiType) pt);
 			}
-			return results;
 		}
 
-		private void addAditonals(NameStringMatcher nm, Map<String, PoiTypeResult> results, AbstractPoiType pt) {
-			List<PoiType> additionals = pt.getPoiAdditionals();
-			if (additionals != null) {
-				for (PoiType a : additionals) {
-					PoiTypeResult existingResult = results.get(a.getKeyName());
-					if (existingResult != null) {
-						PoiAdditionalCustomFilter f ;
-						if (existingResult.pt instanceof PoiAdditionalCustomFilter) {
-							f = (PoiAdditionalCustomFilter) existingResult.pt;
-						} else {
-							f = new PoiAdditionalCustomFilter(types, (PoiType) existingResult.pt);
-						}
-						f.additionalPoiTypes.add(a);
-						existingResult.pt = f;
-					} else {
-						String enTranslation = a.getEnTranslation().toLowerCase();
-						if (!"no".equals(enTranslation) // && !"yes".equals(enTranslation)
-						) {
-							PoiTypeResult ptr = checkPoiType(nm, a);
-							if (ptr != null) {
-								results.put(a.getKeyName(), ptr);
-							}
-						}
+		private Set<AbstractPoiType> findCandidates(NameStringMatcher nm) {
+			String part = nm.getWordStartFoldedPart();
+			return part == null ? null : types.getNamesIndex().findTypes(part);
+		}
+
+		private void addAditonal(NameStringMatcher nm, Set<AbstractPoiType> candidates, Map<String, PoiTypeResult> results,
+				PoiType a) {
+			PoiTypeResult existingResult = results.get(a.getKeyName());
+			if (existingResult != null) {
+				PoiAdditionalCustomFilter f ;
+				if (existingResult.pt instanceof PoiAdditionalCustomFilter) {
+					f = (PoiAdditionalCustomFilter) existingResult.pt;
+				} else {
+					f = new PoiAdditionalCustomFilter(types, (PoiType) existingResult.pt);
+				}
+				f.additionalPoiTypes.add(a);
+				existingResult.pt = f;
+			} else {
+				String enTranslation = a.getEnTranslation().toLowerCase();
+				if (!"no".equals(enTranslation) // && !"yes".equals(enTranslation)
+				) {
+					PoiTypeResult ptr = checkPoiType(nm, candidates, a);
+					if (ptr != null) {
+						results.put(a.getKeyName(), ptr);
 					}
 				}
 			}
 		}
 
-		private PoiTypeResult checkPoiType(NameStringMatcher nm, AbstractPoiType pf) {
+		private PoiTypeResult checkPoiType(NameStringMatcher nm, Set<AbstractPoiType> candidates, AbstractPoiType pf) {
+			if (candidates != null && !candidates.contains(pf)) {
+				return null;
+			}
 			PoiTypeResult res = null;
 			if (nm.matches(pf.getTranslation())) {
 				res = addIfMatch(nm, pf.getTranslation(), pf, res);
@@ -809,15 +892,65 @@ public class SearchCoreFactory {
 			return res;
 		}
 
-		private void initPoiTypes() {
-			if (translatedNames.isEmpty()) {
+		// called from several search threads, fields are read only after this call
+		private synchronized void initPoiTypes() {
+			if (categories == null) {
 				translatedNames = types.getAllTranslatedNames(false);
 				topVisibleFilters = types.getTopVisibleFilters();
 				topVisibleFilters.remove(types.getOsmwiki());
-				categories = types.getCategories(false);
+				List<PoiCategory> categories = types.getCategories(false);
+				checkTypes = new ArrayList<>();
+				additionalChecks = new BitSet();
+				typeChecks = new IdentityHashMap<>();
+				additionalChecksByKey = new HashMap<>();
+				for (AbstractPoiType pf : topVisibleFilters) {
+					addCheck(pf, false);
+				}
+				addAdditionalChecks(types.getOtherMapCategory());
+				for (PoiCategory c : categories) {
+					addCheck(c, false);
+					addAdditionalChecks(c);
+				}
+				for (PoiType pt : translatedNames.values()) {
+					if (pt.getCategory() != types.getOtherMapCategory() && !pt.isReference()) {
+						addCheck(pt, false);
+						addAdditionalChecks(pt);
+					}
+				}
+				this.categories = categories;
 			}
 		}
 
+		private void addAdditionalChecks(AbstractPoiType pt) {
+			List<PoiType> additionals = pt.getPoiAdditionals();
+			if (additionals != null) {
+				for (PoiType a : additionals) {
+					addCheck(a, true);
+				}
+			}
+		}
+
+		private void addCheck(AbstractPoiType pt, boolean additional) {
+			int check = checkTypes.size();
+			checkTypes.add(pt);
+			TIntArrayList l;
+			if (additional) {
+				additionalChecks.set(check);
+				l = additionalChecksByKey.get(pt.getKeyName());
+				if (l == null) {
+					l = new TIntArrayList();
+					additionalChecksByKey.put(pt.getKeyName(), l);
+				}
+			} else {
+				l = typeChecks.get(pt);
+				if (l == null) {
+					l = new TIntArrayList();
+					typeChecks.put(pt, l);
+				}
+			}
+			l.add(check);
+		}
+
 		@Override
 		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) throws IOException {
 			boolean showTopFiltersOnly = !phrase.isUnknownSearchWordPresent();
@@ -979,7 +1112,6 @@ public class SearchCoreFactory {
 				NameStringMatcher nm = phrase.getFirstUnknownNameStringMatcher();
 				NameStringMatcher nmAdditional = new NameStringMatcher(phrase.getFirstUnknownSearchWord(),
 						StringMatcherMode.CHECK_EQUALS_FROM_SPACE) ;
-				searchAmenityTypesAPI.initPoiTypes();
 				Map<String, PoiTypeResult> poiTypeResults = searchAmenityTypesAPI.getPoiTypeResults(nm, nmAdditional);
 				// find first full match only
 				for (PoiTypeResult poiTypeResult : poiTypeResults.values()) {
@@ -1188,12 +1320,10 @@ public class SearchCoreFactory {
 			SearchWord sw = phrase.getLastSelectedWord();
 			if (isLastWordCityGroup(phrase) && sw.getResult() != null && sw.getResult().file != null) {
 				City c = (City) sw.getResult().object;
-				if (c.getStreets().isEmpty()) {
-					sw.getResult().file.preloadStreets(c, null);
-				}
+				List<Street> streets = getCityStreets(c, sw.getResult().file);
 				int limit = 0;
 				NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
-				for (Street object : c.getStreets()) {
+				for (Street object : streets) {
 					SearchResult res = new SearchResult(phrase);
 
 					res.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
@@ -1203,7 +1333,7 @@ public class SearchCoreFactory {
 						// streets related to city
 						pub = false;
 					} else if (phrase.isUnknownSearchWordPresent()
-							&& !(nm.matches(res.localeName) || nm.matches(res.otherNames))) {
+							&& !nm.matches(object, res.localeName)) {
 						continue;
 					}
 					res.localeRelatedObjectName = c.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
@@ -1236,12 +1366,57 @@ public class SearchCoreFactory {
 	}
 
 	public static class SearchBuildingAndIntersectionsByStreetAPI extends SearchBaseAPI {
-		Street cacheBuilding;
 
 		public SearchBuildingAndIntersectionsByStreetAPI() {
 			super(ObjectType.HOUSE, ObjectType.STREET_INTERSECTION);
 		}
 
+		/**
+		 * Buildings of the street are loaded once and sorted by number, the same street could be searched by
+		 * apis of several threads
+		 */
+		private List<Building> getSortedBuildings(Street s, BinaryMapIndexReader file,
+				final SearchResultMatcher resultMatcher) throws IOException {
+			synchronized (s) {
+				if (!s.getBuildings().isEmpty()) {
+					return new ArrayList<Building>(s.getBuildings());
+				}
+				SearchRequest<Building> sr = BinaryMapIndexReader
+						.buildAddressRequest(new ResultMatcher<Building>() {
+
+							@Override
+							public boolean publish(Building object) {
+								return true;
+							}
+
+							@Override
+							public boolean isCancelled() {
+								return resultMatcher.isCancelled();
+							}
+						});
+
+				file.preloadBuildings(s, sr);
+				Collections.sort(s.getBuildings(), new Comparator<Building>() {
+
+					@Override
+					public int compare(Building o1, Building o2) {
+						int i1 = Algorithms.extractFirstIntegerNumber(o1.getName());
+						int i2 = Algorithms.extractFirstIntegerNumber(o2.getName());
+						if (i1 == i2) {
+							return 0;
+						}
+						return Algorithms.compare(i1, i2);
+					}
+				});
+				List<Building> buildings = new ArrayList<Building>(s.getBuildings());
+				if (resultMatcher.isCancelled()) {
+					// partly loaded buildings are not kept
+					s.getBuildings().clear();
+				}
+				return buildings;
+			}
+		}
+
 		@Override
 		public boolean isSearchMoreAvailable(SearchPhrase phrase) {
 			return false;
@@ -1258,7 +1433,7 @@ public class SearchCoreFactory {
 				priority = SEARCH_BUILDING_BY_CITY_PRIORITY;
 				Object o = phrase.getLastSelectedWord().getResult().object;
 				if (o instanceof City) {
-					List<Street> streets = ((City) o).getStreets();
+					List<Street> streets = getCityStreets((City) o, null);
 					if (streets.size() == 1) {
 						s = streets.get(0);
 					} else {
@@ -1276,40 +1451,11 @@ public class SearchCoreFactory {
 			if (s != null) {
 				BinaryMapIndexReader file = phrase.getLastSelectedWord().getResult().file;
 
-				if (cacheBuilding != s) {
-					cacheBuilding = s;
-					SearchRequest<Building> sr = BinaryMapIndexReader
-							.buildAddressRequest(new ResultMatcher<Building>() {
-
-								@Override
-								public boolean publish(Building object) {
-									return true;
-								}
-
-								@Override
-								public boolean isCancelled() {
-									return resultMatcher.isCancelled();
-								}
-							});
-
-					file.preloadBuildings(s, sr);
-					Collections.sort(s.getBuildings(), new Comparator<Building>() {
-
-						@Override
-						public int compare(Building o1, Building o2) {
-							int i1 = Algorithms.extractFirstIntegerNumber(o1.getName());
-							int i2 = Algorithms.extractFirstIntegerNumber(o2.getName());
-							if (i1 == i2) {
-								return 0;
-							}
-							return Algorithms.compare(i1, i2);
-						}
-					});
-				}
+				List<Building> buildings = getSortedBuildings(s, file, resultMatcher);
 				String lw = phrase.getUnknownWordToSearchBuilding();
 				NameStringMatcher buildingMatch = phrase.getUnknownWordToSearchBuildingNameMatcher();
 				NameStringMatcher startMatch = new NameStringMatcher(lw, StringMatcherMode.CHECK_ONLY_STARTS_WITH);
-				for (Building b : s.getBuildings()) {
+				for (Building b : buildings) {
 					SearchResult res = new SearchResult(phrase);
 					boolean interpolation = b.belongsToInterpolation(lw);
 					if ((!buildingMatch.matches(b.getName()) && !interpolation)
@@ -1344,7 +1490,7 @@ public class SearchCoreFactory {
 								CommonWords.getCommonSearch(streetIntersection) == -1) ) {
 					for (Street street : s.getIntersectedStreets()) {
 						SearchResult res = new SearchResult(phrase);
-						if ((!streetMatch.matches(street.getName()) && !streetMatch.matches(street.getAllNames(true)))
+						if (!streetMatch.matches(street, null)
 								|| !phrase.isSearchTypeAllowed(ObjectType.STREET_INTERSECTION)) {
 							continue;
 						}
@@ -1571,6 +1717,18 @@ public class SearchCoreFactory {
 		}
 	}
 
+	/**
+	 * Streets of the city are loaded once (if file is given), same city objects are used by apis running in parallel
+	 */
+	private static List<Street> getCityStreets(City c, BinaryMapIndexReader file) throws IOException {
+		synchronized (c) {
+			if (file != null && c.getStreets().isEmpty()) {
+				file.preloadStreets(c, null);
+			}
+			return new ArrayList<Street>(c.getStreets());
+		}
+	}
+
 	private static String stripBraces(String localeName) {
 		int i = localeName.indexOf('(');
 		String retName = localeName;
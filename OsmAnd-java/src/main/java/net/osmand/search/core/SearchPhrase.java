@@ -8,6 +8,7 @@ import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.CommonWords;
 import net.osmand.data.LatLon;
+import net.osmand.data.MapObject;
 import net.osmand.data.QuadRect;
 import net.osmand.util.Algorithms;
 import net.osmand.util.LocationParser;
@@ -748,10 +749,36 @@ public class SearchPhrase {
 			return false;
 		}
 
+		/**
+		 * Matches all names of object using cached folded names and locale name if it is not one of them
+		 */
+		public boolean matches(MapObject object, String localeName) {
+			String[][] names = object.getFoldedNames();
+			boolean localeNameChecked = localeName == null;
+			for (int i = 0; i < names[0].length; i++) {
+				if (sm.matchesFolded(names[1][i])) {
+					return true;
+				}
+				localeNameChecked = localeNameChecked || names[0][i].equals(localeName);
+			}
+			return !localeNameChecked && sm.matches(localeName);
+		}
+
 		@Override
 		public boolean matches(String name) {
 			return sm.matches(name);
 		}
+
+		/**
+		 * Folded part which could be matched only from beginning of some word, null if it is not the case
+		 */
+		public String getWordStartFoldedPart() {
+			String part = sm.getFoldedPart();
+			if (sm.getMode() == StringMatcherMode.CHECK_CONTAINS || part.length() == 0) {
+				return null;
+			}
+			return part;
+		}
 		
 	}
 	
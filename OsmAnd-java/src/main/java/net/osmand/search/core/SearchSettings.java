@@ -1,6 +1,7 @@
 package net.osmand.search.core;
 
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.NameIndexCache;
 import net.osmand.data.LatLon;
 
 import org.json.JSONArray;
@@ -24,6 +25,8 @@ public class SearchSettings {
 	private boolean emptyQueryAllowed;
 	private boolean sortByName;
 	private SearchExportSettings exportSettings; // = new SearchExportSettings(true, true, -1);
+	// shared between settings of one search session
+	private NameIndexCache nameIndexCache;
 
 	public SearchSettings(SearchSettings s) {
 		if(s != null) {
@@ -37,6 +40,7 @@ public class SearchSettings {
 			this.emptyQueryAllowed = s.emptyQueryAllowed;
 			this.sortByName = s.sortByName;
 			this.exportSettings = s.exportSettings;
+			this.nameIndexCache = s.nameIndexCache;
 		}
 	}
 	
@@ -147,6 +151,16 @@ public class SearchSettings {
 		return s;
 	}
 
+	public NameIndexCache getNameIndexCache() {
+		return nameIndexCache;
+	}
+
+	public SearchSettings setNameIndexCache(NameIndexCache nameIndexCache) {
+		SearchSettings s = new SearchSettings(this);
+		s.nameIndexCache = nameIndexCache;
+		return s;
+	}
+
 	public boolean isExportObjects() {
 		return exportSettings != null;
 	}
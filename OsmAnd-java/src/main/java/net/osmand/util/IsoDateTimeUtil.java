@@ -0,0 +1,212 @@
+package net.osmand.util;
+
+/**
+ * ISO-8601 / RFC-3339 timestamps as used in gpx: 2020-05-17T10:15:30Z, 2020-05-17T10:15:30.250Z, 2020-05-17T12:15:30+02:00.
+ * Parsing works on characters directly and allocates nothing, formatting is always in UTC.
+ */
+public class IsoDateTimeUtil {
+
+	public static final long INVALID_TIME = Long.MIN_VALUE;
+
+	private static final long MILLIS_IN_SECOND = 1000;
+	private static final long MILLIS_IN_MINUTE = 60 * MILLIS_IN_SECOND;
+	private static final long MILLIS_IN_HOUR = 60 * MILLIS_IN_MINUTE;
+	private static final long MILLIS_IN_DAY = 24 * MILLIS_IN_HOUR;
+
+	/**
+	 * @return epoch millis or {@link #INVALID_TIME} if text is not a valid timestamp.
+	 * Time without offset is considered as UTC.
+	 */
+	public static long parse(CharSequence s) {
+		if (s == null) {
+			return INVALID_TIME;
+		}
+		int end = s.length();
+		while (end > 0 && Character.isWhitespace(s.charAt(end - 1))) {
+			end--;
+		}
+		int i = 0;
+		while (i < end && Character.isWhitespace(s.charAt(i))) {
+			i++;
+		}
+		// yyyy-MM-ddTHH:mm
+		if (end - i < 16 || s.charAt(i + 4) != '-' || s.charAt(i + 7) != '-' || s.charAt(i + 13) != ':') {
+			return INVALID_TIME;
+		}
+		char t = s.charAt(i + 10);
+		if (t != 'T' && t != 't' && t != ' ') {
+			return INVALID_TIME;
+		}
+		int year = digits(s, i, 4);
+		int month = digits(s, i + 5, 2);
+		int day = digits(s, i + 8, 2);
+		int hour = digits(s, i + 11, 2);
+		int minute = digits(s, i + 14, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+			return INVALID_TIME;
+		}
+		i += 16;
+		int second = 0;
+		int millis = 0;
+		if (i < end && s.charAt(i) == ':') {
+			second = digits(s, i + 1, 2);
+			// 60 is leap second
+			if (second < 0 || second > 60) {
+				return INVALID_TIME;
+			}
+			i += 3;
+			if (i < end && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+				i++;
+				int start = i;
+				int scale = 100;
+				while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+					millis += (s.charAt(i) - '0') * scale;
+					scale /= 10;
+					i++;
+				}
+				if (i == start) {
+					return INVALID_TIME;
+				}
+			}
+		}
+		long offset = 0;
+		if (i < end) {
+			char z = s.charAt(i);
+			if (z == 'Z' || z == 'z') {
+				i++;
+			} else if (z == '+' || z == '-') {
+				int offsetHours = digits(s, i + 1, 2);
+				int offsetMinutes = 0;
+				i += 3;
+				if (i < end) {
+					if (s.charAt(i) == ':') {
+						i++;
+					}
+					offsetMinutes = digits(s, i, 2);
+					i += 2;
+				}
+				if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+					return INVALID_TIME;
+				}
+				offset = offsetHours * MILLIS_IN_HOUR + offsetMinutes * MILLIS_IN_MINUTE;
+				if (z == '-') {
+					offset = -offset;
+				}
+			}
+		}
+		if (i != end) {
+			return INVALID_TIME;
+		}
+		return daysFromCivil(year, month, day) * MILLIS_IN_DAY + hour * MILLIS_IN_HOUR
+				+ minute * MILLIS_IN_MINUTE + second * MILLIS_IN_SECOND + millis - offset;
+	}
+
+	/**
+	 * Formats as yyyy-MM-ddTHH:mm:ssZ in UTC
+	 */
+	public static String format(long time) {
+		return append(new StringBuilder(20), time, false).toString();
+	}
+
+	/**
+	 * Formats as yyyy-MM-ddTHH:mm:ss.SSSZ in UTC
+	 */
+	public static String formatMillis(long time) {
+		return append(new StringBuilder(24), time, true).toString();
+	}
+
+	public static StringBuilder append(StringBuilder sb, long time, boolean withMillis) {
+		long days = floorDiv(time, MILLIS_IN_DAY);
+		int millisOfDay = (int) (time - days * MILLIS_IN_DAY);
+		// civil from days
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+		appendDigits(sb, year, 4).append('-');
+		appendDigits(sb, month, 2).append('-');
+		appendDigits(sb, day, 2).append('T');
+		appendDigits(sb, millisOfDay / MILLIS_IN_HOUR, 2).append(':');
+		appendDigits(sb, millisOfDay / MILLIS_IN_MINUTE % 60, 2).append(':');
+		appendDigits(sb, millisOfDay / MILLIS_IN_SECOND % 60, 2);
+		if (withMillis) {
+			sb.append('.');
+			appendDigits(sb, millisOfDay % MILLIS_IN_SECOND, 3);
+		}
+		return sb.append('Z');
+	}
+
+	private static StringBuilder appendDigits(StringBuilder sb, long value, int width) {
+		if (value < 0) {
+			sb.append('-');
+			value = -value;
+		}
+		long pow = 1;
+		for (int i = 1; i < width; i++) {
+			pow *= 10;
+		}
+		while (pow > 1 && value < pow) {
+			sb.append('0');
+			pow /= 10;
+		}
+		return sb.append(value);
+	}
+
+	private static int digits(CharSequence s, int start, int count) {
+		if (start + count > s.length()) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return isLeapYear(year) ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	// proleptic gregorian calendar, days since 1970-01-01
+	private static long daysFromCivil(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	private static long floorDiv(long x, long y) {
+		long r = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			r--;
+		}
+		return r;
+	}
+}
@@ -0,0 +1,334 @@
+package net.osmand.util;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Polyline simplification over primitive coordinate arrays (Douglas-Peucker, Visvalingam-Whyatt).
+ * Both algorithms compute importance of every point once, simplification with any tolerance
+ * is selection of points with importance not less than tolerance.
+ * Importance is monotone: points kept with bigger tolerance are always kept with smaller one.
+ */
+public class TrackSimplification {
+
+	public static final int TILE_SIZE_POWER = 8;
+
+	/**
+	 * Douglas-Peucker importance: distance (in units of coordinates) of point to the chord
+	 * it splits, limited by importance of enclosing chord. End points have infinite importance.
+	 * Not recursive, so it could be used for tracks of any length.
+	 */
+	public static double[] douglasPeuckerImportance(double[] x, double[] y, int n) {
+		double[] importance = new double[n];
+		if (n == 0) {
+			return importance;
+		}
+		importance[0] = Double.POSITIVE_INFINITY;
+		importance[n - 1] = Double.POSITIVE_INFINITY;
+		TIntArrayList stack = new TIntArrayList();
+		stack.add(0);
+		stack.add(n - 1);
+		while (!stack.isEmpty()) {
+			int end = stack.removeAt(stack.size() - 1);
+			int start = stack.removeAt(stack.size() - 1);
+			if (end - start < 2) {
+				continue;
+			}
+			double dmax = -1;
+			int index = -1;
+			for (int i = start + 1; i < end; i++) {
+				double dist = distanceToSegmentSquared(x[i], y[i], x[start], y[start], x[end], y[end]);
+				if (dist > dmax) {
+					dmax = dist;
+					index = i;
+				}
+			}
+			importance[index] = Math.min(Math.sqrt(dmax), Math.min(importance[start], importance[end]));
+			stack.add(start);
+			stack.add(index);
+			stack.add(index);
+			stack.add(end);
+		}
+		return importance;
+	}
+
+	/**
+	 * Visvalingam-Whyatt importance: effective area of triangle formed by point with its neighbours
+	 * at the moment of removal (in square units of coordinates). End points have infinite importance.
+	 */
+	public static double[] visvalingamImportance(double[] x, double[] y, int n) {
+		double[] importance = new double[n];
+		if (n == 0) {
+			return importance;
+		}
+		importance[0] = Double.POSITIVE_INFINITY;
+		importance[n - 1] = Double.POSITIVE_INFINITY;
+		if (n < 3) {
+			return importance;
+		}
+		int[] prev = new int[n];
+		int[] next = new int[n];
+		for (int i = 0; i < n; i++) {
+			prev[i] = i - 1;
+			next[i] = i + 1;
+		}
+		AreaHeap heap = new AreaHeap(n);
+		for (int i = 1; i < n - 1; i++) {
+			heap.push(i, area(x, y, i - 1, i, i + 1));
+		}
+		double max = 0;
+		while (!heap.isEmpty()) {
+			int i = heap.pop();
+			// area of triangle could decrease after removal of neighbour, point couldn't be less important than removed before
+			max = Math.max(max, heap.area[i]);
+			importance[i] = max;
+			int p = prev[i];
+			int nx = next[i];
+			next[p] = nx;
+			prev[nx] = p;
+			if (p > 0) {
+				heap.update(p, area(x, y, prev[p], p, nx));
+			}
+			if (nx < n - 1) {
+				heap.update(nx, area(x, y, p, nx, next[nx]));
+			}
+		}
+		return importance;
+	}
+
+	public static int[] douglasPeucker(double[] x, double[] y, int n, double tolerance) {
+		return select(douglasPeuckerImportance(x, y, n), tolerance);
+	}
+
+	public static int[] visvalingam(double[] x, double[] y, int n, double minArea) {
+		return select(visvalingamImportance(x, y, n), minArea);
+	}
+
+	/**
+	 * Keeps at most maxPoints most important points (e.g. for charts of elevation or speed by distance).
+	 */
+	public static int[] visvalingamByCount(double[] x, double[] y, int n, int maxPoints) {
+		return selectCount(visvalingamImportance(x, y, n), maxPoints);
+	}
+
+	/**
+	 * @return indexes of points with importance not less than threshold in ascending order
+	 */
+	public static int[] select(double[] importance, double threshold) {
+		int cnt = 0;
+		for (double v : importance) {
+			if (v >= threshold) {
+				cnt++;
+			}
+		}
+		int[] res = new int[cnt];
+		int k = 0;
+		for (int i = 0; i < importance.length; i++) {
+			if (importance[i] >= threshold) {
+				res[k++] = i;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return indexes of at most maxPoints most important points in ascending order
+	 */
+	public static int[] selectCount(double[] importance, int maxPoints) {
+		int n = importance.length;
+		if (maxPoints >= n) {
+			return select(importance, Double.NEGATIVE_INFINITY);
+		}
+		if (maxPoints <= 0) {
+			return new int[0];
+		}
+		double[] sorted = Arrays.copyOf(importance, n);
+		Arrays.sort(sorted);
+		double threshold = sorted[n - maxPoints];
+		// points with importance equal to threshold are kept while there is room for them
+		int above = n - maxPoints;
+		while (above < n && sorted[above] == threshold) {
+			above++;
+		}
+		int equalAllowed = maxPoints - (n - above);
+		int[] res = new int[maxPoints];
+		int k = 0;
+		for (int i = 0; i < n && k < maxPoints; i++) {
+			double v = importance[i];
+			if (v > threshold) {
+				res[k++] = i;
+			} else if (v == threshold && equalAllowed > 0) {
+				equalAllowed--;
+				res[k++] = i;
+			}
+		}
+		return res;
+	}
+
+	private static double area(double[] x, double[] y, int a, int b, int c) {
+		return Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) / 2;
+	}
+
+	private static double distanceToSegmentSquared(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double len = dx * dx + dy * dy;
+		double t = len == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len;
+		if (t < 0) {
+			t = 0;
+		} else if (t > 1) {
+			t = 1;
+		}
+		double ex = px - (ax + t * dx);
+		double ey = py - (ay + t * dy);
+		return ex * ex + ey * ey;
+	}
+
+	/**
+	 * Precomputed simplified subsets of track for zoom levels (Douglas-Peucker on 31 tile coordinates),
+	 * so each level is fetched without visiting all points of track.
+	 */
+	public static class LevelOfDetail {
+		private final int minZoom;
+		private final int maxZoom;
+		private final int[][] levels;
+
+		/**
+		 * @param pixelTolerance maximum deviation of simplified track on screen (256 pixels per tile)
+		 */
+		public LevelOfDetail(int[] x31, int[] y31, int n, int minZoom, int maxZoom, double pixelTolerance) {
+			this.minZoom = minZoom;
+			this.maxZoom = maxZoom;
+			double[] x = new double[n];
+			double[] y = new double[n];
+			for (int i = 0; i < n; i++) {
+				x[i] = x31[i];
+				y[i] = y31[i];
+			}
+			double[] importance = douglasPeuckerImportance(x, y, n);
+			levels = new int[maxZoom - minZoom + 1][];
+			int[] previous = null;
+			for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+				double tolerance = pixelTolerance * Math.pow(2, 31 - TILE_SIZE_POWER - zoom);
+				int[] level = select(importance, tolerance);
+				// subsets are nested, same size means same points
+				if (previous != null && previous.length == level.length) {
+					level = previous;
+				}
+				levels[zoom - minZoom] = level;
+				previous = level;
+			}
+		}
+
+		public static LevelOfDetail fromLatLon(double[] lat, double[] lon, int n, int minZoom, int maxZoom,
+											   double pixelTolerance) {
+			int[] x31 = new int[n];
+			int[] y31 = new int[n];
+			for (int i = 0; i < n; i++) {
+				x31[i] = MapUtils.get31TileNumberX(lon[i]);
+				y31[i] = MapUtils.get31TileNumberY(lat[i]);
+			}
+			return new LevelOfDetail(x31, y31, n, minZoom, maxZoom, pixelTolerance);
+		}
+
+		public int getMinZoom() {
+			return minZoom;
+		}
+
+		public int getMaxZoom() {
+			return maxZoom;
+		}
+
+		/**
+		 * @return indexes of points to draw at zoom in ascending order, array must not be modified
+		 */
+		public int[] getIndexes(int zoom) {
+			int z = Math.max(minZoom, Math.min(maxZoom, zoom));
+			return levels[z - minZoom];
+		}
+	}
+
+	private static class AreaHeap {
+		private final double[] area;
+		private final int[] heap;
+		private final int[] pos;
+		private int size;
+
+		AreaHeap(int n) {
+			area = new double[n];
+			heap = new int[n];
+			pos = new int[n];
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void push(int i, double a) {
+			area[i] = a;
+			heap[size] = i;
+			pos[i] = size;
+			size++;
+			up(size - 1);
+		}
+
+		int pop() {
+			int top = heap[0];
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				pos[heap[0]] = 0;
+				down(0);
+			}
+			pos[top] = -1;
+			return top;
+		}
+
+		void update(int i, double a) {
+			double old = area[i];
+			area[i] = a;
+			if (a < old) {
+				up(pos[i]);
+			} else {
+				down(pos[i]);
+			}
+		}
+
+		private void up(int k) {
+			int i = heap[k];
+			while (k > 0) {
+				int parent = (k - 1) >> 1;
+				if (area[heap[parent]] <= area[i]) {
+					break;
+				}
+				heap[k] = heap[parent];
+				pos[heap[k]] = k;
+				k = parent;
+			}
+			heap[k] = i;
+			pos[i] = k;
+		}
+
+		private void down(int k) {
+			int i = heap[k];
+			while (true) {
+				int child = 2 * k + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && area[heap[child + 1]] < area[heap[child]]) {
+					child++;
+				}
+				if (area[heap[child]] >= area[i]) {
+					break;
+				}
+				heap[k] = heap[child];
+				pos[heap[k]] = k;
+				k = child;
+			}
+			heap[k] = i;
+			pos[i] = k;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package net.osmand;
+
+import java.util.Locale;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CollatorStringMatcherTest {
+
+	@Test
+	public void testFoldString() {
+		Assert.assertEquals("strasse", CollatorStringMatcher.foldString("Straße"));
+		Assert.assertEquals("cafe creme", CollatorStringMatcher.foldString("Café Crème"));
+		// collator distinguishes ł from l
+		Assert.assertEquals("łodz", CollatorStringMatcher.foldString("Łódź"));
+		Assert.assertEquals("main street", CollatorStringMatcher.foldString("main street"));
+	}
+
+	@Test
+	public void testMatchesAsCollator() {
+		String[] names = { "Auhofstraße 12", "Café de Paris", "rue de l'Église", "Zürich Hauptbahnhof", "Main Street" };
+		String[] parts = { "auhofstrasse", "cafe", "paris", "eglise", "zurich", "haupt", "bahnhof", "main street", "street",
+				"de" };
+		for (StringMatcherMode mode : StringMatcherMode.values()) {
+			for (String part : parts) {
+				CollatorStringMatcher matcher = new CollatorStringMatcher(part, mode);
+				for (String name : names) {
+					boolean expected = CollatorStringMatcher.cmatches(matcher.getCollator(), name,
+							part, mode);
+					Assert.assertEquals(mode + " " + part + " in " + name, expected, matcher.matches(name));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLocaleSpecificLetters() {
+		checkLocale("en", new String[] { "Åre", "йошкар-ола", "Çanakkale", "カフェ" },
+				new String[] { "are", "йошкар", "иошкар", "canakkale", "かふぇ", "カフェ" });
+		checkLocale("sv", new String[] { "Åre", "Älvsbyn", "Malmö Centralstation" },
+				new String[] { "are", "åre", "alvsbyn", "malmo", "malmö" });
+		checkLocale("ru", new String[] { "йошкар-ола", "улица мира", "ёлкино" },
+				new String[] { "йошкар", "иошкар", "мира", "елкино" });
+		checkLocale("tr", new String[] { "Çanakkale", "Işıklar Caddesi", "İstanbul" },
+				new String[] { "canakkale", "çanakkale", "isiklar", "ışıklar", "istanbul" });
+		checkLocale("ja", new String[] { "カフェ ドトール", "がっこう" },
+				new String[] { "かふぇ", "カフェ", "どと", "がっこう", "ガッコウ" });
+	}
+
+	@Test
+	public void testFoldStringKeepsLocaleLetters() {
+		Locale def = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("sv"));
+			Assert.assertFalse(new CollatorStringMatcher("are", StringMatcherMode.CHECK_STARTS_FROM_SPACE).matches("Åre"));
+			Locale.setDefault(new Locale("ru"));
+			Assert.assertFalse(new CollatorStringMatcher("иошкар", StringMatcherMode.CHECK_STARTS_FROM_SPACE)
+					.matches("Йошкар-Ола"));
+			Locale.setDefault(new Locale("tr"));
+			Assert.assertFalse(new CollatorStringMatcher("canakkale", StringMatcherMode.CHECK_EQUALS)
+					.matches("Çanakkale"));
+			Locale.setDefault(new Locale("ja"));
+			Assert.assertTrue(new CollatorStringMatcher("かふぇ", StringMatcherMode.CHECK_STARTS_FROM_SPACE)
+					.matches("カフェ ドトール"));
+			Locale.setDefault(Locale.US);
+			Assert.assertTrue(new CollatorStringMatcher("are", StringMatcherMode.CHECK_STARTS_FROM_SPACE).matches("Åre"));
+		} finally {
+			Locale.setDefault(def);
+		}
+	}
+
+	private void checkLocale(String language, String[] names, String[] parts) {
+		Locale def = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale(language));
+			for (StringMatcherMode mode : StringMatcherMode.values()) {
+				for (String part : parts) {
+					CollatorStringMatcher matcher = new CollatorStringMatcher(part, mode);
+					for (String name : names) {
+						boolean expected = CollatorStringMatcher.cmatches(matcher.getCollator(), name, part, mode);
+						Assert.assertEquals(language + " " + mode + " " + part + " in " + name, expected,
+								matcher.matches(name));
+					}
+				}
+			}
+		} finally {
+			Locale.setDefault(def);
+		}
+	}
+}
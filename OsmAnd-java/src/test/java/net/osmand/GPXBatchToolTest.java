@@ -0,0 +1,215 @@
+package net.osmand;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.GPXBatchTool.FileSummary;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GPXBatchToolTest {
+
+	private static final long TIME = 1500000000000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private GPXBatchTool tool;
+
+	@Before
+	public void setUp() {
+		tool = new GPXBatchTool(2);
+	}
+
+	@After
+	public void tearDown() {
+		tool.shutdown();
+	}
+
+	@Test
+	public void testScan() throws IOException {
+		GPXFile gpx = createGpx(50, 4, 20, TIME);
+		gpx.addPoint(new WptPt(60, 5, 0, Double.NaN, 0, Double.NaN));
+		Route route = new Route();
+		route.points.add(new WptPt(70, 6, 0, Double.NaN, 0, Double.NaN));
+		gpx.routes.add(route);
+		File file = write(gpx, "a.gpx");
+		File broken = folder.newFile("broken.gpx");
+		FileOutputStream out = new FileOutputStream(broken);
+		out.write("<gpx><trk><trkseg><trkpt lat=\"1\" lon=".getBytes("UTF-8"));
+		out.close();
+
+		List<FileSummary> res = tool.scan(Arrays.asList(file, broken));
+		Assert.assertEquals(2, res.size());
+		FileSummary s = res.get(0);
+		Assert.assertSame(file, s.file);
+		Assert.assertNull(s.error);
+		Assert.assertEquals(1, s.tracks);
+		Assert.assertEquals(20, s.points);
+		Assert.assertEquals(1, s.routes);
+		Assert.assertEquals(1, s.waypoints);
+		Assert.assertEquals(TIME, s.startTime);
+		Assert.assertEquals(TIME + 19000, s.endTime);
+		// route points and waypoints are not in bounds of tracks
+		Assert.assertEquals(50, s.bounds.bottom, 1e-9);
+		Assert.assertEquals(50 + 19 * 0.001, s.bounds.top, 1e-9);
+		Assert.assertSame(broken, res.get(1).file);
+		Assert.assertNotNull(res.get(1).error);
+	}
+
+	@Test
+	public void testDeduplicate() throws IOException {
+		File a = write(createGpx(50, 4, 20, TIME), "a.gpx");
+		File copy = write(createGpx(50, 4, 20, TIME), "copy.gpx");
+		// same place and time with more points
+		File longer = write(createGpx(50, 4, 25, TIME), "longer.gpx");
+		File later = write(createGpx(50, 4, 20, TIME + 3600000), "later.gpx");
+		File other = write(createGpx(10, 4, 20, TIME - 3600000), "other.gpx");
+		File empty = write(new GPXFile(null), "empty.gpx");
+		List<FileSummary> res = GPXBatchTool.deduplicate(tool.scan(Arrays.asList(a, copy, longer, later, other, empty)), 0.5);
+		List<File> kept = new ArrayList<>();
+		for (FileSummary s : res) {
+			kept.add(s.file);
+		}
+		// files without time are the last
+		Assert.assertEquals(Arrays.asList(other, longer, later, empty), kept);
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		GPXFile first = createGpx(50, 4, 20, TIME);
+		first.addPoint(new WptPt(60, 5, 0, Double.NaN, 0, Double.NaN));
+		Route route = new Route();
+		route.name = "r";
+		route.points.add(new WptPt(70, 6, 0, Double.NaN, 0, Double.NaN));
+		first.routes.add(route);
+		GPXFile second = createGpx(51, 4, 30, TIME + 3600000);
+		second.tracks.get(0).segments.add(createGpx(52, 4, 5, TIME + 7200000).tracks.get(0).segments.get(0));
+		File output = new File(folder.getRoot(), "out/merged.gpx");
+		List<FileSummary> kept = tool.consolidate(Arrays.asList(write(second, "b.gpx"), write(first, "a.gpx")),
+				output, 0.5);
+		Assert.assertEquals(2, kept.size());
+
+		GPXFile merged = GPXUtilities.loadGPXFile(output);
+		Assert.assertNull(merged.error);
+		Assert.assertEquals(2, merged.tracks.size());
+		Assert.assertEquals(1, merged.tracks.get(0).segments.size());
+		Assert.assertEquals(20, merged.tracks.get(0).segments.get(0).points.size());
+		Assert.assertEquals(2, merged.tracks.get(1).segments.size());
+		Assert.assertEquals(30, merged.tracks.get(1).segments.get(0).points.size());
+		Assert.assertEquals(5, merged.tracks.get(1).segments.get(1).points.size());
+		Assert.assertEquals(1, merged.routes.size());
+		Assert.assertEquals("r", merged.routes.get(0).name);
+		Assert.assertEquals(1, merged.routes.get(0).points.size());
+		Assert.assertEquals(1, merged.getPoints().size());
+	}
+
+	@Test
+	public void testSplitByTime() throws IOException {
+		// limit is reached on last point of segment
+		GPXFile gpx = createGpx(50, 4, 21, TIME);
+		gpx.addPoint(new WptPt(60, 5, 0, Double.NaN, 0, Double.NaN));
+		File outputDir = new File(folder.getRoot(), "parts");
+		List<GPXTrackAnalysis> parts = GPXBatchTool.split(write(gpx, "track.gpx"), outputDir, 0, 10);
+		Assert.assertEquals(2, parts.size());
+		Assert.assertEquals(11, parts.get(0).points);
+		Assert.assertEquals(11, parts.get(1).points);
+		Assert.assertEquals(10000, parts.get(1).timeSpan);
+		Assert.assertEquals(2, outputDir.list().length);
+
+		GPXFile first = GPXUtilities.loadGPXFile(new File(outputDir, "track_1.gpx"));
+		GPXFile second = GPXUtilities.loadGPXFile(new File(outputDir, "track_2.gpx"));
+		List<WptPt> firstPoints = first.tracks.get(0).segments.get(0).points;
+		List<WptPt> secondPoints = second.tracks.get(0).segments.get(0).points;
+		// border point is in both parts
+		Assert.assertEquals(firstPoints.get(10).time, secondPoints.get(0).time);
+		Assert.assertEquals(TIME + 20000, secondPoints.get(10).time);
+		Assert.assertTrue(first.getPoints().isEmpty());
+		Assert.assertEquals(1, second.getPoints().size());
+	}
+
+	@Test
+	public void testSplitByDistance() throws IOException {
+		GPXFile gpx = createGpx(50, 4, 100, TIME);
+		gpx.tracks.get(0).segments.add(createGpx(51, 4, 3, TIME + 3600000).tracks.get(0).segments.get(0));
+		File outputDir = new File(folder.getRoot(), "parts");
+		List<GPXTrackAnalysis> parts = GPXBatchTool.split(write(gpx, "track.gpx"), outputDir, 1000, 0);
+		int points = 0;
+		for (GPXTrackAnalysis a : parts) {
+			points += a.points;
+		}
+		// 111 m between points: 11 parts of 10 points with 9 border points, last one of next segment
+		Assert.assertEquals(12, parts.size());
+		Assert.assertEquals(100 + 10 + 3, points);
+		Assert.assertEquals(3, parts.get(11).points);
+		for (int i = 0; i < 11; i++) {
+			Assert.assertEquals(10, parts.get(i).points);
+			Assert.assertTrue(parts.get(i).totalDistance >= 1000);
+		}
+	}
+
+	@Test
+	public void testSplitFilesWithSameName() throws IOException {
+		File a = write(createGpx(50, 4, 21, TIME), "a/track.gpx");
+		File b = write(createGpx(51, 4, 21, TIME), "b/track.gpx");
+		File c = write(createGpx(52, 4, 21, TIME), "c/Track.xml");
+		File outputDir = new File(folder.getRoot(), "parts");
+		try {
+			tool.split(Arrays.asList(a, b), outputDir, 0, 10);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			tool.split(Arrays.asList(a, c), outputDir, 0, 10);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertFalse(outputDir.exists());
+
+		File d = write(createGpx(53, 4, 21, TIME), "b/other.gpx");
+		Map<File, List<GPXTrackAnalysis>> res = tool.split(Arrays.asList(a, d), outputDir, 0, 10);
+		Assert.assertEquals(2, res.get(a).size());
+		Assert.assertEquals(2, res.get(d).size());
+		String[] names = outputDir.list();
+		Arrays.sort(names);
+		Assert.assertEquals(Arrays.asList("other_1.gpx", "other_2.gpx", "track_1.gpx", "track_2.gpx"), Arrays.asList(names));
+	}
+
+	private File write(GPXFile gpx, String name) {
+		File file = new File(folder.getRoot(), name);
+		file.getParentFile().mkdirs();
+		Assert.assertNull(GPXUtilities.writeGpxFile(file, gpx));
+		return file;
+	}
+
+	// points are 0.001 degree (111 m) and 1 second from each other
+	private static GPXFile createGpx(double lat, double lon, int count, long time) {
+		GPXFile gpx = new GPXFile(null);
+		Track track = new Track();
+		TrkSegment segment = new TrkSegment();
+		for (int i = 0; i < count; i++) {
+			segment.points.add(new WptPt(lat + i * 0.001, lon, time + i * 1000, 100, 0, Double.NaN));
+		}
+		track.segments.add(segment);
+		gpx.tracks.add(track);
+		return gpx;
+	}
+}
@@ -0,0 +1,280 @@
+package net.osmand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GPXIncrementalAnalysisTest {
+
+	private static final long FILESTAMP = 1000;
+	private static final int TRACKS = 8;
+	// analysis of tracks createGpx(new Random(1)) .. createGpx(new Random(8)) recorded from
+	// prepareInformation before it was moved to GPXIncrementalAnalysis:
+	// points, totalDistance, startTime, endTime, timeSpan, timeMoving, totalDistanceMoving,
+	// diffElevationUp, diffElevationDown, avgElevation, minElevation, maxElevation, minSpeed, maxSpeed, avgSpeed,
+	// hasSpeedInTrack, hasSpeedData, hasElevationData, elevationData size, sum of elevations (without NaN),
+	// sum of elevation distances, speedData size, sum of speeds
+	private static final double[][] EXPECTED = {
+		{ 80, 3110.8608, 1500000009000L, 1500000794000L, 785000, 732000, 2696.2742,
+				47.959999999999994, 11.019999999999982, 116.28245544433594, 86.6, 136.4, 0.0, 30.050446, 3.6834345,
+				0, 1, 1, 80, 6628.10001373291, 3110.8603839874268, 80, 330.6681332886219 },
+		{ 153, 6138.322, 1500000009000L, 1500001387000L, 1378000, 1334000, 5187.076,
+				43.95999999999998, 55.030000000000015, 121.38776397705078, 94.7, 138.7, 0.0, 53.351475, 3.8883631,
+				0, 1, 1, 153, 11895.999992370605, 6138.322530508041, 153, 877.1760779470205 },
+		{ 98, 3758.714, 1500000006000L, 1500000831000L, 825000, 292000, 1356.886,
+				26.915000000000035, 21.414999999999992, 86.97917938232422, 70.2, 98.7, 0.0, 18.372446, 4.6468697,
+				1, 1, 1, 98, 4174.999984741211, 3758.713343143463, 98, 173.2467738687992 },
+		{ 95, 3923.349, 1500000013000L, 1500000845000L, 832000, 131000, 675.0164,
+				31.694999999999993, 49.480000000000004, 85.57413482666016, 68.8, 107.4, 0.0, 9.0, 5.1527967,
+				1, 1, 1, 95, 7273.799987792969, 3923.349031686783, 95, 106.3511734008789 },
+		{ 98, 4166.0166, 1500000002000L, 1500000816000L, 814000, 257000, 1005.4165,
+				49.35000000000001, 0.0, 124.29698181152344, 93.6, 153.9, 0.0, 12.699032, 3.9121265,
+				1, 1, 1, 98, 8203.599990844727, 4166.017460107803, 98, 104.2006347477436 },
+		{ 179, 7221.8203, 1500000000000L, 1500001600000L, 1600000, 1538000, 5682.171,
+				58.930000000000014, 41.3, 66.31587982177734, 45.7, 90.5, 0.0, 74.41368, 3.6945195,
+				0, 1, 1, 179, 7095.799976348877, 7221.822023272514, 179, 895.3710618913174 },
+		{ 153, 5912.3457, 1500000001000L, 1500001274000L, 1273000, 313000, 1542.9338,
+				43.12666666666668, 55.68000000000002, 82.95753479003906, 57.9, 109.5, 0.0, 9.0, 4.929501,
+				1, 1, 1, 153, 11531.099960327148, 5912.347155094147, 153, 199.4045958518982 },
+		{ 122, 5031.643, 1500000001000L, 1500001206000L, 1205000, 1108000, 4484.3184,
+				15.349999999999994, 0.0, 106.9415054321289, 84.8, 121.8, 0.0, 63.56271, 4.047219,
+				1, 1, 1, 122, 5667.89998626709, 5031.642763137817, 122, 696.1205607652664 }
+	};
+
+	@Test
+	public void testGpxAnalysisSameAsBefore() {
+		for (int test = 0; test < TRACKS; test++) {
+			GPXFile gpx = createGpx(new Random(test + 1));
+			assertExpectedAnalysis(EXPECTED[test], gpx.getAnalysis(FILESTAMP));
+		}
+	}
+
+	@Test
+	public void testSequentialSameAsBefore() {
+		for (int test = 0; test < TRACKS; test++) {
+			GPXFile gpx = createGpx(new Random(test + 1));
+			assertExpectedAnalysis(EXPECTED[test], sequential(gpx).getAnalysis(FILESTAMP));
+		}
+	}
+
+	@Test
+	public void testMergedSameAsBefore() {
+		for (int test = 0; test < TRACKS; test++) {
+			GPXFile gpx = createGpx(new Random(test + 1));
+			assertExpectedAnalysis(EXPECTED[test], merged(gpx).getAnalysis(FILESTAMP));
+		}
+	}
+
+	@Test
+	public void testMergedEqualsSequential() {
+		Random rnd = new Random(17);
+		for (int test = 0; test < 100; test++) {
+			GPXFile gpx = createGpx(rnd);
+			assertSameAnalysis(sequential(gpx).getAnalysis(FILESTAMP), merged(gpx).getAnalysis(FILESTAMP));
+		}
+	}
+
+	private static GPXIncrementalAnalysis sequential(GPXFile gpx) {
+		GPXIncrementalAnalysis analysis = new GPXIncrementalAnalysis();
+		for (TrkSegment segment : gpx.tracks.get(0).segments) {
+			analysis.startSegment(false, false);
+			analysis.addPoints(segment.points, 0);
+		}
+		return analysis;
+	}
+
+	// merge as parallel reduction does: neighbours first
+	private static GPXIncrementalAnalysis merged(GPXFile gpx) {
+		List<GPXIncrementalAnalysis> analyses = new ArrayList<>();
+		for (TrkSegment segment : gpx.tracks.get(0).segments) {
+			analyses.add(analysis(segment));
+		}
+		while (analyses.size() > 1) {
+			List<GPXIncrementalAnalysis> merged = new ArrayList<>();
+			for (int i = 0; i < analyses.size(); i += 2) {
+				GPXIncrementalAnalysis analysis = analyses.get(i);
+				if (i + 1 < analyses.size()) {
+					analysis.merge(analyses.get(i + 1));
+				}
+				merged.add(analysis);
+			}
+			analyses = merged;
+		}
+		return analyses.get(0);
+	}
+
+	@Test
+	public void testDerivedSpeedsAfterSpeedInTrack() {
+		TrkSegment withSpeed = segment(0, 0, 1000, 5, 3);
+		TrkSegment withoutSpeed = segment(0.01, 0.01, 2000, 5, 0);
+		GPXIncrementalAnalysis first = analysis(withSpeed);
+		GPXIncrementalAnalysis second = analysis(withoutSpeed);
+		Assert.assertTrue(second.getAnalysis(FILESTAMP).maxSpeed > 0);
+		first.merge(second);
+		GPXTrackAnalysis merged = first.getAnalysis(FILESTAMP);
+		Assert.assertEquals(3, merged.maxSpeed, 1e-6);
+		Assert.assertEquals(0, merged.minSpeed, 1e-6);
+		List<Speed> speedData = merged.speedData;
+		for (int i = 5; i < 10; i++) {
+			Assert.assertEquals(0, speedData.get(i).speed, 1e-6);
+		}
+		// speeds are derived without speed in previous segments
+		first = analysis(segment(0.01, 0.01, 2000, 5, 0));
+		first.merge(analysis(segment(0, 0, 1000, 5, 3)));
+		Assert.assertTrue(first.getAnalysis(FILESTAMP).speedData.get(1).speed > 0);
+	}
+
+	@Test
+	public void testAnalysisListsAreCopied() {
+		GPXIncrementalAnalysis analysis = new GPXIncrementalAnalysis();
+		TrkSegment segment = segment(0, 0, 1000, 10, 2);
+		analysis.addPoints(segment.points.subList(0, 5), 0);
+		GPXTrackAnalysis before = analysis.getAnalysis(FILESTAMP);
+		analysis.addPoints(segment.points, 5);
+		GPXTrackAnalysis after = analysis.getAnalysis(FILESTAMP);
+		Assert.assertEquals(5, before.elevationData.size());
+		Assert.assertEquals(5, before.speedData.size());
+		Assert.assertEquals(10, after.elevationData.size());
+		Assert.assertEquals(10, after.speedData.size());
+		Assert.assertEquals(5, before.points);
+	}
+
+	private static GPXIncrementalAnalysis analysis(TrkSegment segment) {
+		GPXIncrementalAnalysis analysis = new GPXIncrementalAnalysis();
+		analysis.startSegment(false, false);
+		analysis.addPoints(segment.points, 0);
+		return analysis;
+	}
+
+	private static TrkSegment segment(double lat, double lon, long time, int count, double speed) {
+		TrkSegment segment = new TrkSegment();
+		for (int i = 0; i < count; i++) {
+			segment.points.add(new WptPt(lat + i * 0.0005, lon, time + i * 10000, 100 + i, speed, Double.NaN));
+		}
+		return segment;
+	}
+
+	private static GPXFile createGpx(Random rnd) {
+		GPXFile gpx = new GPXFile(null);
+		Track track = new Track();
+		gpx.tracks.add(track);
+		int segments = 1 + rnd.nextInt(8);
+		double lat = 50;
+		double lon = 4;
+		long time = 1500000000000L;
+		double ele = 100;
+		for (int s = 0; s < segments; s++) {
+			TrkSegment segment = new TrkSegment();
+			int count = 2 + rnd.nextInt(40);
+			// no speed, speed from some point or speed in all points
+			int speedFrom = rnd.nextInt(3) == 0 ? rnd.nextInt(count) : count;
+			boolean elevation = rnd.nextInt(4) != 0;
+			for (int i = 0; i < count; i++) {
+				lat += (rnd.nextDouble() - 0.3) * 0.001;
+				lon += (rnd.nextDouble() - 0.3) * 0.001;
+				time += rnd.nextInt(5) == 0 ? 0 : 1000 * (1 + rnd.nextInt(20));
+				ele += (rnd.nextDouble() - 0.5) * 12;
+				double speed = i >= speedFrom ? rnd.nextInt(10) : 0;
+				double pele = elevation && rnd.nextInt(10) != 0 ? Math.round(ele * 10) / 10.0 : Double.NaN;
+				segment.points.add(new WptPt(lat, lon, time, pele, speed, Double.NaN));
+			}
+			track.segments.add(segment);
+		}
+		return gpx;
+	}
+
+	// distances are summed as floats in different order by merged analyses
+	private static void assertExpectedAnalysis(double[] e, GPXTrackAnalysis a) {
+		Assert.assertEquals((int) e[0], a.points);
+		Assert.assertEquals(e[1], a.totalDistance, 1e-2);
+		Assert.assertEquals((long) e[2], a.startTime);
+		Assert.assertEquals((long) e[3], a.endTime);
+		Assert.assertEquals((long) e[4], a.timeSpan);
+		Assert.assertEquals((long) e[5], a.timeMoving);
+		Assert.assertEquals(e[6], a.totalDistanceMoving, 1e-2);
+		Assert.assertEquals(e[7], a.diffElevationUp, 1e-6);
+		Assert.assertEquals(e[8], a.diffElevationDown, 1e-6);
+		Assert.assertEquals(e[9], a.avgElevation, 1e-3);
+		Assert.assertEquals(e[10], a.minElevation, 1e-6);
+		Assert.assertEquals(e[11], a.maxElevation, 1e-6);
+		Assert.assertEquals(e[12], a.minSpeed, 1e-6);
+		Assert.assertEquals(e[13], a.maxSpeed, 1e-5);
+		Assert.assertEquals(e[14], a.avgSpeed, 1e-5);
+		Assert.assertEquals(e[15] != 0, a.hasSpeedInTrack);
+		Assert.assertEquals(e[16] != 0, a.hasSpeedData);
+		Assert.assertEquals(e[17] != 0, a.hasElevationData);
+		Assert.assertEquals((int) e[18], a.elevationData.size());
+		double elevations = 0;
+		double distances = 0;
+		for (Elevation el : a.elevationData) {
+			if (!Double.isNaN(el.elevation)) {
+				elevations += el.elevation;
+			}
+			distances += el.distance;
+		}
+		Assert.assertEquals(e[19], elevations, 1e-3);
+		Assert.assertEquals(e[20], distances, 1e-2);
+		Assert.assertEquals((int) e[21], a.speedData.size());
+		double speeds = 0;
+		for (Speed sp : a.speedData) {
+			speeds += sp.speed;
+		}
+		Assert.assertEquals(e[22], speeds, 1e-3);
+	}
+
+	private static void assertSameAnalysis(GPXTrackAnalysis e, GPXTrackAnalysis a) {
+		Assert.assertEquals(e.points, a.points);
+		Assert.assertEquals(e.totalDistance, a.totalDistance, 0.5);
+		Assert.assertEquals(e.startTime, a.startTime);
+		Assert.assertEquals(e.endTime, a.endTime);
+		Assert.assertEquals(e.timeSpan, a.timeSpan);
+		Assert.assertEquals(e.timeMoving, a.timeMoving);
+		Assert.assertEquals(e.totalDistanceMoving, a.totalDistanceMoving, 0.5);
+		Assert.assertEquals(e.diffElevationUp, a.diffElevationUp, 1e-6);
+		Assert.assertEquals(e.diffElevationDown, a.diffElevationDown, 1e-6);
+		Assert.assertEquals(e.avgElevation, a.avgElevation, 1e-3);
+		Assert.assertEquals(e.minElevation, a.minElevation, 1e-6);
+		Assert.assertEquals(e.maxElevation, a.maxElevation, 1e-6);
+		Assert.assertEquals(e.minSpeed, a.minSpeed, 1e-6);
+		Assert.assertEquals(e.maxSpeed, a.maxSpeed, 1e-6);
+		Assert.assertEquals(e.avgSpeed, a.avgSpeed, 1e-3);
+		Assert.assertEquals(e.hasSpeedInTrack, a.hasSpeedInTrack);
+		Assert.assertEquals(e.hasSpeedData, a.hasSpeedData);
+		Assert.assertEquals(e.hasElevationData, a.hasElevationData);
+		Assert.assertEquals(e.left, a.left, 1e-9);
+		Assert.assertEquals(e.right, a.right, 1e-9);
+		Assert.assertEquals(e.top, a.top, 1e-9);
+		Assert.assertEquals(e.bottom, a.bottom, 1e-9);
+		Assert.assertSame(e.locationStart, a.locationStart);
+		Assert.assertSame(e.locationEnd, a.locationEnd);
+		Assert.assertEquals(e.elevationData.size(), a.elevationData.size());
+		for (int i = 0; i < e.elevationData.size(); i++) {
+			Elevation ee = e.elevationData.get(i);
+			Elevation ae = a.elevationData.get(i);
+			Assert.assertEquals(ee.elevation, ae.elevation, 1e-6);
+			Assert.assertEquals(ee.distance, ae.distance, 1e-3);
+			Assert.assertEquals(ee.time, ae.time);
+			Assert.assertEquals(ee.firstPoint, ae.firstPoint);
+			Assert.assertEquals(ee.lastPoint, ae.lastPoint);
+		}
+		Assert.assertEquals(e.speedData.size(), a.speedData.size());
+		for (int i = 0; i < e.speedData.size(); i++) {
+			Speed es = e.speedData.get(i);
+			Speed as = a.speedData.get(i);
+			Assert.assertEquals(es.speed, as.speed, 1e-6);
+			Assert.assertEquals(es.distance, as.distance, 1e-3);
+			Assert.assertEquals(es.time, as.time);
+		}
+	}
+}
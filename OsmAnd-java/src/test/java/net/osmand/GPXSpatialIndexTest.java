@@ -0,0 +1,216 @@
+package net.osmand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.GPXSpatialIndex.NearestPoint;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GPXSpatialIndexTest {
+
+	@Test
+	public void testQueriesEqualFullScan() {
+		Random rnd = new Random(1);
+		GPXSpatialIndex index = new GPXSpatialIndex();
+		List<GPXFile> files = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			GPXFile file = createFile(rnd, 1 + rnd.nextInt(3), 10 + rnd.nextInt(200));
+			files.add(file);
+			index.add(file);
+		}
+		// half of files are removed, so tree is rebuilt
+		for (int i = 0; i < 30; i++) {
+			index.remove(files.remove(rnd.nextInt(files.size())));
+		}
+		Assert.assertEquals(30, index.getFilesCount());
+		assertSameAsFullScan(rnd, index, files);
+	}
+
+	@Test
+	public void testRemovedFileAddedAgain() {
+		Random rnd = new Random(2);
+		GPXSpatialIndex index = new GPXSpatialIndex();
+		List<GPXFile> files = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			GPXFile file = createFile(rnd, 2, 100);
+			files.add(file);
+			index.add(file);
+		}
+		int chunks = index.getChunksCount();
+		GPXFile file = files.get(0);
+		TrkSegment segment = file.tracks.get(0).segments.get(0);
+		List<WptPt> oldPoints = segment.points;
+		index.remove(file);
+		Assert.assertFalse(index.contains(file));
+		// file is changed and indexed again
+		segment.points = new ArrayList<>();
+		for (WptPt p : oldPoints) {
+			segment.points.add(new WptPt(p.lat - 40, p.lon, 0, Double.NaN, 0, Double.NaN));
+		}
+		index.add(file);
+		Assert.assertEquals(chunks, index.getChunksCount());
+		for (WptPt p : oldPoints) {
+			NearestPoint nearest = index.findNearestPoint(p.lat, p.lon, 1000000);
+			Assert.assertNotNull(nearest);
+			Assert.assertNotSame(p, nearest.point);
+			Assert.assertNotSame(oldPoints, nearest.segment == null ? null : nearest.segment.points);
+		}
+		assertSameAsFullScan(rnd, index, files);
+	}
+
+	@Test
+	public void testTruncatedSegment() {
+		Random rnd = new Random(3);
+		GPXSpatialIndex index = new GPXSpatialIndex();
+		List<GPXFile> files = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			GPXFile file = createFile(rnd, 1, 100);
+			files.add(file);
+			index.add(file);
+		}
+		// tree is built
+		index.remove(files.remove(39));
+		index.findNearestPoint(0, 0, 10);
+		List<WptPt> points = files.get(0).tracks.get(0).segments.get(0).points;
+		WptPt last = points.get(points.size() - 1);
+		points.subList(50, points.size()).clear();
+		files.get(0).deleteWptPt(files.get(0).getPoints().get(0));
+		// points removed without update are not found
+		NearestPoint nearest = index.findNearestPoint(last.lat, last.lon, 1000000);
+		Assert.assertNotNull(nearest);
+		Assert.assertNotSame(last, nearest.point);
+		index.queryBox(new QuadRect(-180, 90, 180, -90));
+		index.queryCorridor(Arrays.asList(new LatLon(last.lat, last.lon), new LatLon(0, 0)), 1000);
+
+		index.update(files.get(0));
+		assertSameAsFullScan(rnd, index, files);
+	}
+
+	@Test
+	public void testUpdateFillsLastChunk() {
+		Random rnd = new Random(4);
+		GPXSpatialIndex index = new GPXSpatialIndex();
+		List<GPXFile> files = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			GPXFile file = createFile(rnd, 1, 40);
+			files.add(file);
+			index.add(file);
+		}
+		index.remove(files.remove(39));
+		int chunks = index.getChunksCount();
+		// recording appends points one by one, far from other points, to chunk already in tree
+		GPXFile recorded = files.get(0);
+		List<WptPt> points = recorded.tracks.get(0).segments.get(0).points;
+		for (int i = 0; i < 100; i++) {
+			points.add(new WptPt(-60 + i * 0.001, 100, 0, Double.NaN, 0, Double.NaN));
+			index.update(recorded);
+			WptPt last = points.get(points.size() - 1);
+			NearestPoint nearest = index.findNearestPoint(last.lat, last.lon, 10);
+			Assert.assertNotNull(nearest);
+			Assert.assertSame(last, nearest.point);
+			Assert.assertEquals(points.size() - 1, nearest.index);
+		}
+		// 140 points in 5 chunks instead of 2
+		Assert.assertEquals(chunks + 3, index.getChunksCount());
+		assertSameAsFullScan(rnd, index, files);
+	}
+
+	private static GPXFile createFile(Random rnd, int segments, int points) {
+		GPXFile file = new GPXFile(null);
+		Track track = new Track();
+		file.tracks.add(track);
+		double lat = rnd.nextDouble() * 20 + 40;
+		double lon = rnd.nextDouble() * 20;
+		for (int s = 0; s < segments; s++) {
+			TrkSegment segment = new TrkSegment();
+			for (int i = 0; i < points; i++) {
+				lat += (rnd.nextDouble() - 0.5) * 0.01;
+				lon += (rnd.nextDouble() - 0.5) * 0.01;
+				segment.points.add(new WptPt(lat, lon, 0, Double.NaN, 0, Double.NaN));
+			}
+			track.segments.add(segment);
+		}
+		for (int i = 0; i < 3; i++) {
+			file.addPoint(new WptPt(lat + rnd.nextDouble(), lon + rnd.nextDouble(), 0, Double.NaN, 0, Double.NaN));
+		}
+		return file;
+	}
+
+	private static List<WptPt> allPoints(GPXFile file) {
+		List<WptPt> res = new ArrayList<>(file.getPoints());
+		for (Track t : file.tracks) {
+			for (TrkSegment s : t.segments) {
+				res.addAll(s.points);
+			}
+		}
+		return res;
+	}
+
+	private static void assertSameAsFullScan(Random rnd, GPXSpatialIndex index, List<GPXFile> files) {
+		for (int q = 0; q < 50; q++) {
+			double lat = rnd.nextDouble() * 22 + 39;
+			double lon = rnd.nextDouble() * 22 - 1;
+			double size = rnd.nextDouble() * 0.5;
+			QuadRect box = new QuadRect(lon - size, lat + size, lon + size, lat - size);
+			HashSet<GPXFile> expected = new HashSet<>();
+			double maxDistance = 20000;
+			WptPt nearest = null;
+			double nearestDist = Double.MAX_VALUE;
+			for (GPXFile f : files) {
+				for (WptPt p : allPoints(f)) {
+					if (p.lon >= box.left && p.lon <= box.right && p.lat <= box.top && p.lat >= box.bottom) {
+						expected.add(f);
+					}
+					double d = MapUtils.getDistance(lat, lon, p.lat, p.lon);
+					if (d < nearestDist) {
+						nearestDist = d;
+						nearest = p;
+					}
+				}
+			}
+			List<GPXFile> res = index.queryBox(box);
+			Assert.assertEquals(expected.size(), res.size());
+			Assert.assertEquals(expected, new HashSet<>(res));
+
+			NearestPoint np = index.findNearestPoint(lat, lon, maxDistance);
+			if (nearestDist > maxDistance * 1.01) {
+				Assert.assertNull(np);
+			} else if (nearestDist < maxDistance * 0.99) {
+				Assert.assertNotNull(np);
+				// distances are compared in local projection
+				Assert.assertEquals(nearestDist, np.distance, nearestDist * 0.01 + 1);
+				if (np.point != nearest) {
+					Assert.assertEquals(nearestDist, MapUtils.getDistance(lat, lon, np.point.lat, np.point.lon),
+							nearestDist * 0.01 + 1);
+				}
+			}
+
+			double radius = 1000 + rnd.nextDouble() * 5000;
+			LatLon a = new LatLon(lat, lon);
+			LatLon b = new LatLon(lat + 0.1, lon + 0.1);
+			HashSet<GPXFile> corridor = new HashSet<>();
+			for (GPXFile f : files) {
+				for (WptPt p : allPoints(f)) {
+					if (MapUtils.getOrthogonalDistance(p.lat, p.lon, a.getLatitude(), a.getLongitude(),
+							b.getLatitude(), b.getLongitude()) <= radius) {
+						corridor.add(f);
+						break;
+					}
+				}
+			}
+			Assert.assertEquals(corridor, new HashSet<>(index.queryCorridor(Arrays.asList(a, b), radius)));
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package net.osmand;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.osmand.GPXStreamReader.GPXStreamListener;
+import net.osmand.GPXUtilities.GPXExtensions;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Route;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class GPXStreamReaderTest {
+
+	private static final String HEADER = "<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>"
+			+ "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\""
+			+ " xmlns:osmand=\"https://osmand.net\">";
+
+	private static final String ROUTE_EXTENSIONS = "<extensions>"
+			+ "<route><segment id=\"1\" length=\"2\" segmentTime=\"3\"/></route>"
+			+ "<types><type t=\"highway\" v=\"primary\"/></types>"
+			+ "</extensions>";
+
+	@Test
+	public void testPointsAfterSegmentAreAddedToIt() throws Exception {
+		String gpx = HEADER + "<trk><name>t</name>"
+				+ "<trkseg>" + pt(1, 1) + pt(1, 2) + "</trkseg>"
+				+ pt(1, 3)
+				+ "<trkseg>" + pt(2, 1) + "</trkseg>"
+				+ pt(2, 2) + pt(2, 3)
+				+ "</trk></gpx>";
+		GPXFile streamed = assertSameAsLoaded(gpx, 1);
+		List<TrkSegment> segments = streamed.tracks.get(0).segments;
+		Assert.assertEquals(2, segments.size());
+		Assert.assertEquals(3, segments.get(0).points.size());
+		Assert.assertEquals(3, segments.get(1).points.size());
+	}
+
+	@Test
+	public void testPointsWithoutSegment() throws Exception {
+		String gpx = HEADER + "<trk>"
+				+ pt(1, 1) + pt(1, 2)
+				+ "<trkseg>" + pt(2, 1) + "<extensions><color>#ff0000</color></extensions></trkseg>"
+				+ pt(2, 2)
+				+ "<extensions><width>thin</width></extensions>"
+				+ "</trk></gpx>";
+		GPXFile streamed = assertSameAsLoaded(gpx, 2);
+		Track track = streamed.tracks.get(0);
+		Assert.assertEquals(2, track.segments.size());
+		Assert.assertEquals("#ff0000", track.segments.get(1).getExtensionsToRead().get("color"));
+		Assert.assertEquals("thin", track.getExtensionsToRead().get("width"));
+	}
+
+	@Test
+	public void testGpxRouteExtensionsAreSetToFirstSegment() throws Exception {
+		String gpx = HEADER + "<trk>"
+				+ "<trkseg>" + pt(1, 1) + pt(1, 2) + "</trkseg>"
+				+ "<trkseg>" + pt(2, 1) + "</trkseg>"
+				+ "</trk>" + ROUTE_EXTENSIONS + "</gpx>";
+		GPXFile streamed = assertSameAsLoaded(gpx, 3);
+		TrkSegment first = streamed.tracks.get(0).segments.get(0);
+		Assert.assertEquals(1, first.routeSegments.size());
+		Assert.assertEquals("1", first.routeSegments.get(0).id);
+		Assert.assertEquals(1, first.routeTypes.size());
+		Assert.assertTrue(streamed.tracks.get(0).segments.get(1).routeSegments.isEmpty());
+	}
+
+	@Test
+	public void testFullFile() throws Exception {
+		String gpx = HEADER
+				+ "<metadata><name>meta</name><desc>d</desc><author><name>me</name></author>"
+				+ "<time>2020-01-01T10:00:00Z</time><keywords>k</keywords></metadata>"
+				+ "<wpt lat=\"1.5\" lon=\"2.5\"><name>w</name><ele>10</ele><extensions><icon>x</icon></extensions></wpt>"
+				+ "<rte><name>r</name><rtept lat=\"1\" lon=\"2\"/><rtept lat=\"1.1\" lon=\"2.1\"><name>p</name></rtept></rte>"
+				+ "<trk><name>t</name><desc>td</desc>"
+				+ "<trkseg>" + pt(1, 1) + "<trkpt lat=\"1.1\" lon=\"1.2\"><ele>5</ele><time>2020-01-01T10:00:01Z</time>"
+				+ "<hdop>2</hdop><extensions><speed>3.5</speed><heading>10</heading></extensions></trkpt>"
+				+ ROUTE_EXTENSIONS + "</trkseg>"
+				+ "<trkseg><csvattributes>1,2\n1.1,2.1</csvattributes></trkseg>"
+				+ "</trk>"
+				+ "<extensions><show_arrows>true</show_arrows></extensions></gpx>";
+		for (int batchSize = 1; batchSize <= 3; batchSize++) {
+			assertSameAsLoaded(gpx, batchSize);
+		}
+	}
+
+	private static String pt(int seg, int ind) {
+		return "<trkpt lat=\"" + seg + "." + ind + "\" lon=\"" + ind + "." + seg + "\"/>";
+	}
+
+	private static GPXFile assertSameAsLoaded(String gpx, int batchSize) throws IOException, XmlPullParserException {
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(gpx.getBytes("UTF-8")));
+		Assert.assertNull(loaded.error);
+		GPXFileCollector collector = new GPXFileCollector();
+		new GPXStreamReader(collector, batchSize).read(new ByteArrayInputStream(gpx.getBytes("UTF-8")));
+		Assert.assertEquals(write(loaded), write(collector.file));
+		return collector.file;
+	}
+
+	private static String write(GPXFile file) {
+		StringWriter sw = new StringWriter();
+		Assert.assertNull(GPXUtilities.writeGpx(sw, file));
+		return sw.toString();
+	}
+
+	/**
+	 * Builds gpx file from events
+	 */
+	private static class GPXFileCollector implements GPXStreamListener {
+		private final GPXFile file = new GPXFile(null);
+		private final List<WptPt> points = new ArrayList<>();
+		private Track track;
+		private Route route;
+
+		@Override
+		public void gpxStart(String creator) {
+			file.author = creator;
+		}
+
+		@Override
+		public void metadata(Metadata metadata) {
+			file.metadata = metadata;
+		}
+
+		@Override
+		public void trackStart(Track track) {
+			this.track = track;
+			file.tracks.add(track);
+		}
+
+		@Override
+		public void segmentStart(Track track) {
+			Assert.assertSame(this.track, track);
+			points.clear();
+		}
+
+		@Override
+		public void points(List<WptPt> batch) {
+			if (route != null) {
+				route.points.addAll(batch);
+			} else {
+				points.addAll(batch);
+			}
+		}
+
+		@Override
+		public void segmentEnd(TrkSegment segment) {
+			Assert.assertTrue(segment.points.isEmpty());
+			segment.points.addAll(points);
+			track.segments.add(segment);
+		}
+
+		@Override
+		public void trackEnd(Track track) {
+			this.track = null;
+		}
+
+		@Override
+		public void routeStart(Route route) {
+			this.route = route;
+			file.routes.add(route);
+		}
+
+		@Override
+		public void routeEnd(Route route) {
+			this.route = null;
+		}
+
+		@Override
+		public void waypoint(WptPt wpt) {
+			file.addPoint(wpt);
+		}
+
+		@Override
+		public void gpxEnd(GPXExtensions extensions) {
+			file.getExtensionsToWrite().putAll(extensions.getExtensionsToRead());
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+}
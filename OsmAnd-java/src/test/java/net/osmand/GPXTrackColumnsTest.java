@@ -0,0 +1,141 @@
+package net.osmand;
+
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.LatLon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GPXTrackColumnsTest {
+
+	private static final long FILESTAMP = 1000;
+	// elevation, speed and hdop are stored as floats
+	private static final double FLOAT_DELTA = 1e-4;
+	private static final double ELEVATION_SUM_DELTA = 1e-2;
+
+	@Test
+	public void testReusedPointIsReset() {
+		GPXTrackColumns columns = GPXTrackColumns.fromSegment(createSegment(new Random(3), 3));
+		columns.setName(0, "first");
+		WptPt point = new WptPt();
+		columns.get(0, point);
+		point.link = "link";
+		point.category = "category";
+		point.comment = "comment";
+		point.deleted = true;
+		point.colourARGB = 0xff00ff00;
+		point.distance = 10;
+		columns.get(1, point);
+		Assert.assertNull(point.name);
+		Assert.assertNull(point.link);
+		Assert.assertNull(point.category);
+		Assert.assertNull(point.comment);
+		Assert.assertFalse(point.deleted);
+		Assert.assertEquals(0, point.colourARGB);
+		Assert.assertEquals(0, point.distance, 0);
+		assertSamePoint(columns.get(1), point);
+	}
+
+	@Test
+	public void testAnalysisSameAsPoints() {
+		Random rnd = new Random(5);
+		for (int test = 0; test < 20; test++) {
+			TrkSegment segment = createSegment(rnd, 2 + rnd.nextInt(100));
+			GPXTrackColumns columns = GPXTrackColumns.fromSegment(segment);
+			GPXTrackAnalysis e = GPXTrackAnalysis.segment(FILESTAMP, segment);
+			GPXTrackAnalysis a = GPXTrackAnalysis.segment(FILESTAMP, columns);
+			Assert.assertEquals(e.points, a.points);
+			Assert.assertEquals(e.totalDistance, a.totalDistance, 1e-3);
+			Assert.assertEquals(e.startTime, a.startTime);
+			Assert.assertEquals(e.endTime, a.endTime);
+			Assert.assertEquals(e.timeSpan, a.timeSpan);
+			Assert.assertEquals(e.timeMoving, a.timeMoving);
+			Assert.assertEquals(e.totalDistanceMoving, a.totalDistanceMoving, 1e-3);
+			Assert.assertEquals(e.diffElevationUp, a.diffElevationUp, ELEVATION_SUM_DELTA);
+			Assert.assertEquals(e.diffElevationDown, a.diffElevationDown, ELEVATION_SUM_DELTA);
+			Assert.assertEquals(e.avgElevation, a.avgElevation, FLOAT_DELTA);
+			Assert.assertEquals(e.minElevation, a.minElevation, FLOAT_DELTA);
+			Assert.assertEquals(e.maxElevation, a.maxElevation, FLOAT_DELTA);
+			Assert.assertEquals(e.minSpeed, a.minSpeed, FLOAT_DELTA);
+			Assert.assertEquals(e.maxSpeed, a.maxSpeed, FLOAT_DELTA);
+			Assert.assertEquals(e.avgSpeed, a.avgSpeed, FLOAT_DELTA);
+			Assert.assertEquals(e.hasSpeedData, a.hasSpeedData);
+			Assert.assertEquals(e.hasElevationData, a.hasElevationData);
+			Assert.assertEquals(e.left, a.left, 1e-9);
+			Assert.assertEquals(e.right, a.right, 1e-9);
+			Assert.assertEquals(e.top, a.top, 1e-9);
+			Assert.assertEquals(e.bottom, a.bottom, 1e-9);
+			assertSamePoint(e.locationStart, a.locationStart);
+			assertSamePoint(e.locationEnd, a.locationEnd);
+			Assert.assertEquals(e.elevationData.size(), a.elevationData.size());
+			for (int i = 0; i < e.elevationData.size(); i++) {
+				Assert.assertEquals(e.elevationData.get(i).elevation, a.elevationData.get(i).elevation, FLOAT_DELTA);
+				Assert.assertEquals(e.elevationData.get(i).distance, a.elevationData.get(i).distance, 1e-3);
+			}
+			Assert.assertEquals(e.speedData.size(), a.speedData.size());
+			for (int i = 0; i < e.speedData.size(); i++) {
+				Assert.assertEquals(e.speedData.get(i).speed, a.speedData.get(i).speed, FLOAT_DELTA);
+				Assert.assertEquals(e.speedData.get(i).distance, a.speedData.get(i).distance, 1e-3);
+			}
+		}
+	}
+
+	@Test
+	public void testLocationsHolderSameAsPoints() {
+		TrkSegment segment = createSegment(new Random(7), 50);
+		LocationsHolder e = new LocationsHolder(segment.points);
+		LocationsHolder a = new LocationsHolder(GPXTrackColumns.fromSegment(segment));
+		Assert.assertEquals(e.getSize(), a.getSize());
+		for (int i = 0; i < e.getSize(); i++) {
+			Assert.assertEquals(e.getLatitude(i), a.getLatitude(i), 0);
+			Assert.assertEquals(e.getLongitude(i), a.getLongitude(i), 0);
+			Assert.assertEquals(e.getLatLon(i), a.getLatLon(i));
+			assertSamePoint(e.getWptPt(i), a.getWptPt(i));
+		}
+		List<LatLon> eLatLons = e.getLatLonList();
+		List<LatLon> aLatLons = a.getLatLonList();
+		Assert.assertEquals(eLatLons, aLatLons);
+		List<WptPt> ePoints = e.getWptPtList();
+		List<WptPt> aPoints = a.getWptPtList();
+		Assert.assertEquals(ePoints.size(), aPoints.size());
+		for (int i = 0; i < ePoints.size(); i++) {
+			assertSamePoint(ePoints.get(i), aPoints.get(i));
+		}
+	}
+
+	private static TrkSegment createSegment(Random rnd, int count) {
+		TrkSegment segment = new TrkSegment();
+		double lat = 50;
+		double lon = 4;
+		long time = 1500000000000L;
+		double ele = 100;
+		for (int i = 0; i < count; i++) {
+			lat += (rnd.nextDouble() - 0.3) * 0.001;
+			lon += (rnd.nextDouble() - 0.3) * 0.001;
+			time += rnd.nextInt(5) == 0 ? 0 : 1000 * (1 + rnd.nextInt(20));
+			ele += (rnd.nextDouble() - 0.5) * 12;
+			double pele = rnd.nextInt(10) != 0 ? Math.round(ele * 10) / 10.0 : Double.NaN;
+			segment.points.add(new WptPt(lat, lon, time, pele, rnd.nextInt(10), rnd.nextInt(3) == 0 ? 5 : Double.NaN));
+		}
+		return segment;
+	}
+
+	private static void assertSamePoint(WptPt e, WptPt a) {
+		Assert.assertEquals(e.lat, a.lat, 0);
+		Assert.assertEquals(e.lon, a.lon, 0);
+		Assert.assertEquals(e.time, a.time);
+		Assert.assertEquals(e.ele, a.ele, FLOAT_DELTA);
+		Assert.assertEquals(e.speed, a.speed, FLOAT_DELTA);
+		Assert.assertEquals(e.hdop, a.hdop, FLOAT_DELTA);
+		Assert.assertEquals(e.name, a.name);
+		Assert.assertEquals(e.desc, a.desc);
+		Assert.assertEquals(e.link, a.link);
+		Assert.assertEquals(e.category, a.category);
+		Assert.assertEquals(e.comment, a.comment);
+	}
+}
@@ -0,0 +1,127 @@
+package net.osmand.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+
+import net.osmand.GPXTrackColumns;
+import net.osmand.GPXUtilities;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryTrackTest {
+
+	private static final String HEADER = "<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>"
+			+ "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">";
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("tracks", ".otrk");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testRoundTripKeepsAllPointFields() throws IOException {
+		StringBuilder gpx = new StringBuilder(HEADER);
+		gpx.append("<metadata><name>meta</name><desc>d</desc><author><name>me</name></author>"
+				+ "<time>2020-01-01T10:00:00Z</time><keywords>k</keywords></metadata>");
+		gpx.append("<wpt lat=\"1.5\" lon=\"2.5\"><ele>10</ele><time>2020-01-01T10:00:00Z</time><name>w</name>"
+				+ "<cmt>c</cmt><desc>wd</desc><link href=\"http://osmand.net\"/><type>cat</type><hdop>3</hdop>"
+				+ "<extensions><icon>x</icon><speed>2</speed></extensions></wpt>");
+		gpx.append("<rte><name>r</name><rtept lat=\"1\" lon=\"2\"/>"
+				+ "<rtept lat=\"1.1\" lon=\"2.1\"><name>p</name></rtept></rte>");
+		gpx.append("<trk><name>t</name><desc>td</desc><trkseg>");
+		int count = BinaryTrackWriter.BLOCK_SIZE * 2 + 17;
+		for (int i = 0; i < count; i++) {
+			gpx.append("<trkpt lat=\"").append(50 + i * 0.0001).append("\" lon=\"").append(4 + i * 0.0002).append("\">");
+			if (i % 3 != 0) {
+				gpx.append("<ele>").append(100 + i % 50).append(".5</ele>");
+			}
+			gpx.append("<time>2020-01-01T10:").append(String.format("%02d:%02d", (i / 60) % 60, i % 60)).append("Z</time>");
+			if (i % 7 == 0) {
+				gpx.append("<name>n").append(i).append("</name><cmt>c").append(i).append("</cmt><desc>d").append(i)
+						.append("</desc><link href=\"http://osmand.net/").append(i).append("\"/><type>t</type>");
+			}
+			if (i % 4 != 1) {
+				gpx.append("<hdop>").append(i % 10).append("</hdop>");
+			}
+			gpx.append("<extensions><speed>").append(i % 13).append(".25</speed>");
+			if (i % 11 == 0) {
+				gpx.append("<color>#ff0000</color>");
+			}
+			gpx.append("</extensions></trkpt>");
+		}
+		gpx.append("<extensions><color>#00ff00</color></extensions></trkseg>");
+		gpx.append("<trkseg><trkpt lat=\"1\" lon=\"2\"/><trkpt lat=\"1.1\" lon=\"2.1\"/></trkseg>");
+		gpx.append("</trk></gpx>");
+
+		GPXFile loaded = GPXUtilities.loadGPXFile(new ByteArrayInputStream(gpx.toString().getBytes("UTF-8")));
+		Assert.assertNull(loaded.error);
+		// heading is not read from gpx, it is set by track recording
+		List<WptPt> expected = loaded.tracks.get(0).segments.get(0).points;
+		for (int i = 0; i < count; i++) {
+			if (i % 5 != 2) {
+				expected.get(i).heading = (i * 7) % 360 + 0.25f;
+			}
+		}
+		loaded.getPoints().get(0).heading = 90;
+		loaded.routes.get(0).points.get(1).heading = 45;
+		BinaryTrackWriter.write(file, Collections.singletonList(loaded));
+
+		BinaryTrackReader reader = BinaryTrackReader.open(file);
+		try {
+			Assert.assertEquals(1, reader.getGpxFilesCount());
+			GPXFile read = reader.getGpxFile(0);
+			Assert.assertEquals(write(loaded), write(read));
+
+			TrkSegment segment = read.tracks.get(0).segments.get(0);
+			GPXTrackColumns columns = reader.getTrackColumns(0).get(0);
+			Assert.assertEquals(count, segment.points.size());
+			Assert.assertEquals(count, columns.size());
+			for (int i = 0; i < count; i++) {
+				WptPt e = expected.get(i);
+				WptPt p = segment.points.get(i);
+				Assert.assertEquals(e.lat, p.lat, 1e-7);
+				Assert.assertEquals(e.lon, p.lon, 1e-7);
+				Assert.assertEquals(e.time, p.time);
+				Assert.assertEquals(e.ele, p.ele, 1e-2);
+				Assert.assertEquals(e.speed, p.speed, 1e-2);
+				Assert.assertEquals(e.hdop, p.hdop, 1e-2);
+				Assert.assertEquals(i % 5 == 2, Float.isNaN(p.heading));
+				Assert.assertEquals(e.heading, p.heading, 1e-2);
+				Assert.assertEquals(e.heading, columns.getHeading(i), 1e-2);
+				Assert.assertEquals(e.name, p.name);
+				Assert.assertEquals(e.desc, p.desc);
+				Assert.assertEquals(e.link, p.link);
+				Assert.assertEquals(e.category, p.category);
+				Assert.assertEquals(e.comment, p.comment);
+				Assert.assertEquals(e.getExtensionsToRead(), p.getExtensionsToRead());
+			}
+			Assert.assertEquals(90, read.getPoints().get(0).heading, 1e-2);
+			Assert.assertEquals(45, read.routes.get(0).points.get(1).heading, 1e-2);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String write(GPXFile file) {
+		StringWriter sw = new StringWriter();
+		Assert.assertNull(GPXUtilities.writeGpx(sw, file));
+		return sw.toString();
+	}
+}
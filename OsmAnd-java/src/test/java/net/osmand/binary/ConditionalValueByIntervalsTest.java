@@ -0,0 +1,69 @@
+package net.osmand.binary;
+
+import java.util.Calendar;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConditionalValueByIntervalsTest {
+
+	private static RouteTypeRule createRule(String value) {
+		RouteRegion region = new RouteRegion();
+		region.initRouteEncodingRule(0, "maxspeed:conditional", value);
+		region.completeRouteEncodingRules();
+		return region.quickGetEncodingRule(0);
+	}
+
+	private static long time(int day, int hour, int minute, int second) {
+		Calendar c = Calendar.getInstance();
+		c.clear();
+		c.set(2020, Calendar.JUNE, day, hour, minute, second);
+		return c.getTimeInMillis();
+	}
+
+	@Test
+	public void testSameAsConditionalValue() {
+		RouteTypeRule rule = createRule("30 @ (07:32-09:00); 50 @ (Mo-Fr 22:00-06:00); 20 @ (Sa,Su 10:15-10:17); "
+				+ "40 @ (Tu 12:07-12:08,13:00-13:01)");
+		long start = time(1, 0, 0, 0);
+		// two weeks and few days of the next one by minutes, the first week is checked again at the end
+		int minutes = 17 * 24 * 60;
+		int active = 0;
+		for (int i = 0; i <= minutes + 7 * 24 * 60; i++) {
+			long t = start + (i % minutes) * 60000L + (i % 3) * 20000L;
+			int expected = rule.conditionalValue(t);
+			Assert.assertEquals("Time " + t, expected, rule.conditionalValueByIntervals(t));
+			if (expected != 0) {
+				active++;
+			}
+		}
+		Assert.assertTrue(active > 0);
+	}
+
+	@Test
+	public void testBoundariesAreNotShifted() {
+		RouteTypeRule rule = createRule("30 @ (07:32-09:00)");
+		int speed = rule.conditionalValue(time(3, 8, 0, 0));
+		Assert.assertTrue(speed != 0);
+		Assert.assertEquals(0, rule.conditionalValueByIntervals(time(3, 7, 31, 59)));
+		Assert.assertEquals(speed, rule.conditionalValueByIntervals(time(3, 7, 32, 0)));
+		// end minute is included
+		Assert.assertEquals(speed, rule.conditionalValueByIntervals(time(3, 9, 0, 59)));
+		Assert.assertEquals(0, rule.conditionalValueByIntervals(time(3, 9, 1, 0)));
+	}
+
+	@Test
+	public void testTimeAcrossWeekBoundary() {
+		RouteTypeRule rule = createRule("50 @ (Mo-Fr 22:00-06:00)");
+		// previous week table is kept, so route calculated around midnight of the week start doesn't rebuild it
+		for (int i = 0; i < 10; i++) {
+			long before = time(7, 23, 50, 0) + i * 60000L;
+			long after = time(8, 0, 0, 0) + i * 60000L;
+			Assert.assertEquals(rule.conditionalValue(before), rule.conditionalValueByIntervals(before));
+			Assert.assertEquals(rule.conditionalValue(after), rule.conditionalValueByIntervals(after));
+		}
+	}
+}
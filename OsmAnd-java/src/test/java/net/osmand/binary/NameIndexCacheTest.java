@@ -0,0 +1,118 @@
+package net.osmand.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import net.osmand.Collator;
+import net.osmand.OsmAndCollator;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.osm.MapPoiTypes;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+public class NameIndexCacheTest {
+
+	private final Collator collator = OsmAndCollator.primaryCollator();
+	private final PoiRegion index = new PoiRegion();
+	private File file;
+	private RandomAccessFile raf;
+	private BinaryMapIndexReader reader;
+
+	@BeforeClass
+	public static void setUp() {
+		// poi types are not needed to read name table
+		MapPoiTypes.getDefaultNoInit();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (raf != null) {
+			raf.close();
+		}
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCachedLookupEqualsTableRead() throws IOException {
+		// a -> 1 { b -> 2 { c -> 3, d -> 4 }, x -> 5 }, b -> 6, abe -> 7
+		byte[] abSub = table(entry("c", 3, null), entry("d", 4, null));
+		byte[] aSub = table(entry("b", 2, abSub), entry("x", 5, null));
+		initReader(table(entry("a", 1, aSub), entry("b", 6, null), entry("abe", 7, null)));
+		NameIndexCache cache = new NameIndexCache();
+		TIntArrayList list = read("ab", cache);
+		Assert.assertArrayEquals(new int[] { 2, 3, 4, 7 }, list.toArray());
+		for (String query : new String[] { "abc", "abd", "abe", "abx", "abcd" }) {
+			TIntArrayList cached = new TIntArrayList();
+			Assert.assertTrue(cache.findOffsets(collator, index, query, cached));
+			Assert.assertEquals(query, read(query, null), cached);
+		}
+	}
+
+	@Test
+	public void testSkippedSubtableIsNotCached() throws IOException {
+		// ab is shorter than already matched abc, so its subtable is skipped while reading
+		initReader(table(entry("abc", 10, null), entry("ab", 20, table(entry("cde", 21, null)))));
+		NameIndexCache cache = new NameIndexCache();
+		Assert.assertArrayEquals(new int[] { 10 }, read("abc", cache).toArray());
+		Assert.assertFalse(cache.findOffsets(collator, index, "abcd", new TIntArrayList()));
+		Assert.assertFalse(cache.findOffsets(collator, index, "abc", new TIntArrayList()));
+	}
+
+	private TIntArrayList read(String query, NameIndexCache cache) throws IOException {
+		TIntArrayList list = new TIntArrayList();
+		reader.codedIS.seek(0);
+		int old = reader.codedIS.pushLimit((int) raf.length());
+		reader.readIndexedStringTable(collator, query, index, cache, list);
+		reader.codedIS.popLimit(old);
+		return list;
+	}
+
+	private void initReader(byte[] table) throws IOException {
+		file = File.createTempFile("name_index", ".obf");
+		FileOutputStream fous = new FileOutputStream(file);
+		fous.write(table);
+		fous.close();
+		raf = new RandomAccessFile(file, "r");
+		reader = new BinaryMapIndexReader(raf, file, false);
+	}
+
+	private static byte[] table(byte[]... entries) throws IOException {
+		ByteArrayOutputStream bous = new ByteArrayOutputStream();
+		for (byte[] e : entries) {
+			bous.write(e);
+		}
+		return bous.toByteArray();
+	}
+
+	private static byte[] entry(String key, int val, byte[] subtable) throws IOException {
+		ByteArrayOutputStream bous = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bous);
+		out.writeString(OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER, key);
+		out.writeTag(OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+		// values are read as big endian int
+		out.writeRawByte((byte) (val >>> 24));
+		out.writeRawByte((byte) (val >>> 16));
+		out.writeRawByte((byte) (val >>> 8));
+		out.writeRawByte((byte) val);
+		if (subtable != null) {
+			out.writeTag(OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			out.writeRawVarint32(subtable.length);
+			out.writeRawBytes(subtable);
+		}
+		out.flush();
+		return bous.toByteArray();
+	}
+}
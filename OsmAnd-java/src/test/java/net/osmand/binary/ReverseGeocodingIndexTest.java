@@ -0,0 +1,144 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.Building;
+import net.osmand.data.City;
+import net.osmand.data.City.CityType;
+import net.osmand.data.Street;
+import net.osmand.osm.MapPoiTypes;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ReverseGeocodingIndexTest {
+
+	private File file;
+	private RandomAccessFile raf;
+	private AddressReader reader;
+
+	@BeforeClass
+	public static void setUpClass() {
+		MapPoiTypes.getDefaultNoInit();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("address", ".obf");
+		raf = new RandomAccessFile(file, "r");
+		reader = new AddressReader(raf, file);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	@Test
+	public void testPostcodeStreetsAreNotIndexedTwice() throws IOException {
+		City town = city(new City(CityType.TOWN), 1, "Town", 52.0, 5.0);
+		Street street = street(town, 10, "Main street", 52.001, 5.001);
+		building(street, 100, "1", 52.0011, 5.0011);
+		reader.cities.add(Collections.singletonList(town));
+		reader.cities.add(Collections.<City>emptyList());
+		// same street and building are stored again in postcode section
+		City postcode = city(new City("1234AB", 2), 2, "1234AB", 52.001, 5.001);
+		Street copy = street(postcode, 10, "Main street", 52.001, 5.001);
+		building(copy, 100, "1", 52.0011, 5.0011);
+		reader.cities.add(Collections.singletonList(postcode));
+
+		ReverseGeocodingIndex index = ReverseGeocodingIndex.load(Collections.<BinaryMapIndexReader>singletonList(reader));
+		Assert.assertEquals(2, index.size());
+		List<GeocodingResult> res = index.reverseGeocodingSearch(52.0011, 5.0011);
+		Assert.assertEquals(2, res.size());
+		Assert.assertNotNull(res.get(0).building);
+		Assert.assertEquals("1", res.get(0).building.getName());
+		Assert.assertNull(res.get(1).building);
+		for (GeocodingResult r : res) {
+			Assert.assertSame(town, r.city);
+			Assert.assertSame(street, r.street);
+		}
+	}
+
+	@Test
+	public void testCityFoundWhenNoStreetsAround() throws IOException {
+		City village = city(new City(CityType.VILLAGE), 1, "Village", 52.0, 5.0);
+		reader.cities.add(Collections.<City>emptyList());
+		reader.cities.add(Collections.singletonList(village));
+		ReverseGeocodingIndex index = ReverseGeocodingIndex.load(Collections.<BinaryMapIndexReader>singletonList(reader));
+		List<GeocodingResult> res = index.reverseGeocodingSearch(52.002, 5.002);
+		Assert.assertEquals(1, res.size());
+		Assert.assertSame(village, res.get(0).city);
+		Assert.assertTrue(index.reverseGeocodingSearch(53.0, 6.0).isEmpty());
+	}
+
+	private static City city(City c, long id, String name, double lat, double lon) {
+		c.setId(id);
+		c.setName(name);
+		c.setLocation(lat, lon);
+		return c;
+	}
+
+	private static Street street(City c, long id, String name, double lat, double lon) {
+		Street s = new Street(c);
+		s.setId(id);
+		s.setName(name);
+		s.setLocation(lat, lon);
+		c.registerStreet(s);
+		return s;
+	}
+
+	private static Building building(Street s, long id, String name, double lat, double lon) {
+		Building b = new Building();
+		b.setId(id);
+		b.setName(name);
+		b.setLocation(lat, lon);
+		s.addBuilding(b);
+		return b;
+	}
+
+	/**
+	 * Serves cities already loaded in memory (town, village and postcode sections in order of reading)
+	 */
+	private static class AddressReader extends BinaryMapIndexReader {
+		private final AddressRegion region = new AddressRegion();
+		private final List<List<City>> cities = new ArrayList<List<City>>();
+
+		AddressReader(RandomAccessFile raf, File file) throws IOException {
+			super(raf, file, false);
+		}
+
+		@Override
+		public List<BinaryIndexPart> getIndexes() {
+			return Collections.<BinaryIndexPart>singletonList(region);
+		}
+
+		@Override
+		public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, int cityType) {
+			int ind = cityType == BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE ? 0
+					: cityType == BinaryMapAddressReaderAdapter.VILLAGES_TYPE ? 1 : 2;
+			return ind < cities.size() ? cities.get(ind) : Collections.<City>emptyList();
+		}
+
+		@Override
+		public synchronized int preloadStreets(City c, SearchRequest<Street> resultMatcher) {
+			return c.getStreets().size();
+		}
+
+		@Override
+		public synchronized void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) {
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class RenderingRuleSearchRequestTest {
+
+	private static final String[] TAGS = {"highway", "natural", "building", "unknown"};
+	private static final String[] VALUES = {"primary", "path", "wood", "yes", "unknown"};
+	private static final String[] ADDITIONAL = {"surface=paved", "lit=yes", "access=no"};
+	private static final String[] DENSITY = {"low", "high"};
+	private static final String[] STATES = {"point", "line", "polygon", "text", "order"};
+
+	@Test
+	public void testCachedSearchEqualsUncached() throws XmlPullParserException, IOException {
+		for (int style = 0; style < 5; style++) {
+			Random rnd = new Random(style);
+			RenderingRulesStorage storage = new RenderingRulesStorage("test", null);
+			storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(createStyle(rnd).getBytes("UTF-8")), null);
+			assertSameSearchResults(rnd, storage);
+		}
+	}
+
+	@Test
+	public void testPropertyOfAttributeRule() throws XmlPullParserException, IOException {
+		// attrOnly is checked only in rule of rendering attribute, additional only with object
+		String style = "<renderingStyle name=\"test\" depends=\"\">"
+				+ "<renderingProperty attr=\"attrOnly\" type=\"string\"/>"
+				+ "<renderingAttribute name=\"roadColor\">"
+				+ "<case attrOnly=\"a\" attrColorValue=\"#ff0000\"/><case attrColorValue=\"#00ff00\"/>"
+				+ "</renderingAttribute>"
+				+ "<renderingAttribute name=\"roadWidth\">"
+				+ "<case additional=\"lit=yes\" attrIntValue=\"5\"/><case attrIntValue=\"2\"/>"
+				+ "</renderingAttribute>"
+				+ "<line><case tag=\"highway\" value=\"primary\" color=\"$roadColor\" strokeWidth=\"$roadWidth\"/></line>"
+				+ "</renderingStyle>";
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", null);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(style.getBytes("UTF-8")), null);
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		RenderingRuleProperty attrOnly = storage.PROPS.getCustomRule("attrOnly");
+		MapIndex mapIndex = createMapIndex();
+		for (int i = 0; i < 3; i++) {
+			for (String value : new String[]{"a", "b"}) {
+				for (boolean lit : new boolean[]{true, false}) {
+					BinaryMapDataObject obj = createObject(mapIndex, lit ? new int[]{2} : new int[0]);
+					req.setInitialTagValueZoom("highway", "primary", 15, obj);
+					req.setStringFilter(attrOnly, value);
+					Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+					Assert.assertEquals(value.equals("a") ? 0xffff0000 : 0xff00ff00,
+							req.getIntPropertyValue(req.ALL.R_COLOR));
+					Assert.assertEquals(lit ? 5 : 2, req.getIntPropertyValue(req.ALL.R_STROKE_WIDTH));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStringsNotInDictionary() throws XmlPullParserException, IOException {
+		String style = "<renderingStyle name=\"test\" depends=\"\">"
+				+ "<renderingProperty attr=\"density\" type=\"string\"/>"
+				+ "<line><switch tag=\"highway\" value=\"\">"
+				+ "<case additional=\"lit=yes\" color=\"#ff0000\"/><case density=\"high\" color=\"#00ff00\"/>"
+				+ "</switch></line>"
+				+ "</renderingStyle>";
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", null);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(style.getBytes("UTF-8")), null);
+		RenderingRuleProperty density = storage.PROPS.getCustomRule("density");
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		req.setStringFilter(density, "low");
+		req.saveState();
+		Assert.assertEquals("low", req.getStringPropertyValue(density));
+		for (int i = 0; i < 3; i++) {
+			// composite string of additional types as route statistics uses it
+			req.setInitialTagValueZoom("highway", "unknown", 15, null);
+			req.setStringFilter(req.ALL.R_ADDITIONAL, "surface=paved;lit=yes;");
+			Assert.assertEquals("unknown", req.getStringPropertyValue(req.ALL.R_VALUE));
+			Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+			Assert.assertEquals(0xffff0000, req.getIntPropertyValue(req.ALL.R_COLOR));
+
+			req.setInitialTagValueZoom("highway", "unknown2", 15, null);
+			req.setStringFilter(req.ALL.R_ADDITIONAL, "surface=paved;lit=no;");
+			Assert.assertFalse(req.search(RenderingRulesStorage.LINE_RULES));
+			Assert.assertEquals("low", req.getStringPropertyValue(density));
+
+			req.clearState();
+			req.setInitialTagValueZoom("highway", "primary", 15, null);
+			req.setStringFilter(density, "high");
+			Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+			Assert.assertEquals(0xff00ff00, req.getIntPropertyValue(req.ALL.R_COLOR));
+		}
+	}
+
+	@Test
+	public void testConcurrentDictionaryAppends() throws Exception {
+		final RenderingRulesStorage storage = new RenderingRulesStorage("test", null);
+		final int initialSize = storage.dictionary.size();
+		final int strings = 2000;
+		Thread[] threads = new Thread[4];
+		final int[][] indexes = new int[threads.length][strings];
+		final AtomicInteger wrongStrings = new AtomicInteger();
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					// threads add the same strings in different order
+					for (int i = 0; i < strings; i++) {
+						int s = thread % 2 == 0 ? i : strings - 1 - i;
+						indexes[thread][s] = storage.getDictionaryValue("value" + s);
+						if (!("value" + s).equals(storage.getStringValue(indexes[thread][s]))) {
+							wrongStrings.incrementAndGet();
+						}
+					}
+				}
+			};
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		Assert.assertEquals(0, wrongStrings.get());
+		Assert.assertEquals(initialSize + strings, storage.dictionary.size());
+		Assert.assertEquals(storage.dictionary.size(), storage.dictionaryMap.size());
+		for (int i = 0; i < strings; i++) {
+			for (int t = 1; t < threads.length; t++) {
+				Assert.assertEquals(indexes[0][i], indexes[t][i]);
+			}
+			Assert.assertEquals("value" + i, storage.getStringValue(indexes[0][i]));
+		}
+		int nullValue = storage.getDictionaryValue(null);
+		Assert.assertEquals(nullValue, storage.getDictionaryValue(null));
+		Assert.assertNull(storage.getStringValue(nullValue));
+	}
+
+	private static void assertSameSearchResults(Random rnd, RenderingRulesStorage storage) {
+		RenderingRuleSearchRequest cached = new RenderingRuleSearchRequest(storage);
+		RenderingRuleSearchRequest uncached = new RenderingRuleSearchRequest(storage);
+		uncached.setSearchCacheEnabled(false);
+		MapIndex mapIndex = createMapIndex();
+		for (int test = 0; test < 20000; test++) {
+			String tag = TAGS[rnd.nextInt(TAGS.length)];
+			String value = rnd.nextInt(4) == 0 ? "" : VALUES[rnd.nextInt(VALUES.length)];
+			int zoom = 10 + rnd.nextInt(10);
+			BinaryMapDataObject obj = null;
+			String additional = null;
+			if (rnd.nextBoolean()) {
+				int[] types = new int[rnd.nextInt(3)];
+				for (int i = 0; i < types.length; i++) {
+					types[i] = 1 + rnd.nextInt(ADDITIONAL.length);
+				}
+				obj = createObject(mapIndex, types);
+			} else if (rnd.nextBoolean()) {
+				additional = ADDITIONAL[rnd.nextInt(ADDITIONAL.length)];
+			}
+			int layer = rnd.nextInt(3) - 1;
+			boolean night = rnd.nextBoolean();
+			boolean showPaths = rnd.nextBoolean();
+			String density = DENSITY[rnd.nextInt(DENSITY.length)];
+			String attrOnly = rnd.nextBoolean() ? "a" : "b";
+			for (RenderingRuleSearchRequest req : new RenderingRuleSearchRequest[]{cached, uncached}) {
+				req.setInitialTagValueZoom(tag, value, zoom, obj);
+				req.setIntFilter(req.ALL.R_LAYER, layer);
+				req.setBooleanFilter(req.ALL.R_NIGHT_MODE, night);
+				req.setBooleanFilter(storage.PROPS.getCustomRule("showPaths"), showPaths);
+				req.setStringFilter(storage.PROPS.getCustomRule("density"), density);
+				req.setStringFilter(storage.PROPS.getCustomRule("attrOnly"), attrOnly);
+				if (additional != null) {
+					req.setStringFilter(req.ALL.R_ADDITIONAL, additional);
+				}
+			}
+			// next searches start from output of previous one as in renderer
+			int searches = 1 + rnd.nextInt(3);
+			for (int s = 0; s < searches; s++) {
+				int state = 1 + rnd.nextInt(STATES.length);
+				boolean loadOutput = rnd.nextInt(5) != 0;
+				Assert.assertEquals(uncached.search(state, loadOutput), cached.search(state, loadOutput));
+				Assert.assertEquals(uncached.isFound(), cached.isFound());
+				Assert.assertArrayEquals(uncached.values, cached.values);
+				Assert.assertTrue(Arrays.equals(uncached.fvalues, cached.fvalues));
+			}
+		}
+	}
+
+	private static MapIndex createMapIndex() {
+		MapIndex mapIndex = new MapIndex();
+		for (int i = 0; i < ADDITIONAL.length; i++) {
+			String[] tv = ADDITIONAL[i].split("=");
+			mapIndex.initMapEncodingRule(0, i + 1, tv[0], tv[1]);
+		}
+		return mapIndex;
+	}
+
+	private static BinaryMapDataObject createObject(MapIndex mapIndex, int[] additionalTypes) {
+		BinaryMapDataObject obj = new BinaryMapDataObject(1, new int[]{0, 0, 1, 1}, null, 0, false, new int[0],
+				additionalTypes, 0, 0);
+		obj.setMapIndex(mapIndex);
+		return obj;
+	}
+
+	private static String createStyle(Random rnd) {
+		StringBuilder b = new StringBuilder();
+		b.append("<renderingStyle name=\"test\" depends=\"\">");
+		b.append("<renderingProperty attr=\"density\" type=\"string\" possibleValues=\"low,high\"/>");
+		b.append("<renderingProperty attr=\"showPaths\" type=\"boolean\"/>");
+		b.append("<renderingProperty attr=\"attrOnly\" type=\"string\"/>");
+		// attrOnly is read only by attribute rule
+		b.append("<renderingAttribute name=\"roadColor\">");
+		b.append("<case attrOnly=\"a\" nightMode=\"true\" attrColorValue=\"#ff0000\"/>");
+		b.append("<case attrOnly=\"a\" attrColorValue=\"#00ff00\"/>");
+		b.append("<case attrColorValue=\"#0000ff\"/>");
+		b.append("</renderingAttribute>");
+		b.append("<renderingAttribute name=\"roadWidth\">");
+		b.append("<case additional=\"lit=yes\" attrIntValue=\"5\"/>");
+		b.append("<case minzoom=\"15\" attrIntValue=\"3\"/>");
+		b.append("</renderingAttribute>");
+		for (String state : STATES) {
+			b.append('<').append(state).append('>');
+			for (int i = 0; i < 6; i++) {
+				b.append("<switch>");
+				if (rnd.nextBoolean()) {
+					appendRule(rnd, b, "apply", 1);
+				}
+				int cases = 1 + rnd.nextInt(4);
+				for (int c = 0; c < cases; c++) {
+					// tag-value, tag only and default rules
+					String tag = rnd.nextInt(8) == 0 ? "" : TAGS[rnd.nextInt(TAGS.length - 1)];
+					String value = tag.isEmpty() || rnd.nextInt(4) == 0 ? "" : VALUES[rnd.nextInt(VALUES.length - 1)];
+					b.append("<case tag=\"").append(tag).append("\" value=\"").append(value).append('"');
+					appendAttributes(rnd, b);
+					b.append('>');
+					appendChildren(rnd, b, 1);
+					b.append("</case>");
+				}
+				b.append("</switch>");
+			}
+			b.append("</").append(state).append('>');
+		}
+		b.append("</renderingStyle>");
+		return b.toString();
+	}
+
+	private static void appendChildren(Random rnd, StringBuilder b, int depth) {
+		if (depth > 3) {
+			return;
+		}
+		int children = rnd.nextInt(4);
+		for (int i = 0; i < children; i++) {
+			int type = rnd.nextInt(3);
+			appendRule(rnd, b, type == 0 ? "case" : type == 1 ? "switch" : "apply", depth);
+		}
+	}
+
+	private static void appendRule(Random rnd, StringBuilder b, String name, int depth) {
+		b.append('<').append(name);
+		if (!name.equals("switch")) {
+			appendAttributes(rnd, b);
+		} else {
+			appendConditions(rnd, b);
+		}
+		b.append('>');
+		if (name.equals("switch")) {
+			appendRule(rnd, b, "case", depth + 1);
+		}
+		appendChildren(rnd, b, depth + 1);
+		b.append("</").append(name).append('>');
+	}
+
+	private static void appendAttributes(Random rnd, StringBuilder b) {
+		appendConditions(rnd, b);
+		if (rnd.nextBoolean()) {
+			b.append(rnd.nextInt(3) == 0 ? " color=\"$roadColor\"" : " color=\"#ff000" + rnd.nextInt(10) + "\"");
+		}
+		if (rnd.nextBoolean()) {
+			b.append(rnd.nextInt(3) == 0 ? " strokeWidth=\"$roadWidth\"" : " strokeWidth=\"" + rnd.nextInt(4) + ".5\"");
+		}
+		if (rnd.nextInt(3) == 0) {
+			b.append(" order=\"").append(rnd.nextInt(100)).append('"');
+		}
+		if (rnd.nextInt(4) == 0) {
+			b.append(" icon=\"icon").append(rnd.nextInt(3)).append('"');
+		}
+		if (rnd.nextInt(4) == 0) {
+			b.append(" textSize=\"").append(rnd.nextInt(20)).append('"');
+		}
+		if (rnd.nextInt(10) == 0) {
+			b.append(" disable=\"true\"");
+		}
+	}
+
+	private static void appendConditions(Random rnd, StringBuilder b) {
+		if (rnd.nextInt(3) == 0) {
+			b.append(" minzoom=\"").append(10 + rnd.nextInt(10)).append('"');
+		}
+		if (rnd.nextInt(4) == 0) {
+			b.append(" maxzoom=\"").append(12 + rnd.nextInt(8)).append('"');
+		}
+		if (rnd.nextInt(5) == 0) {
+			b.append(" layer=\"").append(rnd.nextInt(3) - 1).append('"');
+		}
+		if (rnd.nextInt(5) == 0) {
+			b.append(" nightMode=\"").append(rnd.nextBoolean()).append('"');
+		}
+		if (rnd.nextInt(5) == 0) {
+			b.append(" density=\"").append(DENSITY[rnd.nextInt(DENSITY.length)]).append('"');
+		}
+		if (rnd.nextInt(6) == 0) {
+			b.append(" showPaths=\"true\"");
+		}
+		if (rnd.nextInt(6) == 0) {
+			b.append(" additional=\"").append(ADDITIONAL[rnd.nextInt(ADDITIONAL.length)]).append('"');
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package net.osmand.render;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.render.TileRenderingPool.MapDataProvider;
+import net.osmand.render.TileRenderingPool.TileListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class TileRenderingPoolTest {
+
+	private static final int ZOOM = 15;
+	private static final int LEFT = 16800;
+	private static final int TOP = 10900;
+	private static final int TILES = 4;
+
+	private static final String STYLE = "<renderingStyle name=\"test\" depends=\"\">"
+			+ "<renderingAttribute name=\"defaultColor\"><case attrColorValue=\"#f1eee8\"/></renderingAttribute>"
+			+ "<order><switch>"
+			+ "<case tag=\"highway\" value=\"\" objectType=\"2\" order=\"40\"/>"
+			+ "<case tag=\"natural\" value=\"wood\" objectType=\"3\" order=\"5\"/>"
+			+ "<case tag=\"amenity\" value=\"\" objectType=\"1\" order=\"100\"/>"
+			+ "</switch></order>"
+			+ "<line>"
+			+ "<case tag=\"highway\" value=\"primary\" color=\"#ff8000\" strokeWidth=\"6\"/>"
+			+ "<case tag=\"highway\" value=\"\" additional=\"surface=paved\" color=\"#404040\" strokeWidth=\"3\"/>"
+			+ "<case tag=\"highway\" value=\"\" color=\"#808080\" strokeWidth=\"2\"/>"
+			+ "</line>"
+			+ "<polygon><case tag=\"natural\" value=\"wood\" color=\"#80c080\"/></polygon>"
+			+ "<point><case tag=\"amenity\" value=\"cafe\" icon=\"cafe\"/></point>"
+			+ "<text>"
+			+ "<case tag=\"highway\" value=\"\" nameTag=\"\" textSize=\"12\" textColor=\"#000000\"/>"
+			+ "<case tag=\"amenity\" value=\"cafe\" nameTag=\"\" textSize=\"10\" textDy=\"8\"/>"
+			+ "</text>"
+			+ "</renderingStyle>";
+
+	private static RenderingRulesStorage createStorage() throws XmlPullParserException, IOException {
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", null);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes("UTF-8")), null);
+		return storage;
+	}
+
+	private static HeadlessMapRenderer createRenderer(RenderingRulesStorage storage) {
+		final BufferedImage icon = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+		return new HeadlessMapRenderer(storage, new HeadlessMapRenderer.IconProvider() {
+			@Override
+			public BufferedImage getIcon(String resId) {
+				return "cafe".equals(resId) ? icon : null;
+			}
+		}, 1);
+	}
+
+	@Test
+	public void testParallelRenderingEqualsSequential() throws XmlPullParserException, IOException {
+		SyntheticDataProvider provider = new SyntheticDataProvider();
+		RenderingRulesStorage sequentialStorage = createStorage();
+		HeadlessMapRenderer sequentialRenderer = createRenderer(sequentialStorage);
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(sequentialStorage);
+		req.setSearchCacheEnabled(false);
+		Map<Integer, BufferedImage> expected = new ConcurrentHashMap<>();
+		for (int x = LEFT; x < LEFT + TILES; x++) {
+			for (int y = TOP; y < TOP + TILES; y++) {
+				expected.put(key(x, y), sequentialRenderer.renderTile(req, provider.getObjects(ZOOM, x << (31 - ZOOM),
+						y << (31 - ZOOM), 0, 0), ZOOM, x, y));
+			}
+		}
+		int background = expected.get(key(LEFT, TOP)).getRGB(0, 0);
+		boolean drawn = false;
+		for (BufferedImage img : expected.values()) {
+			drawn |= differs(img, background);
+		}
+		Assert.assertTrue(drawn);
+
+		// strings of objects which are not in style are added to dictionary by all rendering threads
+		RenderingRulesStorage storage = createStorage();
+		int dictionarySize = storage.dictionary.size();
+		TileRenderingPool pool = new TileRenderingPool(createRenderer(storage), null, provider, 4);
+		try {
+			for (int round = 0; round < 3; round++) {
+				final Map<Integer, BufferedImage> images = new ConcurrentHashMap<>();
+				final List<Exception> errors = new ArrayList<>();
+				pool.renderTiles(ZOOM, LEFT, TOP, LEFT + TILES - 1, TOP + TILES - 1, new TileListener() {
+					@Override
+					public void tileRendered(int zoom, int x, int y, BufferedImage image) {
+						images.put(key(x, y), image);
+					}
+
+					@Override
+					public void tileFailed(int zoom, int x, int y, Exception e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				});
+				Assert.assertTrue(errors.isEmpty());
+				Assert.assertEquals(TILES * TILES, images.size());
+				for (Map.Entry<Integer, BufferedImage> e : expected.entrySet()) {
+					assertSameImage(e.getValue(), images.get(e.getKey()));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertTrue(storage.dictionary.size() > dictionarySize);
+		Assert.assertEquals(sequentialStorage.dictionary.size(), storage.dictionary.size());
+		Assert.assertEquals(storage.dictionary.size(), storage.dictionaryMap.size());
+		for (int i = 0; i < storage.dictionary.size(); i++) {
+			Assert.assertEquals(i, storage.getDictionaryValue(storage.getStringValue(i)));
+		}
+	}
+
+	private static int key(int x, int y) {
+		return x * 1000 + y;
+	}
+
+	private static boolean differs(BufferedImage img, int color) {
+		for (int x = 0; x < img.getWidth(); x++) {
+			for (int y = 0; y < img.getHeight(); y++) {
+				if (img.getRGB(x, y) != color) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+		Assert.assertEquals(expected.getWidth(), actual.getWidth());
+		Assert.assertEquals(expected.getHeight(), actual.getHeight());
+		int w = expected.getWidth();
+		int h = expected.getHeight();
+		Assert.assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+	}
+
+	// objects of tile are generated from tile coordinates, half of tags, values and names are not in style
+	private static class SyntheticDataProvider implements MapDataProvider {
+		private static final int UNKNOWN = 20;
+		private final MapIndex mapIndex = new MapIndex();
+		private final int nameType;
+		private final int surfaceType;
+		private final int[] nameTags = new int[UNKNOWN];
+		private final int[] highways = new int[UNKNOWN + 1];
+		private final int[] amenities = new int[UNKNOWN + 1];
+		private final int[] unknownTags = new int[UNKNOWN];
+		private final int wood;
+
+		SyntheticDataProvider() {
+			int id = 1;
+			nameType = id;
+			mapIndex.initMapEncodingRule(0, id++, "name", "");
+			surfaceType = id;
+			mapIndex.initMapEncodingRule(0, id++, "surface", "paved");
+			wood = id;
+			mapIndex.initMapEncodingRule(0, id++, "natural", "wood");
+			highways[0] = id;
+			mapIndex.initMapEncodingRule(0, id++, "highway", "primary");
+			amenities[0] = id;
+			mapIndex.initMapEncodingRule(0, id++, "amenity", "cafe");
+			for (int i = 0; i < UNKNOWN; i++) {
+				nameTags[i] = id;
+				mapIndex.initMapEncodingRule(0, id++, "name:l" + i, "");
+				highways[i + 1] = id;
+				mapIndex.initMapEncodingRule(0, id++, "highway", "unknown" + i);
+				amenities[i + 1] = id;
+				mapIndex.initMapEncodingRule(0, id++, "amenity", "unknown" + i);
+				unknownTags[i] = id;
+				mapIndex.initMapEncodingRule(0, id++, "unknown" + i, "yes");
+			}
+		}
+
+		@Override
+		public List<BinaryMapDataObject> getObjects(int zoom, int left31, int top31, int right31, int bottom31) {
+			int tileX = left31 >> (31 - zoom);
+			int tileY = top31 >> (31 - zoom);
+			Random rnd = new Random(key(tileX, tileY));
+			int size = 1 << (31 - zoom);
+			List<BinaryMapDataObject> objects = new ArrayList<>();
+			for (int i = 0; i < 30; i++) {
+				int kind = rnd.nextInt(4);
+				int x = left31 + rnd.nextInt(size);
+				int y = top31 + rnd.nextInt(size);
+				int[] coordinates;
+				int type;
+				boolean area = false;
+				if (kind == 0) {
+					type = wood;
+					int d = size / 8;
+					coordinates = new int[]{x, y, x + d, y, x + d, y + d, x, y + d, x, y};
+					area = true;
+				} else if (kind == 1) {
+					type = amenities[rnd.nextInt(amenities.length)];
+					coordinates = new int[]{x, y};
+				} else if (kind == 2) {
+					// tag which is not in style at all
+					type = unknownTags[rnd.nextInt(UNKNOWN)];
+					coordinates = new int[]{x, y};
+				} else {
+					type = highways[rnd.nextInt(highways.length)];
+					coordinates = new int[]{x, y, x + size / 3, y + size / 5, x + size / 2, y - size / 4};
+				}
+				int[] additional = rnd.nextBoolean() ? new int[]{surfaceType} : new int[0];
+				BinaryMapDataObject obj = new BinaryMapDataObject(i + 1, coordinates, null, 0, area,
+						new int[]{type}, additional, 0, 0);
+				obj.setMapIndex(mapIndex);
+				obj.putObjectName(nameType, "Name " + i);
+				obj.putObjectName(nameTags[rnd.nextInt(UNKNOWN)], "Local " + i);
+				objects.add(obj);
+			}
+			return objects;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteResultPreparationListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreparedRouteStreamTest {
+
+	private static final double LAT = 52.0;
+	private static final double LON = 4.0;
+	private static final int STEPS = 10;
+	// ~615 m, ~445 m and ~200 m
+	private static final double HALF_EAST = 0.009;
+	private static final double NORTH = 0.004;
+	private static final double SPUR = 0.003;
+
+	// stairs of roads turning left and right, there are dead end roads straight ahead at every turn
+	private static TestRoadNetwork createStairs() {
+		TestRoadNetwork network = new TestRoadNetwork();
+		double lat = LAT;
+		double lon = LON;
+		for (int k = 0; k < STEPS; k++) {
+			network.addRoad(new String[] { "highway", "primary" }, line(lat, lon, lat, lon + HALF_EAST));
+			lon += HALF_EAST;
+			String[] lanes = k % 2 == 0 ? new String[] { "highway", "primary", "turn:lanes:forward", "left|through|through" }
+					: new String[] { "highway", "primary" };
+			network.addRoad(lanes, line(lat, lon, lat, lon + HALF_EAST));
+			lon += HALF_EAST;
+			network.addRoad(new String[] { "highway", "residential" }, line(lat, lon, lat, lon + SPUR));
+			network.addRoad(new String[] { "highway", "secondary" }, line(lat, lon, lat + NORTH, lon));
+			lat += NORTH;
+			network.addRoad(new String[] { "highway", "residential" }, line(lat, lon, lat + SPUR, lon));
+		}
+		return network;
+	}
+
+	// points every ~35-55 m, so attached roads of the route are loaded by several windows
+	private static double[] line(double lat1, double lon1, double lat2, double lon2) {
+		int points = (int) Math.round(Math.max(Math.abs(lat2 - lat1), Math.abs(lon2 - lon1)) / 0.0005) + 1;
+		double[] latLons = new double[2 * points];
+		for (int i = 0; i < points; i++) {
+			latLons[2 * i] = lat1 + (lat2 - lat1) * i / (points - 1);
+			latLons[2 * i + 1] = lon1 + (lon2 - lon1) * i / (points - 1);
+		}
+		return latLons;
+	}
+
+	private static List<RouteSegmentResult> route(int threads, RouteResultPreparationListener listener) throws Exception {
+		RoutingConfiguration config = TestRoadNetwork.buildConfig();
+		config.preparationThreads = threads;
+		RoutingContext ctx = createStairs().buildContext(config);
+		ctx.resultPreparationListener = listener;
+		List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, new LatLon(LAT, LON + 0.0005),
+				new LatLon(LAT + STEPS * NORTH, LON + STEPS * 2 * HALF_EAST - 0.0005), null);
+		Assert.assertNotNull(route);
+		return route;
+	}
+
+	@Test
+	public void testStreamedPrefixesAreFinal() throws Exception {
+		List<RouteSegmentResult> sequential = route(1, null);
+		final List<List<RouteSegmentResult>> prefixes = new ArrayList<List<RouteSegmentResult>>();
+		final List<Float> distances = new ArrayList<Float>();
+		List<RouteSegmentResult> streamed = route(4, new RouteResultPreparationListener() {
+			@Override
+			public void onRoutePrefixPrepared(List<RouteSegmentResult> preparedSegments, float preparedDistance) {
+				prefixes.add(preparedSegments);
+				distances.add(preparedDistance);
+			}
+		});
+		assertSameSegments(sequential, streamed, sequential.size());
+		int turns = 0;
+		for (RouteSegmentResult r : sequential) {
+			if (r.getTurnType() != null && r.getTurnType().getValue() != TurnType.C) {
+				turns++;
+			}
+		}
+		// route ends on the last road going north
+		Assert.assertEquals(2 * STEPS - 1, turns);
+
+		Assert.assertTrue(prefixes.size() > 1);
+		for (int i = 0; i < prefixes.size(); i++) {
+			List<RouteSegmentResult> prefix = prefixes.get(i);
+			Assert.assertTrue(prefix.size() < sequential.size());
+			if (i > 0) {
+				Assert.assertTrue(prefix.size() > prefixes.get(i - 1).size());
+			}
+			float distance = 0;
+			for (RouteSegmentResult r : prefix) {
+				distance += r.getDistance();
+			}
+			Assert.assertEquals(distance, distances.get(i), 1);
+			// prefix passed first is not changed afterwards
+			assertSameSegments(sequential, prefix, prefix.size());
+		}
+	}
+
+	private static void assertSameSegments(List<RouteSegmentResult> expected, List<RouteSegmentResult> actual, int size) {
+		Assert.assertTrue(actual.size() <= expected.size());
+		Assert.assertEquals(size, actual.size());
+		for (int i = 0; i < size; i++) {
+			RouteSegmentResult e = expected.get(i);
+			RouteSegmentResult a = actual.get(i);
+			String msg = "Segment " + i;
+			Assert.assertEquals(msg, e.getObject().getId(), a.getObject().getId());
+			if (i > 0 || expected.size() == size) {
+				// precise start point is inserted into the first road after preparation
+				Assert.assertEquals(msg, e.getStartPointIndex(), a.getStartPointIndex());
+				Assert.assertEquals(msg, e.getEndPointIndex(), a.getEndPointIndex());
+			}
+			Assert.assertEquals(msg, e.getDistance(), a.getDistance(), 0.01);
+			Assert.assertEquals(msg, e.getSegmentTime(), a.getSegmentTime(), 0.01);
+			Assert.assertEquals(msg, e.getDescription(), a.getDescription());
+			if (e.getTurnType() == null) {
+				Assert.assertNull(msg, a.getTurnType());
+			} else {
+				Assert.assertNotNull(msg, a.getTurnType());
+				Assert.assertEquals(msg, e.getTurnType().toString(), a.getTurnType().toString());
+				Assert.assertEquals(msg, e.getTurnType().isSkipToSpeak(), a.getTurnType().isSkipToSpeak());
+				Assert.assertTrue(msg, Arrays.equals(e.getTurnType().getLanes(), a.getTurnType().getLanes()));
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package net.osmand.router;
+
+import net.osmand.data.LatLon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReachableAreaTest {
+
+	private static final double LAT = 52.0;
+	private static final double LON = 4.0;
+	// ~1 km
+	private static final double STEP = 0.009;
+
+	private ReachableArea searchArea(String highway, float timeLimit, float distanceLimit) throws Exception {
+		TestRoadNetwork network = new TestRoadNetwork();
+		network.addRoad(new String[] { "highway", highway, "maxspeed", "36" }, 
+				LAT, LON, LAT + STEP, LON, LAT + 2 * STEP, LON, LAT + 3 * STEP, LON, LAT + 4 * STEP, LON);
+		// branch from the second point
+		network.addRoad(new String[] { "highway", highway, "maxspeed", "36" }, 
+				LAT + STEP, LON, LAT + STEP, LON + 1.5 * STEP, LAT + STEP, LON + 3 * STEP);
+		RoutingContext ctx = network.buildContext(TestRoadNetwork.buildConfig());
+		ReachableArea area = new RoutePlannerFrontEnd().searchReachableArea(ctx, new LatLon(LAT, LON), timeLimit, distanceLimit);
+		Assert.assertNotNull(area);
+		return area;
+	}
+
+	private static int farthestPoint(ReachableArea area) {
+		int ind = 0;
+		for (int i = 1; i < area.size(); i++) {
+			if (area.getDistance(i) > area.getDistance(ind)) {
+				ind = i;
+			}
+		}
+		return ind;
+	}
+
+	@Test
+	public void testTimeLimitIsRealTravelTime() throws Exception {
+		// 10 m/s, routing cost of tertiary road is twice bigger than real time
+		ReachableArea area = searchArea("tertiary", 250, 0);
+		for (int i = 0; i < area.size(); i++) {
+			Assert.assertTrue(area.getTime(i) <= 250.01f);
+			Assert.assertEquals(area.getDistance(i) / 10, area.getTime(i), 1f);
+		}
+		int far = farthestPoint(area);
+		Assert.assertEquals(250, area.getTime(far), 0.5f);
+		Assert.assertEquals(2500, area.getDistance(far), 5f);
+		// edge of the area is interpolated on the branch as well (1 km to the branch and 1.5 km on it)
+		int branchEdge = 0;
+		for (int i = 0; i < area.size(); i++) {
+			if (area.getX31(i) > area.getX31(branchEdge)) {
+				branchEdge = i;
+			}
+		}
+		Assert.assertEquals(250, area.getTime(branchEdge), 0.5f);
+	}
+
+	@Test
+	public void testDistanceLimit() throws Exception {
+		ReachableArea area = searchArea("primary", 0, 1500);
+		int far = farthestPoint(area);
+		Assert.assertEquals(1500, area.getDistance(far), 1f);
+		Assert.assertEquals(150, area.getTime(far), 1f);
+		// start, intersection and points on the edge of both roads
+		Assert.assertEquals(4, area.size());
+	}
+}
@@ -0,0 +1,82 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RoadSpeedOverridesTest {
+
+	@Test
+	public void testFactorsTable() {
+		RoadSpeedOverrides overrides = new RoadSpeedOverrides();
+		long[] ids = new long[1000];
+		float[] factors = new float[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = (i * 7919L) << 6;
+			factors[i] = 0.5f + i / 1000f;
+		}
+		overrides.setSpeedFactors(ids, factors);
+		Assert.assertEquals(ids.length, overrides.size());
+		for (int i = 0; i < ids.length; i++) {
+			Assert.assertEquals(factors[i], overrides.getSpeedFactor(road(ids[i])), 0f);
+		}
+		Assert.assertEquals(SpeedOverrideProvider.NO_OVERRIDE, overrides.getSpeedFactor(road(1)), 0f);
+		overrides.setSpeedFactors(new long[] { 64, 128 }, new float[] { 0.3f, -1f });
+		Assert.assertEquals(1, overrides.size());
+		Assert.assertEquals(0.3f, overrides.getSpeedFactor(road(64)), 0f);
+		Assert.assertEquals(SpeedOverrideProvider.NO_OVERRIDE, overrides.getSpeedFactor(road(128)), 0f);
+		Assert.assertEquals(SpeedOverrideProvider.NO_OVERRIDE, overrides.getSpeedFactor(road(ids[5])), 0f);
+		overrides.clear();
+		Assert.assertEquals(0, overrides.size());
+	}
+
+	@Test
+	public void testLoadFromStream() throws IOException {
+		RoadSpeedOverrides overrides = new RoadSpeedOverrides();
+		String feed = "# probe speeds\n64 0.5\n\n128,0.25\n 192\t2\n";
+		overrides.loadFromStream(new ByteArrayInputStream(feed.getBytes("UTF-8")));
+		Assert.assertEquals(3, overrides.size());
+		Assert.assertEquals(0.5f, overrides.getSpeedFactor(road(64)), 0f);
+		Assert.assertEquals(0.25f, overrides.getSpeedFactor(road(128)), 0f);
+		Assert.assertEquals(2f, overrides.getSpeedFactor(road(192)), 0f);
+		try {
+			overrides.loadFromStream(new ByteArrayInputStream("64 slow\n".getBytes("UTF-8")));
+			Assert.fail("Incorrect line is accepted");
+		} catch (IOException e) {
+			// previous factors are kept
+			Assert.assertEquals(3, overrides.size());
+		}
+	}
+
+	@Test
+	public void testRouterSpeedIsOverridden() throws Exception {
+		TestRoadNetwork network = new TestRoadNetwork();
+		RouteDataObject road = network.addRoad(new String[] { "highway", "primary", "maxspeed", "90" },
+				52.0, 4.0, 52.0, 4.01);
+		RoutingConfiguration config = TestRoadNetwork.buildConfig();
+		network.buildContext(config);
+		GeneralRouter router = config.router;
+		float speed = router.defineVehicleSpeed(road);
+		Assert.assertEquals(90 / 3.6f, speed, 0.01f);
+		RoadSpeedOverrides overrides = new RoadSpeedOverrides();
+		router.setSpeedOverrideProvider(overrides);
+		overrides.setSpeedFactors(new long[] { road.getId() }, new float[] { 0.5f });
+		Assert.assertEquals(speed * 0.5f, router.defineVehicleSpeed(road), 0.01f);
+		// factor is clamped by max speed of the profile
+		overrides.setSpeedFactors(new long[] { road.getId() }, new float[] { 3f });
+		Assert.assertEquals(130 / 3.6f, router.defineVehicleSpeed(road), 0.01f);
+		overrides.clear();
+		Assert.assertEquals(speed, router.defineVehicleSpeed(road), 0.01f);
+	}
+
+	private static RouteDataObject road(long id) {
+		RouteDataObject ro = new RouteDataObject((RouteRegion) null);
+		ro.id = id;
+		return ro;
+	}
+}
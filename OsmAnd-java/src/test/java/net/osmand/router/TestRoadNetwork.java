@@ -0,0 +1,94 @@
+package net.osmand.router;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+import net.osmand.util.MapUtils;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Small synthetic road network for routing tests, roads are put directly into routing tiles of the context
+ * so no obf file is needed.
+ */
+class TestRoadNetwork {
+
+	static final String ROUTING_XML = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\" restrictionsAware=\"true\" minDefaultSpeed=\"10\" maxDefaultSpeed=\"130\">"
+			+ "<way attribute=\"access\"><select value=\"1\" t=\"highway\"/></way>"
+			+ "<way attribute=\"oneway\" type=\"number\"><select value=\"0\"/></way>"
+			+ "<way attribute=\"speed\" type=\"speed\"><select value=\"$maxspeed\" t=\"maxspeed\"/><select value=\"50\"/></way>"
+			+ "<way attribute=\"priority\"><select value=\"0.5\" t=\"highway\" v=\"tertiary\"/><select value=\"1\"/></way>"
+			+ "</routingProfile></osmand_routing_config>";
+
+	private final RouteRegion region = new RouteRegion();
+	private final List<RouteDataObject> roads = new ArrayList<RouteDataObject>();
+	private int rules = 0;
+	private long ids = 1;
+
+	RouteDataObject addRoad(String[] tags, double... latLons) {
+		RouteDataObject ro = new RouteDataObject(region);
+		ro.id = ids++ << 6;
+		ro.types = new int[tags.length / 2];
+		for (int i = 0; i < ro.types.length; i++) {
+			ro.types[i] = rules;
+			region.initRouteEncodingRule(rules++, tags[2 * i], tags[2 * i + 1]);
+		}
+		int points = latLons.length / 2;
+		ro.pointsX = new int[points];
+		ro.pointsY = new int[points];
+		for (int i = 0; i < points; i++) {
+			ro.pointsX[i] = MapUtils.get31TileNumberX(latLons[2 * i + 1]);
+			ro.pointsY[i] = MapUtils.get31TileNumberY(latLons[2 * i]);
+		}
+		roads.add(ro);
+		return ro;
+	}
+
+	static RoutingConfiguration buildConfig() throws IOException, XmlPullParserException {
+		RoutingConfiguration.Builder builder = RoutingConfiguration.parseFromInputStream(
+				new ByteArrayInputStream(ROUTING_XML.getBytes("UTF-8")));
+		return builder.build("car", 100, new HashMap<String, String>());
+	}
+
+	RoutingContext buildContext(RoutingConfiguration config) {
+		region.completeRouteEncodingRules();
+		RoutingContext ctx = new RoutingContext(config, null, new BinaryMapIndexReader[0], RouteCalculationMode.NORMAL);
+		int zoomShift = 31 - config.ZOOM_TO_LOAD_TILES;
+		for (RouteDataObject ro : roads) {
+			for (int i = 0; i < ro.getPointsLength(); i++) {
+				long tileId = (((long) ro.pointsX[i] >> zoomShift) << config.ZOOM_TO_LOAD_TILES) + (ro.pointsY[i] >> zoomShift);
+				List<RoutingSubregionTile> tiles = ctx.indexedSubregions.get(tileId);
+				if (tiles == null) {
+					RoutingSubregionTile tile = new RoutingSubregionTile(new RouteSubregion(region));
+					tile.setLoadedNonNative();
+					tiles = new ArrayList<RoutingSubregionTile>();
+					tiles.add(tile);
+					ctx.indexedSubregions.put(tileId, tiles);
+					ctx.subregionTiles.add(tile);
+				}
+				if (!containsRoad(tiles.get(0), ro)) {
+					tiles.get(0).add(ro);
+				}
+			}
+		}
+		return ctx;
+	}
+
+	private static boolean containsRoad(RoutingSubregionTile tile, RouteDataObject ro) {
+		List<RouteDataObject> loaded = new ArrayList<RouteDataObject>();
+		tile.loadAllObjects(loaded, null, new TLongObjectHashMap<RouteDataObject>());
+		return loaded.contains(ro);
+	}
+}
@@ -0,0 +1,54 @@
+package net.osmand.router;
+
+import java.util.Calendar;
+import java.util.List;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeDependentRoutingTest {
+
+	private static final double LAT = 52.0;
+
+	// ~10 km at 50 km/h and then ~700 m with 30 km/h limit from 10:10 (arrival is ~10:12 for departure at 10:00)
+	private RouteSegmentResult routeConditionalRoad(int departureHour) throws Exception {
+		TestRoadNetwork network = new TestRoadNetwork();
+		network.addRoad(new String[] { "highway", "primary", "maxspeed", "50" },
+				LAT, 4.0, LAT, 4.05, LAT, 4.1, LAT, 4.15);
+		RouteDataObject conditional = network.addRoad(new String[] { "highway", "primary", "maxspeed", "90",
+				"maxspeed:conditional", "30 @ (10:10-11:00)" }, LAT, 4.15, LAT, 4.16);
+		RoutingConfiguration config = TestRoadNetwork.buildConfig();
+		Calendar c = Calendar.getInstance();
+		c.set(2020, Calendar.JUNE, 1, departureHour, 0, 0);
+		config.routeCalculationTime = c.getTimeInMillis();
+		config.timeDependentConditions = true;
+		RoutingContext ctx = network.buildContext(config);
+		List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, new LatLon(LAT, 4.001),
+				new LatLon(LAT, 4.159), null);
+		Assert.assertNotNull(route);
+		for (RouteSegmentResult r : route) {
+			if (r.getObject().getId() == conditional.getId()) {
+				return r;
+			}
+		}
+		Assert.fail("Road with conditional speed is not in the route");
+		return null;
+	}
+
+	@Test
+	public void testConditionalSpeedAtArrivalTime() throws Exception {
+		RouteSegmentResult r = routeConditionalRoad(10);
+		// departure is before 10:10 but the road is reached when the limit is active
+		Assert.assertEquals(30 / 3.6f, r.getSegmentSpeed(), 0.01f);
+		Assert.assertEquals(r.getDistance() / r.getSegmentSpeed(), r.getSegmentTime(), 1f);
+	}
+
+	@Test
+	public void testConditionalSpeedIsNotActive() throws Exception {
+		RouteSegmentResult r = routeConditionalRoad(9);
+		Assert.assertTrue(r.getSegmentSpeed() > 50 / 3.6f);
+	}
+}
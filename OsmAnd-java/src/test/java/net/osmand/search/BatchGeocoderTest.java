@@ -0,0 +1,122 @@
+package net.osmand.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.ResultMatcher;
+import net.osmand.search.BatchGeocoder.GeocodingRequest;
+import net.osmand.search.BatchGeocoder.GeocodingResult;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchGeocoderTest {
+
+	private static final int THREADS = 4;
+
+	private BatchGeocoder geocoder;
+
+	// requests take random time, addresses starting with "fail" throw exception
+	private static class TestGeocoder extends BatchGeocoder {
+		private final Random rnd = new Random(7);
+
+		public TestGeocoder() {
+			super(new SearchSettings((SearchSettings) null), THREADS, 1);
+		}
+
+		@Override
+		public GeocodingResult geocode(GeocodingRequest request) {
+			int sleep;
+			synchronized (rnd) {
+				sleep = rnd.nextInt(5);
+			}
+			try {
+				Thread.sleep(sleep);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			if (request.address.startsWith("fail")) {
+				throw new IllegalArgumentException(request.address);
+			}
+			List<SearchResult> results = new ArrayList<>();
+			results.add(new SearchResult(null));
+			return new GeocodingResult(request, results);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		geocoder = new TestGeocoder();
+	}
+
+	@After
+	public void tearDown() {
+		geocoder.close();
+	}
+
+	@Test
+	public void testResultPerRequestInOrder() throws InterruptedException {
+		List<GeocodingRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			requests.add(new GeocodingRequest((i % 7 == 3 ? "fail " : "street ") + i, null));
+		}
+		final List<GeocodingResult> results = new ArrayList<>();
+		geocoder.geocode(requests.iterator(), new ResultMatcher<GeocodingResult>() {
+
+			@Override
+			public boolean publish(GeocodingResult object) {
+				results.add(object);
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		Assert.assertEquals(requests.size(), results.size());
+		for (int i = 0; i < requests.size(); i++) {
+			GeocodingResult r = results.get(i);
+			Assert.assertSame(requests.get(i), r.request);
+			if (i % 7 == 3) {
+				Assert.assertTrue(r.isFailed());
+				Assert.assertTrue(r.error instanceof IllegalArgumentException);
+				Assert.assertNull(r.getBestResult());
+			} else {
+				Assert.assertFalse(r.isFailed());
+				Assert.assertNotNull(r.getBestResult());
+			}
+		}
+	}
+
+	@Test
+	public void testCancelled() throws InterruptedException {
+		List<GeocodingRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			requests.add(new GeocodingRequest("street " + i, null));
+		}
+		final List<GeocodingResult> results = new ArrayList<>();
+		geocoder.geocode(requests.iterator(), new ResultMatcher<GeocodingResult>() {
+
+			@Override
+			public boolean publish(GeocodingResult object) {
+				results.add(object);
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return results.size() >= 10;
+			}
+		});
+		Assert.assertEquals(10, results.size());
+		for (int i = 0; i < results.size(); i++) {
+			Assert.assertSame(requests.get(i), results.get(i).request);
+		}
+	}
+}
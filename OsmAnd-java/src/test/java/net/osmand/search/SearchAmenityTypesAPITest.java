@@ -0,0 +1,166 @@
+package net.osmand.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.osm.AbstractPoiType;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
+import net.osmand.search.core.SearchPhrase.NameStringMatcher;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SearchAmenityTypesAPITest {
+
+	private static final String POI_TYPES = "<poi_types>"
+			+ "<poi_category name=\"sustenance\" top=\"true\">"
+			+ "<poi_type name=\"cafe\" tag=\"amenity\" value=\"cafe\" top=\"true\">"
+			+ "<poi_additional name=\"cuisine_pizza\" tag=\"cuisine\" value=\"pizza\"/>"
+			+ "</poi_type>"
+			+ "<poi_type name=\"restaurant\" tag=\"amenity\" value=\"restaurant\">"
+			+ "<poi_additional name=\"cuisine_pizza\" tag=\"cuisine\" value=\"pizza\"/>"
+			+ "<poi_additional name=\"outdoor_seating\" tag=\"outdoor_seating\" value=\"yes\"/>"
+			+ "</poi_type>"
+			+ "<poi_type name=\"fast_food\" tag=\"amenity\" value=\"fast_food\"/>"
+			+ "<poi_type name=\"bar\" tag=\"amenity\" value=\"bar\"/>"
+			+ "<poi_type name=\"pub\" tag=\"amenity\" value=\"pub\"/>"
+			+ "</poi_category>"
+			+ "<poi_category name=\"shop\">"
+			+ "<poi_type name=\"bakery\" tag=\"shop\" value=\"bakery\"/>"
+			+ "<poi_type name=\"supermarket\" tag=\"shop\" value=\"supermarket\"/>"
+			+ "<poi_type name=\"convenience\" tag=\"shop\" value=\"convenience\"/>"
+			+ "<poi_type name=\"coffee_shop\" tag=\"shop\" value=\"coffee\"/>"
+			+ "</poi_category>"
+			+ "<poi_category name=\"tourism\">"
+			+ "<poi_type name=\"hotel\" tag=\"tourism\" value=\"hotel\"/>"
+			+ "<poi_type name=\"museum\" tag=\"tourism\" value=\"museum\"/>"
+			+ "<poi_type name=\"camp_site\" tag=\"tourism\" value=\"camp_site\"/>"
+			+ "</poi_category>"
+			+ "<poi_category name=\"user_defined_other\">"
+			+ "<poi_type name=\"wayside_shrine\" tag=\"historic\" value=\"wayside_shrine\"/>"
+			+ "</poi_category>"
+			+ "</poi_types>";
+
+	private static MapPoiTypes types;
+
+	@BeforeClass
+	public static void setUp() throws UnsupportedEncodingException {
+		types = createPoiTypes();
+	}
+
+	static MapPoiTypes createPoiTypes() throws UnsupportedEncodingException {
+		MapPoiTypes types = new MapPoiTypes(null);
+		types.initFromInputStream(new ByteArrayInputStream(POI_TYPES.getBytes("UTF-8")));
+		return types;
+	}
+
+	/**
+	 * Same matching without word start prefix, so all types are checked
+	 */
+	private static class FullScanMatcher extends NameStringMatcher {
+
+		FullScanMatcher(String namePart, StringMatcherMode mode) {
+			super(namePart, mode);
+		}
+
+		@Override
+		public String getWordStartFoldedPart() {
+			return null;
+		}
+	}
+
+	// key, type and found words of every result in order
+	private static List<String> describe(Map<String, ?> results) throws Exception {
+		List<String> res = new ArrayList<String>();
+		for (Entry<String, ?> e : results.entrySet()) {
+			Object ptr = e.getValue();
+			Field pt = ptr.getClass().getField("pt");
+			Field foundWords = ptr.getClass().getField("foundWords");
+			pt.setAccessible(true);
+			foundWords.setAccessible(true);
+			AbstractPoiType type = (AbstractPoiType) pt.get(ptr);
+			res.add(e.getKey() + " " + type.getClass().getSimpleName() + " " + type.getKeyName() + " "
+					+ foundWords.get(ptr));
+		}
+		return res;
+	}
+
+	static Set<String> search(SearchAmenityTypesAPI api, String word) {
+		NameStringMatcher nm = new NameStringMatcher(word, StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		NameStringMatcher nmAdditional = new NameStringMatcher(word, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		return new TreeSet<String>(api.getPoiTypeResults(nm, nmAdditional).keySet());
+	}
+
+	@Test
+	public void testIndexedSearchEqualsFullScan() throws Exception {
+		String[] words = { "c", "ca", "cafe", "cuisine", "pizza", "outdoor", "seating", "yes", "shop", "coffee", "s",
+				"museum", "b", "rest", "restaurant", "sustenance", "camp site", "xyz" };
+		SearchAmenityTypesAPI api = new SearchAmenityTypesAPI(types);
+		for (String w : words) {
+			NameStringMatcher nm = new NameStringMatcher(w, StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+			NameStringMatcher nmAdditional = new NameStringMatcher(w, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+			List<String> indexed = describe(api.getPoiTypeResults(nm, nmAdditional));
+			List<String> all = describe(api.getPoiTypeResults(new FullScanMatcher(w, StringMatcherMode.CHECK_STARTS_FROM_SPACE),
+					new FullScanMatcher(w, StringMatcherMode.CHECK_EQUALS_FROM_SPACE)));
+			Assert.assertEquals(w, all, indexed);
+			Assert.assertEquals(w, describe(api.getPoiTypeResults(new FullScanMatcher(w,
+					StringMatcherMode.CHECK_STARTS_FROM_SPACE), null)), describe(api.getPoiTypeResults(nm, null)));
+		}
+		Assert.assertEquals(new TreeSet<String>(Arrays.asList("cafe", "coffee_shop", "camp_site", "convenience")),
+				search(api, "c"));
+		Assert.assertEquals(new TreeSet<String>(Arrays.asList("cuisine_pizza")), search(api, "pizza"));
+		Assert.assertTrue(search(api, "xyz").isEmpty());
+	}
+
+	@Test
+	public void testConcurrentInit() throws Exception {
+		final String[] words = { "ca", "shop", "coffee", "s", "museum", "b" };
+		final List<Set<String>> expected = new ArrayList<Set<String>>();
+		SearchAmenityTypesAPI reference = new SearchAmenityTypesAPI(types);
+		for (String w : words) {
+			expected.add(search(reference, w));
+		}
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int iteration = 0; iteration < 50; iteration++) {
+				// every api is initialized lazily by several threads at once
+				final SearchAmenityTypesAPI api = new SearchAmenityTypesAPI(types);
+				final CyclicBarrier barrier = new CyclicBarrier(threads);
+				List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+				for (int t = 0; t < threads; t++) {
+					final int ind = t % words.length;
+					futures.add(executor.submit(new Callable<Boolean>() {
+
+						@Override
+						public Boolean call() throws Exception {
+							barrier.await();
+							return expected.get(ind).equals(search(api, words[ind]));
+						}
+					}));
+				}
+				for (Future<Boolean> f : futures) {
+					Assert.assertTrue(f.get());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
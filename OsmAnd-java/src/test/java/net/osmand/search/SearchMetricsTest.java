@@ -0,0 +1,103 @@
+package net.osmand.search;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.osmand.ResultMatcher;
+import net.osmand.search.SearchMetrics.SearchMetricsListener;
+import net.osmand.search.SearchMetrics.Span;
+import net.osmand.search.SearchMetrics.SpanType;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchMetricsTest {
+
+	private SearchUICore core;
+	private final BlockingQueue<SearchMetrics> finished = new ArrayBlockingQueue<SearchMetrics>(10);
+
+	@Before
+	public void setUp() {
+		core = new SearchUICore(null, "en", false);
+		core.setMetricsListener(new SearchMetricsListener() {
+
+			@Override
+			public void searchFinished(SearchMetrics metrics) {
+				finished.add(metrics);
+			}
+		});
+	}
+
+	@Test
+	public void testCancelledSearchIsReported() throws InterruptedException {
+		core.registerAPI(new FailingAPI());
+		core.search("cafe", true, new TestMatcher(true));
+		SearchMetrics metrics = finished.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(metrics);
+		Assert.assertTrue(metrics.isCancelled());
+		Assert.assertTrue(metrics.getSpans().isEmpty());
+	}
+
+	@Test
+	public void testFailedApiIsMeasured() throws InterruptedException {
+		core.registerAPI(new FailingAPI());
+		core.search("cafe", false, new TestMatcher(false));
+		SearchMetrics metrics = finished.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(metrics);
+		Assert.assertFalse(metrics.isCancelled());
+		List<Span> spans = metrics.getSpans();
+		Span api = null;
+		for (Span s : spans) {
+			if (s.type == SpanType.API) {
+				Assert.assertNull(api);
+				api = s;
+			}
+		}
+		Assert.assertNotNull(api);
+		Assert.assertEquals(FailingAPI.class.getSimpleName(), api.name);
+		Assert.assertEquals(1, api.count);
+	}
+
+	private static class FailingAPI extends SearchBaseAPI {
+
+		FailingAPI() {
+			super(ObjectType.POI);
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) throws IOException {
+			SearchResult sr = new SearchResult(phrase);
+			sr.localeName = "cafe";
+			sr.objectType = ObjectType.POI;
+			resultMatcher.publish(sr);
+			throw new IOException("broken file");
+		}
+	}
+
+	private static class TestMatcher implements ResultMatcher<SearchResult> {
+		private final boolean cancelled;
+
+		TestMatcher(boolean cancelled) {
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public boolean publish(SearchResult object) {
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+}
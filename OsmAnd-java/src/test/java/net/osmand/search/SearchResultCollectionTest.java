@@ -0,0 +1,121 @@
+package net.osmand.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.osm.PoiCategory;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchResultCollectionTest {
+
+	private static final PoiCategory NATURAL = new PoiCategory(null, "natural", 0);
+	private static final PoiCategory ROUTES = new PoiCategory(null, "routes", 1);
+	private static final PoiCategory SHOP = new PoiCategory(null, "shop", 2);
+
+	private SearchPhrase phrase;
+	private long ids = 1;
+
+	@Before
+	public void setUp() {
+		SearchSettings ss = new SearchSettings((SearchSettings) null);
+		ss = ss.setOriginalLocation(new LatLon(0, 0));
+		phrase = SearchPhrase.emptyPhrase(ss);
+	}
+
+	@Test
+	public void testSimilarityRadius() {
+		SearchResultCollection c = new SearchResultCollection(phrase);
+		// ~10 km
+		double far = 0.09;
+		Assert.assertTrue(c.sameSearchResult(amenity(NATURAL, "peak", "a", 0), amenity(NATURAL, "peak", "a", far)));
+		Assert.assertTrue(c.sameSearchResult(amenity(NATURAL, "peak", "a", 0), amenity(NATURAL, "wood", "a", far)));
+		Assert.assertFalse(c.sameSearchResult(amenity(NATURAL, "peak", "a", 0), amenity(NATURAL, "peak", "b", far)));
+		Assert.assertFalse(c.sameSearchResult(amenity(NATURAL, "peak", "a", 0), amenity(SHOP, "peak", "a", 0)));
+		Assert.assertTrue(c.sameSearchResult(amenity(ROUTES, "route_hiking_rwn_poi", "a", 0),
+				amenity(ROUTES, "route_hiking_rwn_poi", "a", far)));
+		Assert.assertFalse(c.sameSearchResult(amenity(ROUTES, "route_hiking_rwn_poi", "a", 0),
+				amenity(ROUTES, "route_hiking_lwn_poi", "a", far)));
+		Assert.assertTrue(c.sameSearchResult(amenity(SHOP, "bakery", "a", 0), amenity(SHOP, "bakery", "a", 0.0002)));
+		Assert.assertFalse(c.sameSearchResult(amenity(SHOP, "bakery", "a", 0), amenity(SHOP, "bakery", "a", far)));
+	}
+
+	@Test
+	public void testDuplicatesOfResultsAddedWithoutCheck() {
+		SearchResultCollection c = new SearchResultCollection(phrase);
+		SearchResult a = amenity(NATURAL, "peak", "a", 0);
+		c.addSearchResults(Arrays.asList(a), false, false);
+		SearchResult b = amenity(SHOP, "bakery", "b", 0);
+		c.addSearchResults(Arrays.asList(amenity(NATURAL, "peak", "a", 0.09), b), false, true);
+		Assert.assertEquals(Arrays.asList(a, b), c.getCurrentSearchResults());
+		// index of results is kept after resorting
+		c.addSearchResults(Arrays.asList(amenity(SHOP, "bakery", "c", 0.5)), true, false);
+		c.addSearchResults(Arrays.asList(amenity(SHOP, "bakery", "c", 0.5001), amenity(SHOP, "bakery", "b", 0.0001)),
+				false, true);
+		Assert.assertEquals(3, c.getCurrentSearchResults().size());
+	}
+
+	@Test
+	public void testIncrementalAddHasNoDuplicates() {
+		Random rnd = new Random(11);
+		PoiCategory[] types = { NATURAL, ROUTES, SHOP };
+		String[] subTypes = { "peak", "route_hiking_iwn_poi", "bakery" };
+		for (int test = 0; test < 20; test++) {
+			SearchResultCollection c = new SearchResultCollection(phrase);
+			List<SearchResult> all = new ArrayList<>();
+			for (int call = 0; call < 30; call++) {
+				List<SearchResult> added = new ArrayList<>();
+				int size = rnd.nextInt(10);
+				for (int i = 0; i < size; i++) {
+					int t = rnd.nextInt(types.length);
+					// some results are at the same place, some in large similarity radius
+					double lon = rnd.nextInt(4) * 0.1 + (rnd.nextBoolean() ? 0 : rnd.nextInt(3) * 0.0001);
+					added.add(amenity(types[t], subTypes[t], "n" + rnd.nextInt(5), lon));
+				}
+				all.addAll(added);
+				boolean resortAll = rnd.nextInt(5) == 0;
+				c.addSearchResults(added, resortAll, true);
+			}
+			List<SearchResult> res = c.getCurrentSearchResults();
+			for (int i = 0; i < res.size(); i++) {
+				for (int j = i + 1; j < res.size(); j++) {
+					Assert.assertFalse(c.sameSearchResult(res.get(i), res.get(j)));
+				}
+			}
+			// every removed result has same one left
+			for (SearchResult r : all) {
+				boolean found = false;
+				for (SearchResult k : res) {
+					found |= c.sameSearchResult(k, r);
+				}
+				Assert.assertTrue(found);
+			}
+		}
+	}
+
+	private SearchResult amenity(PoiCategory type, String subType, String name, double lon) {
+		Amenity a = new Amenity();
+		a.setType(type);
+		a.setSubType(subType);
+		a.setId(ids++);
+		a.setName(name);
+		a.setLocation(0, lon);
+		SearchResult r = new SearchResult(phrase);
+		r.object = a;
+		r.objectType = ObjectType.POI;
+		r.localeName = name;
+		r.location = new LatLon(0, lon);
+		return r;
+	}
+}
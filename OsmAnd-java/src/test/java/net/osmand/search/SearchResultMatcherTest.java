@@ -0,0 +1,112 @@
+package net.osmand.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchResultMatcherTest {
+
+	private SearchPhrase phrase;
+
+	@Before
+	public void setUp() {
+		SearchSettings ss = new SearchSettings((SearchSettings) null);
+		ss = ss.setOriginalLocation(new LatLon(0, 0));
+		phrase = SearchPhrase.emptyPhrase(ss);
+	}
+
+	@Test
+	public void testTopResultsAreSorted() {
+		SearchResultMatcher rm = createMatcher(3);
+		// results without priority are sorted by name and then by distance
+		searchResult(rm, "c", 300);
+		SearchResult b2 = searchResult(rm, "b", 200);
+		searchResult(rm, "e", 400);
+		searchResult(rm, "d", 50);
+		SearchResult a = searchResult(rm, "a", 100);
+		SearchResult b1 = searchResult(rm, "b", 100);
+		List<SearchResult> res = rm.getRequestResults();
+		Assert.assertEquals(3, res.size());
+		Assert.assertSame(a, res.get(0));
+		Assert.assertSame(b1, res.get(1));
+		Assert.assertSame(b2, res.get(2));
+		Assert.assertEquals(3, rm.getCount());
+	}
+
+	@Test
+	public void testDuplicatesDoNotTakeTopSlots() {
+		SearchResultMatcher rm = createMatcher(2);
+		SearchResult a = searchResult(rm, "a", 100);
+		searchResult(rm, "a", 110);
+		searchResult(rm, "a", 105);
+		SearchResult b = searchResult(rm, "b", 300);
+		List<SearchResult> res = rm.getRequestResults();
+		Assert.assertEquals(2, res.size());
+		Assert.assertSame(a, res.get(0));
+		Assert.assertSame(b, res.get(1));
+	}
+
+	@Test
+	public void testBetterDuplicateReplacesTopResult() {
+		SearchResultMatcher rm = createMatcher(2);
+		searchResult(rm, "a", 110);
+		SearchResult b = searchResult(rm, "b", 300);
+		SearchResult a = searchResult(rm, "a", 100);
+		List<SearchResult> res = rm.getRequestResults();
+		Assert.assertEquals(2, res.size());
+		Assert.assertSame(a, res.get(0));
+		Assert.assertSame(b, res.get(1));
+	}
+
+	@Test
+	public void testTopResultsEqualSortedUniqueResults() {
+		Random rnd = new Random(7);
+		for (int test = 0; test < 20; test++) {
+			SearchResultMatcher rm = createMatcher(10);
+			List<SearchResult> all = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				// same names are far from each other, so duplicates are only results at same place
+				int name = rnd.nextInt(20);
+				SearchResult r = searchResult(rm, "n" + name, name * 1000 + (rnd.nextBoolean() ? 0 : 5000));
+				all.add(r);
+			}
+			SearchResultCollection collection = new SearchResultCollection(phrase);
+			collection.addSearchResults(all, true, true);
+			List<SearchResult> expected = collection.getCurrentSearchResults().subList(0, 10);
+			List<SearchResult> res = rm.getRequestResults();
+			Assert.assertEquals(expected.size(), res.size());
+			for (int i = 0; i < res.size(); i++) {
+				Assert.assertEquals(expected.get(i).localeName, res.get(i).localeName);
+				Assert.assertEquals(expected.get(i).location, res.get(i).location);
+			}
+		}
+	}
+
+	private SearchResultMatcher createMatcher(int limit) {
+		SearchResultMatcher rm = new SearchResultMatcher(null, phrase, 0, new AtomicInteger(), -1);
+		rm.setTopResultsLimit(limit);
+		return rm;
+	}
+
+	private SearchResult searchResult(SearchResultMatcher rm, String text, int dist) {
+		SearchResult res = new SearchResult(phrase);
+		res.localeName = text;
+		double d1 = MapUtils.getDistance(0, 0, 0, 1);
+		res.location = new LatLon(0, dist / d1);
+		rm.publish(res);
+		return res;
+	}
+}
@@ -0,0 +1,55 @@
+package net.osmand.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class IsoDateTimeUtilTest {
+
+	@Test
+	public void testParse() {
+		Assert.assertEquals(1589710530000L, IsoDateTimeUtil.parse("2020-05-17T10:15:30Z"));
+		Assert.assertEquals(1589710530250L, IsoDateTimeUtil.parse("2020-05-17T10:15:30.25Z"));
+		Assert.assertEquals(1589710530123L, IsoDateTimeUtil.parse("2020-05-17T10:15:30.123456Z"));
+		Assert.assertEquals(1589710530000L, IsoDateTimeUtil.parse("2020-05-17T12:15:30+02:00"));
+		Assert.assertEquals(1589715930000L, IsoDateTimeUtil.parse("2020-05-17T10:15:30-0130"));
+		Assert.assertEquals(1589710530000L, IsoDateTimeUtil.parse("\n  2020-05-17T10:15:30Z \n"));
+		Assert.assertEquals(1589710530000L, IsoDateTimeUtil.parse("2020-05-17T10:15:30"));
+		Assert.assertEquals(1589710500000L, IsoDateTimeUtil.parse("2020-05-17T10:15Z"));
+		Assert.assertEquals(-86400000L, IsoDateTimeUtil.parse("1969-12-31T00:00:00Z"));
+	}
+
+	@Test
+	public void testParseInvalid() {
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse(null));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse(""));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse("2020-02-30T10:15:30Z"));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse("2020-5-17T10:15:30Z"));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse("2020-05-17T25:15:30Z"));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse("2020-05-17T10:15:30.Z"));
+		Assert.assertEquals(IsoDateTimeUtil.INVALID_TIME, IsoDateTimeUtil.parse("2020-05-17T10:15:30Zx"));
+	}
+
+	@Test
+	public void testFormatAsSimpleDateFormat() throws ParseException {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		SimpleDateFormat formatMillis = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+		formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Random rnd = new Random(17);
+		for (int i = 0; i < 10000; i++) {
+			// 1900 - 2100
+			long time = -2208988800000L + (long) (rnd.nextDouble() * 6311390400000L);
+			String s = IsoDateTimeUtil.formatMillis(time);
+			Assert.assertEquals(formatMillis.format(time), s);
+			Assert.assertEquals(format.format(time), IsoDateTimeUtil.format(time));
+			Assert.assertEquals(time, IsoDateTimeUtil.parse(s));
+			Assert.assertEquals(formatMillis.parse(s).getTime(), IsoDateTimeUtil.parse(s));
+		}
+	}
+}
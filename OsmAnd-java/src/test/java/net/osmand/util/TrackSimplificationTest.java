@@ -0,0 +1,251 @@
+package net.osmand.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.osmand.GPXTrackColumns;
+import net.osmand.util.TrackSimplification.LevelOfDetail;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrackSimplificationTest {
+
+	@Test
+	public void testDouglasPeuckerEqualsRecursive() {
+		Random rnd = new Random(3);
+		for (int test = 0; test < 50; test++) {
+			int n = 2 + rnd.nextInt(200);
+			double[] x = new double[n];
+			double[] y = new double[n];
+			randomWalk(rnd, x, y);
+			for (double tolerance : new double[]{0.1, 0.5, 1, 3, 10}) {
+				List<Integer> expected = new ArrayList<>();
+				expected.add(0);
+				recursiveDouglasPeucker(x, y, 0, n - 1, tolerance, expected);
+				expected.add(n - 1);
+				Assert.assertArrayEquals(toArray(expected), TrackSimplification.douglasPeucker(x, y, n, tolerance));
+			}
+		}
+	}
+
+	@Test
+	public void testVisvalingamEqualsNaive() {
+		Random rnd = new Random(5);
+		for (int test = 0; test < 50; test++) {
+			int n = 1 + rnd.nextInt(150);
+			double[] x = new double[n];
+			double[] y = new double[n];
+			randomWalk(rnd, x, y);
+			double[] importance = TrackSimplification.visvalingamImportance(x, y, n);
+			Assert.assertArrayEquals(naiveVisvalingam(x, y, n), importance, 1e-9);
+			for (double minArea : new double[]{0.01, 0.3, 2, 20}) {
+				int[] kept = TrackSimplification.visvalingam(x, y, n, minArea);
+				Assert.assertArrayEquals(TrackSimplification.select(importance, minArea), kept);
+			}
+		}
+	}
+
+	@Test
+	public void testSimplificationIsNested() {
+		Random rnd = new Random(7);
+		int n = 1000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		randomWalk(rnd, x, y);
+		int[] previous = null;
+		for (double tolerance = 0.01; tolerance < 100; tolerance *= 2) {
+			int[] kept = TrackSimplification.douglasPeucker(x, y, n, tolerance);
+			assertEnds(kept, n);
+			if (previous != null) {
+				assertSubset(kept, previous);
+			}
+			previous = kept;
+		}
+	}
+
+	@Test
+	public void testSelectCount() {
+		Random rnd = new Random(9);
+		int n = 500;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		randomWalk(rnd, x, y);
+		double[] importance = TrackSimplification.visvalingamImportance(x, y, n);
+		int[] previous = null;
+		for (int max = 2; max <= n; max += 37) {
+			int[] kept = TrackSimplification.selectCount(importance, max);
+			Assert.assertEquals(max, kept.length);
+			assertEnds(kept, n);
+			if (previous != null) {
+				assertSubset(previous, kept);
+			}
+			previous = kept;
+		}
+		Assert.assertEquals(n, TrackSimplification.visvalingamByCount(x, y, n, n + 10).length);
+		Assert.assertEquals(0, TrackSimplification.selectCount(importance, 0).length);
+
+		// all points on line have the same importance
+		double[] line = new double[n];
+		for (int i = 0; i < n; i++) {
+			line[i] = i;
+		}
+		int[] kept = TrackSimplification.visvalingamByCount(line, line, n, 10);
+		Assert.assertEquals(10, kept.length);
+		assertEnds(kept, n);
+	}
+
+	@Test
+	public void testLongTrack() {
+		// explicit stack and heap, no recursion depth for long tracks
+		Random rnd = new Random(11);
+		int n = 200000;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		randomWalk(rnd, x, y);
+		int[] dp = TrackSimplification.douglasPeucker(x, y, n, 5);
+		assertEnds(dp, n);
+		assertSubset(dp, TrackSimplification.douglasPeucker(x, y, n, 1));
+		int[] vw = TrackSimplification.visvalingam(x, y, n, 50);
+		assertEnds(vw, n);
+		assertSubset(vw, TrackSimplification.visvalingam(x, y, n, 10));
+	}
+
+	@Test
+	public void testLevelOfDetail() {
+		Random rnd = new Random(13);
+		GPXTrackColumns columns = new GPXTrackColumns();
+		double lat = 52;
+		double lon = 4;
+		for (int i = 0; i < 5000; i++) {
+			lat += (rnd.nextDouble() - 0.45) * 0.001;
+			lon += (rnd.nextDouble() - 0.45) * 0.001;
+			columns.add(lat, lon, 0, Double.NaN, 0, Double.NaN);
+		}
+		int n = columns.size();
+		LevelOfDetail lod = columns.createLevelOfDetail(5, 18, 1);
+		Assert.assertEquals(5, lod.getMinZoom());
+		Assert.assertEquals(18, lod.getMaxZoom());
+		Assert.assertSame(lod.getIndexes(5), lod.getIndexes(1));
+		Assert.assertSame(lod.getIndexes(18), lod.getIndexes(21));
+
+		int[] x31 = new int[n];
+		int[] y31 = new int[n];
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			x31[i] = MapUtils.get31TileNumberX(columns.getLongitude(i));
+			y31[i] = MapUtils.get31TileNumberY(columns.getLatitude(i));
+			x[i] = x31[i];
+			y[i] = y31[i];
+		}
+		int[] previous = null;
+		for (int zoom = 5; zoom <= 18; zoom++) {
+			int[] level = lod.getIndexes(zoom);
+			double tolerance = Math.pow(2, 31 - TrackSimplification.TILE_SIZE_POWER - zoom);
+			Assert.assertArrayEquals(TrackSimplification.douglasPeucker(x, y, n, tolerance), level);
+			assertEnds(level, n);
+			if (previous != null) {
+				assertSubset(previous, level);
+			}
+			previous = level;
+		}
+		Assert.assertTrue(lod.getIndexes(5).length < lod.getIndexes(18).length);
+		Assert.assertArrayEquals(lod.getIndexes(12), new LevelOfDetail(x31, y31, n, 5, 18, 1).getIndexes(12));
+	}
+
+	private static void randomWalk(Random rnd, double[] x, double[] y) {
+		double px = 0;
+		double py = 0;
+		for (int i = 0; i < x.length; i++) {
+			px += rnd.nextDouble() * 5;
+			py += (rnd.nextDouble() - 0.5) * 5;
+			x[i] = px;
+			y[i] = py;
+		}
+	}
+
+	private static void assertEnds(int[] kept, int n) {
+		Assert.assertEquals(0, kept[0]);
+		Assert.assertEquals(n - 1, kept[kept.length - 1]);
+		for (int i = 1; i < kept.length; i++) {
+			Assert.assertTrue(kept[i - 1] < kept[i]);
+		}
+	}
+
+	private static void assertSubset(int[] subset, int[] set) {
+		for (int i : subset) {
+			Assert.assertTrue(Arrays.binarySearch(set, i) >= 0);
+		}
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] res = new int[list.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = list.get(i);
+		}
+		return res;
+	}
+
+	private static void recursiveDouglasPeucker(double[] x, double[] y, int start, int end, double tolerance,
+												List<Integer> result) {
+		double dmax = -1;
+		int index = -1;
+		for (int i = start + 1; i < end; i++) {
+			double d = distanceToSegment(x[i], y[i], x[start], y[start], x[end], y[end]);
+			if (d > dmax) {
+				dmax = d;
+				index = i;
+			}
+		}
+		if (index >= 0 && dmax >= tolerance) {
+			recursiveDouglasPeucker(x, y, start, index, tolerance, result);
+			result.add(index);
+			recursiveDouglasPeucker(x, y, index, end, tolerance, result);
+		}
+	}
+
+	private static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double len = dx * dx + dy * dy;
+		double t = len == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len));
+		double ex = px - (ax + t * dx);
+		double ey = py - (ay + t * dy);
+		return Math.sqrt(ex * ex + ey * ey);
+	}
+
+	// removes point with least effective area one by one
+	private static double[] naiveVisvalingam(double[] x, double[] y, int n) {
+		double[] importance = new double[n];
+		if (n == 0) {
+			return importance;
+		}
+		importance[0] = Double.POSITIVE_INFINITY;
+		importance[n - 1] = Double.POSITIVE_INFINITY;
+		List<Integer> points = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			points.add(i);
+		}
+		double max = 0;
+		while (points.size() > 2) {
+			int minInd = -1;
+			double minArea = Double.POSITIVE_INFINITY;
+			for (int k = 1; k < points.size() - 1; k++) {
+				int a = points.get(k - 1);
+				int b = points.get(k);
+				int c = points.get(k + 1);
+				double area = Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) / 2;
+				if (area < minArea) {
+					minArea = area;
+					minInd = k;
+				}
+			}
+			max = Math.max(max, minArea);
+			importance[points.remove(minInd)] = max;
+		}
+		return importance;
+	}
+}